@@ -23,7 +23,9 @@ import com.intellij.openapi.components.Storage;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiManager;
 import com.intellij.util.xmlb.annotations.Property;
 import com.intellij.util.xmlb.annotations.Tag;
 import org.jdom.Element;
@@ -33,8 +35,14 @@ import org.jetbrains.annotations.Nullable;
  * @author vnikolaenko
  */
 @State(name = "CfmlProjectConfiguration", storages = @Storage("cfml.xml"))
-public class CfmlProjectConfiguration implements PersistentStateComponent<CfmlProjectConfiguration.State> {
+public class CfmlProjectConfiguration implements PersistentStateComponent<CfmlProjectConfiguration.State>, ModificationTracker {
+  private final Project myProject;
   private State myState = new State();
+  private volatile long myModificationCount;
+
+  public CfmlProjectConfiguration(Project project) {
+    myProject = project;
+  }
 
   public static CfmlProjectConfiguration getInstance(Project project) {
     return ServiceManager.getService(project, CfmlProjectConfiguration.class);
@@ -47,12 +55,20 @@ public class CfmlProjectConfiguration implements PersistentStateComponent<CfmlPr
 
   public void loadState(State state) {
     myState = state;
+    myModificationCount++;
+    // component references are resolved through the mappings and their results are cached
+    PsiManager.getInstance(myProject).dropResolveCaches();
     if (state == null) {
       return;
     }
     state.migrateIfNeeded();
   }
 
+  @Override
+  public long getModificationCount() {
+    return myModificationCount;
+  }
+
   /*
   public CfmlMappingsConfig getMappings() {
     if (myState.getMappings().serverMappings.size() == 0) {
@@ -142,8 +142,9 @@ public class CfmlParameterInfoHandler implements ParameterInfoHandler<PsiElement
     }
     if (element instanceof CfmlReferenceExpression) {
       String functionName = element.getText().toLowerCase();
-      if (ArrayUtil.find(CfmlLangInfo.getInstance(element.getProject()).getPredefinedFunctionsLowCase(), functionName) != -1) {
-        context.setItemsToShow(new Object[]{CfmlLangInfo.getInstance(element.getProject()).getFunctionParameters().get(functionName)});
+      final CfmlFunctionDescription functionDescription = CfmlLangInfo.getInstance(element.getProject()).getFunctionParameters().get(functionName);
+      if (functionDescription != null) {
+        context.setItemsToShow(new Object[]{functionDescription});
         context.showHint(element, element.getTextRange().getStartOffset(), this);
       }
     }
@@ -20,9 +20,7 @@ import com.intellij.coldFusion.model.CfmlLanguage;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.reference.SoftReference;
 import com.intellij.util.text.LineReader;
 import org.jetbrains.annotations.Nullable;
 import org.xml.sax.InputSource;
@@ -30,17 +28,19 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import java.io.InputStream;
-import java.lang.ref.Reference;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author vnikolaenko
  */
 public class CfmlLangInfo {
+  // dictionaries aren't modified once read, so the dictionary of a language level is read once and shared by all projects
+  private static final Map<String, CfmlLangDictionary> ourDictionaries = new ConcurrentHashMap<String, CfmlLangDictionary>();
+
   private final Project myProject;
-  private Reference<CfmlLangDictionary> myCFDictionary;
-  private String myCFDictionaryLevel;
 
   public static CfmlLangInfo getInstance(Project project) {
     return ServiceManager.getService(project, CfmlLangInfo.class);
@@ -78,27 +78,24 @@ public class CfmlLangInfo {
     public String[] myPredefinedFunctionsInLowCase;
     public String[] myVariableScopes;
     public Map<String, CfmlTagDescription> myTagAttributes;
-    public Map<String, CfmlFunctionDescription> myFunctionParameters;
+    public Map<String, CfmlFunctionDescription> myFunctionParameters = Collections.emptyMap();
   }
 
   private CfmlLangDictionary getProjectDictionary() {
-    String languageLevel = getLanguageLevel();
-    CfmlLangDictionary dictionary;
+    return getDictionary(getLanguageLevel());
+  }
 
-    if (Comparing.equal(myCFDictionaryLevel, languageLevel)) {
-      dictionary = SoftReference.dereference(myCFDictionary);
-      if (dictionary != null) return dictionary;
-    }
+  private static CfmlLangDictionary getDictionary(String languageLevel) {
+    CfmlLangDictionary dictionary = ourDictionaries.get(languageLevel);
+    if (dictionary != null) return dictionary;
 
-    synchronized (CfmlLangInfo.class) {
-      dictionary = SoftReference.dereference(myCFDictionary);
-      if (dictionary == null || !Comparing.equal(myCFDictionaryLevel, languageLevel)) {
+    synchronized (ourDictionaries) {
+      dictionary = ourDictionaries.get(languageLevel);
+      if (dictionary == null) {
         dictionary = new CfmlLangDictionary("scopes.txt", languageLevel);
-        myCFDictionary = new SoftReference<CfmlLangDictionary>(dictionary);
-        myCFDictionaryLevel = languageLevel;
+        ourDictionaries.put(languageLevel, dictionary);
       }
     }
-
     return dictionary;
   }
 
@@ -123,6 +120,13 @@ public class CfmlLangInfo {
     return getProjectDictionary().myPredefinedFunctionsInLowCase;
   }
 
+  /**
+   * @param functionNameInLowCase name of a function in lower case
+   */
+  public boolean isPredefinedFunction(String functionNameInLowCase) {
+    return getProjectDictionary().myFunctionParameters.containsKey(functionNameInLowCase);
+  }
+
   public String[] getVariableScopes() {
     return getProjectDictionary().myVariableScopes;
   }
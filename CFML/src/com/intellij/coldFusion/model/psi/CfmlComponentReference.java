@@ -29,6 +29,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Couple;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
@@ -38,7 +39,7 @@ import com.intellij.psi.*;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopes;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.*;
 import com.intellij.util.Function;
 import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.PlatformIcons;
@@ -50,7 +51,10 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author vnikolaenko
@@ -141,26 +145,73 @@ public class CfmlComponentReference extends CfmlCompositeElement implements Cfml
         if (directory != null) {
           GlobalSearchScope searchScope = GlobalSearchScopes.directoryScope(directory, false);
 
-          final Collection<CfmlComponent> components = CfmlIndex.getInstance(project).getComponentsByNameInScope(
-            componentQualifiedName, searchScope);
-          components.addAll(CfmlIndex.getInstance(project).getInterfacesByNameInScope(
-            componentQualifiedName, searchScope));
-          for (CfmlComponent component : components) {
-            result.add(component);
-          }
+          result.addAll(CfmlIndex.getInstance(project).getComponentsByNameInScope(componentQualifiedName, searchScope));
+          result.addAll(CfmlIndex.getInstance(project).getInterfacesByNameInScope(componentQualifiedName, searchScope));
         }
         else {
-          final Collection<CfmlComponent> components = CfmlIndex.getInstance(project).getComponentsByName(
-            componentQualifiedName);
-          components.addAll(CfmlIndex.getInstance(project).getInterfacesByName(componentQualifiedName));
-          for (CfmlComponent component : components) {
-            result.add(component);
-          }
+          result.addAll(CfmlIndex.getInstance(project).getComponentsByName(componentQualifiedName));
+          result.addAll(CfmlIndex.getInstance(project).getInterfacesByName(componentQualifiedName));
         }
       }
     }
 
     if (result.isEmpty()) {
+      result.addAll(getMappedComponents(project).resolve(componentQualifiedName));
+    }
+
+    if (result.isEmpty()) {
+      final Couple<String> prefixAndName = CfmlUtil.getPrefixAndName(componentQualifiedName);
+      final String componentName = prefixAndName.getSecond();
+      final CfmlImport cfmlImport = CfmlUtil.getImportByPrefix(originalFile, prefixAndName.getFirst());
+      if (cfmlImport != null && !StringUtil.isEmpty(componentName)) {
+        String libtag = cfmlImport.getImportString();
+        final VirtualFile folder = CfmlUtil.findFileByLibTag(originalFile, libtag);
+        if (folder != null && folder.isDirectory()) {
+          final GlobalSearchScope scope = GlobalSearchScopes.directoryScope(originalFile.getProject(), folder, true);
+          result.addAll(CfmlIndex.getInstance(originalFile.getProject()).getComponentsByNameInScope(componentName, scope));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static final Key<CachedValue<MappedComponents>> MAPPED_COMPONENTS_KEY = Key.create("cfml.mapped.components");
+
+  private static MappedComponents getMappedComponents(final Project project) {
+    return CachedValuesManager.getManager(project).getCachedValue(project, MAPPED_COMPONENTS_KEY, () -> {
+      final MappedComponents components = new MappedComponents(project);
+      return CachedValueProvider.Result.create(components, PsiModificationTracker.MODIFICATION_COUNT,
+                                               CfmlProjectConfiguration.getInstance(project));
+    }, false);
+  }
+
+  /**
+   * Components found by qualified names through the mappings of the project. The mappings are mapped once, components of every
+   * qualified name are looked up in the indices once until PSI or the project configuration change.
+   */
+  private static class MappedComponents {
+    private final Project myProject;
+    private final CfmlMappingsConfig myMappings;
+    private final Map<String, Collection<CfmlComponent>> myComponents = new ConcurrentHashMap<String, Collection<CfmlComponent>>();
+
+    private MappedComponents(Project project) {
+      myProject = project;
+      CfmlProjectConfiguration.State state = CfmlProjectConfiguration.getInstance(project).getState();
+      myMappings = state != null ? state.getMapps().clone() : new CfmlMappingsConfig();
+      adjustMappingsIfEmpty(myMappings, project);
+    }
+
+    private Collection<CfmlComponent> resolve(String componentQualifiedName) {
+      Collection<CfmlComponent> result = myComponents.get(componentQualifiedName);
+      if (result == null) {
+        result = doResolve(componentQualifiedName);
+        myComponents.put(componentQualifiedName, result);
+      }
+      return result;
+    }
+
+    private Collection<CfmlComponent> doResolve(String componentQualifiedName) {
+      List<CfmlComponent> result = new ArrayList<CfmlComponent>();
       String componentName = getComponentName(componentQualifiedName);
 
       int i = componentQualifiedName.lastIndexOf(".");
@@ -172,17 +223,17 @@ public class CfmlComponentReference extends CfmlCompositeElement implements Cfml
         directoryName = componentQualifiedName.substring(0, i);
       }
 
-      CfmlProjectConfiguration.State state = CfmlProjectConfiguration.getInstance(project).getState();
-      CfmlMappingsConfig mappings = state != null ? state.getMapps().clone() : new CfmlMappingsConfig();
-      adjustMappingsIfEmpty(mappings, originalFile.getProject());
       // addFakeMappingsForResolution(mappings);
-      List<String> realPossiblePaths = mappings.mapVirtualToReal(directoryName);
+      List<String> realPossiblePaths = myMappings.mapVirtualToReal(directoryName);
       // Collections.sort(realPossiblePaths);
+      List<String> realPossibleSystemIndependentPaths = new ArrayList<String>(realPossiblePaths.size());
+      for (String realPath : realPossiblePaths) {
+        realPossibleSystemIndependentPaths.add(FileUtil.toSystemIndependentName(realPath));
+      }
 
-      final Collection<CfmlComponent> components = CfmlIndex.getInstance(project).getComponentsByName(
-        componentName);
-      components.addAll(CfmlIndex.getInstance(project).getInterfacesByName(
-        componentName));
+      final CfmlIndex index = CfmlIndex.getInstance(myProject);
+      final List<CfmlComponent> components = new ArrayList<CfmlComponent>(index.getComponentsByName(componentName));
+      components.addAll(index.getInterfacesByName(componentName));
 
       for (CfmlComponent component : components) {
         PsiDirectory parent = component.getContainingFile().getParent();
@@ -190,66 +241,43 @@ public class CfmlComponentReference extends CfmlCompositeElement implements Cfml
           continue;
         }
         VirtualFile virtualFile = parent.getVirtualFile();
-        for (String realPath : realPossiblePaths) {
-          if (FileUtil.toSystemIndependentName(realPath).equals(FileUtil.toSystemIndependentName(virtualFile.getPresentableUrl()))) {
-            result.add(component);
-            break;
-          }
+        if (realPossibleSystemIndependentPaths.contains(FileUtil.toSystemIndependentName(virtualFile.getPresentableUrl()))) {
+          result.add(component);
         }
       }
 
       for (String realPath : realPossiblePaths) {
         VirtualFile fileByUrl = LocalFileSystem.getInstance().findFileByPath(realPath);
         if (fileByUrl != null) {
-          PsiFile file = PsiManager.getInstance(project).findFile(fileByUrl);
+          PsiFile file = PsiManager.getInstance(myProject).findFile(fileByUrl);
           if (file != null) {
             PsiDirectory directory = file.getParent();
             if (directory != null) {
               GlobalSearchScope searchScope = GlobalSearchScopes.directoryScope(directory, false);
 
-              final Collection<CfmlComponent> componentsFromGlobalScope = CfmlIndex.getInstance(project).getComponentsByNameInScope(
-                componentName, searchScope);
-              componentsFromGlobalScope.addAll(CfmlIndex.getInstance(project).getInterfacesByNameInScope(
-                componentName, searchScope));
-
-              for (CfmlComponent component : componentsFromGlobalScope) {
-                result.add(component);
-              }
+              result.addAll(index.getComponentsByNameInScope(componentName, searchScope));
+              result.addAll(index.getInterfacesByNameInScope(componentName, searchScope));
             }
           }
         }
       }
+      return result.isEmpty() ? Collections.<CfmlComponent>emptyList() : Collections.unmodifiableList(result);
     }
-
-    if (result.isEmpty()) {
-      final Couple<String> prefixAndName = CfmlUtil.getPrefixAndName(componentQualifiedName);
-      final String componentName = prefixAndName.getSecond();
-      final CfmlImport cfmlImport = CfmlUtil.getImportByPrefix(originalFile, prefixAndName.getFirst());
-      if (cfmlImport != null && !StringUtil.isEmpty(componentName)) {
-        String libtag = cfmlImport.getImportString();
-        final VirtualFile folder = CfmlUtil.findFileByLibTag(originalFile, libtag);
-        if (folder != null && folder.isDirectory()) {
-          final GlobalSearchScope scope = GlobalSearchScopes.directoryScope(originalFile.getProject(), folder, true);
-          result.addAll(CfmlIndex.getInstance(originalFile.getProject()).getComponentsByNameInScope(componentName, scope));
-        }
-      }
-    }
-    return result;
   }
 
-  private final ResolveCache.PolyVariantResolver<CfmlComponentReference> MY_RESOLVER =
+  private static final ResolveCache.PolyVariantResolver<CfmlComponentReference> MY_RESOLVER =
     new ResolveCache.PolyVariantResolver<CfmlComponentReference>() {
       @NotNull
       public ResolveResult[] resolve(@NotNull final CfmlComponentReference expression, final boolean incompleteCode) {
         String componentQualifiedName;
         CfmlImport parentOfType = PsiTreeUtil.getParentOfType(expression, CfmlImport.class);
         if (parentOfType != null) {
-          componentQualifiedName = getText();
+          componentQualifiedName = expression.getText();
         }
         else {
-          componentQualifiedName = getComponentQualifiedName(getText());
+          componentQualifiedName = expression.getComponentQualifiedName(expression.getText());
         }
-        PsiFile containingFile = getContainingFile();
+        PsiFile containingFile = expression.getContainingFile();
         containingFile = containingFile == null ? null : containingFile.getOriginalFile();
         if (containingFile instanceof CfmlFile) {
           return CfmlResolveResult.create(resolveFromQualifiedName(componentQualifiedName, ((CfmlFile)containingFile)));
@@ -261,14 +289,9 @@ public class CfmlComponentReference extends CfmlCompositeElement implements Cfml
   @NotNull
   public ResolveResult[] multiResolve(boolean incompleteCode) {
     // incompleteCode = true, when autocompletion is executed,
-    // in this case, containingFile is not physical and there is no way to get parent directory
-    return MY_RESOLVER.resolve(this, incompleteCode);
-    // if(incompleteCode)
-    // return (getManager()).getResolveCache().resolveWithCaching(this, MY_RESOLVER, true, false);
-    /*
-    else
-      return MY_RESOLVER.resolve(this, incompleteCode);
-    */
+    // in this case, containingFile is not physical and the resolver takes the directory of the original file.
+    // The cache keeps results for the non-physical copy apart from the ones for the physical file
+    return ResolveCache.getInstance(getProject()).resolveWithCaching(this, MY_RESOLVER, false, incompleteCode);
   }
 
   private static String getComponentName(@NotNull String componentName) {
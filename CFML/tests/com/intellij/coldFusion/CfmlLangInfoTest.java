@@ -0,0 +1,54 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.coldFusion;
+
+import com.intellij.coldFusion.model.CfmlLanguage;
+import com.intellij.coldFusion.model.CfmlUtil;
+import com.intellij.coldFusion.model.info.CfmlLangInfo;
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.PlatformTestUtil;
+
+public class CfmlLangInfoTest extends CfmlCodeInsightFixtureTestCase {
+
+  public void testReadDictionaries() {
+    PlatformTestUtil.startPerformanceTest("Reading CFML dictionaries", 5000, () -> {
+      for (String level : new String[]{CfmlLanguage.CF8, CfmlLanguage.CF9, CfmlLanguage.CF10, CfmlLanguage.CF11, CfmlLanguage.RAILO}) {
+        assertFalse(new CfmlLangInfo.CfmlLangDictionary("scopes.txt", level).myTagAttributes.isEmpty());
+      }
+    }).cpuBound().assertTiming();
+  }
+
+  public void testDictionaryIsReadOnce() {
+    final CfmlLangInfo langInfo = CfmlLangInfo.getInstance(getProject());
+    assertSame(langInfo.getTagAttributes(), langInfo.getTagAttributes());
+    assertSame(langInfo.getFunctionParameters(), langInfo.getFunctionParameters());
+  }
+
+  public void testPredefinedFunctionLookup() {
+    final Project project = getProject();
+    final String[] functions = CfmlUtil.getPredifinedFunctions(project);
+    assertTrue(functions.length > 0);
+
+    PlatformTestUtil.startPerformanceTest("Predefined CFML function lookup", 1000, () -> {
+      for (int i = 0; i < 100; i++) {
+        for (String function : functions) {
+          assertTrue(CfmlUtil.isPredefinedFunction(function, project));
+          assertFalse(CfmlUtil.isPredefinedFunction(function + "_", project));
+        }
+      }
+    }).cpuBound().assertTiming();
+  }
+}
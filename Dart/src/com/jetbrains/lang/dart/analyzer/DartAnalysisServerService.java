@@ -474,6 +474,11 @@ public class DartAnalysisServerService {
     return myServerData.getNavigation(file);
   }
 
+  @Nullable
+  public DartServerData.DartNavigationRegion findNavigationRegion(@NotNull final VirtualFile file, final int offset, final int length) {
+    return myServerData.findNavigationRegion(file, offset, length);
+  }
+
   @NotNull
   public List<DartServerData.DartOverrideMember> getOverrideMembers(@NotNull final VirtualFile file) {
     return myServerData.getOverrideMembers(file);
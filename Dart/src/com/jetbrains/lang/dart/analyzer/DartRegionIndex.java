@@ -0,0 +1,242 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Regions of one file received from the Analysis Server, sorted by offset.
+ * <p/>
+ * Document changes are applied lazily: untouched regions to the right of the change are shifted in O(log n) by adding the delta
+ * to a suffix of a Fenwick tree, touched regions are marked as removed (or resized, see {@link #myUpdateTouched}) in place.
+ * Real offsets are written back to the region objects only when the regions are requested, so a burst of typing costs O(log n)
+ * per keystroke plus one O(n) pass on the next highlighting.
+ */
+class DartRegionIndex<T extends DartServerData.DartRegion> {
+
+  private static final Comparator<DartServerData.DartRegion> OFFSET_COMPARATOR = (r1, r2) -> r1.myOffset - r2.myOffset;
+
+  // highlighting regions are resized when typing inside them, all other regions are deleted
+  private final boolean myUpdateTouched;
+  // not null for navigation regions, targets in this file are shifted on document change
+  @Nullable private final String myFilePath;
+
+  // base offsets of myRegions[i] are valid only together with getShift(i) until flush()
+  @NotNull private List<T> myRegions;
+  @NotNull private List<T> myRegionsView;
+  private int myMaxLength;
+
+  private int[] myShifts; // Fenwick tree of size myRegions.size() + 1, allocated on first change
+  private BitSet myRemoved;
+  private int myRemovedCount;
+  private final TIntArrayList myPendingTargetShifts = new TIntArrayList(); // pairs (offset, delta)
+  private boolean myDirty;
+
+  DartRegionIndex(@NotNull final List<T> regions, final boolean updateTouched, @Nullable final String filePath) {
+    myUpdateTouched = updateTouched;
+    myFilePath = filePath;
+
+    final List<T> sorted = new ArrayList<T>(regions);
+    Collections.sort(sorted, OFFSET_COMPARATOR);
+    setRegions(sorted);
+  }
+
+  /**
+   * @return regions sorted by offset with offsets and lengths reflecting all document changes done so far
+   */
+  @NotNull
+  synchronized List<T> getRegions() {
+    flush();
+    return myRegionsView;
+  }
+
+  /**
+   * Finds the region with exactly the given offset and length, regions are expected not to overlap (like navigation regions).
+   */
+  @Nullable
+  synchronized T findRegion(final int offset, final int length) {
+    flush();
+
+    int low = 0;
+    int high = myRegions.size() - 1;
+
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final T midVal = myRegions.get(mid);
+      final int cmp = midVal.myOffset - offset;
+
+      if (cmp < 0) {
+        low = mid + 1;
+      }
+      else if (cmp > 0) {
+        high = mid - 1;
+      }
+      else {
+        return midVal.myLength == length ? midVal : null;
+      }
+    }
+    return null;
+  }
+
+  synchronized void documentChanged(final int eventOffset, final int oldLength, final int newLength) {
+    final int deltaLength = newLength - oldLength;
+    if (deltaLength == 0 || myRegions.isEmpty()) return;
+
+    if (myShifts == null) {
+      myShifts = new int[myRegions.size() + 1];
+      myRemoved = new BitSet(myRegions.size());
+    }
+    myDirty = true;
+
+    if (myFilePath != null) {
+      myPendingTargetShifts.add(eventOffset);
+      myPendingTargetShifts.add(deltaLength);
+    }
+
+    // Regions starting at or after eventRightOffset are untouched, shift them. Typing at the very start of a region also shifts it.
+    final int eventRightOffset = deltaLength > 0 ? eventOffset : eventOffset - deltaLength;
+    final int firstShifted = lowerBound(eventRightOffset);
+
+    // Only regions starting before eventRightOffset and ending after eventOffset may be touched.
+    final int firstTouched = lowerBound(eventOffset - myMaxLength);
+
+    for (int i = firstTouched; i < firstShifted; i++) {
+      if (myRemoved.get(i)) continue;
+
+      final T region = myRegions.get(i);
+      final int regionOffset = region.myOffset + getShift(i);
+      final int regionRightOffset = regionOffset + region.myLength;
+
+      if (deltaLength > 0) {
+        // Something was typed. Delete or update touched.
+        if (regionOffset < eventOffset && eventOffset < regionRightOffset) {
+          if (myUpdateTouched) {
+            region.myLength += deltaLength;
+            myMaxLength = Math.max(myMaxLength, region.myLength);
+          }
+          else {
+            remove(i, eventOffset);
+          }
+        }
+      }
+      else {
+        // Some text was deleted. Delete or update touched.
+        if (myUpdateTouched &&
+            regionOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
+          region.myLength += deltaLength;
+        }
+        else if (eventOffset < regionRightOffset) {
+          remove(i, eventOffset);
+        }
+      }
+    }
+
+    if (firstShifted < myRegions.size()) {
+      addShift(firstShifted, deltaLength);
+    }
+  }
+
+  /**
+   * Marks the region as removed and moves its (no longer used) offset to the change offset, so that offsets stay sorted for binary search.
+   */
+  private void remove(final int index, final int eventOffset) {
+    final T region = myRegions.get(index);
+    final int regionOffset = region.myOffset + getShift(index);
+    if (regionOffset > eventOffset) {
+      region.myOffset -= regionOffset - eventOffset;
+    }
+
+    myRemoved.set(index);
+    myRemovedCount++;
+  }
+
+  /**
+   * @return index of the first region with current offset greater or equal to the given one
+   */
+  private int lowerBound(final int offset) {
+    int low = 0;
+    int high = myRegions.size();
+
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (myRegions.get(mid).myOffset + getShift(mid) < offset) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int getShift(final int index) {
+    if (myShifts == null) return 0;
+
+    int result = 0;
+    for (int i = index + 1; i > 0; i -= i & -i) {
+      result += myShifts[i];
+    }
+    return result;
+  }
+
+  // adds delta to the shifts of all regions starting from the given index
+  private void addShift(final int fromIndex, final int delta) {
+    for (int i = fromIndex + 1; i < myShifts.length; i += i & -i) {
+      myShifts[i] += delta;
+    }
+  }
+
+  private void flush() {
+    if (!myDirty) return;
+
+    // turn the Fenwick tree back into plain per-index deltas in O(n)
+    final int[] shifts = myShifts;
+    for (int i = shifts.length - 1; i > 0; i--) {
+      final int parent = i + (i & -i);
+      if (parent < shifts.length) {
+        shifts[parent] -= shifts[i];
+      }
+    }
+
+    final List<T> regions = new ArrayList<T>(myRegions.size() - myRemovedCount);
+    int shift = 0;
+    for (int i = 0; i < myRegions.size(); i++) {
+      shift += shifts[i + 1];
+      if (myRemoved.get(i)) continue;
+
+      final T region = myRegions.get(i);
+      region.myOffset += shift;
+      regions.add(region);
+    }
+
+    if (myFilePath != null && !myPendingTargetShifts.isEmpty()) {
+      for (T region : regions) {
+        if (region instanceof DartServerData.DartNavigationRegion) {
+          for (DartServerData.DartNavigationTarget target : ((DartServerData.DartNavigationRegion)region).getTargets()) {
+            target.shift(myFilePath, myPendingTargetShifts);
+          }
+        }
+      }
+    }
+
+    myShifts = null;
+    myRemoved = null;
+    myRemovedCount = 0;
+    myPendingTargetShifts.clear();
+    myDirty = false;
+    setRegions(regions);
+  }
+
+  private void setRegions(@NotNull final List<T> regions) {
+    myRegions = regions;
+    myRegionsView = Collections.unmodifiableList(regions);
+
+    int maxLength = 0;
+    for (T region : regions) {
+      maxLength = Math.max(maxLength, region.myLength);
+    }
+    myMaxLength = maxLength;
+  }
+}
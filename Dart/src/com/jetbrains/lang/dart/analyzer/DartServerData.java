@@ -11,6 +11,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
 import com.intellij.util.SmartList;
 import gnu.trove.THashMap;
+import gnu.trove.TIntArrayList;
 import org.dartlang.analysis.server.protocol.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -21,18 +22,18 @@ public class DartServerData {
 
   private DartServerRootsHandler myRootsHandler;
 
-  private final Map<String, List<DartError>> myErrorData =
-    Collections.synchronizedMap(new THashMap<String, List<DartError>>());
-  private final Map<String, List<DartHighlightRegion>> myHighlightData =
-    Collections.synchronizedMap(new THashMap<String, List<DartHighlightRegion>>());
-  private final Map<String, List<DartNavigationRegion>> myNavigationData =
-    Collections.synchronizedMap(new THashMap<String, List<DartNavigationRegion>>());
-  private final Map<String, List<DartOverrideMember>> myOverrideData =
-    Collections.synchronizedMap(new THashMap<String, List<DartOverrideMember>>());
-  private final Map<String, List<DartRegion>> myImplementedClassData =
-    Collections.synchronizedMap(new THashMap<String, List<DartRegion>>());
-  private final Map<String, List<DartRegion>> myImplementedMemberData =
-    Collections.synchronizedMap(new THashMap<String, List<DartRegion>>());
+  private final Map<String, DartRegionIndex<DartError>> myErrorData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartError>>());
+  private final Map<String, DartRegionIndex<DartHighlightRegion>> myHighlightData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartHighlightRegion>>());
+  private final Map<String, DartRegionIndex<DartNavigationRegion>> myNavigationData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartNavigationRegion>>());
+  private final Map<String, DartRegionIndex<DartOverrideMember>> myOverrideData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartOverrideMember>>());
+  private final Map<String, DartRegionIndex<DartRegion>> myImplementedClassData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartRegion>>());
+  private final Map<String, DartRegionIndex<DartRegion>> myImplementedMemberData =
+    Collections.synchronizedMap(new THashMap<String, DartRegionIndex<DartRegion>>());
 
   private final Set<String> myFilePathsWithUnsentChanges = Sets.newConcurrentHashSet();
 
@@ -48,7 +49,7 @@ public class DartServerData {
       newErrors.add(new DartError(error));
     }
 
-    myErrorData.put(filePath, newErrors);
+    myErrorData.put(filePath, new DartRegionIndex<DartError>(newErrors, false, null));
 
     if (restartHighlighting) {
       forceFileAnnotation(filePath, false);
@@ -65,7 +66,7 @@ public class DartServerData {
       }
     }
 
-    myHighlightData.put(filePath, newRegions);
+    myHighlightData.put(filePath, new DartRegionIndex<DartHighlightRegion>(newRegions, true, null));
     forceFileAnnotation(filePath, false);
   }
 
@@ -79,7 +80,7 @@ public class DartServerData {
       }
     }
 
-    myNavigationData.put(filePath, newRegions);
+    myNavigationData.put(filePath, new DartRegionIndex<DartNavigationRegion>(newRegions, false, filePath));
     forceFileAnnotation(filePath, true);
   }
 
@@ -93,7 +94,7 @@ public class DartServerData {
       }
     }
 
-    myOverrideData.put(filePath, newOverrides);
+    myOverrideData.put(filePath, new DartRegionIndex<DartOverrideMember>(newOverrides, false, null));
     forceFileAnnotation(filePath, false);
   }
 
@@ -113,16 +114,18 @@ public class DartServerData {
     }
 
     boolean hasChanges = false;
-    final List<DartRegion> oldClasses = myImplementedClassData.get(filePath);
-    if (oldClasses == null || !oldClasses.equals(newImplementedClasses)) {
+    final DartRegionIndex<DartRegion> oldClasses = myImplementedClassData.get(filePath);
+    final DartRegionIndex<DartRegion> newClasses = new DartRegionIndex<DartRegion>(newImplementedClasses, false, null);
+    if (oldClasses == null || !oldClasses.getRegions().equals(newClasses.getRegions())) {
       hasChanges = true;
-      myImplementedClassData.put(filePath, newImplementedClasses);
+      myImplementedClassData.put(filePath, newClasses);
     }
 
-    final List<DartRegion> oldMembers = myImplementedMemberData.get(filePath);
-    if (oldMembers == null || !oldMembers.equals(newImplementedMembers)) {
+    final DartRegionIndex<DartRegion> oldMembers = myImplementedMemberData.get(filePath);
+    final DartRegionIndex<DartRegion> newMembers = new DartRegionIndex<DartRegion>(newImplementedMembers, false, null);
+    if (oldMembers == null || !oldMembers.getRegions().equals(newMembers.getRegions())) {
       hasChanges = true;
-      myImplementedMemberData.put(filePath, newImplementedMembers);
+      myImplementedMemberData.put(filePath, newMembers);
     }
 
     if (hasChanges) {
@@ -132,38 +135,45 @@ public class DartServerData {
 
   @NotNull
   List<DartError> getErrors(@NotNull final VirtualFile file) {
-    final List<DartError> errors = myErrorData.get(file.getPath());
-    return errors != null ? errors : Collections.<DartError>emptyList();
+    return getRegions(myErrorData, file);
   }
 
   @NotNull
   List<DartHighlightRegion> getHighlight(@NotNull final VirtualFile file) {
-    final List<DartHighlightRegion> regions = myHighlightData.get(file.getPath());
-    return regions != null ? regions : Collections.<DartHighlightRegion>emptyList();
+    return getRegions(myHighlightData, file);
   }
 
   @NotNull
   List<DartNavigationRegion> getNavigation(@NotNull final VirtualFile file) {
-    final List<DartNavigationRegion> regions = myNavigationData.get(file.getPath());
-    return regions != null ? regions : Collections.<DartNavigationRegion>emptyList();
+    return getRegions(myNavigationData, file);
+  }
+
+  @Nullable
+  DartNavigationRegion findNavigationRegion(@NotNull final VirtualFile file, final int offset, final int length) {
+    final DartRegionIndex<DartNavigationRegion> index = myNavigationData.get(file.getPath());
+    return index != null ? index.findRegion(offset, length) : null;
   }
 
   @NotNull
   List<DartOverrideMember> getOverrideMembers(@NotNull final VirtualFile file) {
-    final List<DartOverrideMember> regions = myOverrideData.get(file.getPath());
-    return regions != null ? regions : Collections.<DartOverrideMember>emptyList();
+    return getRegions(myOverrideData, file);
   }
 
   @NotNull
   List<DartRegion> getImplementedClasses(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedClassData.get(file.getPath());
-    return classes != null ? classes : Collections.<DartRegion>emptyList();
+    return getRegions(myImplementedClassData, file);
   }
 
   @NotNull
   List<DartRegion> getImplementedMembers(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedMemberData.get(file.getPath());
-    return classes != null ? classes : Collections.<DartRegion>emptyList();
+    return getRegions(myImplementedMemberData, file);
+  }
+
+  @NotNull
+  private static <T extends DartRegion> List<T> getRegions(@NotNull final Map<String, DartRegionIndex<T>> data,
+                                                           @NotNull final VirtualFile file) {
+    final DartRegionIndex<T> index = data.get(file.getPath());
+    return index != null ? index.getRegions() : Collections.<T>emptyList();
   }
 
   private void forceFileAnnotation(@NotNull final String filePath, final boolean clearCache) {
@@ -243,94 +253,17 @@ public class DartServerData {
     final String filePath = file.getPath();
     myFilePathsWithUnsentChanges.add(filePath);
 
-    updateRegionsDeletingTouched(filePath, myErrorData.get(filePath), e);
-    updateRegionsUpdatingTouched(myHighlightData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myNavigationData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myOverrideData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedClassData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedMemberData.get(filePath), e);
-  }
-
-  private static void updateRegionsDeletingTouched(@NotNull final String filePath,
-                                                   @Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
-
-    // delete touched regions, shift untouched
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (region instanceof DartNavigationRegion) {
-        // may be we'd better delete target touched by editing?
-        for (DartNavigationTarget target : ((DartNavigationRegion)region).getTargets()) {
-          if (target.myFile.equals(filePath) && target.myOffset >= eventOffset) {
-            target.myOffset += deltaLength;
-          }
-        }
-      }
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, delete touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset < eventOffset && eventOffset < region.myOffset + region.myLength) {
-          iterator.remove();
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          iterator.remove();
-        }
-      }
-    }
+    updateRegions(myErrorData.get(filePath), e);
+    updateRegions(myHighlightData.get(filePath), e);
+    updateRegions(myNavigationData.get(filePath), e);
+    updateRegions(myOverrideData.get(filePath), e);
+    updateRegions(myImplementedClassData.get(filePath), e);
+    updateRegions(myImplementedMemberData.get(filePath), e);
   }
 
-  private static void updateRegionsUpdatingTouched(@Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
-
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, update touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset < eventOffset && eventOffset < region.myOffset + region.myLength) {
-          region.myLength += deltaLength;
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete or update touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-        final int regionRightOffset = region.myOffset + region.myLength;
-
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
-          region.myLength += deltaLength;
-        }
-        else if (eventOffset < regionRightOffset) {
-          iterator.remove();
-        }
-      }
+  private static void updateRegions(@Nullable final DartRegionIndex<?> regions, @NotNull final DocumentEvent e) {
+    if (regions != null) {
+      regions.documentChanged(e.getOffset(), e.getOldLength(), e.getNewLength());
     }
   }
 
@@ -457,6 +390,19 @@ public class DartServerData {
     public String getKind() {
       return myKind;
     }
+
+    /**
+     * @param shifts pairs (offset, delta) of the document changes done in the given file since the target was received
+     */
+    void shift(@NotNull final String filePath, @NotNull final TIntArrayList shifts) {
+      if (!myFile.equals(filePath)) return;
+
+      for (int i = 0; i < shifts.size(); i += 2) {
+        if (myOffset >= shifts.get(i)) {
+          myOffset += shifts.get(i + 1);
+        }
+      }
+    }
   }
 
   public static class DartOverrideMember extends DartRegion {
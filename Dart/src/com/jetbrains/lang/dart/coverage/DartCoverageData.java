@@ -15,82 +15,115 @@
  */
 package com.jetbrains.lang.dart.coverage;
 
-import com.intellij.util.containers.hash.HashMap;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import gnu.trove.THashMap;
+import gnu.trove.TIntIntHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
+/**
+ * Line hits from the json file written by the coverage collector: <code>{"coverage": [{"source": uri, "hits": [line, count, ...]}, ...]}</code>.
+ * The file is read in a streaming way, hits of the same source are merged while reading.
+ */
 public class DartCoverageData {
-  @Nullable private List<DartFileCoverageData> coverage;
-
-  @Nullable
-  public List<DartFileCoverageData> getCoverage() {
-    return coverage;
-  }
+  @NotNull private final Map<String, TIntIntHashMap> mySourceToLineHits = new THashMap<String, TIntIntHashMap>();
 
-  public void setCoverage(@Nullable List<DartFileCoverageData> coverage) {
-    this.coverage = coverage;
+  private DartCoverageData() {
   }
 
-  @NotNull
-  public Map<String, SortedMap<Integer, Integer>> getMergedDartFileCoverageData() {
-    Map<String, SortedMap<Integer, Integer>> mergedCoverageData = new HashMap<String, SortedMap<Integer, Integer>>();
-    List<DartFileCoverageData> coverageData = getCoverage();
-    if (coverageData != null) {
-      for (DartFileCoverageData item : coverageData) {
-        String source = item.getSource();
-        if (source == null) {
-          continue;
-        }
-        if (!mergedCoverageData.containsKey(source)) {
-          mergedCoverageData.put(source, new TreeMap<Integer, Integer>());
-        }
+  /**
+   * @return {@code null} if the reader has no content
+   * @throws JsonSyntaxException if the content is not a valid coverage json
+   */
+  @Nullable
+  public static DartCoverageData read(@NotNull final Reader reader) throws IOException {
+    final JsonReader jsonReader = new JsonReader(reader);
+    try {
+      jsonReader.peek();
+    }
+    catch (EOFException e) {
+      return null;
+    }
 
-        SortedMap<Integer, Integer> fileData = mergedCoverageData.get(source);
-        List<Integer> hits = item.getHits();
-        if (hits == null) {
-          continue;
-        }
-        for (int i = 0; i < hits.size(); i += 2) {
-          Integer lineNumber = hits.get(i);
-          Integer hitCount = hits.get(i + 1);
-          if (!fileData.containsKey(lineNumber)) {
-            fileData.put(lineNumber, 0);
+    try {
+      final DartCoverageData data = new DartCoverageData();
+      jsonReader.beginObject();
+      while (jsonReader.hasNext()) {
+        if ("coverage".equals(jsonReader.nextName()) && jsonReader.peek() != JsonToken.NULL) {
+          jsonReader.beginArray();
+          while (jsonReader.hasNext()) {
+            data.readFileCoverage(jsonReader);
           }
-
-          fileData.put(lineNumber, fileData.get(lineNumber) + hitCount);
+          jsonReader.endArray();
+        }
+        else {
+          jsonReader.skipValue();
         }
       }
+      jsonReader.endObject();
+      return data;
+    }
+    catch (IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+    catch (NumberFormatException e) {
+      throw new JsonSyntaxException(e);
     }
-
-    return mergedCoverageData;
   }
-}
-
 
-class DartFileCoverageData {
-  @Nullable private String source;
-  @Nullable private List<Integer> hits;
+  private void readFileCoverage(@NotNull final JsonReader jsonReader) throws IOException {
+    String source = null;
+    TIntIntHashMap lineHits = null;
 
-  @Nullable
-  public String getSource() {
-    return source;
-  }
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      final String name = jsonReader.nextName();
+      if ("source".equals(name) && jsonReader.peek() == JsonToken.STRING) {
+        source = jsonReader.nextString();
+      }
+      else if ("hits".equals(name) && jsonReader.peek() != JsonToken.NULL) {
+        // 'hits' may come before 'source', so collect them separately and merge when the object is read
+        lineHits = new TIntIntHashMap();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          final int line = jsonReader.nextInt();
+          final int hits = jsonReader.nextInt();
+          lineHits.adjustOrPutValue(line, hits, hits);
+        }
+        jsonReader.endArray();
+      }
+      else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
 
-  public void setSource(@Nullable String source) {
-    this.source = source;
-  }
+    if (source == null) return;
 
-  @Nullable
-  public List<Integer> getHits() {
-    return hits;
+    final TIntIntHashMap merged = mySourceToLineHits.get(source);
+    if (merged == null) {
+      mySourceToLineHits.put(source, lineHits != null ? lineHits : new TIntIntHashMap());
+    }
+    else if (lineHits != null) {
+      lineHits.forEachEntry((line, hits) -> {
+        merged.adjustOrPutValue(line, hits, hits);
+        return true;
+      });
+    }
   }
 
-  public void setHits(@Nullable List<Integer> hits) {
-    this.hits = hits;
+  /**
+   * @return source uri to (line number -> total hit count) map
+   */
+  @NotNull
+  public Map<String, TIntIntHashMap> getMergedDartFileCoverageData() {
+    return mySourceToLineHits;
   }
-}
\ No newline at end of file
+}
@@ -15,7 +15,6 @@
  */
 package com.jetbrains.lang.dart.coverage;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
@@ -25,19 +24,16 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.rt.coverage.data.ClassData;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
-import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import gnu.trove.TIntIntHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.*;
 import java.util.Map;
-import java.util.SortedMap;
 
 public class DartCoverageRunner extends CoverageRunner {
   private static final String ID = "DartCoverageRunner";
@@ -88,63 +84,65 @@ public class DartCoverageRunner extends CoverageRunner {
       return null;
     }
 
-    final String contextId = DartAnalysisServerService.getInstance().execution_createContext(contextFilePath);
-    if (contextId == null) {
+    final DartCoverageData data;
+    try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(sessionDataFile), CharsetToolkit.UTF8_CHARSET))) {
+      data = DartCoverageData.read(reader);
+    }
+    catch (IOException | JsonSyntaxException e) {
+      LOG.warn(e);
+      return null;
+    }
+
+    if (data == null) {
+      LOG.warn("Coverage file does not contain valid data.");
       return null;
     }
 
+    final Map<String, TIntIntHashMap> sourceToLineHits = data.getMergedDartFileCoverageData();
+    final DartCoverageUriMapper uriMapper = new DartCoverageUriMapper(coverageSuite.getProject(), contextFilePath);
     final ProjectData projectData = new ProjectData();
 
     try {
-      DartCoverageData data = new Gson().fromJson(new BufferedReader(new FileReader(sessionDataFile)), DartCoverageData.class);
-      if (data == null) {
-        LOG.warn("Coverage file does not contain valid data.");
-        return null;
-      }
+      final Map<String, String> uriToPath = uriMapper.mapUris(sourceToLineHits.keySet());
 
-      for (Map.Entry<String, SortedMap<Integer, Integer>> entry : data.getMergedDartFileCoverageData().entrySet()) {
+      for (Map.Entry<String, TIntIntHashMap> entry : sourceToLineHits.entrySet()) {
         ProgressManager.checkCanceled();
 
-        String filePath = getFileForUri(contextId, entry.getKey());
+        final String filePath = uriToPath.get(entry.getKey());
         if (filePath == null) {
           // File is not found.
           continue;
         }
-        SortedMap<Integer, Integer> lineHits = entry.getValue();
-        ClassData classData = projectData.getOrCreateClassData(filePath);
-        if (lineHits.size() == 0) {
+
+        final TIntIntHashMap lineHits = entry.getValue();
+        final ClassData classData = projectData.getOrCreateClassData(filePath);
+        if (lineHits.isEmpty()) {
           classData.setLines(new LineData[1]);
           continue;
         }
-        LineData[] lines = new LineData[lineHits.lastKey() + 1];
-        for (Map.Entry<Integer, Integer> hit : lineHits.entrySet()) {
-          LineData lineData = new LineData(hit.getKey(), null);
-          lineData.setHits(hit.getValue());
-          lines[hit.getKey()] = lineData;
+
+        final int[] lineNumbers = lineHits.keys();
+        int maxLineNumber = 0;
+        for (int lineNumber : lineNumbers) {
+          maxLineNumber = Math.max(maxLineNumber, lineNumber);
+        }
+
+        final LineData[] lines = new LineData[maxLineNumber + 1];
+        for (int lineNumber : lineNumbers) {
+          final LineData lineData = new LineData(lineNumber, null);
+          lineData.setHits(lineHits.get(lineNumber));
+          lines[lineNumber] = lineData;
         }
         classData.setLines(lines);
       }
     }
-    catch (FileNotFoundException | JsonSyntaxException e) {
-      LOG.warn(e);
-    }
     finally {
-      DartAnalysisServerService.getInstance().execution_deleteContext(contextId);
+      uriMapper.dispose();
     }
 
     return projectData;
   }
 
-  @Nullable
-  private static String getFileForUri(@NotNull final String contextId, @NotNull final String uri) {
-    if (uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/")) {
-      // dart:_builtin or dart:core-patch/core_patch.dart
-      return null;
-    }
-
-    return DartAnalysisServerService.getInstance().execution_mapUri(contextId, null, uri);
-  }
-
   @NotNull
   @Override
   public String getPresentableName() {
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jetbrains.lang.dart.coverage;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import com.jetbrains.lang.dart.util.DartUrlResolver;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.jetbrains.lang.dart.util.DartUrlResolver.DART_PREFIX;
+
+/**
+ * Maps source uris from coverage data to file paths in the execution context of the coverage suite.
+ * <p/>
+ * All uris are first resolved locally in one read action using {@link DartUrlResolver} (which knows about the .packages file of the context).
+ * Only uris that can't be resolved this way are sent to the Analysis Server, and the server execution context is created only if there
+ * are such uris. Results, including failed lookups, are cached for the lifetime of this mapper.
+ */
+class DartCoverageUriMapper {
+  @NotNull private final Project myProject;
+  @NotNull private final String myContextFilePath;
+  private final Map<String, String> myUriToPath = new THashMap<String, String>();
+  @Nullable private String myServerContextId;
+  private boolean myServerContextCreated;
+
+  DartCoverageUriMapper(@NotNull final Project project, @NotNull final String contextFilePath) {
+    myProject = project;
+    myContextFilePath = contextFilePath;
+  }
+
+  /**
+   * @return uri to file path map; uris that can't be mapped are not included
+   */
+  @NotNull
+  Map<String, String> mapUris(@NotNull final Collection<String> uris) {
+    final List<String> unresolved =
+      ApplicationManager.getApplication().runReadAction((Computable<List<String>>)() -> resolveLocally(uris));
+
+    for (String uri : unresolved) {
+      ProgressManager.checkCanceled();
+      myUriToPath.put(uri, mapUriWithServer(uri));
+    }
+
+    final Map<String, String> result = new THashMap<String, String>(uris.size());
+    for (String uri : uris) {
+      final String path = myUriToPath.get(uri);
+      if (path != null) {
+        result.put(uri, path);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Fills the cache with locally resolved uris.
+   *
+   * @return uris that need to be mapped by the Analysis Server
+   */
+  @NotNull
+  private List<String> resolveLocally(@NotNull final Collection<String> uris) {
+    final List<String> unresolved = new ArrayList<String>();
+    final VirtualFile contextFile = LocalFileSystem.getInstance().findFileByPath(myContextFilePath);
+    final DartUrlResolver urlResolver =
+      contextFile == null || myProject.isDisposed() ? null : DartUrlResolver.getInstance(myProject, contextFile);
+
+    for (String uri : uris) {
+      if (myUriToPath.containsKey(uri)) continue;
+
+      if (isInternalSdkUri(uri)) {
+        myUriToPath.put(uri, null);
+        continue;
+      }
+
+      final VirtualFile file = urlResolver == null ? null : urlResolver.findFileByDartUrl(uri);
+      if (file != null) {
+        // coverage data is matched with project files, so paths through symlinks (like in the 'packages' folder) are not good here
+        final String canonicalPath = file.getCanonicalPath();
+        myUriToPath.put(uri, FileUtil.toSystemIndependentName(canonicalPath != null ? canonicalPath : file.getPath()));
+      }
+      else {
+        unresolved.add(uri);
+      }
+    }
+
+    return unresolved;
+  }
+
+  @Nullable
+  private String mapUriWithServer(@NotNull final String uri) {
+    if (!myServerContextCreated) {
+      myServerContextCreated = true;
+      myServerContextId = DartAnalysisServerService.getInstance().execution_createContext(myContextFilePath);
+    }
+
+    return myServerContextId == null ? null : DartAnalysisServerService.getInstance().execution_mapUri(myServerContextId, null, uri);
+  }
+
+  private static boolean isInternalSdkUri(@NotNull final String uri) {
+    // dart:_builtin or dart:core-patch/core_patch.dart
+    return uri.startsWith("dart:_") || uri.startsWith(DART_PREFIX) && uri.contains("-patch/");
+  }
+
+  void dispose() {
+    if (myServerContextId != null) {
+      DartAnalysisServerService.getInstance().execution_deleteContext(myServerContextId);
+      myServerContextId = null;
+    }
+  }
+}
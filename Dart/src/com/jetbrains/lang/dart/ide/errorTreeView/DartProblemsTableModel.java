@@ -7,6 +7,8 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ui.ColumnInfo;
 import com.intellij.util.ui.ListTableModel;
 import com.jetbrains.lang.dart.ide.annotator.DartAnnotator;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 import icons.DartIcons;
 import org.dartlang.analysis.server.protocol.AnalysisError;
 import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
@@ -54,8 +56,11 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   @NotNull private final DartProblemsFilter myFilter;
 
   // Kind of hack to keep a reference to the live collection used in a super class, but it allows to improve performance greatly.
-  // Having it in hands we can do bulk rows removal with a single fireTableRowsDeleted() call afterwards
+  // Having it in hands we can replace all rows with a single fireTableDataChanged() call afterwards
   private final List<DartProblem> myItems;
+  // false if sort key or grouping changed since myItems were sorted
+  private boolean myItemsSorted = true;
+  private final Map<String, List<DartProblem>> myFilePathToProblems = new THashMap<String, List<DartProblem>>();
 
   private boolean myGroupBySeverity = true;
   private RowSorter.SortKey mySortKey = new RowSorter.SortKey(1, SortOrder.ASCENDING);
@@ -146,27 +151,13 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
     return false;
   }
 
-  public void removeRows(final int firstRow, final int lastRow) {
-    assert lastRow >= firstRow;
-
-    for (int i = lastRow; i >= firstRow; i--) {
-      final DartProblem removed = myItems.remove(i);
-
-      if (AnalysisErrorSeverity.ERROR.equals(removed.getSeverity())) myErrorCount--;
-      if (AnalysisErrorSeverity.WARNING.equals(removed.getSeverity())) myWarningCount--;
-      if (AnalysisErrorSeverity.INFO.equals(removed.getSeverity())) myHintCount--;
-      updateProblemsCountAfterFilter(removed, false);
-    }
-
-    fireTableRowsDeleted(firstRow, lastRow);
-  }
-
   public void removeAll() {
     final int rowCount = getRowCount();
     if (rowCount > 0) {
       myItems.clear();
       fireTableRowsDeleted(0, rowCount - 1);
     }
+    myFilePathToProblems.clear();
 
     myErrorCount = 0;
     myWarningCount = 0;
@@ -177,92 +168,53 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   }
 
   /**
-   * If <code>selectedProblem</code> was removed and similar one added again then this method returns the added one,
-   * so that the caller could update selected row in the table
+   * Replaces problems for the files that are keys in <code>filePathToErrors</code>.
+   * <p/>
+   * Table items are kept in the order in which the row sorter shows them. Only new problems are sorted, then they are merged
+   * with the remaining items in one pass. So the row sorter gets already sorted data, and an update for many files costs a linear pass
+   * over the table rather than a row event and a re-sort per changed region.
+   *
+   * @return the problem to select after the update: <code>selectedProblem</code> itself if it is still in the table,
+   * or the most similar problem that replaced it, or <code>null</code>
    */
   @Nullable
-  public DartProblem setErrorsAndReturnReplacementForSelection(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
-                                                               @Nullable final DartProblem selectedProblem) {
-    final boolean selectedProblemRemoved = removeRowsForFilesInSet(filePathToErrors.keySet(), selectedProblem);
-    return addErrorsAndReturnReplacementForSelection(filePathToErrors, selectedProblemRemoved ? selectedProblem : null);
-  }
-
-  private boolean removeRowsForFilesInSet(@NotNull final Set<String> filePaths, @Nullable final DartProblem selectedProblem) {
-    // Looks for regions in table items that should be removed and removes them.
-    // For performance reasons we try to call removeRows() as rare as possible, that means with regions as big as possible.
-    // Logic is based on the fact that all errors for each particular file are stored continuously in the myItems model
-
-    boolean selectedProblemRemoved = false;
-
-    int matchedFilesCount = 0;
-
-    for (int i = getRowCount() - 1; i >= 0; i--) {
-      final DartProblem problem = getItem(i);
-      if (filePaths.contains(problem.getSystemIndependentPath())) {
-        matchedFilesCount++;
-        final int lastRowToDelete = i;
-
-        if (problem == selectedProblem) {
-          selectedProblemRemoved = true;
-        }
-
-        DartProblem lastProblemForCurrentFile = problem;
-
-        int j = i - 1;
-        while (j >= 0) {
-          final DartProblem previousProblem = getItem(j);
-
-          if (previousProblem.getSystemIndependentPath().equals(lastProblemForCurrentFile.getSystemIndependentPath())) {
-            // previousProblem should be removed from the table as well
-            j--;
-
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
-
-            continue;
-          }
-
-          if (filePaths.contains(previousProblem.getSystemIndependentPath())) {
-            matchedFilesCount++;
-            // continue iterating the table because we met a range of problems for another file that also should be removed
-            lastProblemForCurrentFile = previousProblem;
-            j--;
-
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
-
-            continue;
-          }
-
-          break;
-        }
+  public DartProblem setErrorsAndReturnProblemToSelect(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
+                                                       @Nullable final DartProblem selectedProblem) {
+    final Set<DartProblem> problemsToRemove = new THashSet<DartProblem>();
+    for (String filePath : filePathToErrors.keySet()) {
+      final List<DartProblem> oldProblems = myFilePathToProblems.remove(filePath);
+      if (oldProblems != null) {
+        problemsToRemove.addAll(oldProblems);
+      }
+    }
 
-        final int firstRowToDelete = j + 1;
-        removeRows(firstRowToDelete, lastRowToDelete);
+    for (DartProblem problem : problemsToRemove) {
+      updateProblemsCount(problem, false);
+    }
 
-        if (matchedFilesCount == filePaths.size()) {
-          break;
-        }
+    final boolean selectedProblemRemoved = selectedProblem != null && problemsToRemove.contains(selectedProblem);
+    final List<DartProblem> problemsToAdd = new ArrayList<DartProblem>();
+    final DartProblem replacement = createProblemsAndReturnReplacementForSelection(filePathToErrors, problemsToAdd,
+                                                                                  selectedProblemRemoved ? selectedProblem : null);
 
-        //noinspection AssignmentToForLoopParameter
-        i = j + 1; // rewind according to the amount of removed rows
-      }
+    if (!problemsToRemove.isEmpty() || !problemsToAdd.isEmpty()) {
+      mergeItems(problemsToRemove, problemsToAdd);
+      fireTableDataChanged();
     }
 
-    return selectedProblemRemoved;
+    return selectedProblemRemoved ? replacement : selectedProblem;
   }
 
   @Nullable
-  private DartProblem addErrorsAndReturnReplacementForSelection(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
-                                                                @Nullable final DartProblem oldSelectedProblem) {
+  private DartProblem createProblemsAndReturnReplacementForSelection(@NotNull final Map<String, List<AnalysisError>> filePathToErrors,
+                                                                     @NotNull final List<DartProblem> problemsToAdd,
+                                                                     @Nullable final DartProblem oldSelectedProblem) {
     DartProblem newSelectedProblem = null;
 
-    final List<DartProblem> problemsToAdd = new ArrayList<DartProblem>();
     for (Map.Entry<String, List<AnalysisError>> entry : filePathToErrors.entrySet()) {
       final String filePath = entry.getKey();
       final List<AnalysisError> errors = entry.getValue();
+      final List<DartProblem> fileProblems = new ArrayList<DartProblem>(errors.size());
 
       for (AnalysisError analysisError : errors) {
         if (DartAnnotator.shouldIgnoreMessageFromDartAnalyzer(filePath, analysisError.getType(), analysisError.getLocation().getFile())) {
@@ -270,7 +222,7 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
         }
 
         final DartProblem problem = new DartProblem(myProject, analysisError);
-        problemsToAdd.add(problem);
+        fileProblems.add(problem);
 
         if (oldSelectedProblem != null &&
             lookSimilar(problem, oldSelectedProblem) &&
@@ -281,20 +233,59 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
           newSelectedProblem = problem;
         }
 
-        if (AnalysisErrorSeverity.ERROR.equals(problem.getSeverity())) myErrorCount++;
-        if (AnalysisErrorSeverity.WARNING.equals(problem.getSeverity())) myWarningCount++;
-        if (AnalysisErrorSeverity.INFO.equals(problem.getSeverity())) myHintCount++;
-        updateProblemsCountAfterFilter(problem, true);
+        updateProblemsCount(problem, true);
       }
-    }
 
-    if (!problemsToAdd.isEmpty()) {
-      addRows(problemsToAdd);
+      if (!fileProblems.isEmpty()) {
+        myFilePathToProblems.put(filePath, fileProblems);
+        problemsToAdd.addAll(fileProblems);
+      }
     }
 
     return newSelectedProblem;
   }
 
+  private void mergeItems(@NotNull final Set<DartProblem> problemsToRemove, @NotNull final List<DartProblem> problemsToAdd) {
+    final Comparator<DartProblem> comparator = getViewOrderComparator();
+    if (!myItemsSorted) {
+      Collections.sort(myItems, comparator);
+      myItemsSorted = true;
+    }
+
+    Collections.sort(problemsToAdd, comparator);
+
+    final List<DartProblem> result = new ArrayList<DartProblem>(myItems.size() - problemsToRemove.size() + problemsToAdd.size());
+    int addIndex = 0;
+    for (DartProblem problem : myItems) {
+      if (problemsToRemove.contains(problem)) continue;
+
+      while (addIndex < problemsToAdd.size() && comparator.compare(problemsToAdd.get(addIndex), problem) < 0) {
+        result.add(problemsToAdd.get(addIndex++));
+      }
+      result.add(problem);
+    }
+    result.addAll(problemsToAdd.subList(addIndex, problemsToAdd.size()));
+
+    myItems.clear();
+    myItems.addAll(result);
+  }
+
+  @NotNull
+  private Comparator<DartProblem> getViewOrderComparator() {
+    final Comparator<DartProblem> comparator =
+      mySortKey.getColumn() == DartProblemsComparator.MESSAGE_COLUMN_ID ? myDescriptionComparator : myLocationComparator;
+    // row sorter inverts comparator result for descending order
+    return mySortKey.getSortOrder() == SortOrder.DESCENDING ? Collections.reverseOrder(comparator) : comparator;
+  }
+
+  private void updateProblemsCount(@NotNull final DartProblem problem, final boolean incrementNotDecrement) {
+    final int delta = incrementNotDecrement ? 1 : -1;
+    if (AnalysisErrorSeverity.ERROR.equals(problem.getSeverity())) myErrorCount += delta;
+    if (AnalysisErrorSeverity.WARNING.equals(problem.getSeverity())) myWarningCount += delta;
+    if (AnalysisErrorSeverity.INFO.equals(problem.getSeverity())) myHintCount += delta;
+    updateProblemsCountAfterFilter(problem, incrementNotDecrement);
+  }
+
   private static boolean lookSimilar(@NotNull final DartProblem problem1, @NotNull final DartProblem problem2) {
     return problem1.getSeverity().equals(problem2.getSeverity()) &&
            problem1.getErrorMessage().equals(problem2.getErrorMessage()) &&
@@ -321,11 +312,17 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   }
 
   public void setGroupBySeverity(boolean groupBySeverity) {
-    myGroupBySeverity = groupBySeverity;
+    if (myGroupBySeverity != groupBySeverity) {
+      myGroupBySeverity = groupBySeverity;
+      myItemsSorted = false;
+    }
   }
 
   public void setSortKey(@NotNull final RowSorter.SortKey sortKey) {
-    mySortKey = sortKey;
+    if (!sortKey.equals(mySortKey)) {
+      mySortKey = sortKey;
+      myItemsSorted = false;
+    }
   }
 
   public void onFilterChanged() {
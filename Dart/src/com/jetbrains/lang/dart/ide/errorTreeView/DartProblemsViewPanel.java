@@ -330,10 +330,10 @@ public class DartProblemsViewPanel extends JPanel implements DataProvider, CopyP
     final DartProblemsTableModel model = (DartProblemsTableModel)myTable.getModel();
     final DartProblem oldSelectedProblem = myTable.getSelectedObject();
 
-    final DartProblem updatedSelectedProblem = model.setErrorsAndReturnReplacementForSelection(filePathToErrors, oldSelectedProblem);
+    final DartProblem problemToSelect = model.setErrorsAndReturnProblemToSelect(filePathToErrors, oldSelectedProblem);
 
-    if (updatedSelectedProblem != null) {
-      myTable.setSelection(Collections.singletonList(updatedSelectedProblem));
+    if (problemToSelect != null && myTable.getSelectedObject() != problemToSelect) {
+      myTable.setSelection(Collections.singletonList(problemToSelect));
     }
 
     updateStatusBar();
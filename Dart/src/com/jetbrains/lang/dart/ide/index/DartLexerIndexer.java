@@ -0,0 +1,777 @@
+package com.jetbrains.lang.dart.ide.index;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.jetbrains.lang.dart.DartComponentType;
+import com.jetbrains.lang.dart.DartTokenTypesSets;
+import com.jetbrains.lang.dart.lexer.DartLexer;
+import com.jetbrains.lang.dart.util.DartPsiImplUtil;
+import com.jetbrains.lang.dart.util.DartResolveUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.jetbrains.lang.dart.DartTokenTypes.*;
+import static com.jetbrains.lang.dart.ide.index.DartImportOrExportInfo.Kind;
+
+/**
+ * Fills {@link DartFileIndexData} for a *.dart file using lexer tokens only, without building PSI.
+ * <p/>
+ * Only syntactically correct top-level declarations, class members, imports, exports and parts are understood. As soon as the scanner
+ * meets something unexpected it gives up and {@link #indexFile} returns {@code null}, so that the caller falls back to PSI-based indexing
+ * which handles incomplete code the same way as the parser does.
+ */
+public class DartLexerIndexer {
+
+  private static final TokenSet SKIPPED = TokenSet.orSet(DartTokenTypesSets.WHITE_SPACES, DartTokenTypesSets.COMMENTS);
+  private static final TokenSet OPERATOR_TOKENS = TokenSet.create(MUL, DIV, REM, INT_DIV, PLUS, MINUS, LT_LT, GT, GT_EQ, LT_EQ, LT, EQ_EQ,
+                                                                  AND, XOR, OR, BIN_NOT, LBRACKET, RBRACKET, EQ);
+  // two adjacent operands in an expression mean a missing semicolon; strings are not here because adjacent strings are concatenated
+  private static final TokenSet OPERAND_START = TokenSet.create(IDENTIFIER, NUMBER, HEX_NUMBER, TRUE, FALSE, NULL, THIS, SUPER, NEW, CONST,
+                                                                VAR, FINAL, VOID, CLASS, ENUM);
+  private static final TokenSet OPERAND_END = TokenSet.create(IDENTIFIER, NUMBER, HEX_NUMBER, CLOSING_QUOTE, RAW_SINGLE_QUOTED_STRING,
+                                                              RAW_TRIPLE_QUOTED_STRING, TRUE, FALSE, NULL, THIS, SUPER);
+
+  private static final class UnsupportedSyntax extends RuntimeException {
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static final UnsupportedSyntax UNSUPPORTED = new UnsupportedSyntax();
+
+  private static class ComponentInfo {
+    private final String myName;
+    private final DartComponentType myType;
+
+    private ComponentInfo(@NotNull final String name, @NotNull final DartComponentType type) {
+      myName = name;
+      myType = type;
+    }
+  }
+
+  private static class ClassInfo extends ComponentInfo {
+    private final boolean myEnum;
+    @Nullable private String mySuperClass;
+    private final List<String> myImplementsAndMixins = new ArrayList<String>();
+    private final List<String> myMemberNames = new ArrayList<String>();
+
+    private ClassInfo(@NotNull final String name, final boolean isEnum) {
+      super(name, DartComponentType.CLASS);
+      myEnum = isEnum;
+    }
+  }
+
+  private final CharSequence myText;
+  private IElementType[] myTypes = new IElementType[256];
+  private int[] myStarts = new int[256];
+  private int[] myEnds = new int[256];
+  private int myCount;
+  private int myPos;
+
+  @Nullable private String myLibraryName;
+  @Nullable private String myPartOfLibraryName;
+  private final List<ComponentInfo> myComponents = new ArrayList<ComponentInfo>();
+  private final List<Object> myDirectives = new ArrayList<Object>(); // DartImportOrExportInfo or part uri String, in file order
+
+  private DartLexerIndexer(@NotNull final CharSequence text) {
+    myText = text;
+  }
+
+  /**
+   * @return index data equal to the one that PSI-based indexing would give, or {@code null} if the file contains syntax not supported here
+   */
+  @Nullable
+  public static DartFileIndexData indexFile(@NotNull final CharSequence text, @NotNull final String fileName) {
+    final DartLexerIndexer indexer = new DartLexerIndexer(text);
+    try {
+      indexer.tokenize();
+      indexer.parseDartUnit();
+    }
+    catch (UnsupportedSyntax e) {
+      return null;
+    }
+
+    return indexer.createIndexData(fileName);
+  }
+
+  @NotNull
+  private DartFileIndexData createIndexData(@NotNull final String fileName) {
+    final DartFileIndexData result = new DartFileIndexData();
+    final String libraryName = myLibraryName != null ? myLibraryName : myPartOfLibraryName != null ? myPartOfLibraryName : fileName;
+    result.setLibraryName(libraryName);
+    result.setIsPart(myPartOfLibraryName != null);
+
+    for (ComponentInfo component : myComponents) {
+      result.addSymbol(component.myName);
+      result.addComponentInfo(component.myName, new DartComponentInfo(component.myType, libraryName));
+
+      if (component instanceof ClassInfo) {
+        final ClassInfo classInfo = (ClassInfo)component;
+        result.addClassName(component.myName);
+
+        if (!classInfo.myEnum) {
+          final DartComponentInfo value = new DartComponentInfo(DartComponentType.CLASS, libraryName);
+          result.addInheritor(classInfo.mySuperClass != null ? classInfo.mySuperClass : DartResolveUtil.OBJECT, value);
+          for (String type : classInfo.myImplementsAndMixins) {
+            result.addInheritor(type, value);
+          }
+        }
+
+        for (String memberName : classInfo.myMemberNames) {
+          result.addSymbol(memberName);
+        }
+      }
+    }
+
+    for (Object directive : myDirectives) {
+      if (directive instanceof DartImportOrExportInfo) {
+        final DartImportOrExportInfo info = (DartImportOrExportInfo)directive;
+        result.addImportInfo(info);
+        result.addComponentInfo(info.getImportPrefix(), new DartComponentInfo(DartComponentType.LABEL, null));
+      }
+      else {
+        result.addPartUri((String)directive);
+      }
+    }
+
+    return result;
+  }
+
+  private void tokenize() {
+    final Lexer lexer = new DartLexer();
+    lexer.start(myText);
+
+    IElementType type;
+    while ((type = lexer.getTokenType()) != null) {
+      if (type == DartTokenTypesSets.BAD_CHARACTER) throw UNSUPPORTED;
+
+      if (!SKIPPED.contains(type)) {
+        if (myCount == myTypes.length) {
+          myTypes = Arrays.copyOf(myTypes, myCount * 2);
+          myStarts = Arrays.copyOf(myStarts, myCount * 2);
+          myEnds = Arrays.copyOf(myEnds, myCount * 2);
+        }
+        myTypes[myCount] = type;
+        myStarts[myCount] = lexer.getTokenStart();
+        myEnds[myCount] = lexer.getTokenEnd();
+        myCount++;
+      }
+
+      lexer.advance();
+    }
+  }
+
+  private void parseDartUnit() {
+    final Map<String, DartComponentType> componentTypes = new THashMap<String, DartComponentType>();
+
+    while (myPos < myCount) {
+      skipMetadata();
+      final int componentCount = myComponents.size();
+
+      final IElementType type = token(0);
+      if (type == LIBRARY && isId(token(1))) {
+        parseLibraryStatement();
+      }
+      else if (type == PART && token(1) == OF) {
+        parsePartOfStatement();
+      }
+      else if (type == PART && isStringStart(token(1))) {
+        advance();
+        myDirectives.add(parseUri());
+        expect(SEMICOLON);
+      }
+      else if ((type == IMPORT || type == EXPORT) && isStringStart(token(1))) {
+        parseImportOrExportStatement();
+      }
+      else if (type == CLASS || type == ABSTRACT && token(1) == CLASS) {
+        parseClassDefinition();
+      }
+      else if (type == ENUM) {
+        parseEnumDefinition();
+      }
+      else if (type == TYPEDEF && (isId(token(1)) || token(1) == VOID)) {
+        parseFunctionTypeAlias();
+      }
+      else {
+        parseMember(null);
+      }
+
+      // Getter and setter may have the same name. Other duplicates are errors, PSI-based indexing gives unpredictable results for them.
+      for (int i = componentCount; i < myComponents.size(); i++) {
+        final ComponentInfo component = myComponents.get(i);
+        final DartComponentType previousType = componentTypes.put(component.myName, component.myType);
+        if (previousType != null && (previousType != DartComponentType.FUNCTION || component.myType != DartComponentType.FUNCTION)) {
+          throw UNSUPPORTED;
+        }
+      }
+    }
+  }
+
+  private void parseLibraryStatement() {
+    advance();
+    final String name = parseQualifiedName();
+    expect(SEMICOLON);
+
+    if (myLibraryName == null) {
+      myLibraryName = name;
+    }
+  }
+
+  private void parsePartOfStatement() {
+    advance();
+    advance();
+    final String name = parseQualifiedName();
+    expect(SEMICOLON);
+
+    if (myPartOfLibraryName == null) {
+      myPartOfLibraryName = name;
+    }
+  }
+
+  private void parseImportOrExportStatement() {
+    final Kind kind = token(0) == IMPORT ? Kind.Import : Kind.Export;
+    advance();
+
+    final String uri = parseUri();
+
+    String importPrefix = null;
+    if (kind == Kind.Import) {
+      if (token(0) == DEFERRED && token(1) == AS) {
+        advance();
+      }
+      if (token(0) == AS) {
+        advance();
+        importPrefix = expectId();
+      }
+    }
+
+    final Set<String> showComponentNames = new THashSet<String>();
+    final Set<String> hideComponentNames = new THashSet<String>();
+    while (token(0) == SHOW || token(0) == HIDE) {
+      final Set<String> names = token(0) == SHOW ? showComponentNames : hideComponentNames;
+      do {
+        advance();
+        names.add(expectId());
+      }
+      while (token(0) == COMMA);
+    }
+
+    expect(SEMICOLON);
+    myDirectives.add(new DartImportOrExportInfo(kind, uri, importPrefix, showComponentNames, hideComponentNames));
+  }
+
+  private void parseClassDefinition() {
+    if (token(0) == ABSTRACT) {
+      advance();
+    }
+    advance();
+
+    final ClassInfo classInfo = new ClassInfo(expectId(), false);
+    if (token(0) == LT) {
+      skipTypeArgumentsOrParameters();
+    }
+
+    final List<String> interfaces = new ArrayList<String>();
+    final List<String> mixins = new ArrayList<String>();
+
+    if (token(0) == EQ) {
+      // mixin application
+      advance();
+      classInfo.mySuperClass = parseType();
+      if (token(0) == WITH) {
+        parseTypeList(mixins);
+      }
+      if (token(0) == IMPLEMENTS) {
+        parseTypeList(interfaces);
+      }
+      expect(SEMICOLON);
+    }
+    else {
+      if (token(0) == EXTENDS) {
+        advance();
+        classInfo.mySuperClass = parseType();
+        if (token(0) == WITH) {
+          parseTypeList(mixins);
+        }
+      }
+      if (token(0) == IMPLEMENTS) {
+        parseTypeList(interfaces);
+      }
+
+      expect(LBRACE);
+      while (token(0) != RBRACE) {
+        skipMetadata();
+        parseMember(classInfo);
+      }
+      advance();
+    }
+
+    classInfo.myImplementsAndMixins.addAll(interfaces);
+    classInfo.myImplementsAndMixins.addAll(mixins);
+    myComponents.add(classInfo);
+  }
+
+  private void parseEnumDefinition() {
+    advance();
+    final ClassInfo classInfo = new ClassInfo(expectId(), true);
+
+    expect(LBRACE);
+    do {
+      classInfo.myMemberNames.add(expectId());
+      if (token(0) == COMMA) {
+        advance();
+      }
+      else if (token(0) != RBRACE) {
+        throw UNSUPPORTED;
+      }
+    }
+    while (token(0) != RBRACE);
+    advance();
+
+    myComponents.add(classInfo);
+  }
+
+  private void parseFunctionTypeAlias() {
+    advance();
+
+    final String name;
+    if (token(0) == VOID) {
+      advance();
+      name = expectId();
+    }
+    else {
+      final int typeStart = myPos;
+      parseType();
+      if (isId(token(0))) {
+        name = expectId();
+      }
+      else if ((token(0) == LPAREN) && myTypes[typeStart + 1] != DOT) {
+        // no return type, type arguments just parsed are in fact type parameters of the alias
+        name = getTokenText(typeStart);
+      }
+      else {
+        throw UNSUPPORTED;
+      }
+    }
+
+    if (token(0) == LT) {
+      skipTypeArgumentsOrParameters();
+    }
+    skipFormalParameterList();
+    expect(SEMICOLON);
+
+    myComponents.add(new ComponentInfo(name, DartComponentType.TYPEDEF));
+  }
+
+  /**
+   * Parses top-level function, getter, setter or variable declaration if {@code classInfo} is null, or class member otherwise.
+   */
+  private void parseMember(@Nullable final ClassInfo classInfo) {
+    boolean external = false;
+    boolean isStatic = false;
+    while (token(0) == EXTERNAL || token(0) == STATIC) {
+      external |= token(0) == EXTERNAL;
+      isStatic |= token(0) == STATIC;
+      advance();
+    }
+
+    if (classInfo != null && token(0) == CONST && (token(1) == FACTORY || isConstructorStart(1))) {
+      advance();
+    }
+
+    if (classInfo != null && token(0) == FACTORY) {
+      advance();
+      expectId();
+      if (token(0) == DOT) {
+        advance();
+        classInfo.myMemberNames.add(expectId());
+      }
+      skipFormalParameterList();
+      if (token(0) == EQ) {
+        advance();
+        parseType();
+        if (token(0) == DOT) {
+          advance();
+          expectId();
+        }
+        expect(SEMICOLON);
+      }
+      else {
+        skipFunctionBody();
+      }
+      return;
+    }
+
+    if (token(0) == VAR || token(0) == FINAL || token(0) == CONST) {
+      if (external) throw UNSUPPORTED;
+
+      final boolean typeAllowed = token(0) != VAR;
+      advance();
+      if (typeAllowed && isId(token(0)) && !isVariableNameEnd(token(1))) {
+        parseType();
+      }
+      parseVariableDeclarators(classInfo, expectId());
+      return;
+    }
+
+    if (classInfo != null && isId(token(0)) && token(1) == DOT && isId(token(2)) && token(3) == LPAREN) {
+      // named constructor
+      advance();
+      advance();
+      classInfo.myMemberNames.add(expectId());
+      skipFormalParameterList();
+      skipMethodTail();
+      return;
+    }
+
+    // optional return type
+    final int typeStart = myPos;
+    boolean typeIsSimpleName = false;
+    final boolean isVoid = token(0) == VOID;
+    if (isVoid) {
+      advance();
+    }
+    else if (!isAccessorStart(0) && !isOperatorStart(classInfo, 0)) {
+      parseType();
+      typeIsSimpleName = myPos == typeStart + 1;
+    }
+
+    if (isAccessorStart(0)) {
+      final boolean getter = token(0) == GET;
+      advance();
+      final String name = expectId();
+      if (!getter || token(0) == LPAREN) {
+        skipFormalParameterList();
+      }
+      skipFunctionBody();
+      addFunction(classInfo, name);
+    }
+    else if (isOperatorStart(classInfo, 0)) {
+      advance();
+      final int operatorStart = myPos;
+      while (OPERATOR_TOKENS.contains(token(0))) {
+        if (myPos > operatorStart && myEnds[myPos - 1] != myStarts[myPos]) throw UNSUPPORTED;
+        advance();
+      }
+      if (myPos == operatorStart) throw UNSUPPORTED;
+
+      classInfo.myMemberNames.add(myText.subSequence(myStarts[operatorStart], myEnds[myPos - 1]).toString());
+      skipFormalParameterList();
+      skipMethodTail();
+    }
+    else if (isId(token(0))) {
+      final String name = expectId();
+      if (token(0) == LPAREN) {
+        if (classInfo == null && isStatic) throw UNSUPPORTED;
+        skipFormalParameterList();
+        if (classInfo != null) {
+          skipMethodTail();
+        }
+        else {
+          skipFunctionBody();
+        }
+        addFunction(classInfo, name);
+      }
+      else if (myPos > typeStart + 1) {
+        if (external || isVoid) throw UNSUPPORTED;
+        parseVariableDeclarators(classInfo, name);
+      }
+      else {
+        throw UNSUPPORTED;
+      }
+    }
+    else if (token(0) == LPAREN && typeIsSimpleName) {
+      // what looked like a return type is in fact the name of a function without return type
+      if (classInfo == null && isStatic) throw UNSUPPORTED;
+      skipFormalParameterList();
+      if (classInfo != null) {
+        skipMethodTail();
+      }
+      else {
+        skipFunctionBody();
+      }
+      addFunction(classInfo, getTokenText(typeStart));
+    }
+    else {
+      throw UNSUPPORTED;
+    }
+  }
+
+  private void addFunction(@Nullable final ClassInfo classInfo, @NotNull final String name) {
+    if (classInfo != null) {
+      classInfo.myMemberNames.add(name);
+    }
+    else {
+      myComponents.add(new ComponentInfo(name, DartComponentType.FUNCTION));
+    }
+  }
+
+  private void parseVariableDeclarators(@Nullable final ClassInfo classInfo, @NotNull String name) {
+    while (true) {
+      if (classInfo != null) {
+        classInfo.myMemberNames.add(name);
+      }
+      else {
+        myComponents.add(new ComponentInfo(name, DartComponentType.VARIABLE));
+      }
+
+      if (token(0) == EQ) {
+        advance();
+        skipVariableInitializer();
+      }
+
+      if (token(0) == SEMICOLON) {
+        advance();
+        return;
+      }
+
+      expect(COMMA);
+      name = expectId();
+    }
+  }
+
+  private void skipVariableInitializer() {
+    final int start = myPos;
+    while (token(0) != COMMA && token(0) != SEMICOLON) {
+      // '<' may open type arguments with commas inside: <String, int>{}
+      if (token(0) == null || token(0) == LT) throw UNSUPPORTED;
+      skipExpressionTokenOrGroup(start);
+    }
+    if (myPos == start) throw UNSUPPORTED;
+  }
+
+  private void skipExpressionTokenOrGroup(final int expressionStart) {
+    if (myPos > expressionStart && isOperandEnd(myTypes[myPos - 1]) && isOperandStart(token(0))) throw UNSUPPORTED;
+    skipTokenOrGroup();
+  }
+
+  private void skipFormalParameterList() {
+    if (token(0) != LPAREN) throw UNSUPPORTED;
+    skipTokenOrGroup();
+  }
+
+  /**
+   * Skips initializers or redirection and method body; body is optional in methods.
+   */
+  private void skipMethodTail() {
+    if (token(0) == COLON) {
+      while (token(0) != LBRACE && token(0) != SEMICOLON && token(0) != EXPRESSION_BODY_DEF && token(0) != ASYNC && token(0) != SYNC) {
+        if (token(0) == null) throw UNSUPPORTED;
+        skipTokenOrGroup();
+      }
+    }
+    skipFunctionBody();
+  }
+
+  private void skipFunctionBody() {
+    if (token(0) == SEMICOLON) {
+      advance();
+      return;
+    }
+
+    if (token(0) == ASYNC || token(0) == SYNC) {
+      advance();
+      if (token(0) == MUL) {
+        advance();
+      }
+    }
+
+    if (token(0) == LBRACE) {
+      skipTokenOrGroup();
+    }
+    else if (token(0) == EXPRESSION_BODY_DEF) {
+      advance();
+      final int start = myPos;
+      while (token(0) != SEMICOLON) {
+        if (token(0) == null) throw UNSUPPORTED;
+        skipExpressionTokenOrGroup(start);
+      }
+      advance();
+    }
+    else {
+      throw UNSUPPORTED;
+    }
+  }
+
+  /**
+   * Skips one token, or the whole (...), [...] or {...} group if the current token opens it.
+   */
+  private void skipTokenOrGroup() {
+    final IElementType type = token(0);
+    if (type != LPAREN && type != LBRACKET && type != LBRACE) {
+      if (type == RPAREN || type == RBRACKET || type == RBRACE) throw UNSUPPORTED;
+      advance();
+      return;
+    }
+
+    int depth = 0;
+    do {
+      final IElementType current = token(0);
+      if (current == null) throw UNSUPPORTED;
+      if (current == LPAREN || current == LBRACKET || current == LBRACE) depth++;
+      if (current == RPAREN || current == RBRACKET || current == RBRACE) depth--;
+      advance();
+    }
+    while (depth > 0);
+  }
+
+  private void skipMetadata() {
+    while (token(0) == AT) {
+      advance();
+      parseQualifiedName();
+      if (token(0) == LPAREN) {
+        skipTokenOrGroup();
+      }
+    }
+  }
+
+  private void parseTypeList(@NotNull final List<String> result) {
+    do {
+      advance();
+      result.add(parseType());
+    }
+    while (token(0) == COMMA);
+  }
+
+  /**
+   * @return text of the type reference without type arguments, like {@code DartType.getReferenceExpression().getText()}
+   */
+  @NotNull
+  private String parseType() {
+    final String name = parseQualifiedName();
+    if (token(0) == LT) {
+      skipTypeArgumentsOrParameters();
+    }
+    return name;
+  }
+
+  private void skipTypeArgumentsOrParameters() {
+    int depth = 0;
+    do {
+      final IElementType type = token(0);
+      if (type == LT) {
+        depth++;
+      }
+      else if (type == GT) {
+        depth--;
+      }
+      else if (type != COMMA && type != DOT && type != EXTENDS && !isId(type)) {
+        throw UNSUPPORTED;
+      }
+      advance();
+    }
+    while (depth > 0);
+  }
+
+  /**
+   * Parses {@code id ('.' id)*}. Whitespace and comments are not expected inside, so the result is the same as PSI element text.
+   */
+  @NotNull
+  private String parseQualifiedName() {
+    final int start = myPos;
+    expectId();
+    while (token(0) == DOT && isId(token(1))) {
+      advance();
+      advance();
+    }
+
+    for (int i = start; i < myPos - 1; i++) {
+      if (myEnds[i] != myStarts[i + 1]) throw UNSUPPORTED;
+    }
+    return myText.subSequence(myStarts[start], myEnds[myPos - 1]).toString();
+  }
+
+  @NotNull
+  private String parseUri() {
+    final int start = myPos;
+    if (token(0) == RAW_SINGLE_QUOTED_STRING || token(0) == RAW_TRIPLE_QUOTED_STRING) {
+      advance();
+    }
+    else {
+      expect(OPEN_QUOTE);
+      while (token(0) == REGULAR_STRING_PART) {
+        advance();
+      }
+      expect(CLOSING_QUOTE);
+    }
+
+    // adjacent string literals are concatenated by the parser
+    if (isStringStart(token(0))) throw UNSUPPORTED;
+
+    final String quoted = myText.subSequence(myStarts[start], myEnds[myPos - 1]).toString();
+    return DartPsiImplUtil.getUnquotedDartStringAndItsRange(quoted).first;
+  }
+
+  private boolean isAccessorStart(final int lookAhead) {
+    return (token(lookAhead) == GET || token(lookAhead) == SET) && isId(token(lookAhead + 1));
+  }
+
+  private boolean isOperatorStart(@Nullable final ClassInfo classInfo, final int lookAhead) {
+    return classInfo != null && token(lookAhead) == OPERATOR && OPERATOR_TOKENS.contains(token(lookAhead + 1));
+  }
+
+  private boolean isConstructorStart(final int lookAhead) {
+    return isId(token(lookAhead)) &&
+           (token(lookAhead + 1) == LPAREN ||
+            token(lookAhead + 1) == DOT && isId(token(lookAhead + 2)) && token(lookAhead + 3) == LPAREN);
+  }
+
+  private static boolean isVariableNameEnd(@Nullable final IElementType type) {
+    return type == EQ || type == COMMA || type == SEMICOLON;
+  }
+
+  private static boolean isOperandStart(@Nullable final IElementType type) {
+    return type != AS && (OPERAND_START.contains(type) || DartTokenTypesSets.BUILT_IN_IDENTIFIERS.contains(type));
+  }
+
+  private static boolean isOperandEnd(@Nullable final IElementType type) {
+    return OPERAND_END.contains(type) ||
+           type != AS && type != AWAIT && type != ASYNC && type != SYNC && DartTokenTypesSets.BUILT_IN_IDENTIFIERS.contains(type);
+  }
+
+  private static boolean isStringStart(@Nullable final IElementType type) {
+    return type == OPEN_QUOTE || type == RAW_SINGLE_QUOTED_STRING || type == RAW_TRIPLE_QUOTED_STRING;
+  }
+
+  private static boolean isId(@Nullable final IElementType type) {
+    return type == IDENTIFIER || DartTokenTypesSets.BUILT_IN_IDENTIFIERS.contains(type);
+  }
+
+  @NotNull
+  private String expectId() {
+    if (!isId(token(0))) throw UNSUPPORTED;
+    final String text = getTokenText(myPos);
+    advance();
+    return text;
+  }
+
+  private void expect(@NotNull final IElementType type) {
+    if (token(0) != type) throw UNSUPPORTED;
+    advance();
+  }
+
+  @Nullable
+  private IElementType token(final int lookAhead) {
+    return myPos + lookAhead < myCount ? myTypes[myPos + lookAhead] : null;
+  }
+
+  private void advance() {
+    if (myPos >= myCount) throw UNSUPPORTED;
+    myPos++;
+  }
+
+  @NotNull
+  private String getTokenText(final int index) {
+    return myText.subSequence(myStarts[index], myEnds[index]).toString();
+  }
+}
@@ -9,7 +9,6 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Disposer;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -17,7 +16,6 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopesCore;
-import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.PathUtil;
 import com.intellij.util.SmartList;
 import com.intellij.util.TimeoutUtil;
@@ -27,7 +25,6 @@ import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
 import com.intellij.xdebugger.frame.XStackFrame;
 import com.intellij.xdebugger.frame.XSuspendContext;
 import com.jetbrains.lang.dart.DartBundle;
-import com.jetbrains.lang.dart.DartFileType;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
 import com.jetbrains.lang.dart.ide.runner.base.DartDebuggerEditorsProvider;
 import com.jetbrains.lang.dart.ide.runner.server.OpenDartObservatoryUrlAction;
@@ -37,7 +34,6 @@ import com.jetbrains.lang.dart.util.DartUrlResolver;
 import com.jetbrains.lang.dart.util.PubspecYamlUtil;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
-import gnu.trove.TIntObjectHashMap;
 import org.dartlang.vm.service.VmService;
 import org.dartlang.vm.service.element.*;
 import org.dartlang.vm.service.logging.Logging;
@@ -65,9 +61,8 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
   @NotNull private final Set<String> mySuspendedIsolateIds = Collections.synchronizedSet(new THashSet<String>());
   private String myLatestCurrentIsolateId;
 
-  private final Map<String, LightVirtualFile> myScriptIdToContentMap = new THashMap<String, LightVirtualFile>();
-  private final Map<String, TIntObjectHashMap<Pair<Integer, Integer>>> myScriptIdToLinesAndColumnsMap =
-    new THashMap<String, TIntObjectHashMap<Pair<Integer, Integer>>>();
+  private final DartVmServiceScriptCache myScriptCache = new DartVmServiceScriptCache();
+  private final Map<String, VirtualFile> myScriptUriToLocalFileMap = Collections.synchronizedMap(new THashMap<String, VirtualFile>());
 
   @Nullable private final String myDASExecutionContextId;
   private final boolean myRemoteDebug;
@@ -436,7 +431,54 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
 
   @Nullable
   public XSourcePosition getSourcePosition(@NotNull final String isolateId, @NotNull final ScriptRef scriptRef, int tokenPos) {
-    VirtualFile file = ApplicationManager.getApplication().runReadAction(new Computable<VirtualFile>() {
+    final VirtualFile localFile = findLocalFile(scriptRef);
+
+    DartVmServiceScriptCache.ScriptInfo scriptInfo = myScriptCache.get(scriptRef.getId(), scriptRef.getUri(), localFile);
+    if (scriptInfo == null) {
+      final Script script = myVmServiceWrapper.getScriptSync(isolateId, scriptRef.getId());
+      if (script == null) return null;
+
+      scriptInfo = myScriptCache.put(script, localFile);
+    }
+
+    final VirtualFile file = localFile != null ? localFile : scriptInfo.getContent();
+    final int line = scriptInfo.getTokenPosTable().getLine(tokenPos);
+    if (file == null || line < 0) return null;
+
+    return XDebuggerUtil.getInstance().createPosition(file, line, scriptInfo.getTokenPosTable().getColumn(tokenPos));
+  }
+
+  /**
+   * Loads not yet cached scripts of all given frames from the VM at once, so that {@link #getSourcePosition} called for each frame
+   * doesn't wait for the VM response frame by frame.
+   */
+  public void prefetchScripts(@NotNull final String isolateId, @NotNull final List<Frame> vmFrames) {
+    final Map<String, VirtualFile> scriptIdToLocalFile = new THashMap<String, VirtualFile>();
+    for (Frame vmFrame : vmFrames) {
+      final ScriptRef scriptRef = vmFrame.getLocation().getScript();
+      if (scriptIdToLocalFile.containsKey(scriptRef.getId())) continue;
+
+      final VirtualFile localFile = findLocalFile(scriptRef);
+      if (!myScriptCache.isCached(scriptRef.getId(), scriptRef.getUri(), localFile)) {
+        scriptIdToLocalFile.put(scriptRef.getId(), localFile);
+      }
+    }
+
+    if (!scriptIdToLocalFile.isEmpty()) {
+      for (Script script : myVmServiceWrapper.getScriptsSync(isolateId, scriptIdToLocalFile.keySet())) {
+        myScriptCache.put(script, scriptIdToLocalFile.get(script.getId()));
+      }
+    }
+
+    myScriptCache.logStatistics();
+  }
+
+  @Nullable
+  private VirtualFile findLocalFile(@NotNull final ScriptRef scriptRef) {
+    final VirtualFile cachedFile = myScriptUriToLocalFileMap.get(scriptRef.getUri());
+    if (cachedFile != null && cachedFile.isValid()) return cachedFile;
+
+    final VirtualFile file = ApplicationManager.getApplication().runReadAction(new Computable<VirtualFile>() {
       @Override
       public VirtualFile compute() {
         String uri = scriptRef.getUri();
@@ -460,33 +502,10 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
       }
     });
 
-    if (file == null) {
-      file = myScriptIdToContentMap.get(scriptRef.getId());
-    }
-
-    TIntObjectHashMap<Pair<Integer, Integer>> tokenPosToLineAndColumn = myScriptIdToLinesAndColumnsMap.get(scriptRef.getId());
-
-    if (file != null && tokenPosToLineAndColumn != null) {
-      final Pair<Integer, Integer> lineAndColumn = tokenPosToLineAndColumn.get(tokenPos);
-      return XDebuggerUtil.getInstance().createPosition(file, lineAndColumn.first, lineAndColumn.second);
-    }
-
-    final Script script = myVmServiceWrapper.getScriptSync(isolateId, scriptRef.getId());
-    if (script == null) return null;
-
-    if (file == null) {
-      file = new LightVirtualFile(PathUtil.getFileName(script.getUri()), DartFileType.INSTANCE, script.getSource());
-      ((LightVirtualFile)file).setWritable(false);
-      myScriptIdToContentMap.put(scriptRef.getId(), (LightVirtualFile)file);
-    }
-
-    if (tokenPosToLineAndColumn == null) {
-      tokenPosToLineAndColumn = createTokenPosToLineAndColumnMap(script.getTokenPosTable());
-      myScriptIdToLinesAndColumnsMap.put(scriptRef.getId(), tokenPosToLineAndColumn);
+    if (file != null) {
+      myScriptUriToLocalFileMap.put(scriptRef.getUri(), file);
     }
-
-    final Pair<Integer, Integer> lineAndColumn = tokenPosToLineAndColumn.get(tokenPos);
-    return XDebuggerUtil.getInstance().createPosition(file, lineAndColumn.first, lineAndColumn.second);
+    return file;
   }
 
   private static boolean isDartPatchUri(@NotNull final String uri) {
@@ -494,25 +513,6 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
     return uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/");
   }
 
-  @NotNull
-  private static TIntObjectHashMap<Pair<Integer, Integer>> createTokenPosToLineAndColumnMap(@NotNull final List<List<Integer>> tokenPosTable) {
-    // Each subarray consists of a line number followed by (tokenPos, columnNumber) pairs
-    // see https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#script
-    final TIntObjectHashMap<Pair<Integer, Integer>> result = new TIntObjectHashMap<Pair<Integer, Integer>>();
-
-    for (List<Integer> lineAndPairs : tokenPosTable) {
-      final Iterator<Integer> iterator = lineAndPairs.iterator();
-      int line = Math.max(0, iterator.next() - 1);
-      while (iterator.hasNext()) {
-        final int tokenPos = iterator.next();
-        final int column = Math.max(0, iterator.next() - 1);
-        result.put(tokenPos, Pair.create(line, column));
-      }
-    }
-
-    return result;
-  }
-
   @NotNull
   private static String threeslashize(@NotNull final String uri) {
     if (!uri.startsWith("file:")) return uri;
@@ -0,0 +1,198 @@
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.util.PathUtil;
+import com.jetbrains.lang.dart.DartFileType;
+import gnu.trove.THashMap;
+import org.dartlang.vm.service.element.Script;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Token position tables (and source for scripts without local file) of the scripts loaded in the debugged VM.
+ * <p/>
+ * Scripts are looked up by id. If the VM gives a new id to a script with already known uri (for example after restart), the cached data
+ * is reused as long as the local file of the script has not been modified since the data was cached.
+ */
+class DartVmServiceScriptCache {
+  private static final Logger LOG = Logger.getInstance(DartVmServiceScriptCache.class.getName());
+
+  static class ScriptInfo {
+    @NotNull private final TokenPosTable myTokenPosTable;
+    @Nullable private final LightVirtualFile myContent; // null if the script has local file
+    private final long myLocalFileStamp;
+
+    private ScriptInfo(@NotNull final TokenPosTable tokenPosTable, @Nullable final LightVirtualFile content, final long localFileStamp) {
+      myTokenPosTable = tokenPosTable;
+      myContent = content;
+      myLocalFileStamp = localFileStamp;
+    }
+
+    @NotNull
+    TokenPosTable getTokenPosTable() {
+      return myTokenPosTable;
+    }
+
+    @Nullable
+    LightVirtualFile getContent() {
+      return myContent;
+    }
+  }
+
+  /**
+   * Token position to line and column mapping stored in primitive arrays, lookup is a binary search.
+   */
+  static class TokenPosTable {
+    private final int[] myTokenPositions; // sorted
+    private final long[] myLinesAndColumns; // 0-based line in high 32 bits, 0-based column in low 32 bits
+
+    private TokenPosTable(@NotNull final int[] tokenPositions, @NotNull final long[] linesAndColumns) {
+      myTokenPositions = tokenPositions;
+      myLinesAndColumns = linesAndColumns;
+    }
+
+    /**
+     * @param tokenPosTable json array of arrays, each consists of a line number followed by (tokenPos, columnNumber) pairs,
+     *                      see https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#script
+     */
+    @NotNull
+    static TokenPosTable create(@NotNull final JsonArray tokenPosTable) {
+      int size = 0;
+      for (JsonElement lineAndPairs : tokenPosTable) {
+        size += lineAndPairs.getAsJsonArray().size() / 2;
+      }
+
+      // sort keys: token pos in high bits, index of the entry in low bits
+      final long[] keys = new long[size];
+      final long[] linesAndColumns = new long[size];
+      boolean sorted = true;
+      int index = 0;
+      for (JsonElement element : tokenPosTable) {
+        final JsonArray lineAndPairs = element.getAsJsonArray();
+        final int line = Math.max(0, lineAndPairs.get(0).getAsInt() - 1);
+        for (int i = 1; i + 1 < lineAndPairs.size(); i += 2) {
+          final int tokenPos = lineAndPairs.get(i).getAsInt();
+          final int column = Math.max(0, lineAndPairs.get(i + 1).getAsInt() - 1);
+          keys[index] = ((long)tokenPos << 32) | index;
+          linesAndColumns[index] = ((long)line << 32) | column;
+          sorted &= index == 0 || keys[index - 1] < keys[index];
+          index++;
+        }
+      }
+
+      final int[] tokenPositions = new int[size];
+      if (sorted) {
+        for (int i = 0; i < size; i++) {
+          tokenPositions[i] = (int)(keys[i] >> 32);
+        }
+        return new TokenPosTable(tokenPositions, linesAndColumns);
+      }
+
+      Arrays.sort(keys);
+      final long[] sortedLinesAndColumns = new long[size];
+      for (int i = 0; i < size; i++) {
+        tokenPositions[i] = (int)(keys[i] >> 32);
+        sortedLinesAndColumns[i] = linesAndColumns[(int)keys[i]];
+      }
+      return new TokenPosTable(tokenPositions, sortedLinesAndColumns);
+    }
+
+    /**
+     * @return 0-based line, or -1 if the token position is unknown
+     */
+    int getLine(final int tokenPos) {
+      final int index = Arrays.binarySearch(myTokenPositions, tokenPos);
+      return index < 0 ? -1 : (int)(myLinesAndColumns[index] >>> 32);
+    }
+
+    /**
+     * @return 0-based column, or -1 if the token position is unknown
+     */
+    int getColumn(final int tokenPos) {
+      final int index = Arrays.binarySearch(myTokenPositions, tokenPos);
+      return index < 0 ? -1 : (int)myLinesAndColumns[index];
+    }
+  }
+
+  private final Map<String, ScriptInfo> myScriptIdToInfo = new THashMap<String, ScriptInfo>();
+  private final Map<String, ScriptInfo> myUriToInfo = new THashMap<String, ScriptInfo>();
+  private int myHits; // lookups served from the cache
+  private int myLoads; // scripts loaded from the VM
+
+  /**
+   * @param localFile local file for the script uri, or {@code null} if there's no such file
+   * @return cached info or {@code null} if the script needs to be loaded from the VM
+   */
+  @Nullable
+  synchronized ScriptInfo get(@NotNull final String scriptId, @NotNull final String uri, @Nullable final VirtualFile localFile) {
+    final ScriptInfo info = doGet(scriptId, uri, localFile);
+    if (info != null) {
+      myHits++;
+    }
+    return info;
+  }
+
+  /**
+   * The same as {@link #get} but not counted in the statistics.
+   */
+  synchronized boolean isCached(@NotNull final String scriptId, @NotNull final String uri, @Nullable final VirtualFile localFile) {
+    return doGet(scriptId, uri, localFile) != null;
+  }
+
+  @Nullable
+  private ScriptInfo doGet(@NotNull final String scriptId, @NotNull final String uri, @Nullable final VirtualFile localFile) {
+    ScriptInfo info = myScriptIdToInfo.get(scriptId);
+
+    if (info == null && localFile != null) {
+      final ScriptInfo infoForUri = myUriToInfo.get(uri);
+      if (infoForUri != null && infoForUri.myLocalFileStamp == localFile.getModificationStamp()) {
+        info = infoForUri;
+        myScriptIdToInfo.put(scriptId, info);
+      }
+    }
+
+    if (info != null && localFile == null && info.myContent == null) {
+      // local file was known when the script was cached but can't be found now
+      return null;
+    }
+
+    return info;
+  }
+
+  @NotNull
+  synchronized ScriptInfo put(@NotNull final Script script, @Nullable final VirtualFile localFile) {
+    final TokenPosTable tokenPosTable = TokenPosTable.create(script.getJson().getAsJsonArray("tokenPosTable"));
+
+    final LightVirtualFile content;
+    if (localFile == null) {
+      content = new LightVirtualFile(PathUtil.getFileName(script.getUri()), DartFileType.INSTANCE, script.getSource());
+      content.setWritable(false);
+    }
+    else {
+      content = null;
+    }
+
+    myLoads++;
+    final ScriptInfo info = new ScriptInfo(tokenPosTable, content, localFile == null ? -1 : localFile.getModificationStamp());
+    myScriptIdToInfo.put(script.getId(), info);
+    if (localFile != null) {
+      myUriToInfo.put(script.getUri(), info);
+    }
+    return info;
+  }
+
+  synchronized void logStatistics() {
+    if (LOG.isDebugEnabled()) {
+      final int total = myHits + myLoads;
+      LOG.debug("Script cache: " + myScriptIdToInfo.size() + " scripts, " + myHits + " hits, " + myLoads + " loaded from VM" +
+                (total == 0 ? "" : " (" + (100 * myHits / total) + "% hit rate)"));
+    }
+  }
+}
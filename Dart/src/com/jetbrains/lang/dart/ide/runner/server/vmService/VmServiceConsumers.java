@@ -1,10 +1,11 @@
 package com.jetbrains.lang.dart.ide.runner.server.vmService;
 
 import org.dartlang.vm.service.consumer.*;
-import org.dartlang.vm.service.element.ErrorRef;
-import org.dartlang.vm.service.element.RPCError;
-import org.dartlang.vm.service.element.Sentinel;
-import org.dartlang.vm.service.element.Success;
+import org.dartlang.vm.service.element.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
 
 public class VmServiceConsumers {
 
@@ -58,4 +59,14 @@ public class VmServiceConsumers {
 
     abstract public void noGoodResult();
   }
+
+  public interface GetObjectsConsumer {
+    /**
+     * Called once when responses for all requested objects are received.
+     *
+     * @param idToObject   successfully loaded objects
+     * @param errorMessage first error (or sentinel) message if some objects failed to load, {@code null} otherwise
+     */
+    void received(@NotNull Map<String, Obj> idToObject, @Nullable String errorMessage);
+  }
 }
@@ -3,8 +3,8 @@ package com.jetbrains.lang.dart.ide.runner.server.vmService;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Ref;
 import com.intellij.util.Alarm;
+import com.intellij.util.SmartList;
 import com.intellij.util.concurrency.Semaphore;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
@@ -16,6 +16,7 @@ import com.jetbrains.lang.dart.DartFileType;
 import com.jetbrains.lang.dart.ide.runner.server.frame.DartDebuggerEvaluator;
 import com.jetbrains.lang.dart.ide.runner.server.vmService.frame.DartVmServiceStackFrame;
 import com.jetbrains.lang.dart.ide.runner.server.vmService.frame.DartVmServiceValue;
+import gnu.trove.THashMap;
 import org.dartlang.vm.service.VmService;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
@@ -25,7 +26,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -33,12 +36,15 @@ public class VmServiceWrapper implements Disposable {
 
   public static final Logger LOG = Logger.getInstance(VmServiceWrapper.class.getName());
   private static final long RESPONSE_WAIT_TIMEOUT = 3000; // millis
+  private static final int MAX_GET_OBJECT_REQUESTS_IN_FLIGHT = 64;
 
   private final DartVmServiceDebugProcess myDebugProcess;
   private final VmService myVmService;
   private final IsolatesInfo myIsolatesInfo;
   private final DartVmServiceBreakpointHandler myBreakpointHandler;
   private final Alarm myRequestsScheduler;
+  // "isolateId objectId" -> consumers waiting for the response to the getObject request that is already sent
+  private final Map<String, List<GetObjectConsumer>> myPendingGetObjectConsumers = new THashMap<String, List<GetObjectConsumer>>();
 
   private long myVmServiceReceiverThreadId;
 
@@ -250,6 +256,8 @@ public class VmServiceWrapper implements Disposable {
       @Override
       public void received(final Stack vmStack) {
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
+          myDebugProcess.prefetchScripts(isolateId, vmStack.getFrames());
+
           InstanceRef exceptionToAddToFrame = exception;
           final List<XStackFrame> result = new ArrayList<XStackFrame>(vmStack.getFrames().size());
           for (Frame vmFrame : vmStack.getFrames()) {
@@ -275,37 +283,181 @@ public class VmServiceWrapper implements Disposable {
 
   @Nullable
   public Script getScriptSync(@NotNull final String isolateId, @NotNull final String scriptId) {
+    final List<Script> scripts = getScriptsSync(isolateId, Collections.singletonList(scriptId));
+    return scripts.isEmpty() ? null : scripts.get(0);
+  }
+
+  /**
+   * Sends requests for all scripts at once and waits for all responses, so the total wait time is about one VM round trip.
+   * Scripts that failed to load are not included in the result.
+   */
+  @NotNull
+  public List<Script> getScriptsSync(@NotNull final String isolateId, @NotNull final Collection<String> scriptIds) {
     assertSyncRequestAllowed();
 
     final Semaphore semaphore = new Semaphore();
-    semaphore.down();
+    for (int i = 0; i < scriptIds.size(); i++) {
+      semaphore.down();
+    }
+
+    final List<Script> result = Collections.synchronizedList(new ArrayList<Script>(scriptIds.size()));
+
+    addRequest(() -> {
+      for (String scriptId : scriptIds) {
+        myVmService.getObject(isolateId, scriptId, new GetObjectConsumer() {
+          @Override
+          public void received(Obj script) {
+            result.add((Script)script);
+            semaphore.up();
+          }
 
-    final Ref<Script> resultRef = Ref.create();
+          @Override
+          public void received(Sentinel response) {
+            semaphore.up();
+          }
 
-    addRequest(() -> myVmService.getObject(isolateId, scriptId, new GetObjectConsumer() {
+          @Override
+          public void onError(RPCError error) {
+            semaphore.up();
+          }
+        });
+      }
+    });
+
+    semaphore.waitFor(RESPONSE_WAIT_TIMEOUT);
+    synchronized (result) {
+      return new ArrayList<Script>(result);
+    }
+  }
+
+  /**
+   * If the same object is already requested and the response is not received yet, no new request is sent; the consumer will get the
+   * response of the pending request.
+   */
+  public void getObject(@NotNull final String isolateId, @NotNull final String objectId, @NotNull final GetObjectConsumer consumer) {
+    final String key = isolateId + " " + objectId;
+    synchronized (myPendingGetObjectConsumers) {
+      final List<GetObjectConsumer> pendingConsumers = myPendingGetObjectConsumers.get(key);
+      if (pendingConsumers != null) {
+        pendingConsumers.add(consumer);
+        return;
+      }
+
+      myPendingGetObjectConsumers.put(key, new SmartList<GetObjectConsumer>(consumer));
+    }
+
+    addRequest(() -> myVmService.getObject(isolateId, objectId, new GetObjectConsumer() {
       @Override
-      public void received(Obj script) {
-        resultRef.set((Script)script);
-        semaphore.up();
+      public void received(Obj response) {
+        for (GetObjectConsumer pendingConsumer : takePendingGetObjectConsumers(key)) {
+          pendingConsumer.received(response);
+        }
       }
 
       @Override
       public void received(Sentinel response) {
-        semaphore.up();
+        for (GetObjectConsumer pendingConsumer : takePendingGetObjectConsumers(key)) {
+          pendingConsumer.received(response);
+        }
       }
 
       @Override
       public void onError(RPCError error) {
-        semaphore.up();
+        for (GetObjectConsumer pendingConsumer : takePendingGetObjectConsumers(key)) {
+          pendingConsumer.onError(error);
+        }
       }
     }));
+  }
 
-    semaphore.waitFor(RESPONSE_WAIT_TIMEOUT);
-    return resultRef.get();
+  @NotNull
+  private List<GetObjectConsumer> takePendingGetObjectConsumers(@NotNull final String key) {
+    synchronized (myPendingGetObjectConsumers) {
+      final List<GetObjectConsumer> consumers = myPendingGetObjectConsumers.remove(key);
+      return consumers == null ? Collections.<GetObjectConsumer>emptyList() : consumers;
+    }
   }
 
-  public void getObject(@NotNull final String isolateId, @NotNull final String objectId, @NotNull final GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+  /**
+   * Loads all objects and calls the consumer once with all results. Requests are pipelined: up to
+   * {@link #MAX_GET_OBJECT_REQUESTS_IN_FLIGHT} requests are waiting for the response at a time, the next request is sent as soon as
+   * any response is received.
+   */
+  public void getObjects(@NotNull final String isolateId,
+                         @NotNull final List<String> objectIds,
+                         @NotNull final VmServiceConsumers.GetObjectsConsumer consumer) {
+    if (objectIds.isEmpty()) {
+      consumer.received(Collections.<String, Obj>emptyMap(), null);
+      return;
+    }
+
+    final GetObjectsRequest request = new GetObjectsRequest(isolateId, objectIds, consumer);
+    for (int i = 0; i < Math.min(objectIds.size(), MAX_GET_OBJECT_REQUESTS_IN_FLIGHT); i++) {
+      request.sendNext();
+    }
+  }
+
+  private class GetObjectsRequest {
+    @NotNull private final String myIsolateId;
+    @NotNull private final List<String> myObjectIds;
+    @NotNull private final VmServiceConsumers.GetObjectsConsumer myConsumer;
+    private final Map<String, Obj> myIdToObject = new THashMap<String, Obj>();
+    @Nullable private String myErrorMessage;
+    private int myNextIndex;
+    private int myReceivedCount;
+
+    private GetObjectsRequest(@NotNull final String isolateId,
+                              @NotNull final List<String> objectIds,
+                              @NotNull final VmServiceConsumers.GetObjectsConsumer consumer) {
+      myIsolateId = isolateId;
+      myObjectIds = objectIds;
+      myConsumer = consumer;
+    }
+
+    private void sendNext() {
+      final String objectId;
+      synchronized (this) {
+        if (myNextIndex >= myObjectIds.size()) return;
+        objectId = myObjectIds.get(myNextIndex++);
+      }
+
+      getObject(myIsolateId, objectId, new GetObjectConsumer() {
+        @Override
+        public void received(Obj response) {
+          responseReceived(objectId, response, null);
+        }
+
+        @Override
+        public void received(Sentinel response) {
+          responseReceived(objectId, null, response.getValueAsString());
+        }
+
+        @Override
+        public void onError(RPCError error) {
+          responseReceived(objectId, null, error.getMessage());
+        }
+      });
+    }
+
+    private void responseReceived(@NotNull final String objectId, @Nullable final Obj obj, @Nullable final String errorMessage) {
+      final boolean allReceived;
+      synchronized (this) {
+        if (obj != null) {
+          myIdToObject.put(objectId, obj);
+        }
+        if (myErrorMessage == null) {
+          myErrorMessage = errorMessage;
+        }
+        allReceived = ++myReceivedCount == myObjectIds.size();
+      }
+
+      if (allReceived) {
+        myConsumer.received(myIdToObject, myErrorMessage);
+      }
+      else {
+        sendNext();
+      }
+    }
   }
 
   public void getCollectionObject(@NotNull final String isolateId,
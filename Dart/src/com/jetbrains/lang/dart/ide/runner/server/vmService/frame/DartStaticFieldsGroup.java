@@ -5,12 +5,15 @@ import com.intellij.icons.AllIcons;
 import com.intellij.util.SmartList;
 import com.intellij.xdebugger.frame.*;
 import com.jetbrains.lang.dart.ide.runner.server.vmService.DartVmServiceDebugProcess;
-import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import com.jetbrains.lang.dart.ide.runner.server.vmService.VmServiceConsumers;
 import org.dartlang.vm.service.element.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 // similar to com.intellij.debugger.engine.JavaStaticGroup
 class DartStaticFieldsGroup extends XValueGroup {
@@ -48,52 +51,55 @@ class DartStaticFieldsGroup extends XValueGroup {
 
   @Override
   public void computeChildren(@NotNull final XCompositeNode node) {
-    final AtomicInteger counter = new AtomicInteger(myFieldRefs.size());
-    final XValueChildrenList list = new XValueChildrenList(myFieldRefs.size());
+    final List<String> fieldIds = new ArrayList<String>(myFieldRefs.size());
+    for (FieldRef fieldRef : myFieldRefs) {
+      fieldIds.add(fieldRef.getId());
+    }
 
-    for (final FieldRef fieldRef : myFieldRefs) {
-      myDebugProcess.getVmServiceWrapper().getObject(myIsolateId, fieldRef.getId(), new GetObjectConsumer() {
-        @Override
-        public void received(Obj field) {
-          final InstanceRef instanceRef = ((Field)field).getStaticValue();
-          // static field may be not initialized yet, in this case this instanceRef is in fact a Sentinel
-          if ("@Instance".equals(instanceRef.getType())) {
-            list.add(new DartVmServiceValue(myDebugProcess, myIsolateId, ((Field)field).getName(), instanceRef, fieldRef, false));
-          }
-          else if ("Sentinel".equals(instanceRef.getType())) {
-            list.add(new XNamedValue(((Field)field).getName()) {
-              @Override
-              public void computeSourcePosition(@NotNull XNavigatable navigatable) {
-                DartVmServiceValue.doComputeSourcePosition(myDebugProcess, navigatable, myIsolateId, fieldRef);
-              }
+    myDebugProcess.getVmServiceWrapper().getObjects(myIsolateId, fieldIds, new VmServiceConsumers.GetObjectsConsumer() {
+      @Override
+      public void received(@NotNull final Map<String, Obj> idToObject, @Nullable final String errorMessage) {
+        if (idToObject.isEmpty() && errorMessage != null) {
+          node.setErrorMessage(errorMessage);
+          return;
+        }
 
-              @Override
-              public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
-                final JsonElement valueAsString = instanceRef.getJson().get("valueAsString");
-                final String value = valueAsString == null ? "not initialized" : valueAsString.getAsString();
-                node.setPresentation(AllIcons.Nodes.Field, null, value, false);
-              }
-            });
+        final XValueChildrenList list = new XValueChildrenList(myFieldRefs.size());
+        for (FieldRef fieldRef : myFieldRefs) {
+          final Field field = (Field)idToObject.get(fieldRef.getId());
+          if (field != null) {
+            addField(list, fieldRef, field);
           }
+        }
 
-          if (counter.decrementAndGet() == 0) {
-            if (list.size() == 0) {
-              node.setErrorMessage("Static fields not initialized yet");
-            }
-            else {
-              node.addChildren(list, true);
-            }
-          }
+        if (list.size() == 0) {
+          node.setErrorMessage("Static fields not initialized yet");
+        }
+        else {
+          node.addChildren(list, true);
         }
+      }
+    });
+  }
 
+  private void addField(@NotNull final XValueChildrenList list, @NotNull final FieldRef fieldRef, @NotNull final Field field) {
+    final InstanceRef instanceRef = field.getStaticValue();
+    // static field may be not initialized yet, in this case this instanceRef is in fact a Sentinel
+    if ("@Instance".equals(instanceRef.getType())) {
+      list.add(new DartVmServiceValue(myDebugProcess, myIsolateId, field.getName(), instanceRef, fieldRef, false));
+    }
+    else if ("Sentinel".equals(instanceRef.getType())) {
+      list.add(new XNamedValue(field.getName()) {
         @Override
-        public void received(Sentinel sentinel) {
-          node.setErrorMessage(sentinel.getValueAsString());
+        public void computeSourcePosition(@NotNull XNavigatable navigatable) {
+          DartVmServiceValue.doComputeSourcePosition(myDebugProcess, navigatable, myIsolateId, fieldRef);
         }
 
         @Override
-        public void onError(RPCError error) {
-          node.setErrorMessage(error.getMessage());
+        public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
+          final JsonElement valueAsString = instanceRef.getJson().get("valueAsString");
+          final String value = valueAsString == null ? "not initialized" : valueAsString.getAsString();
+          node.setPresentation(AllIcons.Nodes.Field, null, value, false);
         }
       });
     }
@@ -1,6 +1,8 @@
 package com.jetbrains.lang.dart.ide.runner.test;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.intellij.execution.testframework.TestConsoleProperties;
 import com.intellij.execution.testframework.sm.ServiceMessageBuilder;
 import com.intellij.execution.testframework.sm.runner.OutputToGeneralTestEventsConverter;
@@ -9,17 +11,17 @@ import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtil;
 import com.jetbrains.lang.dart.ide.runner.util.DartTestLocationProvider;
-import gnu.trove.TIntLongHashMap;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TObjectProcedure;
 import jetbrains.buildServer.messages.serviceMessages.ServiceMessageVisitor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.StringReader;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,6 +31,10 @@ import java.util.regex.Pattern;
  * NOTE: The test runner runs tests asynchronously. It is possible to get a 'testDone'
  * event followed some time later by an 'error' event for that same test. That should
  * convert a successful test into a failure. That case is not being handled.
+ * <p/>
+ * Events are decoded with a streaming {@link JsonReader} that keeps only the fields used here. Finished tests are forgotten
+ * after {@link #FINISHED_TESTS_TO_KEEP} more tests finish, so memory doesn't grow with the number of tests in the run.
+ * Groups are kept: a (tearDownAll) virtual test still refers to its group when all the other tests of the group are done.
  */
 public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter {
   private static final Logger LOG = Logger.getInstance(DartTestEventsConverter.class.getName());
@@ -78,28 +84,33 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   private static final String SET_UP_ALL_VIRTUAL_TEST_NAME = "(setUpAll)";
   private static final String TEAR_DOWN_ALL_VIRTUAL_TEST_NAME = "(tearDownAll)";
 
+  static final int FINISHED_TESTS_TO_KEEP = 1000;
+
   private static final Gson GSON = new Gson();
 
   private String myLocation;
   private Key myCurrentOutputType;
   private ServiceMessageVisitor myCurrentVisitor;
-  private TIntLongHashMap myTestIdToTimestamp;
-  private Map<Integer, Test> myTestData;
-  private Map<Integer, Group> myGroupData;
-  private Map<Integer, Suite> mySuiteData;
+  private final TIntObjectHashMap<Test> myTestData = new TIntObjectHashMap<Test>();
+  private final TIntObjectHashMap<Group> myGroupData = new TIntObjectHashMap<Group>();
+  private final TIntObjectHashMap<Suite> mySuiteData = new TIntObjectHashMap<Suite>();
+  // ring buffer of the ids of the latest finished tests, they are kept in myTestData in case an error is reported after testDone
+  private final int[] myFinishedTestIds = new int[FINISHED_TESTS_TO_KEEP];
+  private int myFinishedTestCount;
   private int mySuitCount;
 
+  private int myEventCount;
+  private long myEventProcessingNanos;
+
   public DartTestEventsConverter(@NotNull final String testFrameworkName, @NotNull final TestConsoleProperties consoleProperties) {
     super(testFrameworkName, consoleProperties);
-    myTestIdToTimestamp = new TIntLongHashMap();
-    myTestData = new HashMap<Integer, Test>();
-    myGroupData = new HashMap<Integer, Group>();
-    mySuiteData = new HashMap<Integer, Suite>();
   }
 
   protected boolean processServiceMessages(final String text, final Key outputType, final ServiceMessageVisitor visitor)
     throws ParseException {
-    LOG.debug("<<< " + text.trim());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("<<< " + text.trim());
+    }
     myCurrentOutputType = outputType;
     myCurrentVisitor = visitor;
     // service message parser expects line like "##teamcity[ .... ]" without whitespaces in the end.
@@ -107,33 +118,68 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private boolean processEventText(final String text) throws JsonSyntaxException, ParseException {
-    JsonParser jp = new JsonParser();
-    JsonElement elem;
-    try {
-      elem = jp.parse(text);
-    }
-    catch (JsonSyntaxException ex) {
-      if (text.contains("\"json\" is not an allowed value for option \"reporter\"")) {
-        final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted("Failed to start");
-        final ServiceMessageBuilder testFailed = ServiceMessageBuilder.testFailed("Failed to start");
-        testFailed.addAttribute("message", "Please update your pubspec.yaml dependency on package:test to version 0.12.9 or later.");
-        final ServiceMessageBuilder testFinished = ServiceMessageBuilder.testFinished("Failed to start");
-        return finishMessage(testStarted, 1, 0) & finishMessage(testFailed, 1, 0) & finishMessage(testFinished, 1, 0);
+    if (!isJsonObjectStart(text)) {
+      // not an event; let JsonParser decide what to do with it exactly as before
+      final JsonElement elem;
+      try {
+        elem = new JsonParser().parse(text);
       }
+      catch (JsonSyntaxException ex) {
+        return processNonJsonText(text);
+      }
+      if (elem == null || !elem.isJsonObject()) return false;
+    }
+
+    final long start = System.nanoTime();
+    final Event event;
+    try {
+      event = Event.read(text);
+    }
+    catch (IOException e) {
+      return processNonJsonText(text);
+    }
+    catch (IllegalStateException e) {
+      return processNonJsonText(text);
+    }
+    catch (NumberFormatException e) {
+      return processNonJsonText(text);
+    }
 
-      return doProcessServiceMessages(text);
+    final boolean result = process(event);
+    myEventCount++;
+    myEventProcessingNanos += System.nanoTime() - start;
+    return result;
+  }
+
+  private static boolean isJsonObjectStart(@NotNull final String text) {
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (!Character.isWhitespace(c)) return c == '{';
     }
-    if (elem == null || !elem.isJsonObject()) return false;
-    return process(elem.getAsJsonObject());
+    return false;
+  }
+
+  private boolean processNonJsonText(@NotNull final String text) throws ParseException {
+    if (text.contains("\"json\" is not an allowed value for option \"reporter\"")) {
+      final ServiceMessageBuilder testStarted = ServiceMessageBuilder.testStarted("Failed to start");
+      final ServiceMessageBuilder testFailed = ServiceMessageBuilder.testFailed("Failed to start");
+      testFailed.addAttribute("message", "Please update your pubspec.yaml dependency on package:test to version 0.12.9 or later.");
+      final ServiceMessageBuilder testFinished = ServiceMessageBuilder.testFinished("Failed to start");
+      return finishMessage(testStarted, 1, 0) & finishMessage(testFailed, 1, 0) & finishMessage(testFinished, 1, 0);
+    }
+
+    return doProcessServiceMessages(text);
   }
 
   private boolean doProcessServiceMessages(@NotNull final String text) throws ParseException {
-    LOG.debug(">>> " + text);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(">>> " + text);
+    }
     return super.processServiceMessages(text, myCurrentOutputType, myCurrentVisitor);
   }
 
-  private boolean process(JsonObject obj) throws JsonSyntaxException, ParseException {
-    String type = obj.get(JSON_TYPE).getAsString();
+  private boolean process(@NotNull final Event obj) throws JsonSyntaxException, ParseException {
+    final String type = obj.myType;
     if (TYPE_TEST_START.equals(type)) {
       return handleTestStart(obj);
     }
@@ -166,12 +212,11 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     }
   }
 
-  private boolean handleTestStart(JsonObject obj) throws ParseException {
-    final JsonObject testObj = obj.getAsJsonObject(DEF_TEST);
-
-    // Not reached if testObj == null.
+  private boolean handleTestStart(@NotNull final Event obj) throws ParseException {
+    // Not reached if obj.myTest == null.
     final Test test = getTest(obj);
-    myTestIdToTimestamp.put(test.getId(), getTimestamp(obj));
+    if (test == null) return true;
+    test.myStartTime = getTimestamp(obj);
 
     if (shouldTestBeHiddenIfPassed(test)) {
       // Virtual test that represents loading or compiling a test suite. See lib/src/runner/loader.dart -> Loader.loadFile() in pkg/test source code
@@ -197,7 +242,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     addLocationHint(testStarted, test);
     boolean result = finishMessage(testStarted, test.getId(), test.getValidParentId());
 
-    final Metadata metadata = Metadata.from(testObj.getAsJsonObject(DEF_METADATA));
+    final Metadata metadata = obj.myTest.myMetadata;
     if (metadata.skip) {
       final ServiceMessageBuilder message = ServiceMessageBuilder.testIgnored(test.getBaseName());
       if (metadata.skipReason != null) message.addAttribute("message", metadata.skipReason);
@@ -219,14 +264,17 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
            group != null && group.getDoneTestsCount() > 0 && test.getBaseName().equals(TEAR_DOWN_ALL_VIRTUAL_TEST_NAME);
   }
 
-  private boolean handleTestDone(JsonObject obj) throws ParseException {
+  private boolean handleTestDone(@NotNull final Event obj) throws ParseException {
     final Test test = getTest(obj);
+    if (test == null) return true;
+
+    rememberFinishedTest(test);
 
     if (!test.myTestStartReported) return true;
 
     String result = getResult(obj);
     if (!result.equals(RESULT_SUCCESS) && !result.equals(RESULT_FAILURE) && !result.equals(RESULT_ERROR)) {
-      throw new ParseException("Unknown result: " + obj, 0);
+      throw new ParseException("Unknown result: " + result, 0);
     }
 
     test.testDone();
@@ -234,12 +282,20 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     //if (test.getMetadata().skip) return true; // skipped tests are reported as ignored in handleTestStart(). testFinished signal must follow
 
     ServiceMessageBuilder testFinished = ServiceMessageBuilder.testFinished(test.getBaseName());
-    long duration = getTimestamp(obj) - myTestIdToTimestamp.get(test.getId());
+    long duration = getTimestamp(obj) - test.myStartTime;
     testFinished.addAttribute("duration", Long.toString(duration));
 
     return finishMessage(testFinished, test.getId(), test.getValidParentId()) && checkGroupDone(test.getParent());
   }
 
+  private void rememberFinishedTest(@NotNull final Test test) {
+    final int index = myFinishedTestCount++ % FINISHED_TESTS_TO_KEEP;
+    if (myFinishedTestCount > FINISHED_TESTS_TO_KEEP) {
+      myTestData.remove(myFinishedTestIds[index]);
+    }
+    myFinishedTestIds[index] = test.getId();
+  }
+
   private boolean checkGroupDone(@Nullable final Group group) throws ParseException {
     if (group != null && group.getTestCount() > 0 && group.getDoneTestsCount() == group.getTestCount()) {
       return processGroupDone(group) && checkGroupDone(group.getParent());
@@ -247,8 +303,8 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     return true;
   }
 
-  private boolean handleGroup(JsonObject obj) throws ParseException {
-    Group group = getGroup(obj.getAsJsonObject(DEF_GROUP));
+  private boolean handleGroup(@NotNull final Event obj) throws ParseException {
+    Group group = getGroup(obj.myGroup);
 
     // From spec: The implicit group at the root of each test suite has null name and parentID attributes.
     if (group.getParent() == null && group.getTestCount() > 0) {
@@ -266,16 +322,18 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     return finishMessage(groupMsg, group.getId(), group.getValidParentId());
   }
 
-  private boolean handleSuite(JsonObject obj) throws ParseException {
-    Suite suite = getSuite(obj.getAsJsonObject(DEF_SUITE));
+  private boolean handleSuite(@NotNull final Event obj) throws ParseException {
+    Suite suite = getSuite(obj.mySuite);
     if (!suite.hasPath()) {
       mySuiteData.remove(suite.getId());
     }
     return true;
   }
 
-  private boolean handleError(JsonObject obj) throws ParseException {
+  private boolean handleError(@NotNull final Event obj) throws ParseException {
     final Test test = getTest(obj);
+    if (test == null) return true;
+
     final String message = getErrorMessage(obj);
     boolean result = true;
 
@@ -312,7 +370,7 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
         }
       }
 
-      if (!getBoolean(obj, JSON_IS_FAILURE)) testError.addAttribute("error", "true");
+      if (!getIsFailure(obj)) testError.addAttribute("error", "true");
       testError.addAttribute("message", appendLineBreakIfNeeded(failureMessage));
 
       result &= finishMessage(testError, test.getId(), test.getValidParentId());
@@ -333,15 +391,16 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     return message.endsWith("\n") ? message : message + "\n";
   }
 
-  private boolean handleAllSuites(JsonObject obj) {
-    JsonElement elem = obj.get(JSON_COUNT);
-    if (elem == null || !elem.isJsonPrimitive()) return true;
-    mySuitCount = elem.getAsInt();
+  private boolean handleAllSuites(@NotNull final Event obj) {
+    if (obj.myCount == null) return true;
+    mySuitCount = obj.myCount;
     return true;
   }
 
-  private boolean handlePrint(JsonObject obj) throws ParseException {
+  private boolean handlePrint(@NotNull final Event obj) throws ParseException {
     final Test test = getTest(obj);
+    if (test == null) return true;
+
     boolean result = true;
 
     if (!test.myTestStartReported) {
@@ -360,25 +419,40 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     return result & finishMessage(message, test.getId(), test.getValidParentId());
   }
 
-  private boolean handleStart(JsonObject obj) throws ParseException {
-    myTestIdToTimestamp.clear();
-    myTestData.clear();
-    myGroupData.clear();
-    mySuiteData.clear();
-    mySuitCount = 0;
+  private boolean handleStart(@NotNull final Event obj) throws ParseException {
+    clearData();
+    myEventCount = 0;
+    myEventProcessingNanos = 0;
 
     return doProcessServiceMessages(new ServiceMessageBuilder("enteredTheMatrix").toString());
   }
 
-  private boolean handleDone(JsonObject obj) throws ParseException {
+  private boolean handleDone(@NotNull final Event obj) throws ParseException {
     // The test runner has reached the end of the tests.
     processAllTestsDone();
+    logThroughput();
     return true;
   }
 
+  private void logThroughput() {
+    if (LOG.isDebugEnabled() && myEventProcessingNanos > 0) {
+      final long millis = myEventProcessingNanos / 1000000;
+      LOG.debug("Processed " + myEventCount + " test events in " + millis + " ms (" +
+                (long)(myEventCount * 1000000000.0 / myEventProcessingNanos) + " events/sec)");
+    }
+  }
+
   private void processAllTestsDone() {
     // All tests are done.
-    for (Group group : myGroupData.values()) {
+    final List<Group> groups = new ArrayList<Group>(myGroupData.size());
+    myGroupData.forEachValue(new TObjectProcedure<Group>() {
+      @Override
+      public boolean execute(Group group) {
+        groups.add(group);
+        return true;
+      }
+    });
+    for (Group group : groups) {
       // For package: test prior to v. 0.12.9 there were no Group.testCount field, so need to finish them all at the end.
       // AFAIK the order does not matter. A depth-first post-order traversal of the tree would work
       // if order does matter. Note: Currently, there is no tree representation, just parent links.
@@ -392,10 +466,14 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
         }
       }
     }
-    myTestIdToTimestamp.clear();
+    clearData();
+  }
+
+  private void clearData() {
     myTestData.clear();
     myGroupData.clear();
     mySuiteData.clear();
+    myFinishedTestCount = 0;
     mySuitCount = 0;
   }
 
@@ -428,101 +506,258 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     messageBuilder.addAttribute("locationHint", location);
   }
 
-  private static long getTimestamp(JsonObject obj) throws ParseException {
-    return getLong(obj, JSON_MILLIS);
+  private static long getTimestamp(@NotNull final Event obj) throws ParseException {
+    if (obj.myTime == null) throw new ParseException("Value is not type long: " + JSON_MILLIS, 0);
+    return obj.myTime;
   }
 
-  private static long getLong(JsonObject obj, String name) throws ParseException {
-    JsonElement val = obj == null ? null : obj.get(name);
-    if (val == null || !val.isJsonPrimitive()) throw new ParseException("Value is not type long: " + val, 0);
-    return val.getAsLong();
+  private static boolean getIsFailure(@NotNull final Event obj) throws ParseException {
+    if (obj.myIsFailure == null) throw new ParseException("Value is not type boolean: " + JSON_IS_FAILURE, 0);
+    return obj.myIsFailure;
   }
 
-  private static boolean getBoolean(JsonObject obj, String name) throws ParseException {
-    JsonElement val = obj == null ? null : obj.get(name);
-    if (val == null || !val.isJsonPrimitive()) throw new ParseException("Value is not type boolean: " + val, 0);
-    return val.getAsBoolean();
+  /**
+   * @return <code>null</code> if the event refers to a test that is unknown or already forgotten
+   */
+  @Nullable
+  private Test getTest(@NotNull final Event obj) throws ParseException {
+    if (obj.myTestId != null) {
+      final Test test = myTestData.get(obj.myTestId);
+      if (test == null && LOG.isDebugEnabled()) LOG.debug("Unknown test id: " + obj.myTestId);
+      return test;
+    }
+
+    final ItemJson testObj = checkHasId(obj.myTest);
+    final Group parent = testObj.myLastGroupId == null ? null : myGroupData.get(testObj.myLastGroupId);
+    final Test test = new Test(testObj.myId, testObj.getName(), parent, lookupSuite(testObj), testObj.myMetadata);
+    myTestData.put(testObj.myId, test);
+    return test;
   }
 
   @NotNull
-  private Test getTest(JsonObject obj) throws ParseException {
-    return getItem(obj, myTestData);
+  private Group getGroup(@Nullable final ItemJson obj) throws ParseException {
+    final ItemJson groupObj = checkHasId(obj);
+    final Group parent = groupObj.myParentId == null ? null : myGroupData.get(groupObj.myParentId);
+    final int testCount = groupObj.myTestCount == null ? -1 : groupObj.myTestCount;
+    final Group group = new Group(groupObj.myId, groupObj.getName(), parent, lookupSuite(groupObj), groupObj.myMetadata, testCount);
+    myGroupData.put(groupObj.myId, group);
+    return group;
   }
 
   @NotNull
-  private Group getGroup(JsonObject obj) throws ParseException {
-    return getItem(obj, myGroupData);
+  private Suite getSuite(@Nullable final ItemJson obj) throws ParseException {
+    final ItemJson suiteObj = checkHasId(obj);
+    final Suite suite = new Suite(suiteObj.myId, suiteObj.myPath == null ? Suite.NONE : suiteObj.myPath,
+                                  suiteObj.myPlatform == null ? Suite.NONE : suiteObj.myPlatform);
+    mySuiteData.put(suiteObj.myId, suite);
+    return suite;
   }
 
   @NotNull
-  private Suite getSuite(JsonObject obj) throws ParseException {
-    return getItem(obj, mySuiteData);
+  private static ItemJson checkHasId(@Nullable final ItemJson obj) throws ParseException {
+    if (obj == null) throw new ParseException("Unexpected null json object", 0);
+    if (!obj.myHasId) throw new ParseException("No testId in json object", 0);
+    return obj;
+  }
+
+  @Nullable
+  private Suite lookupSuite(@NotNull final ItemJson obj) {
+    return obj.mySuiteId == null ? null : mySuiteData.get(obj.mySuiteId);
   }
 
   @NotNull
-  private <T extends Item> T getItem(JsonObject obj, Map<Integer, T> items) throws ParseException {
-    if (obj == null) throw new ParseException("Unexpected null json object", 0);
-    T item;
-    JsonElement id = obj.get(JSON_ID);
-    if (id != null) {
-      if (items == myTestData) {
-        @SuppressWarnings("unchecked") T type = (T)Test.from(obj, myGroupData, mySuiteData);
-        item = type;
-      }
-      else if (items == myGroupData) {
-        @SuppressWarnings("unchecked") T group = (T)Group.from(obj, myGroupData, mySuiteData);
-        item = group;
+  private static String getErrorMessage(@NotNull final Event obj) {
+    return obj.myError != null ? obj.myError : "<no error message>";
+  }
+
+  @NotNull
+  private static String getMessage(@NotNull final Event obj) {
+    return obj.myMessage != null ? obj.myMessage : "<no message>";
+  }
+
+  @NotNull
+  private static String getStackTrace(@NotNull final Event obj) {
+    return obj.myStackTrace != null ? obj.myStackTrace : "<no stack trace>";
+  }
+
+  @NotNull
+  private static String getResult(@NotNull final Event obj) {
+    return obj.myResult != null ? obj.myResult : "<no result>";
+  }
+
+  /**
+   * Fields of a JSON event line that are used by the converter, everything else is skipped while reading.
+   * Absent fields and fields that have value of unexpected type are <code>null</code>.
+   */
+  private static class Event {
+    private String myType;
+    private Long myTime;
+    private Integer myTestId;
+    private Integer myCount;
+    private Boolean myIsFailure;
+    private String myResult;
+    private String myMessage;
+    private String myError;
+    private String myStackTrace;
+    private ItemJson myTest;
+    private ItemJson myGroup;
+    private ItemJson mySuite;
+
+    @NotNull
+    static Event read(@NotNull final String text) throws IOException {
+      final JsonReader reader = new JsonReader(new StringReader(text));
+      reader.setLenient(true);
+
+      final Event event = new Event();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        final String name = reader.nextName();
+        if (JSON_TYPE.equals(name)) {
+          event.myType = readString(reader);
+        }
+        else if (JSON_MILLIS.equals(name)) {
+          event.myTime = isNumber(reader) ? reader.nextLong() : skipValue(reader);
+        }
+        else if (JSON_TEST_ID.equals(name)) {
+          event.myTestId = readInt(reader);
+        }
+        else if (JSON_COUNT.equals(name)) {
+          event.myCount = readInt(reader);
+        }
+        else if (JSON_IS_FAILURE.equals(name)) {
+          event.myIsFailure = reader.peek() == JsonToken.BOOLEAN ? reader.nextBoolean() : skipValue(reader);
+        }
+        else if (JSON_RESULT.equals(name)) {
+          event.myResult = readString(reader);
+        }
+        else if (JSON_MESSAGE.equals(name)) {
+          event.myMessage = readString(reader);
+        }
+        else if (JSON_ERROR_MESSAGE.equals(name)) {
+          event.myError = readString(reader);
+        }
+        else if (JSON_STACK_TRACE.equals(name)) {
+          event.myStackTrace = readString(reader);
+        }
+        else if (DEF_TEST.equals(name)) {
+          event.myTest = ItemJson.read(reader);
+        }
+        else if (DEF_GROUP.equals(name)) {
+          event.myGroup = ItemJson.read(reader);
+        }
+        else if (DEF_SUITE.equals(name)) {
+          event.mySuite = ItemJson.read(reader);
+        }
+        else {
+          reader.skipValue();
+        }
       }
-      else {
-        @SuppressWarnings("unchecked") T suite = (T)Suite.from(obj);
-        item = suite;
+      reader.endObject();
+
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new IOException("Did not consume the entire document");
       }
-      items.put(id.getAsInt(), item);
+      return event;
+    }
+  }
+
+  /**
+   * Fields of the 'test', 'group' and 'suite' objects in JSON event lines.
+   */
+  private static class ItemJson {
+    private boolean myHasId;
+    private int myId = -1;
+    private String myName;
+    private Integer mySuiteId;
+    private Integer myParentId;
+    private Integer myLastGroupId;
+    private Integer myTestCount;
+    private String myPath;
+    private String myPlatform;
+    @NotNull private Metadata myMetadata = new Metadata();
+
+    @NotNull
+    String getName() {
+      return myName == null ? Item.NO_NAME : myName;
     }
-    else {
-      JsonElement testId = obj.get(JSON_TEST_ID);
-      if (testId != null) {
-        int baseId = testId.getAsInt();
-        item = items.get(baseId);
-      }
-      else {
-        JsonElement testObj = obj.get(DEF_TEST);
-        if (testObj != null) {
-          return getItem(testObj.getAsJsonObject(), items);
+
+    @Nullable
+    static ItemJson read(@NotNull final JsonReader reader) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) return skipValue(reader);
+
+      final ItemJson item = new ItemJson();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        final String name = reader.nextName();
+        if (JSON_ID.equals(name)) {
+          final Integer id = readInt(reader);
+          item.myHasId = true;
+          item.myId = id == null ? -1 : id;
+        }
+        else if (JSON_NAME.equals(name)) {
+          item.myName = readString(reader);
+        }
+        else if (JSON_SUITE_ID.equals(name)) {
+          item.mySuiteId = readInt(reader);
+        }
+        else if (JSON_PARENT_ID.equals(name)) {
+          item.myParentId = readInt(reader);
+        }
+        else if (JSON_GROUP_IDS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+          reader.beginArray();
+          while (reader.hasNext()) {
+            item.myLastGroupId = reader.nextInt();
+          }
+          reader.endArray();
+        }
+        else if (JSON_TEST_COUNT.equals(name)) {
+          item.myTestCount = readInt(reader);
+        }
+        else if (JSON_PATH.equals(name)) {
+          item.myPath = readString(reader);
+        }
+        else if (JSON_PLATFORM.equals(name)) {
+          item.myPlatform = readString(reader);
+        }
+        else if (DEF_METADATA.equals(name)) {
+          item.myMetadata = Metadata.read(reader);
         }
         else {
-          throw new ParseException("No testId in json object", 0);
+          reader.skipValue();
         }
       }
+      reader.endObject();
+      return item;
     }
-    return item;
   }
 
-  @NotNull
-  private static String getErrorMessage(JsonObject obj) {
-    return nonNullJsonValue(obj, JSON_ERROR_MESSAGE, "<no error message>");
+  private static boolean isNumber(@NotNull final JsonReader reader) throws IOException {
+    final JsonToken token = reader.peek();
+    return token == JsonToken.NUMBER || token == JsonToken.STRING;
   }
 
-  @NotNull
-  private static String getMessage(JsonObject obj) {
-    return nonNullJsonValue(obj, JSON_MESSAGE, "<no message>");
+  @Nullable
+  private static Integer readInt(@NotNull final JsonReader reader) throws IOException {
+    return isNumber(reader) ? reader.nextInt() : skipValue(reader);
   }
 
-  @NotNull
-  private static String getStackTrace(JsonObject obj) {
-    return nonNullJsonValue(obj, JSON_STACK_TRACE, "<no stack trace>");
-  }
-
-  @NotNull
-  private static String getResult(JsonObject obj) {
-    return nonNullJsonValue(obj, JSON_RESULT, "<no result>");
+  @Nullable
+  private static String readString(@NotNull final JsonReader reader) throws IOException {
+    switch (reader.peek()) {
+      case STRING:
+      case NUMBER:
+        return reader.nextString();
+      case BOOLEAN:
+        return String.valueOf(reader.nextBoolean());
+      default:
+        return skipValue(reader);
+    }
   }
 
-  @NotNull
-  private static String nonNullJsonValue(JsonObject obj, @NotNull String id, @NotNull String def) {
-    JsonElement val = obj == null ? null : obj.get(id);
-    if (val == null || !val.isJsonPrimitive()) return def;
-    return val.getAsString();
+  @Nullable
+  private static <T> T skipValue(@NotNull final JsonReader reader) throws IOException {
+    reader.skipValue();
+    return null;
   }
 
   private static class Item {
@@ -533,32 +768,6 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private final Suite mySuite;
     private final Metadata myMetadata;
 
-    static int extractId(JsonObject obj) {
-      JsonElement elem = obj.get(JSON_ID);
-      if (elem == null || !elem.isJsonPrimitive()) return -1;
-      return elem.getAsInt();
-    }
-
-    static String extractName(JsonObject obj) {
-      JsonElement elem = obj.get(JSON_NAME);
-      if (elem == null || elem.isJsonNull()) return NO_NAME;
-      return elem.getAsString();
-    }
-
-    static Metadata extractMetadata(JsonObject obj) {
-      return Metadata.from(obj.get(DEF_METADATA));
-    }
-
-    static Suite lookupSuite(JsonObject obj, Map<Integer, Suite> suites) {
-      JsonElement suiteObj = obj.get(JSON_SUITE_ID);
-      Suite suite = null;
-      if (suiteObj != null && suiteObj.isJsonPrimitive()) {
-        int parentId = suiteObj.getAsInt();
-        suite = suites.get(parentId);
-      }
-      return suite;
-    }
-
     Item(int id, String name, Group parent, Suite suite, Metadata metadata) {
       myId = id;
       myName = name;
@@ -664,19 +873,10 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private static class Test extends Item {
+    private long myStartTime;
     private boolean myTestStartReported = false;
     private boolean myTestErrorReported = false;
 
-    static Test from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
-      int[] groupIds = GSON.fromJson(obj.get(JSON_GROUP_IDS), (Type)int[].class);
-      Group parent = null;
-      if (groupIds != null && groupIds.length > 0) {
-        parent = groups.get(groupIds[groupIds.length - 1]);
-      }
-      Suite suite = lookupSuite(obj, suites);
-      return new Test(extractId(obj), extractName(obj), parent, suite, extractMetadata(obj));
-    }
-
     Test(int id, String name, Group parent, Suite suite, Metadata metadata) {
       super(id, name, parent, suite, metadata);
     }
@@ -692,23 +892,6 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     private int myTestCount = 0;
     private int myDoneTestsCount = 0;
 
-    static int extractTestCount(JsonObject obj) {
-      JsonElement elem = obj.get(JSON_TEST_COUNT);
-      if (elem == null || !elem.isJsonPrimitive()) return -1;
-      return elem.getAsInt();
-    }
-
-    static Group from(JsonObject obj, Map<Integer, Group> groups, Map<Integer, Suite> suites) {
-      JsonElement parentObj = obj.get(JSON_PARENT_ID);
-      Group parent = null;
-      if (parentObj != null && parentObj.isJsonPrimitive()) {
-        int parentId = parentObj.getAsInt();
-        parent = groups.get(parentId);
-      }
-      Suite suite = lookupSuite(obj, suites);
-      return new Group(extractId(obj), extractName(obj), parent, suite, extractMetadata(obj), extractTestCount(obj));
-    }
-
     Group(int id, String name, Group parent, Suite suite, Metadata metadata, int count) {
       super(id, name, parent, suite, metadata);
       myTestCount = count;
@@ -735,22 +918,6 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
     static Metadata NoMetadata = new Metadata();
     static String NONE = "<none>";
 
-    static Suite from(JsonObject obj) {
-      return new Suite(extractId(obj), extractPath(obj), extractPlatform(obj));
-    }
-
-    static String extractPath(JsonObject obj) {
-      JsonElement elem = obj.get(JSON_PATH);
-      if (elem == null || elem.isJsonNull()) return NONE;
-      return elem.getAsString();
-    }
-
-    static String extractPlatform(JsonObject obj) {
-      JsonElement elem = obj.get(JSON_PLATFORM);
-      if (elem == null || elem.isJsonNull()) return NONE;
-      return elem.getAsString();
-    }
-
     private final String myPlatform;
 
     Suite(int id, String path, String platform) {
@@ -772,12 +939,32 @@ public class DartTestEventsConverter extends OutputToGeneralTestEventsConverter
   }
 
   private static class Metadata {
-    @SuppressWarnings("unused") private boolean skip; // assigned by GSON via reflection
-    @SuppressWarnings("unused") private String skipReason; // assigned by GSON via reflection
+    private boolean skip;
+    private String skipReason;
+
+    @NotNull
+    static Metadata read(@NotNull final JsonReader reader) throws IOException {
+      final Metadata metadata = new Metadata();
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        reader.skipValue();
+        return metadata;
+      }
 
-    static Metadata from(JsonElement elem) {
-      if (elem == null) return new Metadata();
-      return GSON.fromJson(elem, (Type)Metadata.class);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        final String name = reader.nextName();
+        if ("skip".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+          metadata.skip = reader.nextBoolean();
+        }
+        else if ("skipReason".equals(name)) {
+          metadata.skipReason = readString(reader);
+        }
+        else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      return metadata;
     }
   }
 }
@@ -0,0 +1,117 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jetbrains.lang.dart.analyzer.DartServerData.DartRegion;
+
+public class DartRegionIndexTest extends TestCase {
+
+  @NotNull
+  private static DartRegionIndex<DartRegion> createIndex(final boolean updateTouched, final int... offsetsAndLengths) {
+    final List<DartRegion> regions = new ArrayList<DartRegion>();
+    for (int i = 0; i < offsetsAndLengths.length; i += 2) {
+      regions.add(new DartRegion(offsetsAndLengths[i], offsetsAndLengths[i + 1]));
+    }
+    return new DartRegionIndex<DartRegion>(regions, updateTouched, null);
+  }
+
+  private static void assertRegions(@NotNull final DartRegionIndex<DartRegion> index, final int... offsetsAndLengths) {
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < offsetsAndLengths.length; i += 2) {
+      expected.add(offsetsAndLengths[i] + ":" + offsetsAndLengths[i + 1]);
+    }
+
+    final List<String> actual = new ArrayList<String>();
+    for (DartRegion region : index.getRegions()) {
+      actual.add(region.getOffset() + ":" + region.getLength());
+    }
+
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  public void testSortedOnCreation() {
+    final DartRegionIndex<DartRegion> index = createIndex(false, 20, 3, 0, 5, 10, 2);
+    assertRegions(index, 0, 5, 10, 2, 20, 3);
+  }
+
+  public void testTypingDeletesTouched() {
+    final DartRegionIndex<DartRegion> index = createIndex(false, 0, 5, 10, 2, 20, 3);
+    index.documentChanged(11, 0, 3);
+    assertRegions(index, 0, 5, 23, 3);
+    index.documentChanged(0, 0, 1);
+    assertRegions(index, 1, 5, 24, 3);
+  }
+
+  public void testTypingUpdatesTouched() {
+    final DartRegionIndex<DartRegion> index = createIndex(true, 0, 5, 10, 2, 20, 3);
+    index.documentChanged(11, 0, 3);
+    index.documentChanged(5, 0, 1);
+    assertRegions(index, 0, 5, 11, 5, 24, 3);
+  }
+
+  public void testDeletionDeletesTouched() {
+    final DartRegionIndex<DartRegion> index = createIndex(false, 0, 5, 10, 2, 20, 3, 30, 4);
+    index.documentChanged(4, 8, 0);
+    assertRegions(index, 12, 3, 22, 4);
+    index.documentChanged(12, 1, 0);
+    assertRegions(index, 21, 4);
+  }
+
+  public void testDeletionUpdatesTouched() {
+    final DartRegionIndex<DartRegion> index = createIndex(true, 0, 5, 10, 2, 20, 3, 30, 4);
+    index.documentChanged(1, 2, 0);
+    index.documentChanged(8, 2, 0);
+    assertRegions(index, 0, 3, 16, 3, 26, 4);
+    index.documentChanged(16, 3, 0);
+    assertRegions(index, 0, 3, 23, 4);
+  }
+
+  public void testManyChangesBeforeFlush() {
+    final DartRegionIndex<DartRegion> index = createIndex(false, 0, 5, 10, 2, 20, 3, 30, 4);
+    index.documentChanged(6, 0, 2);
+    index.documentChanged(6, 2, 0);
+    index.documentChanged(25, 0, 10);
+    index.documentChanged(13, 2, 0);
+    index.documentChanged(10, 0, 1);
+    assertRegions(index, 0, 5, 11, 2, 19, 3, 39, 4);
+  }
+
+  public void testFindRegion() {
+    final DartRegionIndex<DartRegion> index = createIndex(false, 0, 5, 10, 2, 20, 3);
+    index.documentChanged(7, 0, 3);
+    assertNull(index.findRegion(10, 2));
+    assertEquals(new DartRegion(13, 2), index.findRegion(13, 2));
+    assertNull(index.findRegion(13, 3));
+  }
+
+  public void testTypingBurstPerformance() {
+    final int regionCount = 50000;
+    final List<DartRegion> regions = new ArrayList<DartRegion>(regionCount);
+    final DartRegion[] initial = new DartRegion[regionCount];
+    for (int i = 0; i < regionCount; i++) {
+      initial[i] = new DartRegion(i * 10, 5);
+    }
+
+    PlatformTestUtil.startPerformanceTest("Typing bursts into a file with " + regionCount + " highlight regions", 1000, () -> {
+      for (int burst = 0; burst < 100; burst++) {
+        regions.clear();
+        for (DartRegion region : initial) {
+          regions.add(new DartRegion(region.getOffset(), region.getLength()));
+        }
+        final DartRegionIndex<DartRegion> index = new DartRegionIndex<DartRegion>(regions, true, null);
+
+        // 200 keystrokes somewhere in the middle of the file, then one highlighting pass
+        final int offset = regionCount * 5 + burst;
+        for (int i = 0; i < 200; i++) {
+          index.documentChanged(offset + i, 0, 1);
+        }
+        assertEquals(regionCount, index.getRegions().size());
+      }
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,149 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.google.dart.server.AnalysisServerListenerAdapter;
+import com.google.dart.server.internal.remote.processor.NotificationAnalysisHighlightsProcessor;
+import com.google.dart.server.internal.remote.processor.NotificationAnalysisNavigationProcessor;
+import com.google.dart.server.internal.remote.processor.StreamingNotificationProcessor;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.HighlightRegion;
+import org.dartlang.analysis.server.protocol.NavigationRegion;
+import org.dartlang.analysis.server.protocol.NavigationTarget;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class DartServerNotificationDecodingTest extends TestCase {
+
+  private static class RecordingListener extends AnalysisServerListenerAdapter {
+    private String myFile;
+    private List<HighlightRegion> myHighlights;
+    private List<NavigationRegion> myNavigation;
+
+    @Override
+    public void computedHighlights(String file, List<HighlightRegion> highlights) {
+      myFile = file;
+      myHighlights = highlights;
+    }
+
+    @Override
+    public void computedNavigation(String file, List<NavigationRegion> targets) {
+      myFile = file;
+      myNavigation = targets;
+    }
+  }
+
+  // the same shape as analysis.highlights and analysis.navigation lines written by the server for a big file
+  @NotNull
+  private static String highlightsLine(final int regionCount) {
+    final StringBuilder builder = new StringBuilder("{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/lib/big.dart\",\"regions\":[");
+    for (int i = 0; i < regionCount; i++) {
+      if (i > 0) builder.append(',');
+      builder.append("{\"type\":\"").append(i % 3 == 0 ? "KEYWORD" : "IDENTIFIER_DEFAULT").append("\",\"offset\":").append(i * 10)
+        .append(",\"length\":").append(i % 7 + 1).append('}');
+    }
+    return builder.append("]}}").toString();
+  }
+
+  @NotNull
+  private static String navigationLine(final int regionCount, final int targetCount, final int fileCount) {
+    final StringBuilder builder = new StringBuilder("{\"event\":\"analysis.navigation\",\"params\":{\"file\":\"/project/lib/big.dart\",\"regions\":[");
+    for (int i = 0; i < regionCount; i++) {
+      if (i > 0) builder.append(',');
+      builder.append("{\"offset\":").append(i * 10).append(",\"length\":").append(i % 7 + 1).append(",\"targets\":[")
+        .append(i % targetCount).append("]}");
+    }
+    builder.append("],\"targets\":[");
+    for (int i = 0; i < targetCount; i++) {
+      if (i > 0) builder.append(',');
+      builder.append("{\"kind\":\"CLASS\",\"fileIndex\":").append(i % fileCount).append(",\"offset\":").append(i * 3)
+        .append(",\"length\":3,\"startLine\":").append(i + 1).append(",\"startColumn\":1}");
+    }
+    builder.append("],\"files\":[");
+    for (int i = 0; i < fileCount; i++) {
+      if (i > 0) builder.append(',');
+      builder.append("\"/project/lib/file").append(i).append(".dart\"");
+    }
+    return builder.append("]}}").toString();
+  }
+
+  private static void processStreaming(@NotNull final StreamingNotificationProcessor processor, @NotNull final String line)
+    throws IOException {
+    final JsonReader reader = new JsonReader(new StringReader(line));
+    reader.beginObject();
+    assertEquals("event", reader.nextName());
+    reader.nextString();
+    assertEquals("params", reader.nextName());
+    processor.process(reader);
+    reader.endObject();
+  }
+
+  @NotNull
+  private static JsonObject parse(@NotNull final String line) {
+    return new JsonParser().parse(line).getAsJsonObject();
+  }
+
+  public void testHighlights() throws Exception {
+    final String line = highlightsLine(100);
+
+    final RecordingListener treeListener = new RecordingListener();
+    new NotificationAnalysisHighlightsProcessor(treeListener).process(parse(line));
+
+    final RecordingListener streamingListener = new RecordingListener();
+    processStreaming(new NotificationAnalysisHighlightsProcessor(streamingListener), line);
+
+    assertEquals(treeListener.myFile, streamingListener.myFile);
+    assertEquals(treeListener.myHighlights, streamingListener.myHighlights);
+  }
+
+  public void testNavigation() throws Exception {
+    final String line = navigationLine(100, 30, 7);
+
+    final RecordingListener treeListener = new RecordingListener();
+    new NotificationAnalysisNavigationProcessor(treeListener).process(parse(line));
+
+    final RecordingListener streamingListener = new RecordingListener();
+    processStreaming(new NotificationAnalysisNavigationProcessor(streamingListener), line);
+
+    assertEquals(treeListener.myFile, streamingListener.myFile);
+    assertEquals(treeListener.myNavigation, streamingListener.myNavigation);
+    for (int i = 0; i < treeListener.myNavigation.size(); i++) {
+      final List<NavigationTarget> expected = treeListener.myNavigation.get(i).getTargetObjects();
+      final List<NavigationTarget> actual = streamingListener.myNavigation.get(i).getTargetObjects();
+      assertEquals(expected, actual);
+      assertEquals(expected.get(0).getFile(), actual.get(0).getFile());
+    }
+  }
+
+  public void testUnknownMembersSkipped() throws Exception {
+    final String line = "{\"event\":\"analysis.highlights\",\"params\":{\"regions\":[{\"offset\":5,\"extra\":{\"a\":[1,2]},\"length\":2," +
+                        "\"type\":\"KEYWORD\"}],\"version\":2,\"file\":\"/a.dart\"}}";
+    final RecordingListener listener = new RecordingListener();
+    processStreaming(new NotificationAnalysisHighlightsProcessor(listener), line);
+
+    assertEquals("/a.dart", listener.myFile);
+    assertEquals(1, listener.myHighlights.size());
+    assertEquals(new HighlightRegion("KEYWORD", 5, 2), listener.myHighlights.get(0));
+  }
+
+  public void testDecodingPerformance() throws Exception {
+    final String highlights = highlightsLine(20000);
+    final String navigation = navigationLine(10000, 2000, 50);
+    final RecordingListener listener = new RecordingListener();
+
+    PlatformTestUtil.startPerformanceTest("Streaming decoding of 10 big highlights and navigation notifications", 1500, () -> {
+      for (int i = 0; i < 10; i++) {
+        processStreaming(new NotificationAnalysisHighlightsProcessor(listener), highlights);
+        processStreaming(new NotificationAnalysisNavigationProcessor(listener), navigation);
+      }
+    }).cpuBound().assertTiming();
+
+    assertEquals(20000, listener.myHighlights.size());
+    assertEquals(10000, listener.myNavigation.size());
+  }
+}
@@ -0,0 +1,49 @@
+package com.jetbrains.lang.dart.coverage;
+
+import com.google.gson.JsonSyntaxException;
+import gnu.trove.TIntIntHashMap;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+public class DartCoverageDataTest extends TestCase {
+
+  private static DartCoverageData read(@NotNull final String json) throws IOException {
+    return DartCoverageData.read(new StringReader(json));
+  }
+
+  public void testEmpty() throws IOException {
+    assertNull(read(""));
+    assertTrue(read("{\"type\":\"CodeCoverage\",\"coverage\":[]}").getMergedDartFileCoverageData().isEmpty());
+  }
+
+  public void testMergeHits() throws IOException {
+    final DartCoverageData data = read("{\"type\":\"CodeCoverage\",\"coverage\":[" +
+                                       "{\"source\":\"package:foo/foo.dart\",\"script\":{\"type\":\"@Script\"},\"hits\":[1,2,5,0]}," +
+                                       "{\"hits\":[5,3,7,1],\"source\":\"package:foo/foo.dart\"}," +
+                                       "{\"source\":\"dart:core\",\"hits\":null}," +
+                                       "{\"hits\":[1,1]}]}");
+    final Map<String, TIntIntHashMap> map = data.getMergedDartFileCoverageData();
+    assertEquals(2, map.size());
+
+    final TIntIntHashMap foo = map.get("package:foo/foo.dart");
+    assertEquals(3, foo.size());
+    assertEquals(2, foo.get(1));
+    assertEquals(3, foo.get(5));
+    assertEquals(1, foo.get(7));
+
+    assertTrue(map.get("dart:core").isEmpty());
+  }
+
+  public void testInvalidData() throws IOException {
+    try {
+      read("{\"coverage\":[{\"source\":\"a.dart\",\"hits\":[1,2,3]}]}");
+      fail();
+    }
+    catch (JsonSyntaxException ignored) {
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.jetbrains.lang.dart.ide.errorTreeView;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.lang.dart.DartCodeInsightFixtureTestCase;
+import gnu.trove.THashMap;
+import org.dartlang.analysis.server.protocol.AnalysisError;
+import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
+import org.dartlang.analysis.server.protocol.AnalysisErrorType;
+import org.dartlang.analysis.server.protocol.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class DartProblemsTableModelTest extends DartCodeInsightFixtureTestCase {
+
+  private static final String[] SEVERITIES = {AnalysisErrorSeverity.ERROR, AnalysisErrorSeverity.WARNING, AnalysisErrorSeverity.INFO};
+
+  @NotNull
+  private static String filePath(final int fileIndex) {
+    return "/project/lib/file" + fileIndex + ".dart";
+  }
+
+  @NotNull
+  private static List<AnalysisError> createErrors(@NotNull final Random random, final int fileIndex, final int count) {
+    final List<AnalysisError> errors = new ArrayList<AnalysisError>(count);
+    for (int i = 0; i < count; i++) {
+      final int line = random.nextInt(1000) + 1;
+      final Location location = new Location(filePath(fileIndex), line * 20, 5, line, 1);
+      errors.add(new AnalysisError(SEVERITIES[random.nextInt(SEVERITIES.length)], AnalysisErrorType.LINT, "lint_" + random.nextInt(50),
+                                   location, "Message " + random.nextInt(50), null, false));
+    }
+    return errors;
+  }
+
+  @NotNull
+  private DartProblemsTableModel createModel() {
+    return new DartProblemsTableModel(getProject(), new DartProblemsFilter(getProject()));
+  }
+
+  private static int severityIndex(@NotNull final DartProblem problem) {
+    final String severity = problem.getSeverity();
+    return AnalysisErrorSeverity.ERROR.equals(severity) ? 0 : AnalysisErrorSeverity.WARNING.equals(severity) ? 1 : 2;
+  }
+
+  // default sorting: grouped by severity, then by location
+  private static void assertSorted(@NotNull final List<DartProblem> items) {
+    for (int i = 1; i < items.size(); i++) {
+      final DartProblem prev = items.get(i - 1);
+      final DartProblem next = items.get(i);
+      final int severityDiff = severityIndex(prev) - severityIndex(next);
+      assertTrue(severityDiff <= 0);
+      if (severityDiff == 0) {
+        final int locationDiff = prev.getPresentableLocationWithoutLineNumber().compareTo(next.getPresentableLocationWithoutLineNumber());
+        assertTrue(locationDiff <= 0);
+        if (locationDiff == 0) {
+          assertTrue(prev.getLineNumber() <= next.getLineNumber());
+        }
+      }
+    }
+  }
+
+  private static void assertModelContent(@NotNull final DartProblemsTableModel model,
+                                         @NotNull final Map<String, List<AnalysisError>> expectedFileToErrors) {
+    int expectedCount = 0;
+    for (List<AnalysisError> errors : expectedFileToErrors.values()) {
+      expectedCount += errors.size();
+    }
+
+    final List<DartProblem> items = model.getItems();
+    assertEquals(expectedCount, items.size());
+    for (DartProblem problem : items) {
+      assertTrue(expectedFileToErrors.containsKey(problem.getSystemIndependentPath()));
+    }
+    assertSorted(items);
+  }
+
+  public void testIncrementalUpdates() throws Exception {
+    final Random random = new Random(42);
+    final DartProblemsTableModel model = createModel();
+    final Map<String, List<AnalysisError>> expected = new THashMap<String, List<AnalysisError>>();
+
+    for (int burst = 0; burst < 30; burst++) {
+      final Map<String, List<AnalysisError>> update = new THashMap<String, List<AnalysisError>>();
+      for (int i = 0; i < 10; i++) {
+        final int fileIndex = random.nextInt(40);
+        update.put(filePath(fileIndex), createErrors(random, fileIndex, random.nextInt(3) == 0 ? 0 : random.nextInt(20)));
+      }
+
+      model.setErrorsAndReturnProblemToSelect(update, null);
+
+      for (Map.Entry<String, List<AnalysisError>> entry : update.entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          expected.remove(entry.getKey());
+        }
+        else {
+          expected.put(entry.getKey(), entry.getValue());
+        }
+      }
+      assertModelContent(model, expected);
+    }
+
+    model.removeAll();
+    assertEquals(0, model.getRowCount());
+    assertEquals("Total: no errors, no warnings, no hints. ", model.getStatusText());
+  }
+
+  @NotNull
+  private static AnalysisError createError(final int fileIndex, final int line, @NotNull final String message) {
+    final Location location = new Location(filePath(fileIndex), line * 20, 5, line, 1);
+    return new AnalysisError(AnalysisErrorSeverity.WARNING, AnalysisErrorType.STATIC_WARNING, "code", location, message, null, false);
+  }
+
+  @NotNull
+  private static Map<String, List<AnalysisError>> update(final int fileIndex, @NotNull final AnalysisError... errors) {
+    final Map<String, List<AnalysisError>> result = new THashMap<String, List<AnalysisError>>();
+    result.put(filePath(fileIndex), Arrays.asList(errors));
+    return result;
+  }
+
+  public void testProblemToSelect() throws Exception {
+    final DartProblemsTableModel model = createModel();
+    model.setErrorsAndReturnProblemToSelect(update(1, createError(1, 10, "Foo"), createError(1, 30, "Foo"), createError(1, 40, "Bar")), null);
+    model.setErrorsAndReturnProblemToSelect(update(2, createError(2, 10, "Foo")), null);
+    assertEquals(4, model.getRowCount());
+
+    final DartProblem selected = model.getItems().get(0);
+    assertEquals(filePath(1), selected.getSystemIndependentPath());
+    assertEquals(10, selected.getLineNumber());
+
+    // selected problem is not touched by the update
+    assertSame(selected, model.setErrorsAndReturnProblemToSelect(update(2, createError(2, 5, "Baz")), selected));
+
+    // selected problem is replaced with the closest similar one
+    final DartProblem replacement =
+      model.setErrorsAndReturnProblemToSelect(update(1, createError(1, 12, "Foo"), createError(1, 11, "Bar"), createError(1, 30, "Foo")),
+                                              selected);
+    assertNotNull(replacement);
+    assertEquals("Foo", replacement.getErrorMessage());
+    assertEquals(12, replacement.getLineNumber());
+    assertFalse(model.getItems().contains(selected));
+
+    // file with the selected problem has no errors any more
+    assertNull(model.setErrorsAndReturnProblemToSelect(update(1), replacement));
+    assertEquals(1, model.getRowCount());
+  }
+
+  public void testAnalysisErrorsStormPerformance() throws Exception {
+    // 30k problems in 1000 files, then bursts of analysis.errors notifications as if after a change in a library used everywhere
+    final Random random = new Random(1);
+    final DartProblemsTableModel model = createModel();
+
+    final Map<String, List<AnalysisError>> initial = new THashMap<String, List<AnalysisError>>();
+    for (int fileIndex = 0; fileIndex < 1000; fileIndex++) {
+      initial.put(filePath(fileIndex), createErrors(random, fileIndex, 30));
+    }
+    model.setErrorsAndReturnProblemToSelect(initial, null);
+
+    final List<Map<String, List<AnalysisError>>> bursts = new ArrayList<Map<String, List<AnalysisError>>>();
+    for (int burst = 0; burst < 100; burst++) {
+      final Map<String, List<AnalysisError>> update = new THashMap<String, List<AnalysisError>>();
+      for (int i = 0; i < 50; i++) {
+        final int fileIndex = random.nextInt(1000);
+        update.put(filePath(fileIndex), createErrors(random, fileIndex, 30));
+      }
+      bursts.add(update);
+    }
+
+    PlatformTestUtil.startPerformanceTest("Dart Problems view update with 100 bursts of analysis.errors", 3000, () -> {
+      for (Map<String, List<AnalysisError>> update : bursts) {
+        model.setErrorsAndReturnProblemToSelect(update, null);
+      }
+    }).cpuBound().assertTiming();
+
+    assertEquals(30000, model.getRowCount());
+    assertSorted(model.getItems());
+  }
+}
@@ -0,0 +1,165 @@
+package com.jetbrains.lang.dart.ide.index;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.lang.dart.DartCodeInsightFixtureTestCase;
+import com.jetbrains.lang.dart.DartLanguage;
+import com.jetbrains.lang.dart.util.DartTestUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class DartLexerIndexerTest extends DartCodeInsightFixtureTestCase {
+
+  @NotNull
+  private static List<File> getSdkDartFiles() {
+    final List<File> result = new ArrayList<File>();
+    FileUtil.collectMatchedFiles(new File(DartTestUtils.SDK_HOME_PATH), Pattern.compile(".*\\.dart"), result);
+    assertFalse(result.isEmpty());
+    return result;
+  }
+
+  @NotNull
+  private DartFileIndexData indexWithPsi(@NotNull final String fileName, @NotNull final String text) {
+    final PsiFile psiFile = PsiFileFactory.getInstance(getProject()).createFileFromText(fileName, DartLanguage.INSTANCE, text);
+    return DartIndexUtil.indexFileRoots(psiFile);
+  }
+
+  @NotNull
+  private static String dump(@NotNull final DartFileIndexData data) {
+    final StringBuilder builder = new StringBuilder();
+    builder.append("library: ").append(data.getLibraryName()).append(data.isPart() ? " (part)" : "").append('\n');
+
+    final List<String> symbols = new ArrayList<String>(data.getSymbols());
+    Collections.sort(symbols);
+    builder.append("symbols: ").append(symbols).append('\n');
+
+    final List<String> classNames = new ArrayList<String>(data.getClassNames());
+    Collections.sort(classNames);
+    builder.append("classes: ").append(classNames).append('\n');
+
+    for (Map.Entry<String, DartComponentInfo> entry : new TreeMap<String, DartComponentInfo>(data.getComponentInfoMap()).entrySet()) {
+      builder.append("component: ").append(entry.getKey()).append(' ').append(entry.getValue().getComponentType()).append(' ')
+        .append(entry.getValue().getLibraryName()).append('\n');
+    }
+
+    for (Map.Entry<String, List<DartComponentInfo>> entry : new TreeMap<String, List<DartComponentInfo>>(data.getInheritorsMap()).entrySet()) {
+      builder.append("inheritors of ").append(entry.getKey()).append(": ").append(entry.getValue().size()).append('\n');
+    }
+
+    for (DartImportOrExportInfo info : data.getImportAndExportInfos()) {
+      final List<String> show = new ArrayList<String>(info.getShowComponents());
+      final List<String> hide = new ArrayList<String>(info.getHideComponents());
+      Collections.sort(show);
+      Collections.sort(hide);
+      builder.append(info.getKind()).append(' ').append(info.getUri()).append(" as ").append(info.getImportPrefix())
+        .append(" show ").append(show).append(" hide ").append(hide).append('\n');
+    }
+
+    builder.append("parts: ").append(data.getPartUris()).append('\n');
+    return builder.toString();
+  }
+
+  private void doTest(@NotNull final String text, final boolean expectLexerResult) {
+    final DartFileIndexData lexerData = DartLexerIndexer.indexFile(text, "file.dart");
+    if (!expectLexerResult) {
+      assertNull(lexerData);
+      return;
+    }
+
+    assertNotNull(lexerData);
+    assertEquals(dump(indexWithPsi("file.dart", text)), dump(lexerData));
+  }
+
+  public void testDirectives() {
+    doTest("library foo.bar;\n" +
+           "import 'dart:async' deferred as async show Future, Stream hide Timer;\n" +
+           "import \"package:foo/foo.dart\" as foo;\n" +
+           "export r'src/a.dart' show A;\n" +
+           "part 'src/b.dart';\n", true);
+  }
+
+  public void testPartOf() {
+    doTest("part of foo . bar;\nvar x = 1;", false);
+    doTest("part of foo.bar;\nvar x = 1, y;\nfinal int z = 0;\nconst List<int> w = const [1, 2];", true);
+  }
+
+  public void testClasses() {
+    doTest("@deprecated\n" +
+           "abstract class A<T extends Comparable<T>> extends Base<T> with M1, M2<int> implements I1, p.I2 {\n" +
+           "  static const int CONST = 1, OTHER = 2;\n" +
+           "  final Map<String, List<int>> map;\n" +
+           "  A(this.map) : super();\n" +
+           "  const A.named() : map = null;\n" +
+           "  factory A.create() => null;\n" +
+           "  factory A() = B<T>.redirect;\n" +
+           "  int get length => 0;\n" +
+           "  set length(int value) {}\n" +
+           "  operator [](int index) => null;\n" +
+           "  bool operator ==(other) => false;\n" +
+           "  Future<int> compute(int a, {b: 2}) async { return a; }\n" +
+           "  Iterable<int> numbers() sync* { yield 1; }\n" +
+           "  abstractMethod();\n" +
+           "}\n" +
+           "class B = Object with M implements I;\n" +
+           "enum Color { RED, GREEN, BLUE }\n" +
+           "typedef int Compare<T>(T a, T b);\n" +
+           "typedef Callback(event);\n", true);
+  }
+
+  public void testTopLevelFunctions() {
+    doTest("main() {}\n" +
+           "void foo(int a) => print(a);\n" +
+           "List<String> bar() => null;\n" +
+           "int get value => 1;\n" +
+           "set value(int v) {}\n" +
+           "external int baz();\n" +
+           "Future run() async {}\n", true);
+  }
+
+  public void testIncompleteCode() {
+    doTest("class A {\n  foo() {\n}", false);
+    doTest("import 'foo.dart'\nclass A {}", false);
+    doTest("var x = 1\nvar y = 2;", false);
+    doTest("class A extends {}", false);
+  }
+
+  public void testSdkFiles() throws IOException {
+    int lexerIndexed = 0;
+    final List<File> files = getSdkDartFiles();
+    for (File file : files) {
+      final String text = FileUtil.loadFile(file, true);
+      final DartFileIndexData lexerData = DartLexerIndexer.indexFile(text, file.getName());
+      if (lexerData == null) continue;
+
+      lexerIndexed++;
+      assertEquals(file.getPath(), dump(indexWithPsi(file.getName(), text)), dump(lexerData));
+    }
+
+    // the lexer-based indexer is useless if it falls back to PSI for most of real files
+    assertTrue(lexerIndexed + " of " + files.size(), lexerIndexed * 10 >= files.size() * 9);
+  }
+
+  public void testSdkIndexingPerformance() throws IOException {
+    final List<String> texts = new ArrayList<String>();
+    final List<String> names = new ArrayList<String>();
+    for (File file : getSdkDartFiles()) {
+      texts.add(FileUtil.loadFile(file, true));
+      names.add(file.getName());
+    }
+
+    PlatformTestUtil.startPerformanceTest("Lexer-based indexing of " + texts.size() + " SDK files, 10 times", 1000, () -> {
+      for (int i = 0; i < 10; i++) {
+        for (int j = 0; j < texts.size(); j++) {
+          final DartFileIndexData data = DartLexerIndexer.indexFile(texts.get(j), names.get(j));
+          assertTrue(data == null || data.getLibraryName() != null);
+        }
+      }
+    }).cpuBound().assertTiming();
+  }
+}
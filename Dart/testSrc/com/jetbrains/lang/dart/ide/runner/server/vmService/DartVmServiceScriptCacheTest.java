@@ -0,0 +1,43 @@
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import junit.framework.TestCase;
+
+public class DartVmServiceScriptCacheTest extends TestCase {
+
+  private static DartVmServiceScriptCache.TokenPosTable createTable(final String json) {
+    final JsonArray tokenPosTable = new JsonParser().parse(json).getAsJsonArray();
+    return DartVmServiceScriptCache.TokenPosTable.create(tokenPosTable);
+  }
+
+  public void testTokenPosTable() {
+    final DartVmServiceScriptCache.TokenPosTable table = createTable("[[1, 0, 1, 5, 7], [3, 12, 3], [4], [10, 40, 1, 45, 100000]]");
+
+    assertEquals(0, table.getLine(0));
+    assertEquals(0, table.getColumn(0));
+    assertEquals(0, table.getLine(5));
+    assertEquals(6, table.getColumn(5));
+    assertEquals(2, table.getLine(12));
+    assertEquals(2, table.getColumn(12));
+    assertEquals(9, table.getLine(45));
+    assertEquals(99999, table.getColumn(45));
+
+    assertEquals(-1, table.getLine(6));
+    assertEquals(-1, table.getColumn(6));
+    assertEquals(-1, table.getLine(1000));
+  }
+
+  public void testUnsortedTokenPosTable() {
+    final DartVmServiceScriptCache.TokenPosTable table = createTable("[[5, 30, 2], [2, 20, 4, 10, 1], [1, 0, 1]]");
+
+    assertEquals(0, table.getLine(0));
+    assertEquals(1, table.getLine(10));
+    assertEquals(0, table.getColumn(10));
+    assertEquals(1, table.getLine(20));
+    assertEquals(3, table.getColumn(20));
+    assertEquals(4, table.getLine(30));
+    assertEquals(1, table.getColumn(30));
+    assertEquals(-1, table.getLine(15));
+  }
+}
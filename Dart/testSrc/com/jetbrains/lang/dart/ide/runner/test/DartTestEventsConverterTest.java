@@ -16,6 +16,7 @@ import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Key;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -340,6 +341,29 @@ public class DartTestEventsConverterTest extends BaseSMTRunnerTestCase {
     runTest(events, signals, new int[]{});
   }
 
+  public void testLateEventsForForgottenTests() throws Exception {
+    final int testCount = DartTestEventsConverter.FINISHED_TESTS_TO_KEEP + 2;
+    final List<String> events = new ArrayList<String>();
+    final List<String> signals = new ArrayList<String>();
+    events.add("{'protocolVersion':'0.1.0','runnerVersion':'0.12.10','type':'start','time':0}\n");
+    events.add("{'group':{'id':1,'parentID':null,'name':null,'metadata':{'skip':false,'skipReason':null}},'type':'group','time':0}\n");
+    for (int i = 0; i < testCount; i++) {
+      final int id = i + 2;
+      events.add("{'test':{'id':" + id + ",'name':'test " + i + "','groupIDs':[1],'metadata':{'skip':false,'skipReason':null}}," +
+                 "'type':'testStart','time':" + i + "}\n");
+      events.add("{'testID':" + id + ",'result':'success','hidden':false,'type':'testDone','time':" + i + "}\n");
+      signals.add("start test " + i);
+      signals.add("finish test " + i);
+    }
+    // the first test is forgotten by now, the last one is not
+    events.add("{'testID':2,'message':'late','type':'print','time':" + testCount + "}\n");
+    events.add("{'testID':" + (testCount + 1) + ",'message':'late','type':'print','time':" + testCount + "}\n");
+    events.add("{'success':true,'type':'done','time':" + testCount + "}\n");
+    signals.add("print test " + (testCount - 1) + " late\n");
+
+    runTest(ArrayUtil.toStringArray(events), ArrayUtil.toStringArray(signals), new int[]{});
+  }
+
   private void runTest(String[] jsonEvents, String[] signals, int[] parents) {
     DartTestEventsConverter parser = myEventsConverter;
     Key key = new Key("stdout");
@@ -14,9 +14,6 @@
 package com.google.dart.server.internal.remote;
 
 import com.google.common.base.Charsets;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -28,7 +25,8 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * An {@link InputStream} based implementation of {@link ResponseStream}. Each line must contain
- * exactly one complete JSON object.
+ * exactly one complete JSON object. Lines are not parsed here, the consumer decodes them with a
+ * streaming reader.
  * 
  * @coverage dart.server.remote
  */
@@ -101,17 +99,12 @@ public class ByteResponseStream implements ResponseStream {
   }
 
   @Override
-  public JsonObject take() throws Exception {
+  public String take() throws Exception {
     String line = lineQueue.take();
     if (line == EOF_LINE) {
       lineQueue.add(line);
       return null;
     }
-    try {
-      return (JsonObject) new JsonParser().parse(line);
-    } catch (JsonSyntaxException e) {
-      // Include the line in the message so that we can better diagnose the problem
-      throw new JsonSyntaxException("Parse server message failed: " + line, e);
-    }
+    return line;
   }
 }
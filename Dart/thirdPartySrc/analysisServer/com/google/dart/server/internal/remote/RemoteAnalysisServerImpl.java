@@ -27,13 +27,18 @@ import com.google.dart.server.utilities.instrumentation.InstrumentationBuilder;
 import com.google.dart.server.utilities.logging.Logging;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import org.dartlang.analysis.server.protocol.AnalysisOptions;
 import org.dartlang.analysis.server.protocol.RefactoringOptions;
 import org.dartlang.analysis.server.protocol.RequestError;
 import org.osgi.framework.Version;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -112,6 +117,12 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
    */
   private final AtomicInteger nextId = new AtomicInteger();
 
+  /**
+   * The parser for the members of the responses which are not decoded by a
+   * {@link StreamingNotificationProcessor}.
+   */
+  private final JsonParser jsonParser = new JsonParser();
+
   /**
    * A mapping between "getRefactoring" request ids and the requested refactoring kinds.
    */
@@ -512,6 +523,53 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     return true;
   }
 
+  /**
+   * Returns the processor which decodes the "params" of the given notification straight from the
+   * {@link JsonReader}, or {@code null} if the notification is handled as a {@link JsonObject}.
+   */
+  private StreamingNotificationProcessor getStreamingNotificationProcessor(String event) {
+    if (event.equals(ANALYSIS_NOTIFICATION_HIGHTLIGHTS)) {
+      return new NotificationAnalysisHighlightsProcessor(listener);
+    }
+    if (event.equals(ANALYSIS_NOTIFICATION_NAVIGATION)) {
+      return new NotificationAnalysisNavigationProcessor(listener);
+    }
+    return null;
+  }
+
+  /**
+   * Reads the given response line with a {@link JsonReader}. Notifications with large payloads are
+   * routed by their "event" and decoded without building a {@link JsonObject} tree, all other
+   * responses are handled by {@link #processResponse(JsonObject)}.
+   */
+  private void processResponse(String line) throws Exception {
+    JsonObject response = new JsonObject();
+    try {
+      JsonReader reader = new JsonReader(new StringReader(line));
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        // the server writes "event" before "params", otherwise the notification is parsed as a tree
+        JsonElement eventElement = response.get("event");
+        if (name.equals("params") && eventElement != null && eventElement.isJsonPrimitive()) {
+          StreamingNotificationProcessor processor = getStreamingNotificationProcessor(eventElement.getAsString());
+          if (processor != null) {
+            processor.process(reader);
+            return;
+          }
+        }
+        response.add(name, jsonParser.parse(reader));
+      }
+      reader.endObject();
+    } catch (IOException e) {
+      // Include the line in the message so that we can better diagnose the problem
+      throw new JsonSyntaxException("Parse server message failed: " + line, e);
+    } catch (JsonParseException e) {
+      throw new JsonSyntaxException("Parse server message failed: " + line, e);
+    }
+    processResponse(response);
+  }
+
   private void processResponse(JsonObject response) throws Exception {
     // handle notification
     if (processNotification(response)) {
@@ -859,7 +917,7 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
     public void run() {
       while (true) {
         try {
-          JsonObject response = stream.take();
+          String response = stream.take();
           if (response == null) {
             return;
           }
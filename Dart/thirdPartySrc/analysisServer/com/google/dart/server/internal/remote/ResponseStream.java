@@ -13,8 +13,6 @@
  */
 package com.google.dart.server.internal.remote;
 
-import com.google.gson.JsonObject;
-
 /**
  * A source of remote server responses.
  * 
@@ -28,6 +26,8 @@ public interface ResponseStream {
 
   /**
    * Takes the the next response from the stream. Blocks if no response available.
+   * 
+   * @return the JSON text of the response, or {@code null} if the end of the stream is reached
    */
-  JsonObject take() throws Exception;
+  String take() throws Exception;
 }
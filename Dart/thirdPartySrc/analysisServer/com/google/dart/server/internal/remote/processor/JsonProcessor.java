@@ -18,7 +18,10 @@ import com.google.dart.server.utilities.general.StringUtilities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -68,6 +71,44 @@ public abstract class JsonProcessor {
     return strings.toArray(new String[strings.size()]);
   }
 
+  /**
+   * Read a JSON array of {@code int} primitives from the given {@link JsonReader} and return the
+   * {@code int[]}, without building a {@link JsonArray}.
+   * 
+   * @param reader the {@link JsonReader} positioned at the array
+   * @return the {@code int[]}
+   */
+  protected static int[] readIntArray(JsonReader reader) throws IOException {
+    int size = 0;
+    int[] ints = new int[4];
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == ints.length) {
+        ints = Arrays.copyOf(ints, size * 2);
+      }
+      ints[size++] = reader.nextInt();
+    }
+    reader.endArray();
+    return size == ints.length ? ints : Arrays.copyOf(ints, size);
+  }
+
+  /**
+   * Read a JSON array of string primitives from the given {@link JsonReader} and return the
+   * {@link String} array, without building a {@link JsonArray}.
+   * 
+   * @param reader the {@link JsonReader} positioned at the array
+   * @return the {@link String} array
+   */
+  protected static String[] readStringArray(JsonReader reader) throws IOException {
+    List<String> strings = Lists.newArrayList();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      strings.add(reader.nextString());
+    }
+    reader.endArray();
+    return strings.toArray(new String[strings.size()]);
+  }
+
   /**
    * Safely get some member off of the passed {@link JsonObject} and return the {@code int}. Instead
    * of calling {@link JsonObject#has(String)} before {@link JsonObject#get(String)}, only one call
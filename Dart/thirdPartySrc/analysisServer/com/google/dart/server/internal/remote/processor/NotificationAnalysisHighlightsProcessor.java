@@ -13,11 +13,14 @@
  */
 package com.google.dart.server.internal.remote.processor;
 
+import com.google.common.collect.Lists;
 import com.google.dart.server.AnalysisServerListener;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import org.dartlang.analysis.server.protocol.HighlightRegion;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -25,7 +28,7 @@ import java.util.List;
  * 
  * @coverage dart.server.remote
  */
-public class NotificationAnalysisHighlightsProcessor extends NotificationProcessor {
+public class NotificationAnalysisHighlightsProcessor extends StreamingNotificationProcessor {
 
   public NotificationAnalysisHighlightsProcessor(AnalysisServerListener listener) {
     super(listener);
@@ -42,4 +45,51 @@ public class NotificationAnalysisHighlightsProcessor extends NotificationProcess
     // notify listener
     getListener().computedHighlights(file, regions);
   }
+
+  @Override
+  public void process(JsonReader paramsReader) throws IOException {
+    String file = null;
+    List<HighlightRegion> regions = HighlightRegion.EMPTY_LIST;
+    paramsReader.beginObject();
+    while (paramsReader.hasNext()) {
+      String name = paramsReader.nextName();
+      if (name.equals("file")) {
+        file = paramsReader.nextString();
+      } else if (name.equals("regions")) {
+        regions = readRegions(paramsReader);
+      } else {
+        paramsReader.skipValue();
+      }
+    }
+    paramsReader.endObject();
+    // notify listener
+    getListener().computedHighlights(file, regions);
+  }
+
+  private static List<HighlightRegion> readRegions(JsonReader reader) throws IOException {
+    List<HighlightRegion> regions = Lists.newArrayList();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      String type = null;
+      int offset = 0;
+      int length = 0;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (name.equals("type")) {
+          type = reader.nextString();
+        } else if (name.equals("offset")) {
+          offset = reader.nextInt();
+        } else if (name.equals("length")) {
+          length = reader.nextInt();
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      regions.add(new HighlightRegion(type, offset, length));
+    }
+    reader.endArray();
+    return regions;
+  }
 }
@@ -13,13 +13,16 @@
  */
 package com.google.dart.server.internal.remote.processor;
 
+import com.google.common.collect.Lists;
 import com.google.dart.server.AnalysisServerListener;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import org.dartlang.analysis.server.protocol.NavigationRegion;
 import org.dartlang.analysis.server.protocol.NavigationTarget;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -27,7 +30,7 @@ import java.util.List;
  * 
  * @coverage dart.server.remote
  */
-public class NotificationAnalysisNavigationProcessor extends NotificationProcessor {
+public class NotificationAnalysisNavigationProcessor extends StreamingNotificationProcessor {
   public NotificationAnalysisNavigationProcessor(AnalysisServerListener listener) {
     super(listener);
   }
@@ -54,4 +57,102 @@ public class NotificationAnalysisNavigationProcessor extends NotificationProcess
     // notify listener
     getListener().computedNavigation(file, regions);
   }
+
+  @Override
+  public void process(JsonReader paramsReader) throws IOException {
+    String file = null;
+    String[] targetFiles = null;
+    List<NavigationTarget> targets = NavigationTarget.EMPTY_LIST;
+    List<NavigationRegion> regions = NavigationRegion.EMPTY_LIST;
+    paramsReader.beginObject();
+    while (paramsReader.hasNext()) {
+      String name = paramsReader.nextName();
+      if (name.equals("file")) {
+        file = paramsReader.nextString();
+      } else if (name.equals("files")) {
+        targetFiles = readStringArray(paramsReader);
+      } else if (name.equals("targets")) {
+        targets = readTargets(paramsReader);
+      } else if (name.equals("regions")) {
+        regions = readRegions(paramsReader);
+      } else {
+        paramsReader.skipValue();
+      }
+    }
+    paramsReader.endObject();
+    // members may come in any order, so resolve indices only when everything is read
+    if (targetFiles != null) {
+      for (NavigationTarget target : targets) {
+        target.lookupFile(targetFiles);
+      }
+    }
+    for (NavigationRegion region : regions) {
+      region.lookupTargets(targets);
+    }
+    // notify listener
+    getListener().computedNavigation(file, regions);
+  }
+
+  private static List<NavigationTarget> readTargets(JsonReader reader) throws IOException {
+    List<NavigationTarget> targets = Lists.newArrayList();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      String kind = null;
+      int fileIndex = 0;
+      int offset = 0;
+      int length = 0;
+      int startLine = 0;
+      int startColumn = 0;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (name.equals("kind")) {
+          kind = reader.nextString();
+        } else if (name.equals("fileIndex")) {
+          fileIndex = reader.nextInt();
+        } else if (name.equals("offset")) {
+          offset = reader.nextInt();
+        } else if (name.equals("length")) {
+          length = reader.nextInt();
+        } else if (name.equals("startLine")) {
+          startLine = reader.nextInt();
+        } else if (name.equals("startColumn")) {
+          startColumn = reader.nextInt();
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      targets.add(new NavigationTarget(kind, fileIndex, offset, length, startLine, startColumn));
+    }
+    reader.endArray();
+    return targets;
+  }
+
+  private static List<NavigationRegion> readRegions(JsonReader reader) throws IOException {
+    List<NavigationRegion> regions = Lists.newArrayList();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      int offset = 0;
+      int length = 0;
+      int[] targets = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (name.equals("offset")) {
+          offset = reader.nextInt();
+        } else if (name.equals("length")) {
+          length = reader.nextInt();
+        } else if (name.equals("targets")) {
+          targets = readIntArray(reader);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      regions.add(new NavigationRegion(offset, length, targets != null ? targets : new int[0]));
+    }
+    reader.endArray();
+    return regions;
+  }
 }
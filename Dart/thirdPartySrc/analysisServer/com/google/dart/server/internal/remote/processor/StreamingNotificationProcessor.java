@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2014, the Dart project authors.
+ * 
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote.processor;
+
+import com.google.dart.server.AnalysisServerListener;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Abstract processor class for notifications which can be large, like highlights or navigation.
+ * Such notifications are decoded straight from the {@link JsonReader} into the protocol objects,
+ * without building an intermediate {@link JsonObject} tree.
+ * 
+ * @coverage dart.server.remote
+ */
+public abstract class StreamingNotificationProcessor extends NotificationProcessor {
+  public StreamingNotificationProcessor(AnalysisServerListener listener) {
+    super(listener);
+  }
+
+  /**
+   * Read the "params" object of the notification from the given {@link JsonReader} and notify
+   * {@link #listener}. The reader is positioned at the beginning of the object and is left right
+   * after its end.
+   */
+  public abstract void process(JsonReader paramsReader) throws IOException;
+}
@@ -15,6 +15,7 @@
  */
 package jetbrains.communicator.core.impl.dispatcher;
 
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.thoughtworks.xstream.XStream;
 import jetbrains.communicator.core.dispatcher.LocalMessage;
 import jetbrains.communicator.core.impl.users.UserImpl;
@@ -27,14 +28,26 @@ import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FilenameFilter;
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Future;
 
 /**
+ * History is kept in a journal file per day. A journal is a sequence of records, a record is the length of its data and
+ * the data - XML of a {@link DayHistory} with the messages saved at once. Saving appends the messages added since the last save
+ * to the journals of their days, journals with many records are compacted into a single record in the background.
+ * A journal is read up to its last complete record, anything behind it (a record cut short by a crash) is truncated before appending.
+ * A compacted journal is written to a <code>.journal.tmp</code> file which atomically replaces the journal, a leftover one
+ * is only used if the journal itself is missing.
+ * <p/>
+ * Day files of the previous XML format are moved into journals when they are loaded, unreadable ones are kept aside as
+ * <code>.xml.broken</code>.
+ *
  * @author Kir
  */
 class MessageHistory {
@@ -44,11 +57,27 @@ class MessageHistory {
   public static final long SAVE_TIMEOUT = 300;
   @NonNls
   private static final String HISTORY = "history";
+  @NonNls
+  private static final String XML_EXTENSION = ".xml";
+  @NonNls
+  private static final String JOURNAL_EXTENSION = ".journal";
+  @NonNls
+  private static final String BROKEN_EXTENSION = ".broken";
+  @NonNls
+  private static final String MIGRATED_EXTENSION = ".migrated";
+  @NonNls
+  private static final String COMPACTED_EXTENSION = ".tmp";
+  static final int COMPACTION_THRESHOLD = 32;
 
   private final DayHistory myHistory = new DayHistory();
+  // messages added since the last save, by day
+  private final Map<Date, DayHistory> myUnsavedHistory = new HashMap<Date, DayHistory>();
+  // number of records in the journals of days, for the journals read or written in this session
+  private final Map<Date, Integer> myJournalRecords = new HashMap<Date, Integer>();
+  // length of the complete records in the journals of days, for the journals read or written in this session
+  private final Map<Date, Long> myJournalLengths = new HashMap<Date, Long>();
   @NonNls
   private final XStream myXStream;
-  private final UserModel myUserModel;
   private final IDEFacade myFacade;
 
   private Future<?> myPendingSave;
@@ -58,12 +87,10 @@ class MessageHistory {
 
   MessageHistory(IDEFacade facade, UserModel userModel) {
     myFacade = facade;
-    myUserModel = userModel;
 
     getHistoryDir().mkdir();
 
-    myXStream = XMLUtil.createXStream();
-    setupXStream();
+    myXStream = createXStream(userModel);
 
     loadHistorySince(new Date());
   }
@@ -77,21 +104,27 @@ class MessageHistory {
     myHistory.clear();
   }
 
-  private void setupXStream() {
-    myXStream.alias("user", UserImpl.class);
-    myXStream.alias("dayHistory", DayHistory.class);
-    myXStream.aliasField("historyEntries", DayHistory.class, "myData");
+  static XStream createXStream(UserModel userModel) {
+    XStream xStream = XMLUtil.createXStream();
+    xStream.alias("user", UserImpl.class);
+    xStream.alias("dayHistory", DayHistory.class);
+    xStream.aliasField("historyEntries", DayHistory.class, "myData");
 
-    myXStream.registerConverter(new UserConverter(myUserModel));
+    xStream.registerConverter(new UserConverter(userModel));
+    return xStream;
   }
 
   public synchronized void addMessage(User user, LocalMessage message) {
     myHistory.addMessage(user, message);
+    getDayHistoryFor(message, myUnsavedHistory).addMessage(user, message);
     triggerSave();
   }
 
   public synchronized void clear() {
     myHistory.clear();
+    myUnsavedHistory.clear();
+    myJournalRecords.clear();
+    myJournalLengths.clear();
 
     deleteAllHistoryFiles();
   }
@@ -150,19 +183,14 @@ class MessageHistory {
   private void doLoadHistorySince(Date since) {
     File historyDir = getHistoryDir();
 
-    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(".xml"));
+    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(JOURNAL_EXTENSION) || name.endsWith(XML_EXTENSION) ||
+                                                           name.endsWith(JOURNAL_EXTENSION + COMPACTED_EXTENSION));
+    if (historyFiles == null) return;
 
-    Arrays.sort(historyFiles);
-    for (int i = historyFiles.length - 1; i >= 0; i--) {
-      String historyFile = historyFiles[i];
+    Set<Date> days = new TreeSet<Date>(Collections.reverseOrder());
+    for (String historyFile : historyFiles) {
       try {
-        Date date = DATE_FORMAT.parse(historyFile);
-        if (!date.before(since) && !myHistory.hasHistorySince(date)) {
-          DayHistory dayHistory = (DayHistory)XMLUtil.fromXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), false);
-          if (dayHistory != null) {
-            dayHistory.copyTo(myHistory);
-          }
-        }
+        days.add(DATE_FORMAT.parse(historyFile));
       }
       catch (ParseException e) {
         // ignore file of wrong format
@@ -172,7 +200,232 @@ class MessageHistory {
       }
     }
 
-    myHistory.resort();
+    boolean loaded = false;
+    for (Date date : days) {
+      if (!date.before(since) && !myHistory.hasHistorySince(date)) {
+        migrateXmlHistory(date);
+        for (DayHistory dayHistory : readJournal(date)) {
+          dayHistory.copyTo(myHistory);
+          loaded = true;
+        }
+      }
+    }
+
+    if (loaded) {
+      myHistory.resort();
+    }
+  }
+
+  private void migrateXmlHistory(Date date) {
+    File xmlFile = new File(myFacade.getCacheDir(), getFileNameForDate(date, XML_EXTENSION));
+    if (!xmlFile.exists()) return;
+
+    Object dayHistory = XMLUtil.fromXml(myXStream, xmlFile.getAbsolutePath(), false);
+    if (!(dayHistory instanceof DayHistory)) {
+      File brokenFile = new File(xmlFile.getPath() + BROKEN_EXTENSION);
+      LOG.warn("Unable to read history file " + xmlFile + ", it is kept as " + brokenFile);
+      if (!xmlFile.renameTo(brokenFile)) {
+        LOG.info("Unable to rename history file " + xmlFile);
+      }
+      return;
+    }
+
+    // renamed before appending, so that a file which can't be deleted afterwards is never migrated twice
+    File migratedFile = new File(xmlFile.getPath() + MIGRATED_EXTENSION);
+    if (!xmlFile.renameTo(migratedFile)) {
+      LOG.warn("Unable to rename history file " + xmlFile + ", it is not migrated");
+      return;
+    }
+    if (!appendToJournal(date, (DayHistory)dayHistory)) {
+      if (!migratedFile.renameTo(xmlFile)) {
+        LOG.warn("Unable to restore history file " + xmlFile + ", it is kept as " + migratedFile);
+      }
+      return;
+    }
+
+    if (!migratedFile.delete()) {
+      LOG.info("Unable to delete migrated history file " + migratedFile);
+    }
+  }
+
+  private List<DayHistory> readJournal(Date date) {
+    List<DayHistory> result = new ArrayList<DayHistory>();
+    File journal = getJournal(date);
+    recoverCompactedJournal(journal);
+    long fileLength = journal.length();
+    long validLength = 0;
+    boolean readFailed = false;
+
+    DataInputStream input = null;
+    try {
+      if (journal.exists()) {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+      }
+      while (input != null && fileLength - validLength >= 4) {
+        int length = input.readInt();
+        if (length < 0 || length > fileLength - validLength - 4) {
+          // the last record is incomplete if the IDE was stopped while it was written
+          break;
+        }
+        byte[] data = new byte[length];
+        input.readFully(data);
+        validLength += 4 + length;
+        try {
+          result.add((DayHistory)myXStream.fromXML(new String(data, CharsetToolkit.UTF8_CHARSET)));
+        }
+        catch (RuntimeException e) {
+          LOG.info("Skipped broken record of " + journal, e);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Error reading " + journal, e);
+      readFailed = true;
+    }
+    finally {
+      close(input);
+    }
+
+    myJournalRecords.put(date, result.size());
+    if (readFailed) {
+      // the records behind are unknown, the journal must not be truncated
+      myJournalLengths.remove(date);
+    }
+    else {
+      if (validLength < fileLength) {
+        LOG.info("Ignored " + (fileLength - validLength) + " bytes of incomplete record at the end of " + journal);
+      }
+      myJournalLengths.put(date, validLength);
+    }
+    return result;
+  }
+
+  private static void recoverCompactedJournal(File journal) {
+    File compacted = getCompactedJournal(journal);
+    if (!compacted.exists()) return;
+
+    // the journal is only replaced once the compacted one is complete, so a leftover one is incomplete unless the journal is gone
+    if (journal.exists()) {
+      if (!compacted.delete()) {
+        LOG.info("Unable to delete leftover compacted journal " + compacted);
+      }
+    }
+    else if (!compacted.renameTo(journal)) {
+      LOG.info("Unable to restore " + journal + " from compacted journal");
+    }
+  }
+
+  private static File getCompactedJournal(File journal) {
+    return new File(journal.getPath() + COMPACTED_EXTENSION);
+  }
+
+  private boolean appendToJournal(Date date, DayHistory dayHistory) {
+    if (!myJournalLengths.containsKey(date)) {
+      readJournal(date);
+    }
+    Long validLength = myJournalLengths.get(date);
+    if (validLength == null) {
+      LOG.info("Unable to save dayHistory for " + date + ", the journal can't be read");
+      return false;
+    }
+
+    File journal = getJournal(date);
+    byte[] data = myXStream.toXML(dayHistory).getBytes(CharsetToolkit.UTF8_CHARSET);
+    DataOutputStream output = null;
+    try {
+      if (journal.length() > validLength) {
+        truncate(journal, validLength);
+      }
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journal, true)));
+      output.writeInt(data.length);
+      output.write(data);
+      output.close();
+      output = null;
+    }
+    catch (IOException e) {
+      LOG.error("Unable to save dayHistory for " + date + ": " + dayHistory, e);
+      return false;
+    }
+    finally {
+      close(output);
+    }
+
+    Integer records = myJournalRecords.get(date);
+    myJournalRecords.put(date, records != null ? records + 1 : 1);
+    myJournalLengths.put(date, validLength + 4 + data.length);
+    return true;
+  }
+
+  private static void truncate(File journal, long length) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(journal, "rw");
+    try {
+      file.setLength(length);
+    }
+    finally {
+      close(file);
+    }
+  }
+
+  private void compactJournal(Date date) {
+    DayHistory dayHistory = new DayHistory();
+    for (DayHistory record : readJournal(date)) {
+      record.copyTo(dayHistory);
+    }
+    if (!myJournalLengths.containsKey(date)) return;
+    dayHistory.resort();
+
+    File journal = getJournal(date);
+    File compacted = getCompactedJournal(journal);
+    byte[] data = myXStream.toXML(dayHistory).getBytes(CharsetToolkit.UTF8_CHARSET);
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)));
+      output.writeInt(data.length);
+      output.write(data);
+      output.close();
+      output = null;
+    }
+    catch (IOException e) {
+      LOG.info("Unable to compact " + journal, e);
+      compacted.delete();
+      return;
+    }
+    finally {
+      close(output);
+    }
+
+    try {
+      replace(compacted, journal);
+    }
+    catch (IOException e) {
+      LOG.info("Unable to replace " + journal + " with compacted journal", e);
+      compacted.delete();
+      // the journal is in an unknown state, it is read again before the next append
+      myJournalLengths.remove(date);
+      return;
+    }
+    myJournalRecords.put(date, 1);
+    myJournalLengths.put(date, 4L + data.length);
+  }
+
+  private static void replace(File source, File target) throws IOException {
+    try {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void close(@Nullable Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      }
+      catch (IOException e) {
+        LOG.info(e.getMessage(), e);
+      }
+    }
   }
 
   private void triggerSave() {
@@ -191,36 +444,23 @@ class MessageHistory {
     }
   }
 
-  private synchronized void saveHistory() {
+  synchronized void saveHistory() {
     LOG.debug("Start history save");
-    Map<Date, DayHistory> map = getHistory();
-    for (Date date : map.keySet()) {
-      DayHistory dayHistory = map.get(date);
-      try {
-        XMLUtil.toXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), dayHistory);
-      } catch (RuntimeException e) {
-        LOG.error("Unable to save dayHistory for " + date + ": " + dayHistory, e);
+    for (Iterator<Map.Entry<Date, DayHistory>> it = myUnsavedHistory.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Date, DayHistory> entry = it.next();
+      Date date = entry.getKey();
+      // days which failed to save are kept to be saved with the next messages
+      if (appendToJournal(date, entry.getValue())) {
+        it.remove();
+        if (myJournalRecords.get(date) > COMPACTION_THRESHOLD) {
+          compactJournal(date);
+        }
       }
     }
 
     LOG.debug("Done history save");
   }
 
-  private synchronized Map<Date, DayHistory> getHistory() {
-    Map<Date, DayHistory> result = new HashMap<Date, DayHistory>();
-
-    for (User user : myHistory.keySet()) {
-      List<LocalMessage> messages = myHistory.get(user);
-      for (LocalMessage message : messages) {
-        DayHistory dayHistory = getDayHistoryFor(message, result);
-
-        dayHistory.addMessage(user, message);
-      }
-    }
-
-    return result;
-  }
-
   private DayHistory getDayHistoryFor(LocalMessage message, Map<Date, DayHistory> result) {
     Date day = TimeUtil.getDay(message.getWhen());
     DayHistory dayHistory = result.get(day);
@@ -231,10 +471,13 @@ class MessageHistory {
     return dayHistory;
   }
 
+  private File getJournal(Date date) {
+    return new File(myFacade.getCacheDir(), getFileNameForDate(date, JOURNAL_EXTENSION));
+  }
+
   @NonNls
-  private String getFileNameForDate(Date date) {
-    //noinspection HardCodedStringLiteral
-    return HISTORY + '/' + DATE_FORMAT.format(date) + ".xml";
+  private static String getFileNameForDate(Date date, String extension) {
+    return HISTORY + '/' + DATE_FORMAT.format(date) + extension;
   }
 
   public boolean isEmpty() {
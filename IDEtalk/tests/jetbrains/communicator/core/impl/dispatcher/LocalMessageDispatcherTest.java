@@ -15,6 +15,7 @@
  */
 package jetbrains.communicator.core.impl.dispatcher;
 
+import com.intellij.openapi.util.io.FileUtil;
 import jetbrains.communicator.core.impl.BaseTestCase;
 import jetbrains.communicator.core.dispatcher.LocalMessage;
 import jetbrains.communicator.core.dispatcher.Message;
@@ -26,11 +27,16 @@ import jetbrains.communicator.ide.SendMessageEvent;
 import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockTransport;
+import jetbrains.communicator.util.TimeUtil;
 import jetbrains.communicator.util.WatchDog;
+import jetbrains.communicator.util.XMLUtil;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -252,6 +258,114 @@ public class LocalMessageDispatcherTest extends BaseTestCase {
     assertEquals(2, messages.length);
   }
 
+  public void testHistoryMigratedFromXml() throws Exception {
+    DayHistory dayHistory = new DayHistory();
+    dayHistory.addMessage(myUser, new MockMessage(yesterday(), "old text"));
+    String fileName = "history/" + new SimpleDateFormat("yyyy-MM-dd").format(yesterday()) + ".xml";
+    XMLUtil.toXml(MessageHistory.createXStream(myUserModel), myIdeFacade.getCacheDir(), fileName, dayHistory);
+
+    LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+    LocalMessage[] messages = localMessageDispatcher.getHistory(myUser, null);
+    assertEquals(1, messages.length);
+    assertEquals("old text", ((MockMessage) messages[0]).getMessage());
+
+    File[] files = new File(myIdeFacade.getCacheDir(), "history").listFiles();
+    assertEquals(1, files.length);
+    assertTrue(files[0].getName().endsWith(".journal"));
+
+    messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals("History should be read from the journal", 1, messages.length);
+  }
+
+  public void testMigratedXmlHistoryNotMigratedAgain() throws Exception {
+    DayHistory dayHistory = new DayHistory();
+    dayHistory.addMessage(myUser, new MockMessage(yesterday(), "old text"));
+    String fileName = "history/" + new SimpleDateFormat("yyyy-MM-dd").format(yesterday()) + ".xml";
+    XMLUtil.toXml(MessageHistory.createXStream(myUserModel), myIdeFacade.getCacheDir(), fileName, dayHistory);
+    assertEquals(1, createLocalMessageDispatcher().getHistory(myUser, null).length);
+
+    // a migrated file which could not be deleted
+    XMLUtil.toXml(MessageHistory.createXStream(myUserModel), myIdeFacade.getCacheDir(), fileName + ".migrated", dayHistory);
+
+    assertEquals(1, createLocalMessageDispatcher().getHistory(myUser, null).length);
+  }
+
+  public void testBrokenXmlHistoryKept() throws Exception {
+    String fileName = new SimpleDateFormat("yyyy-MM-dd").format(yesterday()) + ".xml";
+    File historyDir = new File(myIdeFacade.getCacheDir(), "history");
+    FileUtil.writeToFile(new File(historyDir, fileName), "<dayHistory><broken");
+
+    assertEquals(0, createLocalMessageDispatcher().getHistory(myUser, null).length);
+
+    File[] files = historyDir.listFiles();
+    assertEquals(1, files.length);
+    assertEquals(fileName + ".broken", files[0].getName());
+  }
+
+  public void testHistoryAfterIncompleteRecord() throws Exception {
+    myDispatcher.sendNow(myUser, new MockMessage(new Date(System.currentTimeMillis() - 1000), "before crash"));
+    Thread.sleep(SAVE_WAIT_TIMEOUT);
+
+    File[] files = new File(myIdeFacade.getCacheDir(), "history").listFiles();
+    assertEquals(1, files.length);
+    // a record cut short while it was written
+    FileUtil.writeToFile(files[0], new byte[]{0, 0, 10, 0, '<', 'd'}, true);
+
+    LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+    assertEquals(1, localMessageDispatcher.getHistory(myUser, null).length);
+    localMessageDispatcher.sendNow(myUser, new MockMessage(new Date(), "after crash"));
+    Thread.sleep(SAVE_WAIT_TIMEOUT);
+
+    LocalMessage[] messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals(2, messages.length);
+    assertEquals("before crash", ((MockMessage) messages[0]).getMessage());
+    assertEquals("after crash", ((MockMessage) messages[1]).getMessage());
+  }
+
+  public void testCompactedJournal() throws Exception {
+    Date day = TimeUtil.getDay(yesterday());
+    MessageHistory history = new MessageHistory(myIdeFacade, myUserModel);
+    int count = MessageHistory.COMPACTION_THRESHOLD + 1;
+    for (int i = 0; i < count; i++) {
+      history.addMessage(myUser, new MockMessage(new Date(day.getTime() + i * 1000), "text " + i));
+      history.saveHistory();
+    }
+    history.dispose();
+
+    File[] files = new File(myIdeFacade.getCacheDir(), "history").listFiles();
+    assertEquals(1, files.length);
+    assertTrue(files[0].getName().endsWith(".journal"));
+    DataInputStream input = new DataInputStream(new FileInputStream(files[0]));
+    try {
+      assertEquals("Journal should be compacted into a single record", files[0].length() - 4, input.readInt());
+    }
+    finally {
+      input.close();
+    }
+
+    LocalMessage[] messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals(count, messages.length);
+    for (int i = 0; i < count; i++) {
+      assertEquals("text " + i, ((MockMessage) messages[i]).getMessage());
+    }
+  }
+
+  public void testLeftoverCompactedJournalIgnored() throws Exception {
+    myDispatcher.sendNow(myUser, new MockMessage(new Date(System.currentTimeMillis() - 1000), "saved"));
+    Thread.sleep(SAVE_WAIT_TIMEOUT);
+
+    File[] files = new File(myIdeFacade.getCacheDir(), "history").listFiles();
+    assertEquals(1, files.length);
+    // a compaction which was cut short
+    File compacted = new File(files[0].getPath() + ".tmp");
+    FileUtil.writeToFile(compacted, new byte[]{0, 0, 10, 0, '<', 'd'});
+
+    LocalMessage[] messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals(1, messages.length);
+    assertEquals("saved", ((MockMessage) messages[0]).getMessage());
+    assertFalse(compacted.exists());
+  }
+
   private Date yesterday() {
     return new Date(System.currentTimeMillis() - 1000 * 3600 * 24);
   }
@@ -52,6 +52,7 @@ public class FlexTestSuite extends TestCase {
     testSuite.addTestSuite(FlexColorAnnotatorTest.class);
     testSuite.addTestSuite(FlexProjectViewTest.class);
     testSuite.addTestSuite(FlexCompilerConfigTest.class);
+    testSuite.addTestSuite(FlexCompilerDependenciesCacheTest.class);
 
     testSuite.addTestSuite(ActionScriptRearrangerTest.class);
     testSuite.addTestSuite(FlashBuilderImportTest.class);
@@ -0,0 +1,77 @@
+package com.intellij.lang.javascript;
+
+import com.intellij.flex.FlexTestUtils;
+import com.intellij.flex.model.bc.OutputType;
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.flex.build.FlexCompilerDependenciesCache;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfigurationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public class FlexCompilerDependenciesCacheTest extends PlatformTestCase {
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  public void testDependencyCompiledDuringBuild() throws Exception {
+    final File outputDir = createTempDirectory();
+    final Module libModule = myModule;
+    final Module appModule = FlexTestUtils.createModule(myProject, "app", null);
+
+    FlexTestUtils.modifyBuildConfiguration(libModule, bc -> {
+      bc.setOutputType(OutputType.Library);
+      bc.setOutputFolder(outputDir.getPath());
+      bc.setOutputFileName("lib.swc");
+    });
+    FlexTestUtils.modifyBuildConfiguration(appModule, bc -> {
+      bc.setOutputType(OutputType.Application);
+      bc.setOutputFolder(outputDir.getPath());
+      bc.setOutputFileName("app.swf");
+    });
+
+    final File libOutput = new File(outputDir, "lib.swc");
+    final long timestamp = System.currentTimeMillis() - 10000;
+    createFile(libOutput, timestamp);
+    createFile(new File(outputDir, "app.swf"), timestamp);
+
+    final File appConfig = new File(outputDir, "app-config.xml");
+    FileUtil.writeToFile(appConfig, "<flex-config><compiler><library-path><path-element>" + libOutput.getPath() +
+                                    "</path-element></library-path></compiler></flex-config>");
+    final VirtualFile appConfigFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(appConfig);
+    assertNotNull(appConfigFile);
+
+    final FlexBuildConfiguration libBC = FlexBuildConfigurationManager.getInstance(libModule).getActiveConfiguration();
+    final FlexBuildConfiguration appBC = FlexBuildConfigurationManager.getInstance(appModule).getActiveConfiguration();
+
+    final FlexCompilerDependenciesCache cache = new FlexCompilerDependenciesCache(myProject);
+    cache.clear();
+    cache.cacheBC(libModule, libBC, Collections.<VirtualFile>emptyList());
+    cache.cacheBC(appModule, appBC, Collections.singletonList(appConfigFile));
+
+    cache.buildStarted();
+    assertTrue(cache.isNothingChangedSincePreviousCompilation(libModule, libBC));
+    assertTrue(cache.isNothingChangedSincePreviousCompilation(appModule, appBC));
+
+    // the library is compiled in the same build, e.g. after its sources changed
+    assertTrue(libOutput.setLastModified(timestamp + 5000));
+    cache.cacheBC(libModule, libBC, Collections.<VirtualFile>emptyList());
+
+    assertFalse(cache.isNothingChangedSincePreviousCompilation(appModule, appBC));
+  }
+
+  private static void createFile(final File file, final long timestamp) throws IOException {
+    FileUtil.writeToFile(file, "output");
+    assertTrue(file.setLastModified(timestamp));
+  }
+}
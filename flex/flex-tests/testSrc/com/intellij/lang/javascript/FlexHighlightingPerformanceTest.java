@@ -2,10 +2,25 @@ package com.intellij.lang.javascript;
 
 import com.intellij.flex.FlexTestUtils;
 import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.project.ex.ProjectRootManagerEx;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.XmlRecursiveElementVisitor;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
 import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.util.ProfilingUtil;
 import com.intellij.util.ThrowableRunnable;
+import com.intellij.xml.XmlElementDescriptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerTestCase {
   @Override
@@ -41,6 +56,50 @@ public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerT
     }
   }
 
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithJsSupportLoader})
+  public void testParallelMxmlDescriptors() throws Exception {
+    doTestFor(true, "Performance.mxml", "UsingSwcStubs2.swc");
+
+    final int filesCount = 16;
+    final List<XmlFile> files = new ArrayList<XmlFile>();
+    final VirtualFile original = myFile.getVirtualFile();
+    ApplicationManager.getApplication().runWriteAction((ThrowableComputable<Object, IOException>)() -> {
+      for (int i = 0; i < filesCount; i++) {
+        final VirtualFile copy = original.copy(this, original.getParent(), "Performance" + i + ".mxml");
+        files.add((XmlFile)PsiManager.getInstance(myProject).findFile(copy));
+      }
+      return null;
+    });
+
+    PlatformTestUtil.startPerformanceTest("Mxml descriptors should be computed in parallel", 6000, () -> {
+      // drop cached code contexts and tag descriptors
+      ApplicationManager.getApplication().runWriteAction(
+        () -> ProjectRootManagerEx.getInstanceEx(myProject).makeRootsChange(EmptyRunnable.getInstance(), false, true));
+
+      final List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (final XmlFile file : files) {
+        futures.add(ApplicationManager.getApplication().executeOnPooledThread(
+          () -> ApplicationManager.getApplication().runReadAction(() -> computeAllDescriptors(file))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }).cpuBound().usesAllCPUCores().assertTiming();
+  }
+
+  private static void computeAllDescriptors(final XmlFile file) {
+    file.acceptChildren(new XmlRecursiveElementVisitor() {
+      @Override
+      public void visitXmlTag(XmlTag tag) {
+        final XmlElementDescriptor descriptor = tag.getDescriptor();
+        assertNotNull(tag.getName(), descriptor);
+        descriptor.getAttributesDescriptors(tag);
+        descriptor.getElementsDescriptors(tag);
+        super.visitXmlTag(tag);
+      }
+    });
+  }
+
   @Override
   protected ModuleType getModuleType() {
     return FlexModuleType.getInstance();
@@ -72,7 +72,39 @@ public class FlexImporterTest extends TestCase {
     doTestFor("hotbook.swf");
   }
 
-  private void doTestFor(final String fileName) throws IOException {
+  public final void testParallelDecoding() throws Exception {
+    for (String fileName : new String[]{"PlayerGlobal10.swc", "airglobal_1_5.swc", "employeedirectory.swf"}) {
+      final byte[] contents = loadContents(fileName);
+      try {
+        FlexImporter.setAbcDecodingThreads(1);
+        final String sequentialInterface = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents));
+        final String sequentialDump = FlexImporter.dumpContentsFromStream(new ByteArrayInputStream(contents), false);
+
+        FlexImporter.setAbcDecodingThreads(4);
+        assertEquals(fileName, sequentialInterface, FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents)));
+        assertEquals(fileName, sequentialDump, FlexImporter.dumpContentsFromStream(new ByteArrayInputStream(contents), false));
+      }
+      finally {
+        FlexImporter.setAbcDecodingThreads(0);
+      }
+    }
+  }
+
+  public final void testWrongUncompressedLength() throws Exception {
+    final byte[] contents = loadContents("employeedirectory.swf");
+    final String expected = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents));
+
+    // the length in the header of a compressed SWF only presizes the inflated data
+    for (int length : new int[]{100, Integer.MAX_VALUE}) {
+      final byte[] corrupted = contents.clone();
+      for (int i = 0; i < 4; i++) {
+        corrupted[4 + i] = (byte)(length >>> (8 * i));
+      }
+      assertEquals(expected, FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(corrupted)));
+    }
+  }
+
+  private static byte[] loadContents(final String fileName) throws IOException {
     final File file = new File(getTestDataPath() + fileName);
     final byte[] contents;
 
@@ -86,6 +118,11 @@ public class FlexImporterTest extends TestCase {
     } else {
        contents = FileUtil.loadFileBytes(file);
     }
+    return contents;
+  }
+
+  private void doTestFor(final String fileName) throws IOException {
+    final byte[] contents = loadContents(fileName);
 
     String result = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents));
     String resultFileName = getTestDataPath() + fileName + ".txt";
@@ -6,7 +6,9 @@ import com.intellij.lang.javascript.flex.importer.FlexImporter;
 import com.intellij.lang.javascript.psi.stubs.impl.JSFileCachedData;
 import com.intellij.lang.javascript.psi.stubs.impl.JSFileStubImpl;
 import com.intellij.lang.javascript.types.JSFileElementType;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.AtomicNotNullLazyValue;
 import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.stubs.BinaryFileStubBuilder;
@@ -16,8 +18,6 @@ import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
-
 /**
  * @author Maxim.Mossienko
  *         Date: Sep 18, 2008
@@ -26,26 +26,32 @@ import java.io.ByteArrayInputStream;
 public class SwfFileStubBuilder implements BinaryFileStubBuilder {
   private static final int VERSION = 2;
 
+  private static final AtomicNotNullLazyValue<SwfFileStubCache> ourCache = new AtomicNotNullLazyValue<SwfFileStubCache>() {
+    @NotNull
+    @Override
+    protected SwfFileStubCache compute() {
+      return new SwfFileStubCache(JSFileElementType.getVersion() + "." + VERSION);
+    }
+  };
+
   public boolean acceptsFile(@NotNull final VirtualFile file) {
     return file.getFileType() == FlexApplicationComponent.SWF_FILE_TYPE &&
            file.getPath().endsWith(JarFileSystem.JAR_SEPARATOR + file.getName());
   }
 
   public StubElement buildStubTree(FileContent fileContent) {
-    return buildFileStub(fileContent.getFile(), fileContent.getContent());
-  }
+    final byte[] content = fileContent.getContent();
+    final boolean useCache = !ApplicationManager.getApplication().isUnitTestMode();
+
+    final PsiFileStub cached = useCache ? ourCache.getValue().get(content) : null;
+    if (cached != null) return cached;
 
-  static PsiFileStub buildFileStub(VirtualFile file, byte[] content) {
     PsiFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
     try {
-
-      FlexImporter.buildStubsInterfaceFromStream(
-        new ByteArrayInputStream(content),
-        stub
-      );
-
+      FlexImporter.buildStubsInterface(content, stub);
+      if (useCache) ourCache.getValue().put(content, stub); // not reached if the file is broken and the stub is incomplete
     } catch (Exception ex) {
-      Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
+      Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(fileContent.getFile().getPath(), ex);
     }
 
     return stub;
@@ -0,0 +1,180 @@
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.SerializerNotFoundException;
+import com.intellij.psi.stubs.Stub;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serialized stubs of library SWFs keyed by the SWF content hash. The same library.swf found in several SDKs or projects is decoded
+ * only once, and stubs are not decoded again when the stub index is rebuilt because of a stub version change of another language.
+ * <p/>
+ * Serialized stubs refer to stub serializers and names by their ids in the name storage of the stub index. The storage is created
+ * anew when caches are invalidated or it is corrupted, so the cache directory is keyed by a stamp of the storage as well: a random
+ * id kept in the index root next to it, which is deleted along with the storage.
+ */
+class SwfFileStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfFileStubCache.class.getName());
+  private static final long UNUSED_ENTRY_TTL = TimeUnit.DAYS.toMillis(30);
+
+  @Nullable private final File myDir;
+  private final AtomicBoolean myCleanUpDone = new AtomicBoolean();
+
+  SwfFileStubCache(@NotNull final String stubVersion) {
+    final String nameStorageStamp = getNameStorageStamp();
+    myDir = nameStorageStamp == null ? null : new File(getCacheRoot(), stubVersion + "_" + nameStorageStamp);
+  }
+
+  @NotNull
+  private static File getCacheRoot() {
+    return new File(PathManager.getSystemPath(), "flex/swfStubs");
+  }
+
+  @NotNull
+  private static File getNameStorageStampFile() {
+    return new File(PathManager.getIndexRoot(), "swfStubs.stamp");
+  }
+
+  @Nullable
+  private static String getNameStorageStamp() {
+    final File stampFile = getNameStorageStampFile();
+    try {
+      if (stampFile.isFile()) {
+        final String stamp = FileUtil.loadFile(stampFile).trim();
+        if (!stamp.isEmpty()) return stamp;
+      }
+
+      final String stamp = UUID.randomUUID().toString();
+      FileUtil.writeToFile(stampFile, stamp);
+      return stamp;
+    }
+    catch (IOException e) {
+      LOG.info("SWF stub cache is disabled, failed to access " + stampFile.getPath(), e);
+      return null;
+    }
+  }
+
+  private boolean isUsable() {
+    if (myDir == null) return false;
+    if (SerializationManagerEx.getInstanceEx().isNameStorageCorrupted()) {
+      // ids of the storage going to be rebuilt must not be reused, the next session gets a new stamp
+      FileUtil.delete(getNameStorageStampFile());
+      return false;
+    }
+    return true;
+  }
+
+  @Nullable
+  PsiFileStub get(@NotNull final byte[] content) {
+    if (!isUsable()) return null;
+
+    final File file = getFile(content);
+    if (file == null || !file.isFile()) return null;
+
+    try {
+      final Stub stub = SerializationManagerEx.getInstanceEx().deserialize(new ByteArrayInputStream(FileUtil.loadFileBytes(file)));
+      if (stub instanceof PsiFileStub) {
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return (PsiFileStub)stub;
+      }
+    }
+    catch (ProcessCanceledException e) {
+      throw e;
+    }
+    catch (IOException e) {
+      LOG.info("Failed to read cached SWF stub " + file.getPath(), e);
+    }
+    catch (SerializerNotFoundException e) {
+      LOG.info("Failed to read cached SWF stub " + file.getPath(), e);
+    }
+    catch (RuntimeException e) {
+      // corrupted data
+      LOG.info("Failed to read cached SWF stub " + file.getPath(), e);
+    }
+
+    FileUtil.delete(file);
+    return null;
+  }
+
+  void put(@NotNull final byte[] content, @NotNull final PsiFileStub stub) {
+    if (!isUsable()) return;
+    cleanUpOnce();
+
+    final File file = getFile(content);
+    if (file == null) return;
+
+    try {
+      final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream();
+      SerializationManagerEx.getInstanceEx().serialize(stub, out);
+
+      // concurrent indexing may store the same content, readers must never see a partially written file
+      FileUtil.createDirectory(myDir);
+      final File tempFile = FileUtil.createTempFile(myDir, file.getName(), ".tmp", true, false);
+      FileUtil.writeToFile(tempFile, out.getInternalBuffer(), 0, out.size());
+      if (!tempFile.renameTo(file)) {
+        FileUtil.delete(tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to cache SWF stub " + file.getPath(), e);
+    }
+  }
+
+  @Nullable
+  private File getFile(@NotNull final byte[] content) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return new File(myDir, StringUtil.toHexString(digest.digest(content)) + "_" + content.length);
+    }
+    catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Removes data of other stub versions or name storages and entries that haven't been used for a long time, on a pooled thread.
+   */
+  private void cleanUpOnce() {
+    if (!myCleanUpDone.compareAndSet(false, true)) return;
+
+    ApplicationManager.getApplication().executeOnPooledThread(() -> cleanUp());
+  }
+
+  private void cleanUp() {
+    final File[] versionDirs = getCacheRoot().listFiles();
+    if (versionDirs != null) {
+      for (File dir : versionDirs) {
+        if (!FileUtil.filesEqual(dir, myDir)) FileUtil.delete(dir);
+      }
+    }
+
+    final File[] files = myDir.listFiles();
+    if (files != null) {
+      final long now = System.currentTimeMillis();
+      for (File file : files) {
+        if (now - file.lastModified() > UNUSED_ENTRY_TTL) {
+          FileUtil.delete(file);
+        }
+      }
+    }
+  }
+}
@@ -74,8 +74,9 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
   protected final CodeContext context;
   private final boolean predefined;
 
-  private Map<String, AnnotationBackedDescriptor> myDescriptors; // can be both XML attributes and elements
-  private Map<String, Map<String, AnnotationBackedDescriptor>> myPackageToInternalDescriptors; // These descriptors are resolved only if MXML file is in the same package as descriptor originating element. Can be both XML attributes and elements.
+  // Both maps are published together by ensureDescriptorsMapsInitialized(), myPackageToInternalDescriptors is always assigned first
+  private volatile Map<String, AnnotationBackedDescriptor> myDescriptors; // can be both XML attributes and elements
+  private volatile Map<String, Map<String, AnnotationBackedDescriptor>> myPackageToInternalDescriptors; // These descriptors are resolved only if MXML file is in the same package as descriptor originating element. Can be both XML attributes and elements.
   private Map<String, AnnotationBackedDescriptor> myPredefinedDescriptors; // can be XML attributes, but not elements
 
   @NonNls private static final String ARRAY_TYPE_ANNOTATION_PARAMETER = "arrayType";
@@ -434,8 +435,8 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
     if (myDescriptors == null || myPackageToInternalDescriptors == null) {
       PsiElement element = getDeclaration();
       if (element == null) {
-        myDescriptors = Collections.emptyMap();
-        myPackageToInternalDescriptors = Collections.emptyMap();
+        publishDescriptorsMaps(Collections.<String, AnnotationBackedDescriptor>emptyMap(),
+                               Collections.<String, Map<String, AnnotationBackedDescriptor>>emptyMap());
       }
       else {
         ensureDescriptorsMapsInitialized(element, null);
@@ -482,8 +483,8 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
   public void addPredefinedMemberDescriptor(@NotNull AnnotationBackedDescriptor descriptor) {
     if (predefined) {
       if (myDescriptors == null) {
-        myDescriptors = new THashMap<String, AnnotationBackedDescriptor>();
         myPackageToInternalDescriptors = Collections.emptyMap();
+        myDescriptors = new THashMap<String, AnnotationBackedDescriptor>();
       }
       myDescriptors.put(descriptor.getName(), descriptor);
     } else {
@@ -492,71 +493,75 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
     }
   }
 
+  /**
+   * Computed without any lock: descriptors of different classes (and even of the same class) may be computed in parallel, the maps
+   * published first are used by everybody. Waiting for another thread here could deadlock on cyclic inheritance in the code being edited.
+   */
   private void ensureDescriptorsMapsInitialized(PsiElement element, @Nullable Set<JSClass> visited) {
-    Map<String, AnnotationBackedDescriptor> map;
-    Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors;
+    if (myDescriptors != null && myPackageToInternalDescriptors != null) return;
 
-    synchronized (CodeContext.class) {
-      map = myDescriptors;
-      packageToInternalDescriptors = myPackageToInternalDescriptors;
-      if (map != null && packageToInternalDescriptors != null) return;
+    final Map<String, AnnotationBackedDescriptor> map = new THashMap<String, AnnotationBackedDescriptor>();
+    final Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors =
+      new THashMap<String, Map<String, AnnotationBackedDescriptor>>();
+    Set<PsiElement> processedElements = null;
 
-      map = new THashMap<String, AnnotationBackedDescriptor>();
-      packageToInternalDescriptors = new THashMap<String, Map<String, AnnotationBackedDescriptor>>();
-      Set<PsiElement> processedElements = null;
+    if (element instanceof XmlBackedJSClassImpl) {
+      element = element.getParent().getContainingFile(); // TODO: make this code and following loop better
+    }
 
-      if (element instanceof XmlBackedJSClassImpl) {
-        element = element.getParent().getContainingFile(); // TODO: make this code and following loop better
-      }
+    if (element instanceof XmlFile && MxmlJSClass.isFxgFile((PsiFile)element)) {
+      element = XmlBackedJSClassFactory.getXmlBackedClass((XmlFile)element);
+    }
 
-      if (element instanceof XmlFile && MxmlJSClass.isFxgFile((PsiFile)element)) {
-        element = XmlBackedJSClassFactory.getXmlBackedClass((XmlFile)element);
-      }
+    while (element instanceof XmlFile) {
+      final XmlDocument document = ((XmlFile)element).getDocument();
+      final XmlTag rootTag = document != null ? document.getRootTag():null;
+      final XmlElementDescriptor descriptor = rootTag != null ? rootTag.getDescriptor():null;
+      if (processedElements == null) processedElements = new THashSet<PsiElement>();
+      processedElements.add(element);
 
-      while (element instanceof XmlFile) {
-        final XmlDocument document = ((XmlFile)element).getDocument();
-        final XmlTag rootTag = document != null ? document.getRootTag():null;
-        final XmlElementDescriptor descriptor = rootTag != null ? rootTag.getDescriptor():null;
-        if (processedElements == null) processedElements = new THashSet<PsiElement>();
-        processedElements.add(element);
+      element = descriptor != null ? descriptor.getDeclaration():null;
+      if (processedElements.contains(element)) break;
+      collectMxmlAttributes(map, packageToInternalDescriptors, rootTag);
+    }
 
-        element = descriptor != null ? descriptor.getDeclaration():null;
-        if (processedElements.contains(element)) break;
-        collectMxmlAttributes(map, packageToInternalDescriptors, rootTag);
-      }
+    if (element instanceof JSNamedElement) {
+      JSNamedElement jsClass = (JSNamedElement)element;
+      jsClass = (JSNamedElement)JSResolveUtil.unwrapProxy(jsClass);
 
-      if (element instanceof JSNamedElement) {
-        JSNamedElement jsClass = (JSNamedElement)element;
-        jsClass = (JSNamedElement)JSResolveUtil.unwrapProxy(jsClass);
-
-        if (visited == null || !visited.contains(jsClass)) {
-          if (!MxmlJSClass.XML_TAG_NAME.equals(jsClass.getName()) && !MxmlJSClass.XMLLIST_TAG_NAME.equals(jsClass.getName())) {
-            JSReferenceList extendsList = jsClass instanceof JSClass ? ((JSClass)jsClass).getExtendsList():null;
-            if (extendsList != null) {
-              final JSClass clazz = (JSClass)jsClass;
-              if (visited == null) {
-                visited = new THashSet<JSClass>();
-              }
-              visited.add(clazz);
+      if (visited == null || !visited.contains(jsClass)) {
+        if (!MxmlJSClass.XML_TAG_NAME.equals(jsClass.getName()) && !MxmlJSClass.XMLLIST_TAG_NAME.equals(jsClass.getName())) {
+          JSReferenceList extendsList = jsClass instanceof JSClass ? ((JSClass)jsClass).getExtendsList():null;
+          if (extendsList != null) {
+            final JSClass clazz = (JSClass)jsClass;
+            if (visited == null) {
+              visited = new THashSet<JSClass>();
+            }
+            visited.add(clazz);
 
-              for(JSClass superClazz: clazz.getSuperClasses()) {
-                appendSuperClassDescriptors(map, packageToInternalDescriptors, superClazz, visited);
-              }
-            } else if (!OBJECT_CLASS_NAME.equals(jsClass.getName()) && CodeContext.isStdNamespace(context.namespace)) {
-              appendSuperClassDescriptors(
-                  map,
-                  packageToInternalDescriptors,
-                  JSResolveUtil.unwrapProxy(ActionScriptClassResolver.findClassByQNameStatic(OBJECT_CLASS_NAME, jsClass)),
-                  visited);
+            for(JSClass superClazz: clazz.getSuperClasses()) {
+              appendSuperClassDescriptors(map, packageToInternalDescriptors, superClazz, visited);
             }
+          } else if (!OBJECT_CLASS_NAME.equals(jsClass.getName()) && CodeContext.isStdNamespace(context.namespace)) {
+            appendSuperClassDescriptors(
+                map,
+                packageToInternalDescriptors,
+                JSResolveUtil.unwrapProxy(ActionScriptClassResolver.findClassByQNameStatic(OBJECT_CLASS_NAME, jsClass)),
+                visited);
           }
-
-          collectMyAttributes(jsClass, map, packageToInternalDescriptors);
         }
+
+        collectMyAttributes(jsClass, map, packageToInternalDescriptors);
       }
-      myDescriptors = map;
-      myPackageToInternalDescriptors = packageToInternalDescriptors;
     }
+    publishDescriptorsMaps(map, packageToInternalDescriptors);
+  }
+
+  private synchronized void publishDescriptorsMaps(final Map<String, AnnotationBackedDescriptor> map,
+                                                   final Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors) {
+    if (myDescriptors != null && myPackageToInternalDescriptors != null) return;
+    myPackageToInternalDescriptors = packageToInternalDescriptors;
+    myDescriptors = map;
   }
 
   private void collectMxmlAttributes(final Map<String, AnnotationBackedDescriptor> map,
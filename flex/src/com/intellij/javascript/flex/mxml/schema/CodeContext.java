@@ -47,6 +47,7 @@ import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.Consumer;
 import com.intellij.util.PairConsumer;
 import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xml.XmlElementDescriptor;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
@@ -58,6 +59,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Maxim.Mossienko
@@ -77,14 +79,14 @@ public class CodeContext {
   final static String[] GUMBO_ATTRIBUTES = {FlexStateElementNames.INCLUDE_IN, FlexStateElementNames.EXCLUDE_FROM,
     FlexStateElementNames.ITEM_CREATION_POLICY, FlexStateElementNames.ITEM_DESTRUCTION_POLICY};
 
-  // Component name to descriptor
+  // Component name to descriptor. Standard contexts get more descriptors from libraries while already in use, hence concurrent
   private final Map<String, ClassBackedElementDescriptor> myNameToDescriptorsMap;
   public final String namespace;
   public final Module module;
-  private final Set<Object> dependencies = new THashSet<Object>();
+  private final Set<Object> dependencies = ContainerUtil.newConcurrentSet();
 
   CodeContext(String _namespace, Module _module) {
-    myNameToDescriptorsMap = new THashMap<String, ClassBackedElementDescriptor>(100);
+    myNameToDescriptorsMap = new ConcurrentHashMap<String, ClassBackedElementDescriptor>(100);
     namespace = _namespace;
     module = _module;
     if (JavaScriptSupportLoader.isLanguageNamespace(namespace)) {
@@ -98,6 +100,9 @@ public class CodeContext {
   }
 
   private void putDescriptor(final String name, final ClassBackedElementDescriptor descriptor, final boolean addGumboAttributesIfNeeded) {
+    // e.g. a manifest entry without a component name, the concurrent map doesn't accept null keys
+    if (name == null) return;
+
     if (JavaScriptSupportLoader.isLanguageNamespace(namespace)) {
       if (MxmlJSClass.XML_TAG_NAME.equals(name) || MxmlJSClass.XMLLIST_TAG_NAME.equals(name)) {
         // XML and XMLList are added in constructor
@@ -145,26 +150,19 @@ public class CodeContext {
     final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
     if (bc == null) return CodeContextHolder.EMPTY;
 
-    CodeContext codeContext;
-
-    synchronized (CodeContext.class) {
-      if (isStdNamespace(namespace)) {
-        return getStdCodeContext(namespace, module, bc);
-      }
-
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getCodeContext(namespace, module);
-
-      if (codeContext == null) {
-        codeContext = createCodeContext(namespace, module, bc);
-        if (codeContext.getAllDescriptorsSize() > 0) {
-          // avoid adding of incorrect namespaces that appear during completion like "http://www.adobe.IntellijIdeaRulezzz com/2006/mxml"
-          contextHolder.putCodeContext(namespace, module, codeContext);
-        }
-      }
+    if (isStdNamespace(namespace)) {
+      return getStdCodeContext(namespace, module, bc);
     }
 
-    return codeContext;
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    return contextHolder.getOrComputeCodeContext(namespace, module, () -> {
+      final CodeContext codeContext = createCodeContext(namespace, module, bc);
+      if (codeContext.getAllDescriptorsSize() > 0) {
+        // avoid adding of incorrect namespaces that appear during completion like "http://www.adobe.IntellijIdeaRulezzz com/2006/mxml"
+        return contextHolder.putCodeContextIfAbsent(namespace, module, codeContext);
+      }
+      return codeContext;
+    });
   }
 
   public static boolean isStdNamespace(final String namespace) {
@@ -338,12 +336,7 @@ public class CodeContext {
   private static CodeContext identifyCodeContext(Module module, Map<String, CodeContext> contextsOfModule, String uri) {
     CodeContext codeContext;
     if (isStdNamespace(uri)) {
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getStandardContext(uri, module);
-      if (codeContext == null) {
-        codeContext = new CodeContext(uri, module);
-        contextHolder.putStandardContext(uri, module, codeContext);
-      }
+      codeContext = CodeContextHolder.getInstance(module.getProject()).getOrCreateStandardContext(uri, module);
     }
     else {
       codeContext = contextsOfModule.get(uri);
@@ -390,12 +383,11 @@ public class CodeContext {
   private static CodeContext getStdCodeContext(final String namespace, final Module module, final FlexBuildConfiguration bc) {
     final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
 
-    if (!contextHolder.areSdkComponentsHandledForModule(module)) { // handleAllStandardManifests only once per module
+    contextHolder.ensureSdkComponentsHandled(module, () -> { // handleAllStandardManifests only once per module
       handleAllStandardManifests(module, bc);
       handleSwcFromSdk(module, bc); //swc files attached to Flex SDK may contribute to standard context
       createCodeContextFromLibraries(namespace, module, bc); // other libraries may contribute to standard context
-      contextHolder.setSdkComponentsHandledForModule(module);
-    }
+    });
 
     final CodeContext context = contextHolder.getStandardContext(namespace, module);
     return context != null ? context : CodeContextHolder.EMPTY;
@@ -403,7 +395,8 @@ public class CodeContext {
 
   @Nullable
   public XmlElementDescriptor getElementDescriptor(final @NonNls String localName, final @Nullable XmlTag tag) {
-    ClassBackedElementDescriptor descriptor = this == CodeContextHolder.EMPTY ? null : myNameToDescriptorsMap.get(localName);
+    ClassBackedElementDescriptor descriptor =
+      this == CodeContextHolder.EMPTY || localName == null ? null : myNameToDescriptorsMap.get(localName);
 
     if (tag != null && MxmlJSClass.XML_TAG_NAME.equals(localName)
         && JavaScriptSupportLoader.isLanguageNamespace(tag.getNamespace())) {
@@ -446,13 +439,15 @@ public class CodeContext {
 
   @Nullable
   public ClassBackedElementDescriptor getElementDescriptor(@NotNull final String name, @NotNull final String qname) {
-    ClassBackedElementDescriptor descriptor = myNameToDescriptorsMap.get(name);
+    //noinspection ConstantConditions
+    ClassBackedElementDescriptor descriptor = name == null ? null : myNameToDescriptorsMap.get(name);
 
     if (descriptor != null && !qname.equals(descriptor.getQualifiedName())) {
       descriptor = null;
     }
 
-    if (descriptor == null && !name.equals(qname)) descriptor = myNameToDescriptorsMap.get(qname);
+    //noinspection ConstantConditions
+    if (descriptor == null && qname != null && !qname.equals(name)) descriptor = myNameToDescriptorsMap.get(qname);
 
     return descriptor;
   }
@@ -476,14 +471,7 @@ public class CodeContext {
                                              final String namespace,
                                              final VirtualFile manifestFile,
                                              final VirtualFile flexSdkRoot) {
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    CodeContext _context = contextHolder.getStandardContext(namespace, module);
-    if (_context == null) {
-      _context = new CodeContext(namespace, module);
-      contextHolder.putStandardContext(namespace, module, _context);
-    }
-
-    final CodeContext context = _context;
+    final CodeContext context = CodeContextHolder.getInstance(module.getProject()).getOrCreateStandardContext(namespace, module);
     context.addDependency(flexSdkRoot);
 
     processManifestFile(manifestFile, context);
@@ -6,32 +6,41 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
-import gnu.trove.THashMap;
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Code contexts are kept per module and computed without locks. Computing a context may need contexts of other namespaces, so threads
+ * never wait for each other: concurrent requests for a missing context compute it each and the first cached result wins.
+ * Everything is dropped on module roots change.
+ *
  * @author Maxim.Mossienko
 */
 public class CodeContextHolder extends AbstractProjectComponent {
-  private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<Module>();
-  private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<String, Map<Module, CodeContext>>();
-  private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<String, Map<Module, CodeContext>>();
+  private final ConcurrentMap<Module, ModuleContexts> myModuleContexts = ContainerUtil.newConcurrentMap();
   static final CodeContext EMPTY = new CodeContext(null, null);
 
+  private static class ModuleContexts {
+    private final ConcurrentMap<String, CodeContext> myStandardContexts = ContainerUtil.newConcurrentMap();
+    private final ConcurrentMap<String, CodeContext> myNSToCodeContextMap = ContainerUtil.newConcurrentMap();
+    private volatile boolean mySdkComponentsHandled;
+  }
+
   public CodeContextHolder(Project project) {
     super(project);
     project.getMessageBus().connect().subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       @Override
       public void rootsChanged(final ModuleRootEvent event) {
-        synchronized (CodeContextHolder.this) {
-          myNSToCodeContextMap.clear();
-          myStandardContexts.clear();
-          myModulesWithSdkComponentsHandled.clear();
-        }
+        myModuleContexts.clear();
       }
     });
   }
@@ -43,68 +52,84 @@ public class CodeContextHolder extends AbstractProjectComponent {
     return "CodeContextHolder";
   }
 
+  @NotNull
+  private ModuleContexts getModuleContexts(@NotNull final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    return contexts != null ? contexts : ConcurrencyUtil.cacheOrGet(myModuleContexts, module, new ModuleContexts());
+  }
+
   @Nullable
-  public synchronized CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    final Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) return map.get(module);
-    return null;
+  public CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    return contexts == null ? null : contexts.myNSToCodeContextMap.get(namespace);
   }
 
-  public synchronized void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map == null) {
-      map = new THashMap<Module, CodeContext>();
-      myNSToCodeContextMap.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  public void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    getModuleContexts(module).myNSToCodeContextMap.put(namespace, codeContext);
   }
 
-  public synchronized void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) {
-      map.remove(module);
+  /**
+   * @return the context cached meanwhile by another thread or <code>codeContext</code> if it is cached now
+   */
+  @NotNull
+  CodeContext putCodeContextIfAbsent(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    return ConcurrencyUtil.cacheOrGet(getModuleContexts(module).myNSToCodeContextMap, namespace, codeContext);
+  }
+
+  public void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    if (contexts != null) {
+      contexts.myNSToCodeContextMap.remove(namespace);
     }
   }
 
+  /**
+   * Returns the cached context or runs <code>computation</code>, which is expected to cache its result with
+   * {@link #putCodeContextIfAbsent}. Threads asking for the same namespace of the same module meanwhile compute it as well.
+   */
+  @NotNull
+  CodeContext getOrComputeCodeContext(@NotNull final String namespace,
+                                      @NotNull final Module module,
+                                      @NotNull final Computable<CodeContext> computation) {
+    final CodeContext codeContext = getModuleContexts(module).myNSToCodeContextMap.get(namespace);
+    return codeContext != null ? codeContext : computation.compute();
+  }
+
   public static CodeContextHolder getInstance(@NotNull Project project) {
     return project.getComponent(CodeContextHolder.class);
   }
 
   @Nullable
-  public synchronized CodeContext getStandardContext(final String namespace, final Module module) {
-    final Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    return map == null ? null : map.get(module);
+  public CodeContext getStandardContext(final String namespace, final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    return contexts == null ? null : contexts.myStandardContexts.get(namespace);
   }
 
-  public synchronized Collection<String> getNamespaces(final Module module) {
-    final List<String> result = new ArrayList<String>();
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
-      }
-    }
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
-      }
-    }
-    return result;
-  }
+  public Collection<String> getNamespaces(final Module module) {
+    final ModuleContexts contexts = myModuleContexts.get(module);
+    if (contexts == null) return new ArrayList<String>();
 
-  synchronized void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    if (map == null) {
-      map = new HashMap<Module, CodeContext>();
-      myStandardContexts.put(namespace, map);
-    }
-    map.put(module, codeContext);
+    final List<String> result = new ArrayList<String>(contexts.myStandardContexts.keySet());
+    result.addAll(contexts.myNSToCodeContextMap.keySet());
+    return result;
   }
 
-  synchronized boolean areSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.contains(module);
+  @NotNull
+  CodeContext getOrCreateStandardContext(final String namespace, final Module module) {
+    final ConcurrentMap<String, CodeContext> standardContexts = getModuleContexts(module).myStandardContexts;
+    final CodeContext codeContext = standardContexts.get(namespace);
+    return codeContext != null ? codeContext : ConcurrencyUtil.cacheOrGet(standardContexts, namespace, new CodeContext(namespace, module));
   }
 
-  synchronized boolean setSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.add(module);
+  /**
+   * Runs <code>handler</code> that fills standard contexts of the module until it completes once. Concurrent callers run it as well,
+   * descriptors it adds are the same.
+   */
+  void ensureSdkComponentsHandled(final Module module, final Runnable handler) {
+    final ModuleContexts contexts = getModuleContexts(module);
+    if (!contexts.mySdkComponentsHandled) {
+      handler.run();
+      contexts.mySdkComponentsHandled = true;
+    }
   }
 }
@@ -50,7 +50,7 @@ public class BuiltInCompilationTask extends FlexCompilationTask {
       }
 
       public void compilationFinished() {
-        myFinished = true;
+        finished();
       }
     };
   }
@@ -12,26 +12,45 @@ import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.compiler.CompileContext;
 import com.intellij.openapi.compiler.CompilerMessage;
 import com.intellij.openapi.compiler.CompilerMessageCategory;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.NullableComputable;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import gnu.trove.TObjectIntHashMap;
+import gnu.trove.TObjectLongHashMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class FlexCompilationManager {
 
+  private static final Logger LOG = Logger.getInstance(FlexCompilationManager.class.getName());
+
+  // tasks report their completion, the interval only limits the delay of reacting on the Cancel button
+  private static final long CANCELLATION_CHECK_INTERVAL_MS = 100;
+
   private final CompileContext myCompileContext;
   private final int myMaxParallelCompilations;
   private final int myTasksAmount;
   private final Collection<FlexCompilationTask> myNotStartedTasks;
   private final Collection<FlexCompilationTask> myInProgressTasks;
   private final Collection<FlexCompilationTask> myFinishedTasks;
+  private final BlockingQueue<FlexCompilationTask> myTasksToCheck = new LinkedBlockingQueue<FlexCompilationTask>();
+
+  // the longest chain of tasks (including the task itself) that can't start before the task is finished
+  private final TObjectIntHashMap<FlexCompilationTask> myCriticalPathLengths = new TObjectIntHashMap<FlexCompilationTask>();
+  private final TObjectLongHashMap<FlexCompilationTask> myStartTimes = new TObjectLongHashMap<FlexCompilationTask>();
+  private final TObjectLongHashMap<FlexCompilationTask> myFinishTimes = new TObjectLongHashMap<FlexCompilationTask>();
+  private final TObjectLongHashMap<FlexCompilationTask> myQueueWaitTimes = new TObjectLongHashMap<FlexCompilationTask>();
+  private long myCompilationStartTime;
 
   private boolean myCompilationFinished;
   private final FlexCompilerDependenciesCache myCompilerDependenciesCache;
@@ -51,11 +70,15 @@ public class FlexCompilationManager {
   }
 
   public void compile() {
+    myCompilationStartTime = System.currentTimeMillis();
+    myCompilerDependenciesCache.buildStarted();
+    computeCriticalPathLengths();
+
     try {
       while (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
 
         if (myCompileContext.getProgressIndicator().isCanceled()) {
-          for (FlexCompilationTask task : myInProgressTasks) {
+          for (FlexCompilationTask task : new ArrayList<FlexCompilationTask>(myInProgressTasks)) {
             task.cancel();
           }
           break;
@@ -65,12 +88,8 @@ public class FlexCompilationManager {
         startNewTaskIfPossible();
         updateProgressIndicator();
 
-        try {
-          //noinspection BusyWait
-          Thread.sleep(200);
-        }
-        catch (InterruptedException e) {
-          assert false;
+        if (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
+          waitForFinishedTask();
         }
       }
     }
@@ -79,6 +98,26 @@ public class FlexCompilationManager {
       synchronized (this) {
         myCompilationFinished = true;
       }
+      logTimings();
+    }
+  }
+
+  /**
+   * Called by a task (in any thread) when it is finished or cancelled.
+   */
+  void taskFinished(final FlexCompilationTask task) {
+    myTasksToCheck.offer(task);
+  }
+
+  private void waitForFinishedTask() {
+    try {
+      final FlexCompilationTask task = myTasksToCheck.poll(CANCELLATION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      if (task != null) {
+        myTasksToCheck.offer(task); // handled by checkFinishedTasks() together with the others
+      }
+    }
+    catch (InterruptedException e) {
+      assert false;
     }
   }
 
@@ -138,12 +177,11 @@ public class FlexCompilationManager {
   }
 
   private void checkFinishedTasks() {
-    final Iterator<FlexCompilationTask> iterator = myInProgressTasks.iterator();
-    while (iterator.hasNext()) {
-      FlexCompilationTask task = iterator.next();
-      if (task.isFinished()) {
-        iterator.remove();
+    FlexCompilationTask task;
+    while ((task = myTasksToCheck.poll()) != null) {
+      if (myInProgressTasks.remove(task)) {
         myFinishedTasks.add(task);
+        myFinishTimes.put(task, System.currentTimeMillis());
 
         if (task.isCompilationFailed()) {
           final Collection<FlexCompilationTask> cancelledTasks = cancelNotStartedDependentTasks(task);
@@ -261,8 +299,10 @@ public class FlexCompilationManager {
           continue;
         }
 
-        taskToStart = task;
-        break;
+        // among ready tasks start first the one that most other tasks are waiting for
+        if (taskToStart == null || myCriticalPathLengths.get(task) > myCriticalPathLengths.get(taskToStart)) {
+          taskToStart = task;
+        }
       }
 
       if (taskToStart == null && allTasksHaveDependenciesOnlyInNotStarted) {
@@ -271,12 +311,16 @@ public class FlexCompilationManager {
 
       if (taskToStart != null) {
         myNotStartedTasks.remove(taskToStart);
+        final long now = System.currentTimeMillis();
+        myStartTimes.put(taskToStart, now);
+        myQueueWaitTimes.put(taskToStart, now - getReadyTime(taskToStart));
 
         if (myCompilerDependenciesCache.isNothingChangedSincePreviousCompilation(taskToStart.getModule(), taskToStart.getBC())) {
           addMessage(taskToStart, CompilerMessageCategory.INFORMATION, FlexBundle.message("compilation.skipped.because.nothing.changed"),
                      null, -1, -1);
           taskToStart.cancel();
           myFinishedTasks.add(taskToStart);
+          myFinishTimes.put(taskToStart, System.currentTimeMillis());
 
           try {
             FlexCompilationUtils.performPostCompileActions(taskToStart.getModule(), taskToStart.getBC(), Collections.<String>emptyList());
@@ -295,6 +339,78 @@ public class FlexCompilationManager {
     }
   }
 
+  private void computeCriticalPathLengths() {
+    final Set<FlexCompilationTask> inProgress = new HashSet<FlexCompilationTask>();
+    for (FlexCompilationTask task : myNotStartedTasks) {
+      computeCriticalPathLength(task, inProgress);
+    }
+  }
+
+  private int computeCriticalPathLength(final FlexCompilationTask task, final Set<FlexCompilationTask> inProgress) {
+    if (myCriticalPathLengths.containsKey(task)) return myCriticalPathLengths.get(task);
+    if (!inProgress.add(task)) return 0; // cyclic dependency
+
+    int longestDependentPath = 0;
+    for (FlexCompilationTask otherTask : myNotStartedTasks) {
+      if (otherTask != task && isWaitingFor(otherTask, task)) {
+        longestDependentPath = Math.max(longestDependentPath, computeCriticalPathLength(otherTask, inProgress));
+      }
+    }
+
+    inProgress.remove(task);
+    myCriticalPathLengths.put(task, longestDependentPath + 1);
+    return longestDependentPath + 1;
+  }
+
+  /**
+   * @return whether <code>task</code> can't start until <code>prerequisite</code> is finished
+   */
+  private static boolean isWaitingFor(final FlexCompilationTask task, final FlexCompilationTask prerequisite) {
+    //noinspection ConstantConditions
+    if (task.getDependencies().contains(prerequisite.getBC())) return true;
+
+    final FlexBuildConfiguration bc = prerequisite.getBC();
+    return BCUtils.isRLMTemporaryBC(task.getBC()) &&
+           task.getModule() == prerequisite.getModule() &&
+           bc.getName().equals(task.getBC().getName()) &&
+           !BCUtils.isRLMTemporaryBC(bc) &&
+           !BCUtils.isRuntimeStyleSheetBC(bc) &&
+           BCUtils.canHaveRLMsAndRuntimeStylesheets(bc);
+  }
+
+  /**
+   * @return the moment when the last prerequisite of the task was finished
+   */
+  private long getReadyTime(final FlexCompilationTask task) {
+    long readyTime = myCompilationStartTime;
+    for (FlexCompilationTask finishedTask : myFinishedTasks) {
+      if (isWaitingFor(task, finishedTask) && myFinishTimes.containsKey(finishedTask)) {
+        readyTime = Math.max(readyTime, myFinishTimes.get(finishedTask));
+      }
+    }
+    return readyTime;
+  }
+
+  private void logTimings() {
+    if (!LOG.isDebugEnabled()) return;
+
+    final StringBuilder builder = new StringBuilder();
+    builder.append("Flex compilation of ").append(myTasksAmount).append(" build configurations took ")
+      .append(System.currentTimeMillis() - myCompilationStartTime).append(" ms, parallel compilations: ").append(myMaxParallelCompilations);
+
+    for (FlexCompilationTask task : myFinishedTasks) {
+      if (!myStartTimes.containsKey(task)) continue; // skipped
+
+      builder.append("\n  ").append(task.getPresentableName())
+        .append(": waited in queue ").append(myQueueWaitTimes.get(task)).append(" ms");
+      if (myFinishTimes.containsKey(task)) {
+        builder.append(", compiled in ").append(myFinishTimes.get(task) - myStartTimes.get(task)).append(" ms");
+      }
+      builder.append(", critical path ").append(myCriticalPathLengths.get(task));
+    }
+    LOG.debug(builder.toString());
+  }
+
   private boolean isMainAppCompiledForRLM(final Module module, final FlexBuildConfiguration rlmBC) {
     for (FlexCompilationTask task : myFinishedTasks) {
       final FlexBuildConfiguration bc = task.getBC();
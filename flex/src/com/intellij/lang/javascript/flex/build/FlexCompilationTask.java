@@ -21,8 +21,9 @@ public abstract class FlexCompilationTask {
   protected final Collection<FlexBuildConfiguration> myDependencies;
 
   private List<VirtualFile> myConfigFiles;
+  private volatile FlexCompilationManager myCompilationManager;
 
-  protected boolean myFinished;
+  private volatile boolean myFinished;
   protected boolean myCompilationFailed;
 
   protected FlexCompilationTask(final Module module,
@@ -42,6 +43,7 @@ public abstract class FlexCompilationTask {
   }
 
   public void start(final FlexCompilationManager compilationManager) {
+    myCompilationManager = compilationManager;
     try {
       myConfigFiles = createConfigFiles();
       final String outputFilePath = myBC.getActualOutputFilePath();
@@ -82,7 +84,20 @@ public abstract class FlexCompilationTask {
 
   public void cancel() {
     doCancel();
+    finished();
+  }
+
+  /**
+   * Must be called exactly when the compilation process is over, so that the compilation manager can start dependent tasks at once.
+   */
+  protected void finished() {
+    if (myFinished) return;
     myFinished = true;
+
+    final FlexCompilationManager compilationManager = myCompilationManager;
+    if (compilationManager != null) {
+      compilationManager.taskFinished(this);
+    }
   }
 
   protected abstract void doCancel();
@@ -5,29 +5,54 @@ import com.intellij.flex.model.bc.BuildConfigurationNature;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
 import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.ModuleAdapter;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
-import com.intellij.openapi.util.Condition;
-import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
 import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.xmlb.XmlSerializer;
 import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import gnu.trove.TObjectLongHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 
+/**
+ * Remembers build configurations that were compiled successfully, so that they are not recompiled if nothing has changed.
+ * Source changes are tracked by VFS events ({@link #markModuleDirtyIfInSourceRoot(VirtualFile)}), other files the compilation depends on
+ * by their timestamps, each file is checked at most once per build unless a build configuration writing it is compiled meanwhile.
+ * The cache is saved on project close; since VFS events for source files changed while the project was closed are not delivered
+ * to this cache, entries loaded from disk are also checked against a fingerprint of source root contents taken from VFS.
+ * The file is loaded by the first build, VFS events coming before that are remembered without loading it.
+ */
 public class FlexCompilerDependenciesCache {
 
+  private static final Logger LOG = Logger.getInstance(FlexCompilerDependenciesCache.class.getName());
+  private static final int VERSION = 1;
+
   private final Project myProject;
-  private final Map<Module, Collection<BCInfo>> myCache = new THashMap<Module, Collection<BCInfo>>();
+  // module name -> infos, names are used because the cache outlives Module instances
+  private final Map<String, Collection<BCInfo>> myCache = new THashMap<String, Collection<BCInfo>>();
+  private boolean myLoaded;
+  // names of modules made dirty before the cache was loaded
+  private final Set<String> myModulesDirtyBeforeLoad = new THashSet<String>();
+
+  // file path -> timestamp, valid during one build
+  private final TObjectLongHashMap<String> myTimestampsInCurrentBuild = new TObjectLongHashMap<String>();
 
   private static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
     {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
@@ -47,32 +72,44 @@ public class FlexCompilerDependenciesCache {
 
     project.getMessageBus().connect(project).subscribe(ProjectTopics.MODULES, new ModuleAdapter() {
       public void moduleRemoved(@NotNull final Project project, @NotNull final Module module) {
-        myCache.remove(module);
+        markModuleDirty(module);
       }
     });
   }
 
-  public void clear() {
+  public synchronized void clear() {
     myCache.clear();
+    myModulesDirtyBeforeLoad.clear();
+    myLoaded = true; // don't load outdated data
   }
 
-  public void markModuleDirty(final Module module) {
-    myCache.remove(module);
+  /**
+   * May be called in the event dispatch thread, doesn't load the cache.
+   */
+  public synchronized void markModuleDirty(final Module module) {
+    if (myLoaded) {
+      myCache.remove(module.getName());
+    }
+    else {
+      myModulesDirtyBeforeLoad.add(module.getName());
+    }
   }
 
-  public void markBCDirty(final Module module, final FlexBuildConfiguration bc) {
-    final Collection<BCInfo> infosForModule = myCache.get(module);
+  public synchronized void markBCDirty(final Module module, final FlexBuildConfiguration bc) {
+    ensureLoaded();
+    final Collection<BCInfo> infosForModule = myCache.get(module.getName());
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
     if (existingInfo != null) {
-      infosForModule.remove(existingInfo);
-      if (infosForModule.isEmpty()) {
-        myCache.remove(module);
-      }
+      removeInfo(module.getName(), infosForModule, existingInfo);
     }
+    forgetTimestamp(bc.getActualOutputFilePath()); // may be compiled now, other BCs depending on it must see the new output
   }
 
-  public void markModuleDirtyIfInSourceRoot(final VirtualFile file) {
-    if (myCache.isEmpty()) return;
+  /**
+   * Called by the VFS listener in the event dispatch thread, doesn't load the cache.
+   */
+  public synchronized void markModuleDirtyIfInSourceRoot(final VirtualFile file) {
+    if (myLoaded && myCache.isEmpty()) return;
 
     final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
     final Module module = fileIndex.getModuleForFile(file);
@@ -81,43 +118,55 @@ public class FlexCompilerDependenciesCache {
     }
   }
 
+  /**
+   * Must be called before the first {@link #isNothingChangedSincePreviousCompilation} call of each build.
+   */
+  public synchronized void buildStarted() {
+    myTimestampsInCurrentBuild.clear();
+  }
+
   public boolean isNothingChangedSincePreviousCompilation(final Module module, final FlexBuildConfiguration bc) {
-    final Collection<BCInfo> infosForModule = myCache.get(module);
-    final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
-    if (existingInfo == null) {
-      return false;
+    final BCInfo existingInfo;
+    final Long sourcesFingerprintToCheck;
+    synchronized (this) {
+      ensureLoaded();
+      final Collection<BCInfo> infosForModule = myCache.get(module.getName());
+      existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
+      if (existingInfo == null) {
+        return false;
+      }
+      sourcesFingerprintToCheck = existingInfo.mySourcesFingerprintToCheck;
     }
 
     final String[] currentSourceRoots = ModuleRootManager.getInstance(module).getSourceRootUrls();
-    if (!Arrays.equals(existingInfo.mySourceRootUrls, currentSourceRoots) || existingInfo.timestampsChanged()) {
-      infosForModule.remove(existingInfo);
-      if (infosForModule.isEmpty()) {
-        myCache.remove(module);
+    final boolean changed = !Arrays.equals(existingInfo.mySourceRootUrls, currentSourceRoots) ||
+                            sourcesFingerprintToCheck != null && sourcesFingerprintToCheck.longValue() != computeSourcesFingerprint(module);
+
+    synchronized (this) {
+      if (changed || timestampsChanged(existingInfo)) {
+        markBCDirty(module, bc);
+        return false;
       }
-      return false;
-    }
 
-    return true;
+      // could have been made dirty by a VFS event meanwhile
+      final Collection<BCInfo> infosForModule = myCache.get(module.getName());
+      if (infosForModule == null || !infosForModule.contains(existingInfo)) {
+        return false;
+      }
+      existingInfo.mySourcesFingerprintToCheck = null; // VFS events are tracked from now on
+      return true;
+    }
   }
 
   public void cacheBC(final Module module, final FlexBuildConfiguration bc, final List<VirtualFile> configFiles) {
-    Collection<BCInfo> infosForModule = myCache.get(module);
-    if (infosForModule == null) {
-      infosForModule = new ArrayList<BCInfo>();
-      myCache.put(module, infosForModule);
-    }
-    else {
-      final BCInfo existingInfo = findCacheForBC(infosForModule, bc);
-      if (existingInfo != null) {
-        infosForModule.remove(existingInfo);
-      }
-    }
+    markBCDirty(module, bc); // the output has just been written
 
+    // not under the lock: may wait for the write action, and VFS events are handled in write action
     final VirtualFile outputFile = FlexCompilationManager.refreshAndFindFileInWriteAction(bc.getActualOutputFilePath());
     if (outputFile == null) return;
 
-    final BCInfo bcInfo = new BCInfo(Factory.getCopy(bc), ModuleRootManager.getInstance(module).getSourceRootUrls());
-    infosForModule.add(bcInfo);
+    final BCInfo bcInfo = new BCInfo(getBCState(bc), ModuleRootManager.getInstance(module).getSourceRootUrls(),
+                                     computeSourcesFingerprint(module));
 
     bcInfo.addFileDependency(outputFile.getPath());
 
@@ -146,11 +195,91 @@ public class FlexCompilerDependenciesCache {
         }
       }
     }
+
+    synchronized (this) {
+      ensureLoaded();
+      Collection<BCInfo> infosForModule = myCache.get(module.getName());
+      if (infosForModule == null) {
+        infosForModule = new ArrayList<BCInfo>();
+        myCache.put(module.getName(), infosForModule);
+      }
+      infosForModule.add(bcInfo);
+    }
+  }
+
+  private void removeInfo(final String moduleName, final Collection<BCInfo> infosForModule, final BCInfo info) {
+    infosForModule.remove(info);
+    if (infosForModule.isEmpty()) {
+      myCache.remove(moduleName);
+    }
   }
 
   @Nullable
   private static BCInfo findCacheForBC(final @NotNull Collection<BCInfo> bcInfos, @NotNull final FlexBuildConfiguration bc) {
-    return ContainerUtil.find(bcInfos, info -> info.myBC.isEqual(bc));
+    final String bcState = getBCState(bc);
+    return ContainerUtil.find(bcInfos, info -> info.myBCState.equals(bcState));
+  }
+
+  @NotNull
+  private static String getBCState(final FlexBuildConfiguration bc) {
+    return bc.isTempBCForCompilation() + JDOMUtil.writeElement(XmlSerializer.serialize(Factory.getState(bc)), "\n");
+  }
+
+  /**
+   * Hash of paths, timestamps and lengths of the files in production source roots as VFS knows them. Children not loaded to VFS are
+   * not loaded from disk, a directory with unloaded children just gives a different hash and makes the BC compile.
+   */
+  private static long computeSourcesFingerprint(final Module module) {
+    return ApplicationManager.getApplication().runReadAction((Computable<Long>)() -> {
+      long hash = 0;
+      for (VirtualFile root : ModuleRootManager.getInstance(module).getSourceRoots(false)) {
+        hash = 31 * hash + computeFingerprint(root);
+      }
+      return hash;
+    });
+  }
+
+  private static long computeFingerprint(final VirtualFile file) {
+    long hash = file.getName().hashCode();
+    if (file.isDirectory()) {
+      if (file instanceof NewVirtualFile) {
+        for (VirtualFile child : ((NewVirtualFile)file).getCachedChildren()) {
+          hash = 31 * hash + computeFingerprint(child);
+        }
+      }
+    }
+    else {
+      hash = 31 * (31 * hash + file.getTimeStamp()) + file.getLength();
+    }
+    return hash;
+  }
+
+  private void forgetTimestamp(final String path) {
+    final File file = new File(FileUtil.toSystemDependentName(path));
+    for (Object key : myTimestampsInCurrentBuild.keys()) {
+      if (FileUtil.filesEqual(new File((String)key), file)) {
+        myTimestampsInCurrentBuild.remove((String)key);
+      }
+    }
+  }
+
+  private boolean timestampsChanged(final BCInfo info) {
+    for (int i = 0; i < info.myFilePaths.size(); i++) {
+      final String path = info.myFilePaths.get(i);
+      long timestamp;
+      if (myTimestampsInCurrentBuild.containsKey(path)) {
+        timestamp = myTimestampsInCurrentBuild.get(path);
+      }
+      else {
+        timestamp = new File(path).lastModified();
+        myTimestampsInCurrentBuild.put(path, timestamp);
+      }
+
+      if (timestamp != info.myTimestamps.get(i)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private static void addFileDependencies(final BCInfo bcInfo, final VirtualFile configFile, final String workDirPath) {
@@ -168,39 +297,158 @@ public class FlexCompilerDependenciesCache {
     catch (IOException e) {/*ignore*/}
   }
 
+  private File getCacheFile() {
+    return new File(PathManager.getSystemPath(), "flex/compilerDependencies/" + myProject.getLocationHash());
+  }
+
+  private void ensureLoaded() {
+    if (myLoaded) return;
+    myLoaded = true;
+
+    final File file = getCacheFile();
+    if (!file.isFile()) {
+      myModulesDirtyBeforeLoad.clear();
+      return;
+    }
+
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != VERSION) return;
+
+      int modulesCount = in.readInt();
+      while (modulesCount-- > 0) {
+        final String moduleName = IOUtil.readUTF(in);
+        int infosCount = in.readInt();
+        final Collection<BCInfo> infos = new ArrayList<BCInfo>(infosCount);
+        while (infosCount-- > 0) {
+          infos.add(BCInfo.read(in));
+        }
+        myCache.put(moduleName, infos);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to load " + file.getPath(), e);
+      myCache.clear();
+    }
+    finally {
+      for (String moduleName : myModulesDirtyBeforeLoad) {
+        myCache.remove(moduleName);
+      }
+      myModulesDirtyBeforeLoad.clear();
+      if (in != null) {
+        try {
+          in.close();
+        }
+        catch (IOException ignored) {
+        }
+      }
+      FileUtil.delete(file); // saved again on project close, stale data must not survive a crash
+    }
+  }
+
+  public synchronized void save() {
+    if (!myLoaded) return; // nothing changed
+
+    final File file = getCacheFile();
+    if (myCache.isEmpty()) {
+      FileUtil.delete(file);
+      return;
+    }
+
+    DataOutputStream out = null;
+    try {
+      FileUtil.createParentDirs(file);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(VERSION);
+      out.writeInt(myCache.size());
+      for (Map.Entry<String, Collection<BCInfo>> entry : myCache.entrySet()) {
+        IOUtil.writeUTF(out, entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (BCInfo info : entry.getValue()) {
+          info.write(out);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to save " + file.getPath(), e);
+      FileUtil.delete(file);
+    }
+    finally {
+      if (out != null) {
+        try {
+          out.close();
+        }
+        catch (IOException ignored) {
+        }
+      }
+    }
+  }
+
   private static class BCInfo {
-    private final FlexBuildConfiguration myBC;
+    private final String myBCState;
     private final String[] mySourceRootUrls;
-    private final Collection<Pair<File, Long>> myFileToTimestamp = new ArrayList<Pair<File, Long>>();
+    private final List<String> myFilePaths = new ArrayList<String>();
+    private final List<Long> myTimestamps = new ArrayList<Long>();
+    private final long mySourcesFingerprint;
+    // not null for infos loaded from disk until checked against the current VFS state
+    private Long mySourcesFingerprintToCheck;
 
-    private BCInfo(final FlexBuildConfiguration bc, final String[] sourceRootUrls) {
-      myBC = bc;
+    private BCInfo(final String bcState, final String[] sourceRootUrls, final long sourcesFingerprint) {
+      myBCState = bcState;
       mySourceRootUrls = sourceRootUrls;
+      mySourcesFingerprint = sourcesFingerprint;
     }
 
     private void addFileDependency(final String filePath, final String... potentialBaseDirs) {
       final File file = new File(FileUtil.toSystemDependentName(filePath));
       if (file.exists()) {
-        myFileToTimestamp.add(Pair.create(file, file.lastModified()));
+        addFile(file);
       }
       else if (potentialBaseDirs != null) {
         for (String baseDir : potentialBaseDirs) {
           final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + filePath));
           if (file1.exists()) {
-            myFileToTimestamp.add(Pair.create(file1, file1.lastModified()));
+            addFile(file1);
             break;
           }
         }
       }
     }
 
-    public boolean timestampsChanged() {
-      for (Pair<File, Long> fileAndTimestamp : myFileToTimestamp) {
-        if (fileAndTimestamp.first.lastModified() != fileAndTimestamp.second) {
-          return true;
-        }
+    private void addFile(final File file) {
+      myFilePaths.add(file.getPath());
+      myTimestamps.add(file.lastModified());
+    }
+
+    private void write(final DataOutput out) throws IOException {
+      IOUtil.writeUTF(out, myBCState);
+      out.writeInt(mySourceRootUrls.length);
+      for (String url : mySourceRootUrls) {
+        IOUtil.writeUTF(out, url);
+      }
+      out.writeLong(mySourcesFingerprint);
+      out.writeInt(myFilePaths.size());
+      for (int i = 0; i < myFilePaths.size(); i++) {
+        IOUtil.writeUTF(out, myFilePaths.get(i));
+        out.writeLong(myTimestamps.get(i));
+      }
+    }
+
+    private static BCInfo read(final DataInput in) throws IOException {
+      final String bcState = IOUtil.readUTF(in);
+      final String[] sourceRootUrls = new String[in.readInt()];
+      for (int i = 0; i < sourceRootUrls.length; i++) {
+        sourceRootUrls[i] = IOUtil.readUTF(in);
+      }
+      final BCInfo info = new BCInfo(bcState, sourceRootUrls, in.readLong());
+      info.mySourcesFingerprintToCheck = info.mySourcesFingerprint;
+      int filesCount = in.readInt();
+      while (filesCount-- > 0) {
+        info.myFilePaths.add(IOUtil.readUTF(in));
+        info.myTimestamps.add(in.readLong());
       }
-      return false;
+      return info;
     }
   }
 }
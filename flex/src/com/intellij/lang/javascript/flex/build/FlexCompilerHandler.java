@@ -192,7 +192,7 @@ public class FlexCompilerHandler extends AbstractProjectComponent {
       myBuiltInFlexCompilerHandler.stopCompilerProcess();
     }
     quitCompilerShell();
-    myCompilerDependenciesCache.clear();
+    myCompilerDependenciesCache.save();
     FlexCommonUtils.deleteTempFlexConfigFiles(myProject.getName());
     FlexCompilationUtils.deleteUnzippedANEFiles();
     myWidget.destroy();
@@ -133,6 +133,8 @@ public class FlexDebugProcess extends XDebugProcess {
 
   private Object myStackFrameEqualityObject;
   private Map<String, String> myQName2IdMap;
+  private XSuspendContext myObjectChildrenCacheContext;
+  private final Map<String, String> myObjectChildrenCache = new HashMap<String, String>();
 
   private int myCurrentWorker = 0;
   private final KnownFilesInfo myKnownFilesInfo = new KnownFilesInfo(this);
@@ -1227,10 +1229,43 @@ public class FlexDebugProcess extends XDebugProcess {
     return null;
   }
 
+  /**
+   * @return fdb output listing members of the object if it has been printed in the same suspend context and no value has been modified since
+   */
+  @Nullable
+  synchronized String getCachedObjectChildren(@Nullable final XSuspendContext suspendContext, final String objectId) {
+    return suspendContext != null && suspendContext == myObjectChildrenCacheContext ? myObjectChildrenCache.get(objectId) : null;
+  }
+
+  synchronized void cacheObjectChildren(@Nullable final XSuspendContext suspendContext, final String objectId, final String fdbOutput) {
+    if (suspendContext == null || suspendContext != getSession().getSuspendContext()) return;
+
+    if (suspendContext != myObjectChildrenCacheContext) {
+      myObjectChildrenCache.clear();
+      myObjectChildrenCacheContext = suspendContext;
+    }
+    myObjectChildrenCache.put(objectId, fdbOutput);
+  }
+
+  synchronized void dropObjectChildrenCache() {
+    myObjectChildrenCache.clear();
+    myObjectChildrenCacheContext = null;
+  }
+
+  /**
+   * Splits fdb output into responses delimited by prompt markers. Consumed text is not removed from the buffer on each response; it is
+   * dropped in bulk when it takes most of the buffer, and each chunk of read text is scanned for markers only once.
+   */
   class MyFdbOutputReader {
+    private static final String Y_OR_N_MARKER = "(y or n)";
+    // a marker may be split between two reads, so a few chars before the end of the already scanned text are scanned again
+    private final int myMarkerOverlap = Math.max(Math.max(FDB_MARKER.length(), Y_OR_N_MARKER.length()),
+                                                 Math.max(WAITING_PLAYER_MARKER_1.length(), WAITING_PLAYER_MARKER_2.length())) - 1;
+
     private final InputStreamReader myReader;
     private final char[] buf = new char[8192];
     private final StringBuilder lastText = new StringBuilder();
+    private int lastTextStart; // text before this offset has been returned already
     private int lastTextMarkerScanningStart;
     private final InputStream myInputStream;
 
@@ -1244,7 +1279,7 @@ public class FlexDebugProcess extends XDebugProcess {
     }
 
     String readLine(boolean nonblock) throws IOException {
-      if (lastText != null) {
+      if (lastText.length() > lastTextStart) {
         final String lastText = getNextLine(nonblock);
         if (lastText != null) return lastText;
       }
@@ -1262,41 +1297,46 @@ public class FlexDebugProcess extends XDebugProcess {
     }
 
     private String getNextLine(boolean allowEmptyMarker) {
-      String result;
+      final int scanningStart = Math.max(lastTextStart, lastTextMarkerScanningStart);
       String marker = FDB_MARKER;
-      int i = lastText.indexOf(marker, lastTextMarkerScanningStart);
+      int i = lastText.indexOf(marker, scanningStart);
 
       if (i == -1) {
-        marker = "(y or n)";
-        i = lastText.indexOf(marker, lastTextMarkerScanningStart);
+        marker = Y_OR_N_MARKER;
+        i = lastText.indexOf(marker, scanningStart);
       }
 
       if (i == -1 &&
           (allowEmptyMarker ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_1, lastTextMarkerScanningStart) >= 0 ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_2, lastTextMarkerScanningStart) >= 0) &&
-          lastText.length() > 0) {
+           lastText.indexOf(WAITING_PLAYER_MARKER_1, scanningStart) >= 0 ||
+           lastText.indexOf(WAITING_PLAYER_MARKER_2, scanningStart) >= 0) &&
+          lastText.length() > lastTextStart) {
         i = lastText.length();
         marker = "";
       }
 
-      if (i != -1) {
-        result = lastText.substring(0, i);
-        lastText.delete(0, i + marker.length());
-        lastTextMarkerScanningStart = 0;
-        if (isBlank(lastText)) lastText.setLength(0);
-        setSuspended(marker.length() != 0);
-        return result;
+      if (i == -1) {
+        lastTextMarkerScanningStart = Math.max(lastTextStart, lastText.length() - myMarkerOverlap);
+        return null;
       }
-      else {
-        lastTextMarkerScanningStart = lastText.length();
-        result = null;
+
+      final String result = lastText.substring(lastTextStart, i);
+      lastTextStart = i + marker.length();
+      lastTextMarkerScanningStart = lastTextStart;
+      if (isBlank(lastText, lastTextStart)) {
+        lastText.setLength(0);
+        lastTextStart = lastTextMarkerScanningStart = 0;
+      }
+      else if (lastTextStart > lastText.length() / 2) {
+        lastText.delete(0, lastTextStart);
+        lastTextStart = lastTextMarkerScanningStart = 0;
       }
+      setSuspended(marker.length() != 0);
       return result;
     }
 
-    private boolean isBlank(StringBuilder lastText) {
-      for (int i = 0; i < lastText.length(); ++i) {
+    private boolean isBlank(StringBuilder lastText, int start) {
+      for (int i = start; i < lastText.length(); ++i) {
         if (lastText.charAt(i) != ' ') return false;
       }
       return true;
@@ -437,6 +437,10 @@ public class FlexStackFrame extends XStackFrame {
 
     @Override
     public void evaluate(@NotNull final String expression, @NotNull final XEvaluationCallback callback, @Nullable XSourcePosition expressionPosition) {
+      if (expression.indexOf('=') != -1 || expression.indexOf('(') != -1) {
+        // assignments and function calls may change objects
+        myDebugProcess.dropObjectChildrenCache();
+      }
       final EvaluateCommand command = new EvaluateCommand(expression, callback);
       myDebugProcess.sendCommand(command);
     }
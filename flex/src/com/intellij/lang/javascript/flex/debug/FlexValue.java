@@ -48,6 +48,9 @@ class FlexValue extends XValue {
   private @Nullable final String myParentResult;
   private final ValueType myValueType;
   private Icon myPreferredIcon;
+  // number of collection elements added to each node showing this value, a node asks for the next page on "more"
+  private final Map<XCompositeNode, Integer> myCollectionElementsShown =
+    Collections.synchronizedMap(new WeakHashMap<XCompositeNode, Integer>());
 
   private static final String OBJECT_MARKER = "Object ";
   private static final String XML_TYPE = "XML";
@@ -380,6 +383,7 @@ class FlexValue extends XValue {
     return new XValueModifier() {
       @Override
       public void setValue(@NotNull String _expression, @NotNull final XModificationCallback callback) {
+        myDebugProcess.dropObjectChildrenCache();
         FlexStackFrame.EvaluateCommand command = myFlexStackFrame.new EvaluateCommand(myExpression + "=" + _expression, null) {
           @Override
           protected void dispatchResult(String s) {
@@ -399,9 +403,9 @@ class FlexValue extends XValue {
 
     final String typeFromFlexValueResult = getTypeAndAdditionalInfo(myResult).first;
 
-    final String expression;
+    final String objectId;
     try {
-      expression = referenceObjectBase(i, OBJECT_MARKER);
+      objectId = getObjectId(myResult, i, OBJECT_MARKER);
     }
     catch (StringIndexOutOfBoundsException e) {
       FlexDebugProcess.log(new Exception(myResult, e));
@@ -409,75 +413,90 @@ class FlexValue extends XValue {
       return;
     }
 
+    final XSuspendContext suspendContext = myDebugProcess.getSession().getSuspendContext();
+    final String cachedChildren = myDebugProcess.getCachedObjectChildren(suspendContext, objectId);
+    if (cachedChildren != null) {
+      ApplicationManager.getApplication().executeOnPooledThread(
+        () -> addChildrenFromFdbOutput(node, cachedChildren, typeFromFlexValueResult));
+      return;
+    }
+
     final FlexStackFrame.EvaluateCommand
-      command = myFlexStackFrame.new EvaluateCommand(expression, null) {
+      command = myFlexStackFrame.new EvaluateCommand(referenceObjectBase(i, OBJECT_MARKER), null) {
       @Override
       CommandOutputProcessingMode doOnTextAvailable(@NonNls final String resultS) {
-        StringTokenizer tokenizer = new StringTokenizer(resultS, "\r\n");
+        if (resultS.startsWith("$")) {
+          myDebugProcess.cacheObjectChildren(suspendContext, objectId, resultS);
+        }
+        addChildrenFromFdbOutput(node, resultS, typeFromFlexValueResult);
+        return CommandOutputProcessingMode.DONE;
+      }
+    };
 
-        // skip first token; it contains $-prefix followed by myResult: $6 = [Object 30860193, class='__AS3__.vec::Vector.<String>']
-        tokenizer.nextToken();
+    myDebugProcess.sendCommand(command);
+  }
 
-        final LinkedHashMap<String, FlexValue> fieldNameToFlexValueMap = new LinkedHashMap<String, FlexValue>(tokenizer.countTokens());
+  private void addChildrenFromFdbOutput(final XCompositeNode node, final String resultS, final String typeFromFlexValueResult) {
+    StringTokenizer tokenizer = new StringTokenizer(resultS, "\r\n");
 
-        final NodeClassInfo nodeClassInfo = ApplicationManager.getApplication().runReadAction(new NullableComputable<NodeClassInfo>() {
-          @Override
-          @Nullable
-          public NodeClassInfo compute() {
-            final Project project = myDebugProcess.getSession().getProject();
-            final JSClass jsClass = mySourcePosition == null
-                                    ? null
-                                    : findJSClass(project,
-                                                  ModuleUtilCore.findModuleForFile(mySourcePosition.getFile(), project),
-                                                  typeFromFlexValueResult);
-            return jsClass == null ? null : NodeClassInfo.getNodeClassInfo(jsClass);
-          }
-        });
+    // skip first token; it contains $-prefix followed by myResult: $6 = [Object 30860193, class='__AS3__.vec::Vector.<String>']
+    tokenizer.nextToken();
 
-        while (tokenizer.hasMoreElements()) {
-          final String s = tokenizer.nextToken().trim();
-          if (s.length() == 0) continue;
-          final int delimIndex = s.indexOf(FlexStackFrame.DELIM);
-          if (delimIndex == -1) {
-            FlexDebugProcess.log("Unrecognized string:" + s);
-            continue;
-          }
-          final String fieldName = s.substring(0, delimIndex);
-          final String result = s.substring(delimIndex + FlexStackFrame.DELIM.length());
-
-          if (result.startsWith("[Setter ")) {
-            // such values do not give any useful information:
-            // [Setter 62, name='Child@3d613bb::staticSetter']
-            // [Setter 78]
-            continue;
-          }
+    final LinkedHashMap<String, FlexValue> fieldNameToFlexValueMap = new LinkedHashMap<String, FlexValue>(tokenizer.countTokens());
 
-          String evaluatedPath = myExpression;
+    final NodeClassInfo nodeClassInfo = ApplicationManager.getApplication().runReadAction(new NullableComputable<NodeClassInfo>() {
+      @Override
+      @Nullable
+      public NodeClassInfo compute() {
+        final Project project = myDebugProcess.getSession().getProject();
+        final JSClass jsClass = mySourcePosition == null
+                                ? null
+                                : findJSClass(project,
+                                              ModuleUtilCore.findModuleForFile(mySourcePosition.getFile(), project),
+                                              typeFromFlexValueResult);
+        return jsClass == null ? null : NodeClassInfo.getNodeClassInfo(jsClass);
+      }
+    });
 
-          if (fieldName.length() > 0 && Character.isDigit(fieldName.charAt(0))) {
-            evaluatedPath += "[\"" + fieldName + "\"]";
-          }
-          else {
-            evaluatedPath += "." + fieldName;
-          }
-          // either parameter of static function from scopechain or a field. Static functions from scopechain look like following:
-          // // [Object 52571545, class='Main$/staticFunction']
-          final ValueType valueType =
-            typeFromFlexValueResult != null && typeFromFlexValueResult.indexOf('/') > -1 ? ValueType.Parameter : ValueType.Field;
-          final FlexValue flexValue =
-            new FlexValue(myFlexStackFrame, myDebugProcess, mySourcePosition, fieldName, evaluatedPath, result, FlexValue.this.myResult,
-                          valueType);
-
-          addValueCheckingDuplicates(flexValue, fieldNameToFlexValueMap);
-        }
+    while (tokenizer.hasMoreElements()) {
+      final String s = tokenizer.nextToken().trim();
+      if (s.length() == 0) continue;
+      final int delimIndex = s.indexOf(FlexStackFrame.DELIM);
+      if (delimIndex == -1) {
+        FlexDebugProcess.log("Unrecognized string:" + s);
+        continue;
+      }
+      final String fieldName = s.substring(0, delimIndex);
+      final String result = s.substring(delimIndex + FlexStackFrame.DELIM.length());
 
-        addChildren(node, fieldNameToFlexValueMap, nodeClassInfo);
+      if (result.startsWith("[Setter ")) {
+        // such values do not give any useful information:
+        // [Setter 62, name='Child@3d613bb::staticSetter']
+        // [Setter 78]
+        continue;
+      }
 
-        return CommandOutputProcessingMode.DONE;
+      String evaluatedPath = myExpression;
+
+      if (fieldName.length() > 0 && Character.isDigit(fieldName.charAt(0))) {
+        evaluatedPath += "[\"" + fieldName + "\"]";
       }
-    };
+      else {
+        evaluatedPath += "." + fieldName;
+      }
+      // either parameter of static function from scopechain or a field. Static functions from scopechain look like following:
+      // // [Object 52571545, class='Main$/staticFunction']
+      final ValueType valueType =
+        typeFromFlexValueResult != null && typeFromFlexValueResult.indexOf('/') > -1 ? ValueType.Parameter : ValueType.Field;
+      final FlexValue flexValue =
+        new FlexValue(myFlexStackFrame, myDebugProcess, mySourcePosition, fieldName, evaluatedPath, result, myResult, valueType);
 
-    myDebugProcess.sendCommand(command);
+      addValueCheckingDuplicates(flexValue, fieldNameToFlexValueMap);
+    }
+
+    final Integer elementsShown = myCollectionElementsShown.get(node);
+    final int from = elementsShown == null ? 0 : elementsShown;
+    myCollectionElementsShown.put(node, addChildren(node, fieldNameToFlexValueMap, nodeClassInfo, from));
   }
 
   public boolean canNavigateToTypeSource() {
@@ -623,10 +642,17 @@ class FlexValue extends XValue {
     fieldNameToFlexValueMap.put(name, flexValue);
   }
 
-  private static void addChildren(final XCompositeNode node,
-                                  final LinkedHashMap<String, FlexValue> fieldNameToFlexValueMap,
-                                  final @Nullable NodeClassInfo nodeClassInfo) {
-    final List<FlexValue> elementsOfCollection = new LinkedList<FlexValue>();
+  /**
+   * Collection elements are added in pages, other members are added with the first page only.
+   *
+   * @param elementsShown number of collection elements added to the node on previous calls
+   * @return number of collection elements added to the node so far
+   */
+  private static int addChildren(final XCompositeNode node,
+                                 final LinkedHashMap<String, FlexValue> fieldNameToFlexValueMap,
+                                 final @Nullable NodeClassInfo nodeClassInfo,
+                                 final int elementsShown) {
+    final List<FlexValue> elementsOfCollection = new ArrayList<FlexValue>();
     final XValueChildrenList ownStaticFields = new XValueChildrenList();
     final XValueChildrenList ownStaticProperties = new XValueChildrenList();
     final XValueChildrenList ownFields = new XValueChildrenList();
@@ -666,6 +692,10 @@ class FlexValue extends XValue {
 
     Collections.sort(elementsOfCollection, ourArrayElementsComparator);
 
+    if (elementsShown > 0) {
+      return addCollectionElements(node, elementsOfCollection, elementsShown);
+    }
+
     XValueChildrenList inheritedNodeSingletonList = XValueChildrenList.EMPTY;
     if (inheritedStaticFields.size() + inheritedStaticProperties.size() + inheritedFields.size() + inheritedProperties.size() > 0) {
       if (inheritedStaticFields.size() + inheritedStaticProperties.size() > 0) {
@@ -694,11 +724,21 @@ class FlexValue extends XValue {
       node.addChildren(ownProperties, false);
     }
 
+    return addCollectionElements(node, elementsOfCollection, 0);
+  }
+
+  private static int addCollectionElements(final XCompositeNode node, final List<FlexValue> elementsOfCollection, final int from) {
+    final int to = Math.min(elementsOfCollection.size(), from + XCompositeNode.MAX_CHILDREN_TO_SHOW);
     final XValueChildrenList elementsOfCollectionList = new XValueChildrenList();
-    for (final FlexValue flexValue : elementsOfCollection) {
+    for (final FlexValue flexValue : elementsOfCollection.subList(Math.min(from, to), to)) {
       elementsOfCollectionList.add(flexValue.myName, flexValue);
     }
     node.addChildren(elementsOfCollectionList, true);
+
+    if (to < elementsOfCollection.size()) {
+      node.tooManyChildren(elementsOfCollection.size() - to);
+    }
+    return to;
   }
 
   private static XValueChildrenList createWrappingGroupList(final String groupName, final XValueChildrenList... listsToWrap) {
@@ -1,5 +1,6 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtil;
 import gnu.trove.THashSet;
@@ -288,15 +289,26 @@ class Abc {
   private final FlexByteCodeInformationProcessor processor;
   int totalSize;
   final int opSizes[] = new int[256];
+  // (isError, message) pairs reported while parsing, not null if they are reported to the processor only from dump()
+  private List<Pair<Boolean, String>> deferredParseMessages;
 
   public Abc(final @NotNull ByteBuffer _data, @NotNull FlexByteCodeInformationProcessor _processor) {
+    this(_data, _processor, false);
+  }
+
+  /**
+   * @param deferParseMessages if true the processor is not called until {@link #dump(String)}, so it is safe to parse
+   *                           different abc blocks concurrently for the same processor
+   */
+  Abc(final @NotNull ByteBuffer _data, @NotNull FlexByteCodeInformationProcessor _processor, final boolean deferParseMessages) {
     data = _data;
     processor = _processor;
+    if (deferParseMessages) deferredParseMessages = new ArrayList<Pair<Boolean, String>>();
 
     data.setPosition(0);
     magic = data.readInt();
 
-    _processor.dumpStat("magic " + Integer.toString(magic, 16) + "\n");
+    parseStat("magic " + Integer.toString(magic, 16) + "\n");
 
     if (magic != (46 << 16 | 14) && magic != (46 << 16 | 15) && magic != (46 << 16 | 16)) {
       throw new Error("not an abc file.  magic=" + Integer.toString(magic, 16));
@@ -334,7 +346,37 @@ class Abc {
     return result;
   }
 
+  private void parseStat(@NotNull final String stat) {
+    if (deferredParseMessages != null) {
+      deferredParseMessages.add(Pair.create(Boolean.FALSE, stat));
+    }
+    else {
+      processor.dumpStat(stat);
+    }
+  }
+
+  private void parseError(@NotNull final String error) {
+    if (deferredParseMessages != null) {
+      deferredParseMessages.add(Pair.create(Boolean.TRUE, error));
+    }
+    else {
+      processor.hasError(error);
+    }
+  }
+
   public void dump(String indent) {
+    if (deferredParseMessages != null) {
+      for (Pair<Boolean, String> message : deferredParseMessages) {
+        if (message.first) {
+          processor.hasError(message.second);
+        }
+        else {
+          processor.dumpStat(message.second);
+        }
+      }
+      deferredParseMessages = null;
+    }
+
     for (Traits t : scripts) {
       processor.dumpTopLevelTraits(this, t, indent);
     }
@@ -415,7 +457,7 @@ class Abc {
       doubles[i] = data.readDouble();
     }
 
-    reportAboutPercentage("Cpool numbers size ", data, start, processor);
+    reportAboutPercentage("Cpool numbers size ", start);
     start = data.getPosition();
 
     // strings
@@ -426,7 +468,7 @@ class Abc {
       strings[i] = data.readUTFBytes(readU32());
     }
 
-    reportAboutPercentage("Cpool strings count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool strings count " + n + " size ", start);
     start = data.getPosition();
 
     // namespaces
@@ -452,7 +494,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("Cpool namespaces count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool namespaces count " + n + " size ", start);
     start = data.getPosition();
 
     // namespace sets
@@ -466,7 +508,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("Cpool nssets count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool nssets count " + n + " size ", start);
     start = data.getPosition();
 
     // multinames
@@ -587,7 +629,7 @@ class Abc {
       }
     } while (hasSomething && doneSomething);
 
-    reportAboutPercentage("Cpool names count " + n + " size ", data, start, processor);
+    reportAboutPercentage("Cpool names count " + n + " size ", start);
     start = data.getPosition();
 
     namespaces[0] = PUBLIC_NS;
@@ -643,7 +685,7 @@ class Abc {
           }
           else {
             if (defaults[kind] == null) {
-              processor.hasError("ERROR kind=" + kind + " method_id " + i + "\n");
+              parseError("ERROR kind=" + kind + " method_id " + i + "\n");
             }
             else {
               m.optionalValues[k] = new Multiname(null, defaults[kind][index].toString());
@@ -682,7 +724,7 @@ class Abc {
       }
     }
 
-    reportAboutPercentage("MethodInfo count " + method_count + " size ", data, start, processor);
+    reportAboutPercentage("MethodInfo count " + method_count + " size ", start);
   }
 
   void parseMetadataInfos() {
@@ -729,7 +771,7 @@ class Abc {
       parseTraits(t);
     }
 
-    reportAboutPercentage("InstanceInfo size ", data, start, processor);
+    reportAboutPercentage("InstanceInfo size ", start);
   }
 
   static final TraitType[] traitTypes = TraitType.values();
@@ -743,7 +785,7 @@ class Abc {
       TraitType kind;
 
       if (traitTypeTag >= traitTypes.length) {
-        processor.hasError("error trait kind " + traitTypeTag + "\n");
+        parseError("error trait kind " + traitTypeTag + "\n");
         kind = null;
       }
       else {
@@ -830,7 +872,7 @@ class Abc {
       t.init.kind = TraitType.Method;
       parseTraits(t);
     }
-    reportAboutPercentage("ClassInfo size ", data, start, processor);
+    reportAboutPercentage("ClassInfo size ", start);
   }
 
   void parseScriptInfos() {
@@ -850,7 +892,7 @@ class Abc {
       parseTraits(t);
     }
 
-    reportAboutPercentage("ScriptInfo size ", data, start, processor);
+    reportAboutPercentage("ScriptInfo size ", start);
   }
 
   void parseMethodBodies() {
@@ -883,11 +925,11 @@ class Abc {
       parseTraits(m.activation = new Traits());
     }
 
-    reportAboutPercentage("MethodBodies size ", data, start, processor);
+    reportAboutPercentage("MethodBodies size ", start);
   }
 
-  private static void reportAboutPercentage(String s, ByteBuffer data, int start, @NotNull FlexByteCodeInformationProcessor processor) {
-    processor.dumpStat(s + (data.getPosition() - start) + " " + (int)100f * (data.getPosition() - start) / data.bytesSize() + " %\n");
+  private void reportAboutPercentage(String s, int start) {
+    parseStat(s + (data.getPosition() - start) + " " + (int)100f * (data.getPosition() - start) / data.bytesSize() + " %\n");
   }
 
 }
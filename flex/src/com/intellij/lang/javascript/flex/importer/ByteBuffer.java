@@ -1,12 +1,15 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
-import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * @author Maxim.Mossienko
@@ -14,10 +17,19 @@ import java.util.zip.InflaterInputStream;
 *         Time: 7:02:53 PM
 */
 class ByteBuffer {
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
   private byte[] bytes;
   private int position;
   private boolean littleEndian;
 
+  ByteBuffer() {
+  }
+
+  ByteBuffer(@NotNull final byte[] _bytes) {
+    bytes = _bytes;
+  }
+
   void read(@NotNull InputStream inputStream) throws IOException {
     try {
       bytes = readStream(inputStream);
@@ -55,12 +67,39 @@ class ByteBuffer {
     return bytes.length;
   }
 
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
+  /**
+   * Inflates zlib data that starts at <code>offset</code> and runs to the end of this buffer.
+   * @param expectedLength uncompressed size declared by the container format; when it is right the result is allocated exactly once
+   */
+  @NotNull
+  public ByteBuffer uncompress(final int offset, final int expectedLength) throws IOException {
+    final int compressedLength = bytes.length - offset;
+    // do not trust a corrupted header with more than deflate can produce
+    byte[] result = new byte[(int)Math.max(0, Math.min(expectedLength, (long)compressedLength * MAX_DEFLATE_RATIO))];
+    int total = 0;
 
-    bytes = readStream(zipInputStream);
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, offset, compressedLength);
+      while (!inflater.finished()) {
+        if (total == result.length) {
+          result = ArrayUtil.realloc(result, Math.max(8192, result.length * 2));
+        }
+        final int read = inflater.inflate(result, total, result.length - total);
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        total += read;
+      }
+    }
+    catch (DataFormatException e) {
+      throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid ZLIB data format");
+    }
+    finally {
+      inflater.end();
+    }
 
-    zipInputStream.close();
+    return new ByteBuffer(total == result.length ? result : ArrayUtil.realloc(result, total));
   }
 
   private static byte[] readStream(final InputStream zipInputStream) throws IOException {
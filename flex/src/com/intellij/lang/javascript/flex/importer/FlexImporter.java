@@ -4,6 +4,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.stubs.StubElement;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
 
 import java.io.*;
 
@@ -70,9 +71,25 @@ public class FlexImporter {
     processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
   }
 
+  public static void buildStubsInterface(@NotNull final byte[] content, final StubElement parent) throws IOException {
+    processFlexByteCode(new ByteBuffer(content), new AS3InterfaceStubDumper(parent));
+  }
+
+  /**
+   * @param threadCount number of threads decoding DoABC tags of a SWF, 0 to choose it by the number of tags and cores
+   */
+  @TestOnly
+  public static void setAbcDecodingThreads(final int threadCount) {
+    Swf.setThreadCount(threadCount);
+  }
+
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     ByteBuffer data = new ByteBuffer();
     data.read(in);
+    processFlexByteCode(data, processor);
+  }
+
+  private static void processFlexByteCode(@NotNull final ByteBuffer data, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     data.setLittleEndian();
     if (data.bytesSize() == 0) return;
     int version = data.readUnsignedInt();
@@ -83,12 +100,10 @@ public class FlexImporter {
     }
     else if ((version & SWF_MAGIC) == SWF_MAGIC) {
       final int delta = 8;
-      data.setPosition(delta);
-      ByteBuffer udata = new ByteBuffer();
+      final int length = data.readUnsignedInt(); // uncompressed file length including header
+      int csize = data.bytesSize() - delta;
+      ByteBuffer udata = data.uncompress(delta, length - delta);
       udata.setLittleEndian();
-      data.readBytes(udata, data.bytesSize() - delta);
-      int csize = udata.bytesSize();
-      udata.uncompress();
       processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
       udata.setPosition(0);
       new Swf(udata, processor);
@@ -1,6 +1,17 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.ide.PooledThreadExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author Maxim.Mossienko
@@ -24,6 +35,11 @@ class Swf {
 
   private final ByteBuffer data;
 
+  private static final int MIN_ABC_TAGS_PER_THREAD = 16;
+  private static final long CHECK_CANCELED_INTERVAL_MS = 10;
+  // number of decoding threads forced by tests, 0 to choose it by the number of tags and cores
+  private static volatile int ourForcedThreadCount;
+
   private static final int stagDoABC = 72;   // embedded .abc (AVM+) bytecode
   private static final int stagDoABC2 = 82;   // revised ABC version with a name
 
@@ -164,37 +180,161 @@ class Swf {
   }
 
   private void decodeTags() {
+    final List<Tag> tags = new ArrayList<Tag>();
+    int abcCount = 0;
     int type, h, length;
 
-    while (data.getPosition() < data.bytesSize()) {
-      type = (h = data.readUnsignedShort()) >> 6;
-
-      if (((length = h & 0x3F) == 0x3F)) length = data.readInt();
-
-      processor.dumpStat(
-        (type < tagNames.length ? tagNames[type] : "undefined") + " " + length + "b " + ((int)100f * length / data.bytesSize()) + "%\n");
-
-      switch (type) {
-        case 0:
-          return;
-        case stagDoABC2:
-          int pos1 = data.getPosition();
-          data.readInt();
-          final String abcName = readString();
-          processor.dumpStat("\nabc name " + abcName + "\n");
-          length -= (data.getPosition() - pos1);
-          // fall through
-        case stagDoABC:
-          ByteBuffer data2 = new ByteBuffer();
-          data2.setLittleEndian();
-          data.readBytes(data2, length);
-          new Abc(data2, processor).dump(processor.getAbcInSwfIndent());
-          processor.append("\n");
-          break;
-        default:
-          data.incPosition(length);
+    RuntimeException scanFailure = null;
+    try {
+      while (data.getPosition() < data.bytesSize()) {
+        type = (h = data.readUnsignedShort()) >> 6;
+
+        if (((length = h & 0x3F) == 0x3F)) length = data.readInt();
+
+        final Tag tag = new Tag(
+          (type < tagNames.length ? tagNames[type] : "undefined") + " " + length + "b " + ((int)100f * length / data.bytesSize()) + "%\n");
+        tags.add(tag);
+
+        switch (type) {
+          case 0:
+            break;
+          case stagDoABC2:
+            int pos1 = data.getPosition();
+            data.readInt();
+            final String abcName = readString();
+            tag.abcNameStat = "\nabc name " + abcName + "\n";
+            length -= (data.getPosition() - pos1);
+            // fall through
+          case stagDoABC:
+            ByteBuffer data2 = new ByteBuffer();
+            data2.setLittleEndian();
+            data.readBytes(data2, length);
+            tag.abcData = data2;
+            abcCount++;
+            break;
+          default:
+            data.incPosition(length);
+        }
+
+        if (type == 0) break;
+      }
+    }
+    catch (RuntimeException e) {
+      scanFailure = e; // report tags before the broken one first
+    }
+
+    parseAbcTags(tags, abcCount);
+
+    for (Tag tag : tags) {
+      processor.dumpStat(tag.stat);
+      if (tag.abcNameStat != null) processor.dumpStat(tag.abcNameStat);
+      if (tag.abcData == null) continue;
+
+      final Abc abc = tag.abc != null || tag.abcFailure != null ? tag.getAbc() : new Abc(tag.abcData, processor);
+      tag.abcData = null;
+      tag.abc = null;
+      abc.dump(processor.getAbcInSwfIndent());
+      processor.append("\n");
+    }
+
+    if (scanFailure != null) throw scanFailure;
+  }
+
+  /**
+   * Library SWFs have a DoABC tag per compilation unit, decoding of independent tags is spread over the available cores.
+   * The processor is called only after all tags are decoded, from the current thread and in tag order.
+   * If there are too few tags or cores tags are left to be decoded one by one right before dumping.
+   * Cancelling the indicator of the current thread (e.g. of indexing) or interrupting it stops the other threads too.
+   */
+  private void parseAbcTags(final List<Tag> tags, final int abcCount) {
+    final int forcedThreadCount = ourForcedThreadCount;
+    final int chunkCount = forcedThreadCount > 0
+                           ? Math.min(forcedThreadCount, abcCount)
+                           : Math.min(Runtime.getRuntime().availableProcessors(), abcCount / MIN_ABC_TAGS_PER_THREAD);
+    if (chunkCount < 2) return;
+
+    final List<Tag> abcTags = new ArrayList<Tag>(abcCount);
+    for (Tag tag : tags) {
+      if (tag.abcData != null) abcTags.add(tag);
+    }
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>(chunkCount - 1);
+    for (int i = 1; i < chunkCount; i++) {
+      final List<Tag> chunk = abcTags.subList(abcCount * i / chunkCount, abcCount * (i + 1) / chunkCount);
+      futures.add(PooledThreadExecutor.INSTANCE.submit(new Runnable() {
+        public void run() {
+          parseAbcs(chunk);
+        }
+      }));
+    }
+
+    try {
+      parseAbcs(abcTags.subList(0, abcCount / chunkCount));
+
+      for (Future<?> future : futures) {
+        while (true) {
+          ProgressManager.checkCanceled();
+          try {
+            future.get(CHECK_CANCELED_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            break;
+          }
+          catch (TimeoutException ignored) {
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+          }
+          catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause()); // not expected, parseAbcs() keeps failures in tags
+          }
+        }
       }
     }
+    catch (ProcessCanceledException e) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      throw e;
+    }
+  }
+
+  private void parseAbcs(final List<Tag> tags) {
+    for (Tag tag : tags) {
+      // pooled threads have no indicator, they are stopped by interruption
+      ProgressManager.checkCanceled();
+      if (Thread.currentThread().isInterrupted()) return;
+      try {
+        tag.abc = new Abc(tag.abcData, processor, true);
+      }
+      catch (Throwable t) {
+        tag.abcFailure = t;
+      }
+    }
+  }
+
+  @TestOnly
+  static void setThreadCount(final int threadCount) {
+    ourForcedThreadCount = threadCount;
+  }
+
+  private static class Tag {
+    final String stat;
+    String abcNameStat;
+    ByteBuffer abcData;
+    Abc abc;
+    Throwable abcFailure;
+
+    Tag(final String _stat) {
+      stat = _stat;
+    }
+
+    Abc getAbc() {
+      // rethrow in tag order, as if tags were decoded one by one
+      if (abcFailure instanceof RuntimeException) throw (RuntimeException)abcFailure;
+      if (abcFailure instanceof Error) throw (Error)abcFailure;
+      if (abcFailure != null) throw new RuntimeException(abcFailure);
+      return abc;
+    }
   }
 
   private String readString() {
@@ -28,6 +28,10 @@ public class Factory {
     return ((FlexBuildConfigurationImpl)bc).getCopy();
   }
 
+  public static FlexBuildConfigurationState getState(@NotNull FlexBuildConfiguration bc) {
+    return ((FlexBuildConfigurationImpl)bc).getState(null);
+  }
+
   public static ModifiableFlexBuildConfiguration getTemporaryCopyForCompilation(@NotNull FlexBuildConfiguration bc) {
     final FlexBuildConfigurationImpl copy = ((FlexBuildConfigurationImpl)bc).getCopy();
     copy.setTempBCForCompilation(true);
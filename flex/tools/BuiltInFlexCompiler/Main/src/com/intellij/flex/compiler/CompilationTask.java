@@ -0,0 +1,141 @@
+package com.intellij.flex.compiler;
+
+import flex2.compiler.ILocalizableMessage;
+import flex2.compiler.common.Configuration;
+
+/**
+ * One compilation, run by a worker thread of {@link FlexCompiler}.
+ * <p/>
+ * Flex compiler keeps 'omit trace statements' option in a static field, so compilations with different values of this option can't share
+ * compiler classes. Each class loader serves one mode only: compilations that need the other mode are passed to the compiler classes loaded
+ * by {@link OmitTraceClassLoader}, so that both kinds of compilations run in parallel.
+ */
+public class CompilationTask implements Runnable {
+
+  public static final String COMPILATION_STATISTICS = "Compilation statistics: ";
+
+  private static final int MB = 1024 * 1024;
+
+  // true only for the copy of this class loaded by OmitTraceClassLoader
+  private static boolean ourOmitTraceMode = false;
+
+  private final boolean mySwf;
+  private final SdkSpecificHandler mySdkSpecificHandler;
+  private final String[] myParams;
+  private final OutputLogger myLogger;
+  private final long myCreationTime;
+
+  public CompilationTask(final boolean isSwf,
+                         final SdkSpecificHandler sdkSpecificHandler,
+                         final String[] params,
+                         final OutputLogger logger) {
+    this(isSwf, sdkSpecificHandler, params, logger, System.currentTimeMillis());
+  }
+
+  private CompilationTask(final boolean isSwf,
+                          final SdkSpecificHandler sdkSpecificHandler,
+                          final String[] params,
+                          final OutputLogger logger,
+                          final long creationTime) {
+    mySwf = isSwf;
+    mySdkSpecificHandler = sdkSpecificHandler;
+    myParams = params;
+    myLogger = logger;
+    myCreationTime = creationTime;
+  }
+
+  static {
+    // initialize static data to avoid multithreaded collisions caused by partially initialized arrays or collections
+    try {
+      Configuration.getAliases();
+      macromedia.asc.embedding.LintEvaluator.getWarningDefaults();
+    }
+    catch (Throwable t) {/*API changed*/}
+  }
+
+  public OutputLogger getLogger() {
+    return myLogger;
+  }
+
+  /**
+   * Entry point for {@link OmitTraceClassLoader}, called reflectively in the worker thread that took the compilation.
+   */
+  public static void compileWithOmittedTrace(final boolean isSwf,
+                                             final String[] params,
+                                             final MessageSender messageSender,
+                                             final String logMessagePrefix,
+                                             final long creationTime) {
+    final SdkSpecificHandler sdkSpecificHandler = FlexCompiler.getSdkSpecificHandler();
+    synchronized (CompilationTask.class) {
+      if (!ourOmitTraceMode) {
+        sdkSpecificHandler.setupOmitTraceOption(true);
+        ourOmitTraceMode = true;
+      }
+    }
+
+    final OutputLogger logger = new OutputLogger(messageSender, logMessagePrefix);
+    new CompilationTask(isSwf, sdkSpecificHandler, params, logger, creationTime).compile(false);
+  }
+
+  public void run() {
+    compile(true);
+  }
+
+  private void compile(final boolean checkMode) {
+    final long startTime = System.currentTimeMillis();
+    boolean delegated = false;
+    try {
+      mySdkSpecificHandler.initThreadLocals(myLogger);
+
+      if (checkMode && mySdkSpecificHandler.isOmitTrace(mySwf, myParams) != ourOmitTraceMode) {
+        mySdkSpecificHandler.cleanThreadLocals();
+        // the other class loader reports COMPILATION_FINISHED itself
+        OmitTraceClassLoader.getInstance().compile(mySwf, myParams, myLogger.getMessageSender(), myLogger.getLogMessagePrefix(),
+                                                   myCreationTime);
+        delegated = true;
+        return;
+      }
+
+      if (mySwf) {
+        mySdkSpecificHandler.compileSwf(myParams);
+      }
+      else {
+        mySdkSpecificHandler.compileSwc(myParams);
+      }
+    }
+    catch (final Exception e) {
+      logError(e);
+    }
+    catch (final Throwable t) {
+      logError(t);
+      System.exit(1);
+    }
+    finally {
+      if (!delegated) {
+        logStatistics(startTime);
+        myLogger.log(FlexCompiler.COMPILATION_FINISHED);
+      }
+      mySdkSpecificHandler.cleanThreadLocals();
+    }
+  }
+
+  private void logStatistics(final long startTime) {
+    final long now = System.currentTimeMillis();
+    final Runtime runtime = Runtime.getRuntime();
+    final long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+    myLogger.log(COMPILATION_STATISTICS + (now - startTime) + " ms, queued " + (startTime - myCreationTime) + " ms, " +
+                 "heap " + usedHeap / MB + " of " + runtime.maxMemory() / MB + " MB" + (ourOmitTraceMode ? ", trace omitted" : ""));
+  }
+
+  private void logError(final Throwable e) {
+    if (e instanceof ILocalizableMessage) {
+      myLogger.log((ILocalizableMessage)e);
+    }
+    else {
+      myLogger.log(OutputLogger.ERROR_MARKER + e.toString());
+      for (final StackTraceElement stackTraceElement : e.getStackTrace()) {
+        myLogger.log("\tat " + stackTraceElement.toString());
+      }
+    }
+  }
+}
@@ -8,6 +8,9 @@ import flex2.tools.VersionInfo;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 public class FlexCompiler implements MessageSender {
 
@@ -21,8 +24,24 @@ public class FlexCompiler implements MessageSender {
   public static String SDK_MINOR_VERSION = VersionInfo.FLEX_MINOR_VERSION;
   public static String SDK_REVISION_VERSION = VersionInfo.FLEX_NANO_VERSION;
 
+  // worker threads live as long as the compiler process. SWC data is not kept between compilations: Mxmlc.mxmlc() and Compc.compc()
+  // create a new SwcCache on each call
+  private static final int WORKER_COUNT =
+    Math.max(1, Integer.getInteger("idea.flex.compiler.threads", Runtime.getRuntime().availableProcessors()));
+
   private DataInputStream myDataInputStream;
   private DataOutputStream myDataOutputStream;
+  private final ThreadPoolExecutor myExecutor =
+    new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      private int myCount = 0;
+
+      public synchronized Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "Flex compiler worker " + (++myCount));
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
 
   private void openSocket(int port) throws IOException {
     final int maxAttempts = 10;
@@ -104,14 +123,14 @@ public class FlexCompiler implements MessageSender {
         exit();
         return true;
       } else {
-        startCompilationThread(command);
+        startCompilation(command);
       }
     }
 
     return false;
   }
 
-  private void startCompilationThread(final String command) {
+  private void startCompilation(final String command) {
     final int colonPos = command.indexOf(":");
     if (colonPos <= 0) {
       sendMessage("Error: Incorrect command: [" + command + "]");
@@ -149,14 +168,10 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
-    final CompilationThread compilationThread =
-      new CompilationThread(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger);
-    compilationThread.setPriority(Thread.MAX_PRIORITY);
-    compilationThread.setDaemon(true);
-    compilationThread.start();
+    myExecutor.execute(new CompilationTask(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger));
   }
 
-  private SdkSpecificHandler getSdkSpecificHandler() {
+  static SdkSpecificHandler getSdkSpecificHandler() {
     if ("3".equals(SDK_MAJOR_VERSION)) {
       return new Flex3Handler();
     }
@@ -189,6 +204,11 @@ public class FlexCompiler implements MessageSender {
   }
 
   private void cancelAllCompilations() {
-    // todo implement
+    // compilations that are already running can't be interrupted, queued ones are dropped
+    final List<Runnable> queued = new ArrayList<Runnable>();
+    myExecutor.getQueue().drainTo(queued);
+    for (Runnable runnable : queued) {
+      ((CompilationTask)runnable).getLogger().log(COMPILATION_FINISHED);
+    }
   }
 }
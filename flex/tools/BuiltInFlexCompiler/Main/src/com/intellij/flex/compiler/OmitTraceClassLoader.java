@@ -0,0 +1,84 @@
+package com.intellij.flex.compiler;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Loads a second copy of the compiler shell and Flex SDK classes from the same class path, so that compilations that omit trace
+ * statements have their own static compiler state. Only JDK classes and {@link MessageSender} are shared with the parent class loader.
+ */
+public class OmitTraceClassLoader extends URLClassLoader {
+
+  private static OmitTraceClassLoader ourInstance;
+
+  private final Method myCompileMethod;
+
+  private OmitTraceClassLoader(final URL[] urls) throws ClassNotFoundException, NoSuchMethodException {
+    super(urls, OmitTraceClassLoader.class.getClassLoader());
+    myCompileMethod = loadClass(CompilationTask.class.getName())
+      .getMethod("compileWithOmittedTrace", boolean.class, String[].class, MessageSender.class, String.class, long.class);
+  }
+
+  public static synchronized OmitTraceClassLoader getInstance() throws Exception {
+    if (ourInstance == null) {
+      ourInstance = new OmitTraceClassLoader(getClassPath());
+    }
+    return ourInstance;
+  }
+
+  public void compile(final boolean isSwf,
+                      final String[] params,
+                      final MessageSender messageSender,
+                      final String logMessagePrefix,
+                      final long creationTime) throws Throwable {
+    final Thread thread = Thread.currentThread();
+    final ClassLoader contextClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader(this);
+    try {
+      myCompileMethod.invoke(null, isSwf, params, messageSender, logMessagePrefix, creationTime);
+    }
+    catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+    finally {
+      thread.setContextClassLoader(contextClassLoader);
+    }
+  }
+
+  protected synchronized Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+    if (name.startsWith("java.") || name.equals(MessageSender.class.getName())) {
+      return super.loadClass(name, resolve);
+    }
+
+    Class<?> c = findLoadedClass(name);
+    if (c == null) {
+      try {
+        c = findClass(name);
+      }
+      catch (ClassNotFoundException e) {
+        // JDK classes outside of java.* packages
+        return super.loadClass(name, resolve);
+      }
+    }
+    if (resolve) {
+      resolveClass(c);
+    }
+    return c;
+  }
+
+  private static URL[] getClassPath() throws MalformedURLException {
+    final List<URL> urls = new ArrayList<URL>();
+    final StringTokenizer tokenizer = new StringTokenizer(System.getProperty("java.class.path"), File.pathSeparator);
+    while (tokenizer.hasMoreTokens()) {
+      urls.add(new File(tokenizer.nextToken()).toURI().toURL());
+    }
+    return urls.toArray(new URL[urls.size()]);
+  }
+}
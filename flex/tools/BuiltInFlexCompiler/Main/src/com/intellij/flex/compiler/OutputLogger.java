@@ -95,6 +95,14 @@ public class OutputLogger extends LoggerAdapter implements Logger {
     return s == null || s.trim().length() == 0;
   }
 
+  public MessageSender getMessageSender() {
+    return myMessageSender;
+  }
+
+  public String getLogMessagePrefix() {
+    return myLogMessagePrefix;
+  }
+
   public boolean wereErrorsReported() {
     return myErrorsReported;
   }
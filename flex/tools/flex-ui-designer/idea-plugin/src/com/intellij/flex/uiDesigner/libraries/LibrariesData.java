@@ -7,23 +7,31 @@ import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.EnumeratorStringDescriptor;
 import com.intellij.util.io.PersistentHashMap;
 import gnu.trove.THashMap;
+import gnu.trove.TIntHashSet;
 import gnu.trove.TObjectProcedure;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import static com.intellij.flex.uiDesigner.libraries.LibrarySorter.SortResult;
 
 class LibrariesData {
   final PersistentHashMap<String, SortResult> librarySets;
 
-  private static final String ABC_FILTER_VERSION = "40";
+  private static final String ABC_FILTER_VERSION = "41";
   private static final String ABC_FILTER_VERSION_VALUE_NAME = "fud_abcFilterVersion";
 
   static final char NAME_PREFIX = '@';
+  static final String SWF_EXTENSION = ".swf";
+
+  // merged library set SWFs over this size are evicted, least recently used first
+  private static final long LIBRARY_SETS_DISK_BUDGET = 256 * 1024 * 1024;
 
   LibrariesData(File cacheDir) throws IOException {
     PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
@@ -44,6 +52,105 @@ class LibrariesData {
     }
   }
 
+  @NotNull
+  static File getLibrarySetFile(File cacheDir, int id) {
+    return new File(cacheDir, NAME_PREFIX + Integer.toString(id) + SWF_EXTENSION);
+  }
+
+  /**
+   * @return cached result or null if the library set wasn't sorted yet or its SWF was evicted
+   */
+  @Nullable
+  SortResult getLibrarySet(File cacheDir, String key, int id) throws IOException {
+    final File file = getLibrarySetFile(cacheDir, id);
+    if (!file.exists()) {
+      return null;
+    }
+
+    final SortResult result = librarySets.get(key);
+    if (result != null) {
+      //noinspection ResultOfMethodCallIgnored
+      file.setLastModified(System.currentTimeMillis());
+    }
+    return result;
+  }
+
+  /**
+   * Deletes least recently used library set SWFs and their data while the SWFs take more than the disk budget.
+   * @param usedIds library sets registered in the running designer, never evicted
+   */
+  void evictLibrarySets(File cacheDir, TIntHashSet usedIds) throws IOException {
+    final TIntHashSet evictedIds = deleteLeastRecentlyUsed(cacheDir, LIBRARY_SETS_DISK_BUDGET, usedIds);
+    if (!evictedIds.isEmpty()) {
+      for (String key : librarySets.getAllKeysWithExistingMapping()) {
+        if (evictedIds.contains(librarySets.enumerate(key))) {
+          librarySets.remove(key);
+        }
+      }
+      LogMessageUtil.LOG.info("Evicted " + evictedIds.size() + " cached library sets");
+    }
+  }
+
+  /**
+   * @return ids of the deleted library set SWFs
+   */
+  @NotNull
+  static TIntHashSet deleteLeastRecentlyUsed(File cacheDir, long budget, TIntHashSet usedIds) {
+    final TIntHashSet evictedIds = new TIntHashSet();
+    final File[] files = cacheDir.listFiles();
+    if (files == null) {
+      return evictedIds;
+    }
+
+    long totalSize = 0;
+    for (File file : files) {
+      if (getLibrarySetId(file) != -1) {
+        totalSize += file.length();
+      }
+    }
+    if (totalSize <= budget) {
+      return evictedIds;
+    }
+
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File o1, File o2) {
+        return Long.compare(o1.lastModified(), o2.lastModified());
+      }
+    });
+
+    for (File file : files) {
+      final int id = getLibrarySetId(file);
+      if (id == -1 || usedIds.contains(id)) {
+        continue;
+      }
+
+      final long length = file.length();
+      if (file.delete()) {
+        evictedIds.add(id);
+        totalSize -= length;
+        if (totalSize <= budget) {
+          break;
+        }
+      }
+    }
+    return evictedIds;
+  }
+
+  private static int getLibrarySetId(File file) {
+    final String name = file.getName();
+    if (name.charAt(0) != NAME_PREFIX || !name.endsWith(SWF_EXTENSION)) {
+      return -1;
+    }
+
+    try {
+      return Integer.parseInt(name.substring(1, name.length() - SWF_EXTENSION.length()));
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
   private static void clearCache(File cacheDir) {
     for (String path : cacheDir.list()) {
       if (path.charAt(0) == NAME_PREFIX) {
@@ -68,9 +175,10 @@ class LibrariesData {
   private static class LibrarySetDataExternalizer implements DataExternalizer<SortResult> {
     @Override
     public void save(@NotNull final DataOutput out, SortResult value) throws IOException {
+      out.writeLong(value.sortTime);
       out.writeShort(value.libraries.size());
       for (Library library : value.libraries) {
-        out.writeUTF(library.getFile().getPath());
+        out.writeUTF(library.getContentHash());
       }
 
       if (value.definitionMap == null) {
@@ -96,10 +204,11 @@ class LibrariesData {
 
     @Override
     public SortResult read(@NotNull DataInput in) throws IOException {
+      final long sortTime = in.readLong();
       int librariesSize = in.readShort();
-      String[] libraryPaths = new String[librariesSize];
+      String[] libraryHashes = new String[librariesSize];
       while (librariesSize-- > 0) {
-        libraryPaths[librariesSize] = in.readUTF();
+        libraryHashes[librariesSize] = in.readUTF();
       }
 
       int size = in.readInt();
@@ -114,7 +223,7 @@ class LibrariesData {
         map = null;
       }
 
-      return new SortResult(map, libraryPaths);
+      return new SortResult(map, libraryHashes, sortTime);
     }
   }
 }
\ No newline at end of file
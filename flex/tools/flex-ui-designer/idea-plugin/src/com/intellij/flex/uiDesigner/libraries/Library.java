@@ -8,6 +8,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.io.Info;
 
+import java.io.IOException;
 import java.util.Map;
 
 public class Library extends Info<VirtualFile> {
@@ -24,10 +25,27 @@ public class Library extends Info<VirtualFile> {
   // en_US => {"layout", "components"}
   public final Map<String, THashSet<String>> resourceBundles = new THashMap<String, THashSet<String>>();
 
+  private String contentHash;
+  private long contentHashTimeStamp;
+
   Library(@NotNull VirtualFile file) {
     super(file);
   }
 
+  /**
+   * Merged library set SWF depends only on catalog.xml and library.swf of the libraries, so the hash of them identifies the library
+   * for the library sets cache regardless of its path.
+   */
+  @NotNull
+  String getContentHash() throws IOException {
+    final long timeStamp = element.getTimeStamp();
+    if (contentHash == null || contentHashTimeStamp != timeStamp) {
+      contentHash = LibraryUtil.computeContentHash(getCatalogFile(), getSwfFile());
+      contentHashTimeStamp = timeStamp;
+    }
+    return contentHash;
+  }
+
   public boolean hasResourceBundles() {
     return !resourceBundles.isEmpty();
   }
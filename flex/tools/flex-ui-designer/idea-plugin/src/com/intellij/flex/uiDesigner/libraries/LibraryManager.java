@@ -22,7 +22,6 @@ import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.util.ArrayUtil;
@@ -30,6 +29,7 @@ import com.intellij.util.ExceptionUtil;
 import com.intellij.util.StringBuilderSpinAllocator;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
+import gnu.trove.TIntHashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.io.InfoMap;
@@ -42,7 +42,6 @@ import java.util.*;
 
 @SuppressWarnings("MethodMayBeStatic")
 public class LibraryManager implements Disposable {
-  private static final String SWF_EXTENSION = ".swf";
   static final String PROPERTIES_EXTENSION = ".properties";
 
   private final File appDir;
@@ -53,6 +52,13 @@ public class LibraryManager implements Disposable {
   private final Map<VirtualFile, Set<CharSequence>> globalDefinitionsMap = new THashMap<VirtualFile, Set<CharSequence>>();
 
   private LibrariesData data;
+  // sorting and merging time saved by library sets restored from cache in this session
+  private long savedSortTime;
+
+  // content hash of the global library catalog, computed again only when the file changes
+  private VirtualFile globalLibraryHashFile;
+  private long globalLibraryHashTimeStamp;
+  private String globalLibraryHash;
 
   public LibraryManager() {
     appDir = DesignerApplicationManager.APP_DIR;
@@ -124,7 +130,16 @@ public class LibraryManager implements Disposable {
     }
 
     assert !libraryCollector.sdkLibraries.isEmpty();
-    final FlexLibrarySet flexLibrarySet = getOrCreateFlexLibrarySet(libraryCollector, assetCounter);
+    final String flexLibrarySetKey;
+    try {
+      flexLibrarySetKey = createKey(libraryCollector.sdkLibraries, "sdk " + libraryCollector.getFlexSdkVersion() + ' ' +
+                                                                   getGlobalLibraryHash(libraryCollector.getGlobalLibrary()));
+    }
+    catch (IOException e) {
+      throw new InitException(e, "error.sort.libraries");
+    }
+
+    final FlexLibrarySet flexLibrarySet = getOrCreateFlexLibrarySet(libraryCollector, assetCounter, flexLibrarySetKey);
     final InfoMap<Project, ProjectInfo> registeredProjects = client.getRegisteredProjects();
     ProjectInfo info = registeredProjects.getNullableInfo(project);
     if (info == null) {
@@ -139,7 +154,15 @@ public class LibraryManager implements Disposable {
       librarySet = null;
     }
     else {
-      final String key = createKey(libraryCollector.externalLibraries, false);
+      final String key;
+      try {
+        // external libraries are merged without definitions of the Flex library set, so the result depends on it
+        key = createKey(libraryCollector.externalLibraries, "external " + flexLibrarySetKey);
+      }
+      catch (IOException e) {
+        throw new InitException(e, "error.sort.libraries");
+      }
+
       librarySet = librarySets.get(key);
       if (librarySet == null) {
         final SortResult sortResult = sortLibraries(new LibrarySorter(), libraryCollector, flexLibrarySet.contains, key, false);
@@ -182,8 +205,8 @@ public class LibraryManager implements Disposable {
     return projectComponentReferenceCounter;
   }
 
-  private FlexLibrarySet getOrCreateFlexLibrarySet(LibraryCollector libraryCollector, AssetCounter assetCounter) throws InitException {
-    final String key = createKey(libraryCollector.sdkLibraries, true);
+  private FlexLibrarySet getOrCreateFlexLibrarySet(LibraryCollector libraryCollector, AssetCounter assetCounter, String key)
+    throws InitException {
     FlexLibrarySet flexLibrarySet = (FlexLibrarySet)librarySets.get(key);
     if (flexLibrarySet == null) {
       final Set<CharSequence> globalDefinitions = getGlobalDefinitions(libraryCollector.getGlobalLibrary());
@@ -220,26 +243,36 @@ public class LibraryManager implements Disposable {
     return globalDefinitions;
   }
 
-  private String createKey(List<Library> libraries, boolean isSdk) {
-    // we don't depend on library order
-    final VirtualFile[] files = new VirtualFile[libraries.size()];
+  /**
+   * Library set SWF is identified by the content of the libraries (we don't depend on library order and location) and by the filter
+   * of external definitions the libraries are sorted with.
+   */
+  @NotNull
+  private synchronized String getGlobalLibraryHash(@NotNull VirtualFile globalLibrary) throws IOException {
+    final long timeStamp = globalLibrary.getTimeStamp();
+    if (globalLibraryHash == null || !globalLibrary.equals(globalLibraryHashFile) || globalLibraryHashTimeStamp != timeStamp) {
+      globalLibraryHash = LibraryUtil.computeContentHash(globalLibrary);
+      globalLibraryHashFile = globalLibrary;
+      globalLibraryHashTimeStamp = timeStamp;
+    }
+    return globalLibraryHash;
+  }
+
+  static String createKey(List<Library> libraries, String filterKey) throws IOException {
+    final String[] hashes = new String[libraries.size()];
     for (int i = 0, librariesSize = libraries.size(); i < librariesSize; i++) {
-      files[i] = libraries.get(i).getFile();
+      hashes[i] = libraries.get(i).getContentHash();
     }
-    
-    Arrays.sort(files, (o1, o2) -> StringUtil.compare(o1.getPath(), o2.getPath(), false));
-    
+    Arrays.sort(hashes);
+
     final StringBuilder stringBuilder = StringBuilderSpinAllocator.alloc();
     try {
-      if (isSdk) {
-        stringBuilder.append('_');
-      }
-
-      for (VirtualFile file : files) {
-        stringBuilder.append(file.getTimeStamp()).append(file.getPath()).append(':');
+      stringBuilder.append(filterKey);
+      for (String hash : hashes) {
+        stringBuilder.append(':').append(hash);
       }
 
-      return stringBuilder.toString();
+      return LibraryUtil.computeHash(stringBuilder.toString());
     }
     finally {
       StringBuilderSpinAllocator.dispose(stringBuilder);
@@ -252,20 +285,26 @@ public class LibraryManager implements Disposable {
     final List<Library> libraries = isSdk ? collector.sdkLibraries : collector.externalLibraries;
     try {
       final int id = data.librarySets.enumerate(key);
-      SortResult result = data.librarySets.get(key);
+      SortResult result = data.getLibrarySet(appDir, key, id);
       if (result == null) {
-        result = sorter.sort(libraries, new File(appDir, LibrariesData.NAME_PREFIX + Integer.toString(id) + SWF_EXTENSION), isExternal, isSdk);
+        final long start = System.currentTimeMillis();
+        result = sorter.sort(libraries, LibrariesData.getLibrarySetFile(appDir, id), isExternal, isSdk);
+        result.sortTime = System.currentTimeMillis() - start;
         data.librarySets.put(key, result);
+        data.evictLibrarySets(appDir, getUsedLibrarySetIds(id));
       }
       else {
-        final String[] libraryPaths = result.libraryPaths;
-        final List<Library> filteredLibraries = new ArrayList<Library>(libraryPaths.length);
+        final String[] libraryHashes = result.libraryHashes;
+        final List<Library> filteredLibraries = new ArrayList<Library>(libraryHashes.length);
         for (Library library : libraries) {
-          if (ArrayUtil.indexOf(libraryPaths, library.getFile().getPath()) != -1) {
+          if (ArrayUtil.indexOf(libraryHashes, library.getContentHash()) != -1) {
             filteredLibraries.add(library);
           }
         }
 
+        savedSortTime += result.sortTime;
+        LogMessageUtil.LOG.info("Library set " + id + " restored from cache, " + result.sortTime + " ms of sorting and merging saved (" +
+                                savedSortTime + " ms in this session)");
         result = new SortResult(result.definitionMap, filteredLibraries);
       }
 
@@ -293,6 +332,15 @@ public class LibraryManager implements Disposable {
     }
   }
 
+  private TIntHashSet getUsedLibrarySetIds(int newId) {
+    final TIntHashSet ids = new TIntHashSet();
+    ids.add(newId);
+    for (LibrarySet librarySet : librarySets.values()) {
+      ids.add(librarySet.getId());
+    }
+    return ids;
+  }
+
   // created library will be register later, in Client.registerLibrarySet, so, we expect that createOriginalLibrary never called with duplicated virtualFile, i.e.
   // sdkLibraries doesn't contain duplicated virtualFiles and externalLibraries too (http://youtrack.jetbrains.net/issue/AS-200)
   Library createOriginalLibrary(@NotNull final VirtualFile jarFile, @NotNull final LibraryStyleInfoCollector processor) {
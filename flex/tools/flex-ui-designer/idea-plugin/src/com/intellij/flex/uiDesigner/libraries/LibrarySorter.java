@@ -155,21 +155,24 @@ public class LibrarySorter {
     final @Nullable THashMap<CharSequence, Definition> definitionMap;
     final List<Library> libraries;
 
-    // only if restored from cache
-    final String[] libraryPaths;
+    // only if restored from cache, see Library.getContentHash
+    final String[] libraryHashes;
 
     int id;
+    // time spent on sorting and merging, a cache hit saves it
+    long sortTime;
 
     SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, List<Library> libraries) {
       this.definitionMap = definitionMap;
       this.libraries = libraries;
-      libraryPaths = null;
+      libraryHashes = null;
     }
 
-    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryPaths) {
+    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryHashes, long sortTime) {
       this.definitionMap = definitionMap;
       libraries = null;
-      this.libraryPaths = libraryPaths;
+      this.libraryHashes = libraryHashes;
+      this.sortTime = sortTime;
     }
   }
 }
\ No newline at end of file
@@ -7,13 +7,18 @@ import com.intellij.flex.uiDesigner.io.IOUtil;
 import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.xml.NanoXmlUtil;
 import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -59,6 +64,48 @@ final class LibraryUtil {
     return new Pair<CharArrayReader, ByteArrayInputStream>(catalogReader, swfIn);
   }
 
+  /**
+   * SHA-1 of the contents of the files, a missing file contributes its absence only
+   */
+  @NotNull
+  static String computeContentHash(@Nullable VirtualFile... files) throws IOException {
+    final MessageDigest digest = createDigest();
+    final byte[] buffer = new byte[8192];
+    for (VirtualFile file : files) {
+      if (file == null) {
+        digest.update((byte)0);
+        continue;
+      }
+
+      digest.update((byte)1);
+      final InputStream in = file.getInputStream();
+      try {
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, n);
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    return StringUtil.toHexString(digest.digest());
+  }
+
+  @NotNull
+  static String computeHash(@NotNull String text) {
+    return StringUtil.toHexString(createDigest().digest(text.getBytes(Charsets.UTF_8)));
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @TestOnly
   // we cannot use LocalFileSystem, because our test can run outside the idea
   static VirtualFile getTestGlobalLibrary(boolean isPlayer) {
@@ -0,0 +1,80 @@
+package com.intellij.flex.uiDesigner.libraries;
+
+import com.intellij.flex.uiDesigner.DesignerTests;
+import com.intellij.openapi.util.io.FileUtil;
+import gnu.trove.TIntHashSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LibrariesDataTest {
+  private File dir;
+
+  @Before
+  public void runBeforeEveryTest() throws Exception {
+    dir = FileUtil.createTempDirectory("librarySets", null);
+  }
+
+  @After
+  public void runAfterEveryTest() {
+    FileUtil.delete(dir);
+  }
+
+  @Test
+  public void keyDependsOnContentOnly() throws IOException {
+    final File copy = new File(dir, "copy.swc");
+    FileUtil.copy(getLibraryFile("MinimalComps_0_9_10.swc"), copy);
+
+    final List<Library> libraries = Arrays.<Library>asList(createLibrary("MinimalComps_0_9_10.swc"), createLibrary("as3corelib-0.93.swc"));
+    final List<Library> relocated = Arrays.<Library>asList(createLibrary("as3corelib-0.93.swc"), new LightLibrary(copy));
+    final String key = LibraryManager.createKey(libraries, "sdk");
+    Assert.assertEquals(key, LibraryManager.createKey(relocated, "sdk"));
+
+    Assert.assertFalse(key.equals(LibraryManager.createKey(libraries, "external")));
+    Assert.assertFalse(key.equals(LibraryManager.createKey(Collections.<Library>singletonList(createLibrary("as3corelib-0.93.swc")), "sdk")));
+    Assert.assertFalse(key.equals(LibraryManager.createKey(Arrays.<Library>asList(createLibrary("ds_release.swc"),
+                                                                                   createLibrary("as3corelib-0.93.swc")), "sdk")));
+  }
+
+  @Test
+  public void leastRecentlyUsedEvicted() throws IOException {
+    final long now = System.currentTimeMillis();
+    createLibrarySet(1, now - 4000);
+    createLibrarySet(2, now - 3000);
+    createLibrarySet(3, now - 2000);
+    createLibrarySet(4, now - 1000);
+    FileUtil.writeToFile(new File(dir, LibrariesData.NAME_PREFIX + "librarySets"), new byte[100]);
+
+    final TIntHashSet usedIds = new TIntHashSet(new int[]{1});
+    final TIntHashSet evicted = LibrariesData.deleteLeastRecentlyUsed(dir, 200, usedIds);
+    Assert.assertEquals(new TIntHashSet(new int[]{2, 3}), evicted);
+
+    Assert.assertTrue(LibrariesData.getLibrarySetFile(dir, 1).exists());
+    Assert.assertFalse(LibrariesData.getLibrarySetFile(dir, 2).exists());
+    Assert.assertFalse(LibrariesData.getLibrarySetFile(dir, 3).exists());
+    Assert.assertTrue(LibrariesData.getLibrarySetFile(dir, 4).exists());
+
+    Assert.assertTrue(LibrariesData.deleteLeastRecentlyUsed(dir, 200, usedIds).isEmpty());
+  }
+
+  private void createLibrarySet(int id, long lastModified) throws IOException {
+    final File file = LibrariesData.getLibrarySetFile(dir, id);
+    FileUtil.writeToFile(file, new byte[100]);
+    Assert.assertTrue(file.setLastModified(lastModified));
+  }
+
+  private static File getLibraryFile(String path) {
+    return new File(DesignerTests.getTestDataPath(), "lib/" + path);
+  }
+
+  private static LightLibrary createLibrary(String path) throws IOException {
+    return new LightLibrary(getLibraryFile(path));
+  }
+}
@@ -1,44 +1,180 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.THashMap;
 import gnu.trove.THashSet;
+import gnu.trove.TLongIntHashMap;
+import gnu.trove.TObjectIntHashMap;
 
 import java.util.*;
 
+/**
+ * Call tree kept in columns: frames are interned into ids, a node is an index into parallel arrays of frame ids, links and durations.
+ * Children of a node form a linked list, child lookup by frame goes through a single map for the whole tree.
+ * <p/>
+ * While the tree is built from samples only, time maps of the whole tree are updated with every sample.
+ * <p/>
+ * Public methods are synchronized as samples are added while the tree is shown, package-private ones are called under their lock or
+ * while the tree is built.
+ */
 public class CallTree {
-  private final CallTreeNode root;
+  static final int ROOT = 0;
+  static final int NO_NODE = -1;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final List<FrameInfo> frames = new ArrayList<FrameInfo>();
+  private final TObjectIntHashMap<FrameInfo> frameIds = new TObjectIntHashMap<FrameInfo>();
+
+  private int nodeCount;
+  private int[] nodeFrames = new int[INITIAL_CAPACITY];
+  private int[] firstChildren = new int[INITIAL_CAPACITY];
+  private int[] nextSiblings = new int[INITIAL_CAPACITY];
+  private long[] durations = new long[INITIAL_CAPACITY];
+  // (parent node << 32 | frame id) -> child node, 0 (root) means no child as root is never a child
+  private final TLongIntHashMap children = new TLongIntHashMap();
+
+  // time maps of the whole tree by frame id, valid while nodes are added by addFrames() only
+  private boolean timeMapsUpToDate = true;
+  private long[] cumulativeTimes = new long[INITIAL_CAPACITY];
+  private long[] selfTimes = new long[INITIAL_CAPACITY];
+  private int[] lastSampleOfFrame = new int[INITIAL_CAPACITY];
+  private int sampleCount;
 
   public CallTree() {
-    root = new CallTreeNode();
+    newNode(NO_NODE);
+  }
+
+  public synchronized void addFrames(FrameInfo[] frames, long duration) {
+    final int sample = ++sampleCount;
+    int node = ROOT;
+    for (int i = frames.length - 1; i >= 0; i--) {
+      final int frameId = internFrame(frames[i]);
+      node = getOrAddChild(node, frameId);
+      durations[node] += duration;
+
+      // a frame met several times in a recursive call chain counts once
+      if (lastSampleOfFrame[frameId] != sample) {
+        lastSampleOfFrame[frameId] = sample;
+        cumulativeTimes[frameId] += duration;
+      }
+    }
+    if (node != ROOT) {
+      selfTimes[nodeFrames[node]] += duration;
+    }
+  }
+
+  /**
+   * Adds <code>duration</code> to the child of <code>parent</code> with the given frame, creating the child if needed.
+   *
+   * @return the child
+   */
+  int addChild(int parent, FrameInfo frame, long duration) {
+    timeMapsUpToDate = false;
+    final int node = getOrAddChild(parent, internFrame(frame));
+    durations[node] += duration;
+    return node;
+  }
+
+  int getNodeCount() {
+    return nodeCount;
+  }
+
+  FrameInfo getFrameInfo(int node) {
+    return frames.get(nodeFrames[node]);
+  }
+
+  FrameInfo getFrame(int frameId) {
+    return frames.get(frameId);
+  }
+
+  long getCumulativeTiming(int node) {
+    return durations[node];
+  }
+
+  /**
+   * @return sum of cumulative timings of the children
+   */
+  long calcChildrenTiming(int node) {
+    long result = 0;
+    for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+      result += durations[child];
+    }
+    return result;
+  }
+
+  int getFirstChild(int node) {
+    return firstChildren[node];
   }
 
-  CallTree(CallTreeNode root) {
-    this.root = root;
+  int getNextSibling(int node) {
+    return nextSiblings[node];
   }
 
-  CallTreeNode getRoot() {
-    return root;
+  /**
+   * @return <code>NO_NODE</code> if there is no such call chain
+   */
+  int getChildDeep(int node, int[] frameIds) {
+    for (int frameId : frameIds) {
+      if (frameId == NO_NODE) {
+        return NO_NODE;
+      }
+      node = children.get(((long)node << 32) | frameId);
+      if (node == ROOT) {
+        return NO_NODE;
+      }
+    }
+    return node;
   }
 
-  public void addFrames(FrameInfo[] frames, long duration) {
-    root.addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+  /**
+   * @return ids of frames, <code>NO_NODE</code> for frames that are not in the tree
+   */
+  int[] getFrameIds(FrameInfo[] frames) {
+    final int[] result = new int[frames.length];
+    for (int i = 0; i < frames.length; i++) {
+      result[i] = frameIds.containsKey(frames[i]) ? frameIds.get(frames[i]) : NO_NODE;
+    }
+    return result;
+  }
+
+  int getFrameCount() {
+    return frames.size();
+  }
+
+  int getFrameId(int node) {
+    return nodeFrames[node];
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
-    return TimeMapBuilder.buildTimeMaps(root, root.getChildren());
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
+    if (!timeMapsUpToDate) {
+      final int[] calls = new int[countChildren(ROOT)];
+      int i = 0;
+      for (int child = firstChildren[ROOT]; child != NO_NODE; child = nextSiblings[child]) {
+        calls[i++] = child;
+      }
+      return TimeMapBuilder.buildTimeMaps(this, calls);
+    }
+
+    final Map<FrameInfo, Long> countMap = new THashMap<FrameInfo, Long>(frames.size());
+    final Map<FrameInfo, Long> selfCountMap = new THashMap<FrameInfo, Long>(frames.size());
+    for (int frameId = 0; frameId < frames.size(); frameId++) {
+      countMap.put(frames.get(frameId), cumulativeTimes[frameId]);
+      selfCountMap.put(frames.get(frameId), selfTimes[frameId]);
+    }
+    return Pair.create(countMap, selfCountMap);
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CallerFinder.findCallsByFrames(root, frames);
-    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(root, calls);
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
+    int[] calls = CallerFinder.findCallsByFrames(this, frames);
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(this, calls);
     Set<FrameInfo> callerNames = getNamesOfNodes(calls);
     Map<FrameInfo, Long> filteredCountMap = filterMap(timeMaps.getFirst(), callerNames);
     Map<FrameInfo, Long> filteredSelfTimeMap = filterMap(timeMaps.getSecond(), callerNames);
@@ -48,9 +184,60 @@ public class CallTree {
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CalleeFinder.findCallsByFrameName(root, frames);
-    return TimeMapBuilder.buildTimeMaps(root, calls);
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
+    int[] calls = CalleeFinder.findCallsByFrameName(this, frames);
+    return TimeMapBuilder.buildTimeMaps(this, calls);
+  }
+
+  private int countChildren(int node) {
+    int result = 0;
+    for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+      result++;
+    }
+    return result;
+  }
+
+  private int internFrame(FrameInfo frame) {
+    if (frameIds.containsKey(frame)) {
+      return frameIds.get(frame);
+    }
+
+    final int frameId = frames.size();
+    frames.add(frame);
+    frameIds.put(frame, frameId);
+    if (frameId == cumulativeTimes.length) {
+      cumulativeTimes = Arrays.copyOf(cumulativeTimes, frameId * 2);
+      selfTimes = Arrays.copyOf(selfTimes, frameId * 2);
+      lastSampleOfFrame = Arrays.copyOf(lastSampleOfFrame, frameId * 2);
+    }
+    return frameId;
+  }
+
+  private int getOrAddChild(int parent, int frameId) {
+    final long key = ((long)parent << 32) | frameId;
+    int child = children.get(key);
+    if (child == ROOT) {
+      child = newNode(frameId);
+      nextSiblings[child] = firstChildren[parent];
+      firstChildren[parent] = child;
+      children.put(key, child);
+    }
+    return child;
+  }
+
+  private int newNode(int frameId) {
+    if (nodeCount == nodeFrames.length) {
+      final int capacity = nodeCount * 2;
+      nodeFrames = Arrays.copyOf(nodeFrames, capacity);
+      firstChildren = Arrays.copyOf(firstChildren, capacity);
+      nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+      durations = Arrays.copyOf(durations, capacity);
+    }
+    final int node = nodeCount++;
+    nodeFrames[node] = frameId;
+    firstChildren[node] = NO_NODE;
+    nextSiblings[node] = NO_NODE;
+    return node;
   }
 
   private static Map<FrameInfo, Long> filterMap(Map<FrameInfo, Long> first, Set<FrameInfo> callerNames) {
@@ -58,11 +245,12 @@ public class CallTree {
     return first;
   }
 
-  private static Set<FrameInfo> getNamesOfNodes(Collection<CallTreeNode> nodes) {
+  private Set<FrameInfo> getNamesOfNodes(int[] nodes) {
     THashSet<FrameInfo> names = new THashSet<FrameInfo>();
-    for (CallTreeNode node : nodes) {
-      names.add(node.getFrameInfo());
+    for (int node : nodes) {
+      names.add(getFrameInfo(node));
     }
     return names;
   }
+
 }
@@ -5,22 +5,25 @@ package com.jetbrains.actionscript.profiler.calltree;
  */
 public class CallTreeUtil {
   public static CallTree filterSystemStuff(CallTree tree) {
-    return new CallTree(filterSystemStuffImpl(tree.getRoot()));
+    CallTree result = new CallTree();
+    synchronized (tree) {
+      filterSystemStuffImpl(tree, CallTree.ROOT, result, CallTree.ROOT);
+    }
+    return result;
   }
 
-  private static CallTreeNode filterSystemStuffImpl(CallTreeNode node) {
-    CallTreeNode result = new CallTreeNode(node.getFrameInfo(), node.getCumulativeTiming());
-
-    for (CallTreeNode child : node.getChildren()) {
-      CallTreeNode newChild = filterSystemStuffImpl(child);
-      if (newChild.getFrameInfo().isSystem()) {
-        result.addChildrenRecursive(newChild.getChildren());
+  /*
+   * Merges filtered children of <code>node</code> into <code>resultNode</code>, children of system frames are merged in place of them.
+   */
+  private static void filterSystemStuffImpl(CallTree tree, int node, CallTree result, int resultNode) {
+    for (int child = tree.getFirstChild(node); child != CallTree.NO_NODE; child = tree.getNextSibling(child)) {
+      if (tree.getFrameInfo(child).isSystem()) {
+        filterSystemStuffImpl(tree, child, result, resultNode);
       }
       else {
-        result.addChildRecursive(newChild);
+        int resultChild = result.addChild(resultNode, tree.getFrameInfo(child), tree.getCumulativeTiming(child));
+        filterSystemStuffImpl(tree, child, result, resultChild);
       }
     }
-
-    return result;
   }
 }
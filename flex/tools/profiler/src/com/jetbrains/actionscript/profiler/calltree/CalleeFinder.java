@@ -2,9 +2,7 @@ package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
-
-import java.util.ArrayList;
-import java.util.List;
+import gnu.trove.TIntArrayList;
 
 class CalleeFinder {
   private CalleeFinder() {
@@ -13,21 +11,24 @@ class CalleeFinder {
   /*
   * Find nodes with <code>frameName == frames[0]</code>. Node's call stack contains all <code>frames</code> in order.
   */
-  static List<CallTreeNode> findCallsByFrameName(CallTreeNode root, FrameInfo[] frames) {
-    ArrayList<CallTreeNode> result = new ArrayList<CallTreeNode>();
-    fillCallsByFrameName(root, ArrayUtil.reverseArray(frames), result);
-    return result;
+  static int[] findCallsByFrameName(CallTree tree, FrameInfo[] frames) {
+    TIntArrayList result = new TIntArrayList();
+    fillCallsByFrameName(tree, CallTree.ROOT, tree.getFrameIds(ArrayUtil.reverseArray(frames)), result);
+    return result.toNativeArray();
   }
 
-  private static void fillCallsByFrameName(CallTreeNode node,
-                                           FrameInfo[] frames,
-                                           List<CallTreeNode> result) {
-    final CallTreeNode deepChild = node.getChildDeep(frames);
-    if (deepChild != null) {
-      result.addAll(deepChild.getChildren());
+  private static void fillCallsByFrameName(CallTree tree,
+                                           int node,
+                                           int[] frameIds,
+                                           TIntArrayList result) {
+    final int deepChild = tree.getChildDeep(node, frameIds);
+    if (deepChild != CallTree.NO_NODE) {
+      for (int child = tree.getFirstChild(deepChild); child != CallTree.NO_NODE; child = tree.getNextSibling(child)) {
+        result.add(child);
+      }
     }
-    for (CallTreeNode child : node.getChildren()) {
-      fillCallsByFrameName(child, frames, result);
+    for (int child = tree.getFirstChild(node); child != CallTree.NO_NODE; child = tree.getNextSibling(child)) {
+      fillCallsByFrameName(tree, child, frameIds, result);
     }
   }
 }
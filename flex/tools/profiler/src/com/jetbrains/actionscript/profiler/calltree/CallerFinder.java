@@ -2,9 +2,7 @@ package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
-
-import java.util.ArrayList;
-import java.util.List;
+import gnu.trove.TIntArrayList;
 
 class CallerFinder {
   private CallerFinder() {
@@ -21,36 +19,39 @@ class CallerFinder {
   *
   * Method return only <code>foo</code>.
   */
-  static List<CallTreeNode> findCallsByFrames(CallTreeNode root, FrameInfo[] frames) {
-    List<CallTreeNode> calls = new ArrayList<CallTreeNode>();
+  static int[] findCallsByFrames(CallTree tree, FrameInfo[] frames) {
+    TIntArrayList calls = new TIntArrayList();
     if (frames.length == 0) {
-      return calls;
+      return calls.toNativeArray();
     }
-    frames = ArrayUtil.reverseArray(frames);
-    for (CallTreeNode node : root.getChildren()) {
-      fillCallsByFrames(node, calls, frames, new ArrayList<FrameInfo>());
+    int[] frameIds = tree.getFrameIds(ArrayUtil.reverseArray(frames));
+    boolean[] callChainAddedFrames = new boolean[tree.getFrameCount()];
+    for (int node = tree.getFirstChild(CallTree.ROOT); node != CallTree.NO_NODE; node = tree.getNextSibling(node)) {
+      fillCallsByFrames(tree, node, calls, frameIds, callChainAddedFrames);
     }
-    return calls;
+    return calls.toNativeArray();
   }
 
-  private static void fillCallsByFrames(CallTreeNode currentNode,
-                                        List<CallTreeNode> result,
-                                        FrameInfo[] frames,
-                                        List<FrameInfo> callChainAddedFrames) {
+  private static void fillCallsByFrames(CallTree tree,
+                                        int currentNode,
+                                        TIntArrayList result,
+                                        int[] frameIds,
+                                        boolean[] callChainAddedFrames) {
     //we need only the nearest node to the root
     //we have <code>callChainAddedFrames<code>
-    boolean needAdd = !callChainAddedFrames.contains(currentNode.getFrameInfo()) && currentNode.getChildDeep(frames) != null;
+    final int frameId = tree.getFrameId(currentNode);
+    boolean needAdd = !callChainAddedFrames[frameId] && tree.getChildDeep(currentNode, frameIds) != CallTree.NO_NODE;
     if (needAdd) {
       result.add(currentNode);
-      callChainAddedFrames.add(currentNode.getFrameInfo());
+      callChainAddedFrames[frameId] = true;
     }
 
-    for (CallTreeNode childCall : currentNode.getChildren()) {
-      fillCallsByFrames(childCall, result, frames, callChainAddedFrames);
+    for (int childCall = tree.getFirstChild(currentNode); childCall != CallTree.NO_NODE; childCall = tree.getNextSibling(childCall)) {
+      fillCallsByFrames(tree, childCall, result, frameIds, callChainAddedFrames);
     }
     if (needAdd) {
       //pop
-      callChainAddedFrames.remove(callChainAddedFrames.size() - 1);
+      callChainAddedFrames[frameId] = false;
     }
   }
 }
@@ -3,59 +3,69 @@ package com.jetbrains.actionscript.profiler.calltree;
 import com.intellij.openapi.util.Pair;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
 import gnu.trove.THashMap;
-import gnu.trove.THashSet;
 
-import java.util.List;
 import java.util.Map;
 
 class TimeMapBuilder {
-  private TimeMapBuilder() {
+  private final CallTree tree;
+  private final boolean[] trackedCalls;
+  // times by frame id, frames without time are absent from the result
+  private final long[] counts;
+  private final boolean[] hasCount;
+  private final long[] selfCounts;
+  private final boolean[] hasSelfCount;
+
+  private TimeMapBuilder(CallTree tree, int[] calls) {
+    this.tree = tree;
+    trackedCalls = new boolean[tree.getNodeCount()];
+    for (int call : calls) {
+      trackedCalls[call] = true;
+    }
+    final int frameCount = tree.getFrameCount();
+    counts = new long[frameCount];
+    hasCount = new boolean[frameCount];
+    selfCounts = new long[frameCount];
+    hasSelfCount = new boolean[frameCount];
   }
 
   /*
   * @return pair <cumulative time map, self time map>
   */
-  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTreeNode root, List<CallTreeNode> calls) {
-    Map<FrameInfo, Long> countMap = new THashMap<FrameInfo, Long>();
-    Map<FrameInfo, Long> selfCountMap = new THashMap<FrameInfo, Long>();
-    THashSet<CallTreeNode> trackedCalls = new THashSet<CallTreeNode>(calls);
-
-    for (CallTreeNode node : root.getChildren()) {
-      fillTimeMaps(node, countMap, selfCountMap, trackedCalls.contains(node), trackedCalls);
+  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTree tree, int[] calls) {
+    final TimeMapBuilder builder = new TimeMapBuilder(tree, calls);
+    for (int node = tree.getFirstChild(CallTree.ROOT); node != CallTree.NO_NODE; node = tree.getNextSibling(node)) {
+      builder.fillTimeMaps(node, builder.trackedCalls[node]);
     }
-    return Pair.create(countMap, selfCountMap);
+    return Pair.create(builder.toMap(builder.counts, builder.hasCount), builder.toMap(builder.selfCounts, builder.hasSelfCount));
   }
 
-  private static void fillTimeMaps(CallTreeNode node,
-                                   Map<FrameInfo, Long> countMap,
-                                   Map<FrameInfo, Long> selfCountMap,
-                                   boolean tracking,
-                                   THashSet<CallTreeNode> trackedCalls) {
+  private void fillTimeMaps(int node, boolean tracking) {
+    final int frameId = tree.getFrameId(node);
     if (tracking) {
-      updateSelfTime(node, selfCountMap);
+      selfCounts[frameId] += tree.getCumulativeTiming(node) - tree.calcChildrenTiming(node);
+      hasSelfCount[frameId] = true;
     }
 
     //save value before subcalls
-    Long countBefore = countMap.get(node.getFrameInfo());
-    if (countBefore == null) {
-      countBefore = 0L;
-    }
-    for (CallTreeNode child : node.getChildren()) {
-      fillTimeMaps(child, countMap, selfCountMap, tracking || trackedCalls.contains(child), trackedCalls);
+    long countBefore = counts[frameId];
+    for (int child = tree.getFirstChild(node); child != CallTree.NO_NODE; child = tree.getNextSibling(child)) {
+      fillTimeMaps(child, tracking || trackedCalls[child]);
     }
     if (tracking) {
       //rewrite values that were added in subcalls.
       //cause of that we get value only of the nearest node to the root
-      countMap.put(node.getFrameInfo(), countBefore + node.getCumulativeTiming());
+      counts[frameId] = countBefore + tree.getCumulativeTiming(node);
+      hasCount[frameId] = true;
     }
   }
 
-  private static void updateSelfTime(CallTreeNode node, Map<FrameInfo, Long> selfCountMap) {
-    long currentSelfTime = node.getCumulativeTiming() - node.calcSelfTiming();
-    Long selfTime = selfCountMap.get(node.getFrameInfo());
-    if (selfTime == null) {
-      selfTime = 0L;
+  private Map<FrameInfo, Long> toMap(long[] times, boolean[] hasTime) {
+    final Map<FrameInfo, Long> result = new THashMap<FrameInfo, Long>();
+    for (int frameId = 0; frameId < times.length; frameId++) {
+      if (hasTime[frameId]) {
+        result.put(tree.getFrame(frameId), times[frameId]);
+      }
     }
-    selfCountMap.put(node.getFrameInfo(), selfTime + currentSelfTime);
+    return result;
   }
 }
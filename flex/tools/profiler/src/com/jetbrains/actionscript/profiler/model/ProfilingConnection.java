@@ -11,8 +11,10 @@ import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,6 +31,7 @@ public class ProfilingConnection {
   private PacketProcessor myCurrentPacketProcessor;
   private final Map<String, PacketProcessor> myInitialString2ProcessorsMap = new HashMap<String, PacketProcessor>();
   private final Callback myIoHandler;
+  private final SampleQueue mySampleQueue;
   private final int myPort;
   private static final int ourAgentVersion = 4;
   private boolean myAbortingSocketConnection;
@@ -36,12 +39,13 @@ public class ProfilingConnection {
 
   public ProfilingConnection(int port, ProfilerDataConsumer sampleProcessor, Callback ioHandler) {
     myPort = port;
+    mySampleQueue = new SampleQueue(sampleProcessor);
     myInitialString2ProcessorsMap.put(
       PolicyFileRequestProcessor.POLICY_FILE_REQUEST,
       new PolicyFileRequestProcessor(port)
     );
 
-    BatchSamplesProcessor samplesProcessor = new BatchSamplesProcessor(sampleProcessor);
+    BatchSamplesProcessor samplesProcessor = new BatchSamplesProcessor(mySampleQueue);
     myInitialString2ProcessorsMap.put(
       BatchSamplesProcessor.BATCH_MARKER,
       samplesProcessor
@@ -74,7 +78,7 @@ public class ProfilingConnection {
 
     myInitialString2ProcessorsMap.put(
       SampleInfoProcessor.COMMAND_MARKER,
-      new SampleInfoProcessor(sampleProcessor)
+      new SampleInfoProcessor(mySampleQueue)
     );
 
     myIoHandler = ioHandler;
@@ -224,10 +228,15 @@ public class ProfilingConnection {
     simpleCommand(callback, STOP_COLLECTING_LIVE_OBJECTS);
   }
 
+  SampleQueue.Statistics getStatistics() {
+    return mySampleQueue.getStatistics();
+  }
+
   public void dispose() throws IOException {
     if (myDisposed) return;
     myAbortingSocketConnection = true;
     myDisposed = true;
+    mySampleQueue.dispose();
     if (myServerSocket != null) myServerSocket.close();
     if (myOutputStream != null) myOutputStream.close();
     if (myInputStream != null) myInputStream.close();
@@ -280,13 +289,14 @@ public class ProfilingConnection {
     private static final String CREATE_OBJECT_SAMPLE_MARKER = "c\0";
     private static final String DELETE_OBJECT_SAMPLE_MARKER = "d\0";
 
-    private final ProfilerDataConsumer mySampleProcessor;
+    private final SampleQueue mySampleQueue;
 
     private long sampleDuration = -1;
     private int frameIndex;
 
-    private final Map<String, String> dictionary = new HashMap<String, String>(1000);
-    private final Map<String, String> typeDictionary = new HashMap<String, String>(1000);
+    // frames are numbered by the agent from 1, types from 0
+    private final List<FrameInfo> dictionary = new ArrayList<FrameInfo>(1000);
+    private final List<String> typeDictionary = new ArrayList<String>(1000);
     private FrameInfo[] frames;
     private String type;
     private String specialArgs;
@@ -297,21 +307,24 @@ public class ProfilingConnection {
     private Sample lastCreateObjectSample;
     private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
 
-    public BatchSamplesProcessor(ProfilerDataConsumer sampleProcessor) {
-      this.mySampleProcessor = sampleProcessor;
+    public BatchSamplesProcessor(SampleQueue sampleQueue) {
+      this.mySampleQueue = sampleQueue;
     }
 
     @Override
     ProcessingResult process(String output) throws IOException {
       if (frameIndex == -1) {
-        if (output.startsWith(BATCH_MARKER)) return ProcessingResult.FINISHED;
+        if (output.startsWith(BATCH_MARKER)) {
+          mySampleQueue.flush();
+          return ProcessingResult.FINISHED;
+        }
 
         int i = INDEX + 1; //output.indexOf(' ', INDEX);
         final boolean cpuSample = output.startsWith(SAMPLE_MARKER);
 
         if (cpuSample) {
           i = output.indexOf(' ', INDEX);
-          sampleDuration = Long.parseLong(output.substring(INDEX, i));
+          sampleDuration = parseLong(output, INDEX, i);
           i += 2;
         }
 
@@ -319,7 +332,7 @@ public class ProfilingConnection {
             output.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ||
             output.startsWith(DELETE_OBJECT_SAMPLE_MARKER)) {
           int i2 = output.indexOf(' ', i);
-          int frameCount = Integer.parseInt(output.substring(i - 1, i2 != -1 ? i2 : output.length()));
+          int frameCount = (int)parseLong(output, i - 1, i2 != -1 ? i2 : output.length());
           frames = frameCount > 0 ? new FrameInfo[frameCount] : FrameInfo.EMPTY_FRAME_INFO_ARRAY;
           frameIndex = 0;
           type = output;
@@ -333,7 +346,7 @@ public class ProfilingConnection {
 
         char ch = output.charAt(0);
         if (output.startsWith("u>:")) {
-          int count = Integer.parseInt(output.substring(output.indexOf(':') + 1));
+          int count = (int)parseLong(output, output.indexOf(':') + 1, output.length());
           Sample s =
             type.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ? lastCreateObjectSample : type.startsWith(SAMPLE_MARKER) ? lastCpuSample : null;
           for (int i = s.frames.length - count; i < s.frames.length; ++i) {
@@ -342,13 +355,13 @@ public class ProfilingConnection {
         }
         else {
           if (Character.isDigit(ch)) {
-            output = dictionary.get(output);
+            frames[frameIndex++] = dictionary.get((int)parseLong(output, 0, output.length()) - 1);
           }
           else {
-            dictionary.put("" + (dictionary.size() + 1), output);
+            final FrameInfo frame = frameInfoBuilder.buildInstance(output);
+            dictionary.add(frame);
+            frames[frameIndex++] = frame;
           }
-
-          frames[frameIndex++] = frameInfoBuilder.buildInstance(output);
         }
         return maybeFinishSample();
       }
@@ -366,10 +379,10 @@ public class ProfilingConnection {
           final int endIndex = specialArgs.indexOf(' ');
           final int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
 
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
+          final int id = (int)parseLong(specialArgs, 0, endIndex);
           String className = specialArgs.substring(endIndex + 1, endIndex2);
           className = getClassName(className);
-          final int size = Integer.parseInt(specialArgs.substring(endIndex2 + 1));
+          final int size = (int)parseLong(specialArgs, endIndex2 + 1, specialArgs.length());
           sample = new CreateObjectSample(
             sampleDuration,
             frames,
@@ -384,12 +397,12 @@ public class ProfilingConnection {
           final int endIndex = specialArgs.indexOf(' ');
           int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
           if (endIndex2 == -1) endIndex2 = specialArgs.length();
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
+          final int id = (int)parseLong(specialArgs, 0, endIndex);
           String type = specialArgs.substring(endIndex + 1, endIndex2);
-          final int size = endIndex2 != specialArgs.length() ? Integer.parseInt(specialArgs.substring(endIndex2 + 1)) : 0;
+          final int size = endIndex2 != specialArgs.length() ? (int)parseLong(specialArgs, endIndex2 + 1, specialArgs.length()) : 0;
           if (type != null) {
             type = getClassName(type);
-            mySampleProcessor.process(new DeleteObjectSample(sampleDuration, frames, id, type, size));
+            mySampleQueue.add(new DeleteObjectSample(sampleDuration, frames, id, type, size));
           }
           return ProcessingResult.FINISHED;
         }
@@ -398,7 +411,7 @@ public class ProfilingConnection {
           sample = new Sample(sampleDuration, frames);
           lastCpuSample = sample;
         }
-        mySampleProcessor.process(sample);
+        mySampleQueue.add(sample);
         frameIndex = -1;
         return ProcessingResult.FINISHED;
       }
@@ -409,14 +422,14 @@ public class ProfilingConnection {
 
     private String getClassName(String className) {
       if (Character.isDigit(className.charAt(0))) {
-        className = typeDictionary.get(className);
+        className = typeDictionary.get((int)parseLong(className, 0, className.length()));
       }
       else {
         className = className.replace("::", ".");
         if (className.startsWith(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME)) {
           className = JSCommonTypeNames.VECTOR_CLASS_NAME + className.substring(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME.length());
         }
-        typeDictionary.put(String.valueOf(typeDictionary.size()), className);
+        typeDictionary.add(className);
       }
       return className;
     }
@@ -436,6 +449,22 @@ public class ProfilingConnection {
       specialArgs = null;
     }
 
+    /**
+     * Parses a decimal number in <code>s</code> between <code>start</code> and <code>end</code> without creating a substring.
+     */
+    static long parseLong(String s, int start, int end) {
+      final boolean negative = start < end && s.charAt(start) == '-';
+      int i = negative ? start + 1 : start;
+      if (i >= end) throw new NumberFormatException(s.substring(start, end));
+      long result = 0;
+      for (; i < end; i++) {
+        final int digit = s.charAt(i) - '0';
+        if (digit < 0 || digit > 9) throw new NumberFormatException(s.substring(start, end));
+        result = result * 10 + digit;
+      }
+      return negative ? -result : result;
+    }
+
     private void clearProfilingState() {
       dictionary.clear();
       typeDictionary.clear();
@@ -451,6 +480,8 @@ public class ProfilingConnection {
 
     @Override
     ProcessingResult process(String output) throws IOException {
+      // the callback may rely on all the samples sent before the command result being processed
+      mySampleQueue.flushAndWait();
       Callback callback;
       synchronized (myOutputStream) {
         callback = callbacks.removeFirst();
@@ -477,28 +508,31 @@ public class ProfilingConnection {
 
   private static class SampleInfoProcessor extends PacketProcessor {
     public static final String COMMAND_MARKER = "si\0";
-    private final ProfilerDataConsumer myDataConsumer;
+    private final SampleQueue mySampleQueue;
 
-    SampleInfoProcessor(ProfilerDataConsumer dataConsumer) {
-      myDataConsumer = dataConsumer;
+    SampleInfoProcessor(SampleQueue sampleQueue) {
+      mySampleQueue = sampleQueue;
     }
 
     @Override
     ProcessingResult process(String output) throws IOException {
-      if (output.startsWith("EndSnapshot")) return ProcessingResult.FINISHED;
+      if (output.startsWith("EndSnapshot")) {
+        mySampleQueue.flush();
+        return ProcessingResult.FINISHED;
+      }
       if (output.startsWith(COMMAND_MARKER)) return ProcessingResult.CONTINUE;
       if (output.startsWith("cls:")) {
         return ProcessingResult.CONTINUE;
       }
 
       int i = output.indexOf(',');
-      int id = Integer.parseInt(output.substring(0, i));
+      int id = (int)BatchSamplesProcessor.parseLong(output, 0, i);
 
       while (i != -1) {
         int nextI = output.indexOf(',', i + 1);
         if (nextI == -1) nextI = output.length();
-        int nextId = Integer.parseInt(output.substring(i + 1, nextI));
-        myDataConsumer.referenced(id, nextId);
+        int nextId = (int)BatchSamplesProcessor.parseLong(output, i + 1, nextI);
+        mySampleQueue.addReference(id, nextId);
         if (nextI == output.length()) break;
         i = nextI;
       }
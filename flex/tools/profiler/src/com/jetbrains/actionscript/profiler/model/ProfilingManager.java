@@ -2,6 +2,7 @@ package com.jetbrains.actionscript.profiler.model;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -14,7 +15,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 public class ProfilingManager {
   private static final Logger LOG = Logger.getInstance(ProfilingManager.class.getName());
   private final int myPort;
-  private ProfilingConnection myConnection;
+  private volatile ProfilingConnection myConnection;
 
   private final LinkedBlockingQueue<Runnable> myAsyncExecutionQueue = new LinkedBlockingQueue<Runnable>();
 
@@ -93,6 +94,15 @@ public class ProfilingManager {
     });
   }
 
+  /**
+   * @return statistics of the samples received from the agent or <code>null</code> if there is no connection yet
+   */
+  @Nullable
+  public SampleQueue.Statistics getStatistics() {
+    final ProfilingConnection connection = myConnection;
+    return connection != null ? connection.getStatistics() : null;
+  }
+
   public void dispose() {
     try {
       myConnection.dispose();
@@ -0,0 +1,171 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.jetbrains.actionscript.profiler.sampler.Sample;
+import gnu.trove.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes data decoded on the connection thread to {@link ProfilerDataConsumer}, which processes it on its own thread, in batches through
+ * a bounded queue. When the consumer falls behind the connection thread waits for free space, so the agent is slowed down by the socket.
+ * Batches of CPU samples that can't be queued in {@link #MAX_WAIT_MS} are dropped, object samples and references are never dropped.
+ */
+public class SampleQueue {
+  private static final Logger LOG = Logger.getInstance(SampleQueue.class.getName());
+
+  private static final int BATCH_SIZE = 512;
+  private static final int CAPACITY = 64;
+  private static final long MAX_WAIT_MS = 200;
+
+  private final ProfilerDataConsumer myDataConsumer;
+  private final BlockingQueue<Batch> myQueue = new ArrayBlockingQueue<Batch>(CAPACITY);
+  private Batch myCurrentBatch = new Batch();
+  private volatile boolean myDisposed;
+
+  private final AtomicLong myReceivedSamples = new AtomicLong();
+  private final AtomicLong myProcessedSamples = new AtomicLong();
+  private final AtomicLong myDroppedSamples = new AtomicLong();
+  private final AtomicLong myWaitingNanos = new AtomicLong();
+
+  private static class Batch {
+    private final List<Sample> mySamples = new ArrayList<Sample>(BATCH_SIZE);
+    // pairs of referencing and referenced object ids
+    private final TIntArrayList myReferences = new TIntArrayList();
+    private boolean myOnlyCpuSamples = true;
+    private CountDownLatch myProcessed;
+    private long myQueuedTime;
+
+    boolean isEmpty() {
+      return mySamples.isEmpty() && myReferences.isEmpty() && myProcessed == null;
+    }
+  }
+
+  public static class Statistics {
+    public final long receivedSamples;
+    public final long processedSamples;
+    public final long droppedSamples;
+    public final long waitingMs;
+    public final long lagMs;
+
+    Statistics(long receivedSamples, long processedSamples, long droppedSamples, long waitingMs, long lagMs) {
+      this.receivedSamples = receivedSamples;
+      this.processedSamples = processedSamples;
+      this.droppedSamples = droppedSamples;
+      this.waitingMs = waitingMs;
+      this.lagMs = lagMs;
+    }
+  }
+
+  SampleQueue(ProfilerDataConsumer dataConsumer) {
+    myDataConsumer = dataConsumer;
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      try {
+        while (!myDisposed) {
+          process(myQueue.take());
+        }
+      }
+      catch (InterruptedException ignored) {
+      }
+    });
+  }
+
+  void add(Sample sample) {
+    myReceivedSamples.incrementAndGet();
+    myCurrentBatch.mySamples.add(sample);
+    if (sample.getClass() != Sample.class) {
+      myCurrentBatch.myOnlyCpuSamples = false;
+    }
+    if (myCurrentBatch.mySamples.size() >= BATCH_SIZE) {
+      flush();
+    }
+  }
+
+  void addReference(int pid, int id) {
+    myCurrentBatch.myReferences.add(pid);
+    myCurrentBatch.myReferences.add(id);
+    myCurrentBatch.myOnlyCpuSamples = false;
+  }
+
+  void flush() {
+    final Batch batch = myCurrentBatch;
+    if (batch.isEmpty()) return;
+    myCurrentBatch = new Batch();
+
+    batch.myQueuedTime = System.currentTimeMillis();
+    final long start = System.nanoTime();
+    try {
+      if (!myQueue.offer(batch, MAX_WAIT_MS, TimeUnit.MILLISECONDS)) {
+        if (batch.myOnlyCpuSamples) {
+          myDroppedSamples.addAndGet(batch.mySamples.size());
+          return;
+        }
+        while (!myDisposed && !myQueue.offer(batch, MAX_WAIT_MS, TimeUnit.MILLISECONDS)) {
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      LOG.warn(e);
+    }
+    finally {
+      myWaitingNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Waits until everything added before is processed by the consumer.
+   */
+  void flushAndWait() {
+    final CountDownLatch processed = new CountDownLatch(1);
+    myCurrentBatch.myProcessed = processed;
+    myCurrentBatch.myOnlyCpuSamples = false;
+    flush();
+    try {
+      while (!myDisposed && !processed.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS)) {
+      }
+    }
+    catch (InterruptedException e) {
+      LOG.warn(e);
+    }
+  }
+
+  Statistics getStatistics() {
+    final Batch oldestBatch = myQueue.peek();
+    final long lag = oldestBatch == null ? 0 : System.currentTimeMillis() - oldestBatch.myQueuedTime;
+    return new Statistics(myReceivedSamples.get(), myProcessedSamples.get(), myDroppedSamples.get(),
+                          TimeUnit.NANOSECONDS.toMillis(myWaitingNanos.get()), Math.max(lag, 0));
+  }
+
+  void dispose() {
+    myDisposed = true;
+    myQueue.clear();
+    myQueue.offer(new Batch());
+  }
+
+  private void process(Batch batch) {
+    try {
+      for (Sample sample : batch.mySamples) {
+        myDataConsumer.process(sample);
+      }
+      for (int i = 0; i < batch.myReferences.size(); i += 2) {
+        myDataConsumer.referenced(batch.myReferences.get(i), batch.myReferences.get(i + 1));
+      }
+    }
+    catch (Exception e) {
+      LOG.error(e);
+    }
+    finally {
+      myProcessedSamples.addAndGet(batch.mySamples.size());
+      if (batch.myProcessed != null) {
+        batch.myProcessed.countDown();
+      }
+    }
+  }
+}
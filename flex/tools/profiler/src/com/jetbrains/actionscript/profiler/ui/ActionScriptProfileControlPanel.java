@@ -18,6 +18,7 @@ import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.model.ActionScriptProfileSettings;
 import com.jetbrains.actionscript.profiler.model.ProfilerDataConsumer;
 import com.jetbrains.actionscript.profiler.model.ProfilingManager;
+import com.jetbrains.actionscript.profiler.model.SampleQueue;
 import com.jetbrains.actionscript.profiler.ui.node.CPUSnapshotNode;
 import com.jetbrains.actionscript.profiler.ui.node.LiveObjectsNode;
 import icons.FlexProfilerIcons;
@@ -45,7 +46,9 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
   private final String runConfigurationName;
 
   private final Alarm myAlarm = new Alarm();
+  private final Alarm myStatisticsAlarm = new Alarm();
   private static final int MINUTE = 60 * 1000;
+  private static final int STATISTICS_UPDATE_INTERVAL = 1000;
 
   public ActionScriptProfileControlPanel(String runConfigurationName, final Module module) {
     this.runConfigurationName = runConfigurationName;
@@ -76,6 +79,18 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
     ApplicationManager.getApplication().invokeLater(() -> myStatusLabel.setText(status));
   }
 
+  private void scheduleStatisticsUpdate(final ProfilingManager manager, final long lastProcessedSamples) {
+    myStatisticsAlarm.addRequest(() -> {
+      if (currentState == State.NONE || manager != profilingManager) return;
+      final SampleQueue.Statistics statistics = manager.getStatistics();
+      if (statistics == null) return;
+      final long samplesPerSecond = (statistics.processedSamples - lastProcessedSamples) * 1000 / STATISTICS_UPDATE_INTERVAL;
+      setStatus(ProfilerBundle.message("agent.connection.statistics", samplesPerSecond, statistics.lagMs, statistics.droppedSamples,
+                                       statistics.waitingMs));
+      scheduleStatisticsUpdate(manager, statistics.processedSamples);
+    }, STATISTICS_UPDATE_INTERVAL);
+  }
+
   private void setupComponents() {
     EditSourceOnDoubleClickHandler.install(snapshotTree);
     PopupHandler.installPopupHandler(snapshotTree, PROFILER_SNAPSHOT_GROUP_ID, ActionPlaces.UNKNOWN);
@@ -111,6 +126,7 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
       profilingManager.dispose();
     }
     profilingManager = new ProfilingManager(ActionScriptProfileSettings.getInstance().getPort());
+    final ProfilingManager manager = profilingManager;
     final LiveModelController liveModelController = new LiveModelController();
 
     final LiveObjectsNode liveObjectsNode = new LiveObjectsNode(runConfigurationName, module, profilingManager, liveModelController);
@@ -127,8 +143,11 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
           setStatus(ProfilerBundle.message("agent.connection.open"));
           ApplicationManager.getApplication().invokeLater(connectionCallback);
           setCurrentState(State.NORMAL);
+          myStatisticsAlarm.cancelAllRequests();
+          scheduleStatisticsUpdate(manager, 0);
         }
         else if (ex != null) {
+          myStatisticsAlarm.cancelAllRequests();
           setStatus(ProfilerBundle.message("agent.connection.close"));
           setCurrentState(State.NONE);
           ApplicationManager.getApplication().invokeLater(() -> treeModel.removeNodeFromParent(liveObjectsNode));
@@ -147,6 +166,7 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
   public void dispose() {
     profilingManager.dispose();
     Disposer.dispose(myAlarm);
+    Disposer.dispose(myStatisticsAlarm);
   }
 
   public DefaultActionGroup createProfilerActionGroup() {
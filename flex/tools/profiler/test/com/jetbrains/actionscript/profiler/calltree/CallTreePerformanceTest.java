@@ -0,0 +1,68 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+
+public class CallTreePerformanceTest extends TestCase {
+  private static final int SAMPLE_COUNT = 300000;
+  private static final int FRAME_COUNT = 500;
+
+  /*
+   * Sample stream of a long profiling session: stacks share common prefixes, leaf frames vary, some frames are recursive.
+   */
+  private static FrameInfo[][] generateSamples(boolean withSystemFrames) {
+    final FrameInfo[] frames = new FrameInfo[FRAME_COUNT];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = withSystemFrames && i % 50 == 0 ? FrameUtil.getFrameInfo("") : FrameUtil.getFrameInfo("pack.Class" + i);
+    }
+
+    final Random random = new Random(239);
+    final FrameInfo[][] samples = new FrameInfo[SAMPLE_COUNT][];
+    for (int i = 0; i < samples.length; i++) {
+      final FrameInfo[] sample = new FrameInfo[5 + random.nextInt(30)];
+      for (int depth = 0; depth < sample.length; depth++) {
+        // frames near the root are few, frames near the top of the stack are many
+        final int range = Math.min(FRAME_COUNT, 4 + depth * depth);
+        sample[sample.length - 1 - depth] = frames[random.nextInt(range)];
+      }
+      samples[i] = sample;
+    }
+    return samples;
+  }
+
+  public void testReplaySamples() {
+    final FrameInfo[][] samples = generateSamples(true);
+    final FrameInfo[] callers = {samples[0][0]};
+    final FrameInfo[] callees = {samples[0][samples[0].length - 1]};
+
+    PlatformTestUtil.startPerformanceTest("Call tree from recorded samples", 4000, () -> {
+      final CallTree tree = new CallTree();
+      for (FrameInfo[] sample : samples) {
+        tree.addFrames(sample, 1);
+      }
+      assertFalse(tree.getTimeMaps().getFirst().isEmpty());
+      tree.getCallersTimeMaps(callers);
+      tree.getCalleesTimeMaps(callees);
+      CallTreeUtil.filterSystemStuff(tree).getTimeMaps();
+    }).cpuBound().assertTiming();
+  }
+
+  public void testIncrementalTimeMaps() {
+    final CallTree tree = new CallTree();
+    for (FrameInfo[] sample : generateSamples(false)) {
+      tree.addFrames(sample, sample.length % 3);
+    }
+
+    // without system frames the filtered tree is a copy built node by node, its time maps are computed by traversal
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> expected = CallTreeUtil.filterSystemStuff(tree).getTimeMaps();
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> actual = tree.getTimeMaps();
+    assertEquals(expected.getFirst(), actual.getFirst());
+    assertEquals(expected.getSecond(), actual.getSecond());
+  }
+}
@@ -11,26 +11,26 @@ public class CallTreeTestUtil {
   }
 
   public static CallTree getCallTreeFromXmlFile(@NotNull XmlTag rootTag) {
-    CallTreeNode root = getCallTreeNodeFromXmlTag(rootTag);
-    return new CallTree(root);
+    CallTree tree = new CallTree();
+    addChildrenFromXmlTag(tree, CallTree.ROOT, rootTag);
+    return tree;
   }
 
-  private static CallTreeNode getCallTreeNodeFromXmlTag(XmlTag rootTag) {
-    int count = Integer.MAX_VALUE;
-    String countStr = rootTag.getAttributeValue("count");
-    if (countStr != null) {
-      count = Integer.parseInt(countStr);
+  private static void addChildrenFromXmlTag(CallTree tree, int node, XmlTag tag) {
+    int count = getCount(tag);
+    FrameInfo frameInfo = FrameUtil.getFrameInfo(tag.getName());
+    if (tag.isEmpty()) {
+      return;
     }
-    FrameInfo frameInfo = FrameUtil.getFrameInfo(rootTag.getName());
-    CallTreeNode node = new CallTreeNode(frameInfo, count);
-    if (rootTag.isEmpty()) {
-      return node;
+    for (XmlTag childTag : tag.getSubTags()) {
+      int childNode = tree.addChild(node, FrameUtil.getFrameInfo(childTag.getName()), getCount(childTag));
+      addChildrenFromXmlTag(tree, childNode, childTag);
+      Assert.assertTrue("Bad edge " + frameInfo + "->" + tree.getFrameInfo(childNode), tree.calcChildrenTiming(childNode) <= count);
     }
-    for (XmlTag childTag : rootTag.getSubTags()) {
-      CallTreeNode childNode = getCallTreeNodeFromXmlTag(childTag);
-      node.addChildRecursive(childNode);
-      Assert.assertTrue("Bad edge " + node.getFrameInfo() + "->" + childNode.getFrameInfo(), childNode.calcSelfTiming() <= count);
-    }
-    return node;
+  }
+
+  private static int getCount(XmlTag tag) {
+    String countStr = tag.getAttributeValue("count");
+    return countStr != null ? Integer.parseInt(countStr) : Integer.MAX_VALUE;
   }
 }
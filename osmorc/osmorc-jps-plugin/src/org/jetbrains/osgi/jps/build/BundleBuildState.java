@@ -0,0 +1,422 @@
+/*
+ * Copyright 2000-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.osgi.jps.build;
+
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Descriptors;
+import aQute.bnd.osgi.FileResource;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Inputs of the last bnd run for a bundle: build instructions, files of class directories and resources, and packages referenced by
+ * classes packed into the bundle.
+ * <p/>
+ * When only bodies of packed classes have changed since then (i.e. the instructions, the file set, resources and referenced packages
+ * are the same), the manifest calculated by bnd is still valid, so the bundle is patched in place instead of being built again.
+ */
+class BundleBuildState {
+  private static final Logger LOG = Logger.getInstance(BundleBuildState.class);
+
+  private static final int VERSION = 1;
+
+  // headers which make bnd look into class contents beyond references
+  private static final Set<String> CONTENT_HEADERS = new HashSet<String>(Arrays.asList(
+    Constants.SERVICE_COMPONENT, Constants.CONDITIONAL_PACKAGE));
+  // instructions known not to depend on class contents, other ones disable incremental updates
+  private static final Set<String> SAFE_INSTRUCTIONS = new HashSet<String>(Arrays.asList(
+    Constants.MANIFEST, Constants.REMOVEHEADERS, Constants.DONOTCOPY, Constants.EXPORT_CONTENTS));
+  // packages of annotations processed by bnd
+  private static final String[] ANNOTATION_PACKAGES = {"aQute.bnd.annotation", "org.osgi.annotation", "org.osgi.service.component.annotations"};
+
+  private static class Stamp {
+    private final long myLength;
+    private final long myLastModified;
+
+    private Stamp(long length, long lastModified) {
+      myLength = length;
+      myLastModified = lastModified;
+    }
+
+    private Stamp(File file) {
+      this(file.length(), file.lastModified());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Stamp && ((Stamp)o).myLength == myLength && ((Stamp)o).myLastModified == myLastModified;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int)(myLength * 31 + myLastModified);
+    }
+  }
+
+  private static class ClassInfo {
+    private final String myFormat;
+    private final Set<String> myReferredPackages;
+
+    private ClassInfo(String format, Set<String> referredPackages) {
+      myFormat = format;
+      myReferredPackages = referredPackages;
+    }
+
+    private boolean isProcessedByBnd() {
+      for (String aPackage : myReferredPackages) {
+        for (String annotationPackage : ANNOTATION_PACKAGES) {
+          if (aPackage.startsWith(annotationPackage)) return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ClassInfo && ((ClassInfo)o).myFormat.equals(myFormat) && ((ClassInfo)o).myReferredPackages.equals(myReferredPackages);
+    }
+
+    @Override
+    public int hashCode() {
+      return myFormat.hashCode() * 31 + myReferredPackages.hashCode();
+    }
+  }
+
+  private final Map<String, String> myInstructions;
+  // relative path -> file, for files of class directories (the first directory wins, as in bnd)
+  private final Map<String, File> myClassFiles = new TreeMap<String, File>();
+  private final Map<String, Stamp> myClassStamps = new HashMap<String, Stamp>();
+  // absolute path -> stamp, for resources and the manifest
+  private final Map<String, Stamp> myResourceStamps = new TreeMap<String, Stamp>();
+  // relative path -> info, for classes packed into the bundle
+  private final Map<String, ClassInfo> myPackedClasses = new HashMap<String, ClassInfo>();
+  private Stamp myBundleStamp = new Stamp(0, 0);
+
+  private BundleBuildState(@NotNull Map<String, String> instructions) {
+    myInstructions = new TreeMap<String, String>(instructions);
+  }
+
+  /**
+   * Collects the current inputs of a bundle built with the given instructions (before local packages are added).
+   * Returns null when the instructions make the bundle depend on something that is not tracked.
+   */
+  @Nullable
+  public static BundleBuildState collect(@NotNull Map<String, String> instructions, @NotNull File[] classes) {
+    for (Map.Entry<String, String> entry : instructions.entrySet()) {
+      String key = entry.getKey();
+      if (key.startsWith("-") && !SAFE_INSTRUCTIONS.contains(key) || CONTENT_HEADERS.contains(key) || entry.getValue().contains("${")) {
+        return null;
+      }
+    }
+
+    BundleBuildState state = new BundleBuildState(instructions);
+
+    for (File root : classes) {
+      state.collectClassFiles(root, "");
+    }
+
+    String manifest = instructions.get(Constants.MANIFEST);
+    if (manifest != null) {
+      state.collectResources(new File(manifest));
+    }
+
+    String resources = instructions.get(Constants.INCLUDE_RESOURCE);
+    if (resources != null) {
+      for (String clause : resources.split(",")) {
+        File source = getResourceSource(clause);
+        if (source == null) return null;
+        if (!ArrayUtil.contains(source, classes)) {
+          state.collectResources(source);
+        }
+      }
+    }
+
+    return state;
+  }
+
+  // "{-target=@source;params}" -> source
+  @Nullable
+  private static File getResourceSource(String clause) {
+    String source = clause.trim();
+    int p = source.indexOf(';');
+    if (p >= 0) source = source.substring(0, p);
+    p = source.indexOf('=');
+    if (p >= 0) source = source.substring(p + 1);
+    source = source.replace("{", "").replace("}", "").trim();
+    if (source.startsWith("-")) source = source.substring(1);
+    if (source.startsWith("@")) source = source.substring(1);
+    File file = new File(source);
+    return file.isAbsolute() ? file : null;
+  }
+
+  private void collectClassFiles(File dir, String prefix) {
+    File[] files = dir.listFiles();
+    if (files == null) return;
+    for (File file : files) {
+      String path = prefix + file.getName();
+      if (file.isDirectory()) {
+        collectClassFiles(file, path + '/');
+      }
+      else if (!myClassFiles.containsKey(path)) {
+        myClassFiles.put(path, file);
+        myClassStamps.put(path, new Stamp(file));
+      }
+    }
+  }
+
+  private void collectResources(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        collectResources(child);
+      }
+    }
+    else {
+      myResourceStamps.put(file.getAbsolutePath(), new Stamp(file));
+    }
+  }
+
+  /**
+   * Records packages referenced by the classes of a freshly built bundle.
+   */
+  public void recordBundle(@NotNull File bundle) throws Exception {
+    Analyzer analyzer = new Analyzer();
+    try {
+      JarFile jar = new JarFile(bundle);
+      try {
+        for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+          String name = entries.nextElement().getName();
+          File file = myClassFiles.get(name);
+          if (file != null && name.endsWith(".class")) {
+            myPackedClasses.put(name, analyze(analyzer, name, file));
+          }
+        }
+      }
+      finally {
+        jar.close();
+      }
+    }
+    finally {
+      analyzer.close();
+    }
+    myBundleStamp = new Stamp(bundle);
+  }
+
+  /**
+   * Patches the bundle built from the previous inputs with classes changed since then.
+   * Returns false if the bundle is to be built again.
+   */
+  public boolean updateBundle(@NotNull BundleBuildState previous, @NotNull File bundle, @NotNull Reporter reporter) throws Exception {
+    if (!bundle.isFile() || !previous.myBundleStamp.equals(new Stamp(bundle)) ||
+        !previous.myInstructions.equals(myInstructions) ||
+        !previous.myResourceStamps.equals(myResourceStamps) ||
+        !previous.myClassFiles.keySet().equals(myClassFiles.keySet())) {
+      return false;
+    }
+
+    Map<String, File> changed = new HashMap<String, File>();
+    Analyzer analyzer = new Analyzer();
+    try {
+      for (Map.Entry<String, File> entry : myClassFiles.entrySet()) {
+        String path = entry.getKey();
+        ClassInfo info = previous.myPackedClasses.get(path);
+        if (previous.myClassStamps.get(path).equals(myClassStamps.get(path))) {
+          if (info != null) myPackedClasses.put(path, info);
+        }
+        else if (info == null) {
+          // resources and classes which are left out are not analyzed by bnd
+          if (path.endsWith(".class")) continue;
+          return false;
+        }
+        else {
+          ClassInfo newInfo = analyze(analyzer, path, entry.getValue());
+          if (path.endsWith("/package-info.class") || info.isProcessedByBnd() || !info.equals(newInfo)) {
+            return false;
+          }
+          myPackedClasses.put(path, newInfo);
+          changed.put(path, entry.getValue());
+        }
+      }
+    }
+    finally {
+      analyzer.close();
+    }
+
+    if (!changed.isEmpty()) {
+      reporter.progress("Patching the bundle with changed classes");
+      patch(bundle, changed);
+    }
+    myBundleStamp = new Stamp(bundle);
+    return true;
+  }
+
+  private static ClassInfo analyze(Analyzer analyzer, String path, File file) throws Exception {
+    Clazz clazz = new Clazz(analyzer, path, new FileResource(file));
+    clazz.parseClassFile();
+    Set<String> packages = new TreeSet<String>();
+    for (Descriptors.PackageRef ref : clazz.getReferred()) {
+      packages.add(ref.getFQN());
+    }
+    return new ClassInfo(clazz.getFormat().name(), packages);
+  }
+
+  private static void patch(File bundle, Map<String, File> changed) throws IOException {
+    File tempFile = new File(bundle.getPath() + ".tmp");
+    JarFile jar = new JarFile(bundle);
+    try {
+      ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+          ZipEntry entry = entries.nextElement();
+          File file = changed.get(entry.getName());
+          ZipEntry newEntry = new ZipEntry(entry.getName());
+          newEntry.setTime(file != null ? file.lastModified() : entry.getTime());
+          newEntry.setExtra(entry.getExtra());
+          newEntry.setComment(entry.getComment());
+          output.putNextEntry(newEntry);
+          if (file != null || !entry.isDirectory()) {
+            InputStream input = file != null ? new FileInputStream(file) : jar.getInputStream(entry);
+            try {
+              FileUtil.copy(input, output);
+            }
+            finally {
+              input.close();
+            }
+          }
+          output.closeEntry();
+        }
+      }
+      finally {
+        output.close();
+      }
+    }
+    finally {
+      jar.close();
+    }
+
+    if (!FileUtil.delete(bundle)) {
+      throw new IOException("Can't delete bundle file '" + bundle + "'");
+    }
+    FileUtil.rename(tempFile, bundle);
+  }
+
+  @Nullable
+  public static BundleBuildState load(@NotNull File file) {
+    if (!file.isFile()) return null;
+
+    try {
+      DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (input.readInt() != VERSION) return null;
+
+        Map<String, String> instructions = new HashMap<String, String>();
+        for (int i = input.readInt(); i > 0; i--) {
+          instructions.put(IOUtil.readString(input), IOUtil.readString(input));
+        }
+
+        BundleBuildState state = new BundleBuildState(instructions);
+        state.myBundleStamp = readStamp(input);
+        for (int i = input.readInt(); i > 0; i--) {
+          String path = IOUtil.readString(input);
+          state.myClassFiles.put(path, new File(IOUtil.readString(input)));
+          state.myClassStamps.put(path, readStamp(input));
+        }
+        for (int i = input.readInt(); i > 0; i--) {
+          state.myResourceStamps.put(IOUtil.readString(input), readStamp(input));
+        }
+        for (int i = input.readInt(); i > 0; i--) {
+          String path = IOUtil.readString(input);
+          String format = IOUtil.readString(input);
+          Set<String> packages = new TreeSet<String>();
+          for (int j = input.readInt(); j > 0; j--) {
+            packages.add(IOUtil.readString(input));
+          }
+          state.myPackedClasses.put(path, new ClassInfo(format, packages));
+        }
+        return state;
+      }
+      finally {
+        input.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Unable to read bundle build state " + file, e);
+      return null;
+    }
+  }
+
+  public void save(@NotNull File file) throws IOException {
+    FileUtil.createParentDirs(file);
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      output.writeInt(VERSION);
+
+      output.writeInt(myInstructions.size());
+      for (Map.Entry<String, String> entry : myInstructions.entrySet()) {
+        IOUtil.writeString(entry.getKey(), output);
+        IOUtil.writeString(entry.getValue(), output);
+      }
+
+      writeStamp(output, myBundleStamp);
+      output.writeInt(myClassFiles.size());
+      for (Map.Entry<String, File> entry : myClassFiles.entrySet()) {
+        IOUtil.writeString(entry.getKey(), output);
+        IOUtil.writeString(entry.getValue().getPath(), output);
+        writeStamp(output, myClassStamps.get(entry.getKey()));
+      }
+
+      output.writeInt(myResourceStamps.size());
+      for (Map.Entry<String, Stamp> entry : myResourceStamps.entrySet()) {
+        IOUtil.writeString(entry.getKey(), output);
+        writeStamp(output, entry.getValue());
+      }
+
+      output.writeInt(myPackedClasses.size());
+      for (Map.Entry<String, ClassInfo> entry : myPackedClasses.entrySet()) {
+        IOUtil.writeString(entry.getKey(), output);
+        IOUtil.writeString(entry.getValue().myFormat, output);
+        output.writeInt(entry.getValue().myReferredPackages.size());
+        for (String aPackage : entry.getValue().myReferredPackages) {
+          IOUtil.writeString(aPackage, output);
+        }
+      }
+    }
+    finally {
+      output.close();
+    }
+  }
+
+  private static Stamp readStamp(DataInput input) throws IOException {
+    return new Stamp(input.readLong(), input.readLong());
+  }
+
+  private static void writeStamp(DataOutput output, Stamp stamp) throws IOException {
+    output.writeLong(stamp.myLength);
+    output.writeLong(stamp.myLastModified);
+  }
+}
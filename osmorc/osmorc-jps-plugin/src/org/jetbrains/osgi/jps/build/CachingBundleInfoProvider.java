@@ -26,25 +26,61 @@ package org.jetbrains.osgi.jps.build;
 
 import aQute.bnd.osgi.Constants;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 /**
  * This is a helper class which helps providing information about bundles (that do not necessarily belong to the project).
+ * <p/>
+ * Main manifest attributes are cached by path and checked against the modification time and size of the .jar file
+ * (or of the manifest of an exploded directory) on every access. The cache can be saved to and loaded from a file;
+ * entries of bundles which are gone or were not accessed for {@link #MAX_UNUSED_TIME} are not saved. The access time is kept
+ * with a precision of a day, so that entries which are only read don't cause a save on every build.
  *
  * @author <a href="mailto:janthomae@janthomae.de">Jan Thom&auml;</a>
  */
 public class CachingBundleInfoProvider {
-  private static final Map<String, Pair<Long, Manifest>> ourCache = new WeakHashMap<String, Pair<Long, Manifest>>();
+  private static final Logger LOG = Logger.getInstance(CachingBundleInfoProvider.class);
+
+  private static final int CACHE_VERSION = 2;
+  private static final long ACCESS_TIME_PRECISION = TimeUnit.DAYS.toMillis(1);
+  private static final long MAX_UNUSED_TIME = TimeUnit.DAYS.toMillis(30);
+
+  private static final ConcurrentMap<String, BundleInfo> ourCache = ContainerUtil.newConcurrentMap();
+  private static final AtomicBoolean ourModified = new AtomicBoolean();
+
+  private static class BundleInfo {
+    private final long myLastModified;
+    private final long myLength;
+    // main manifest attributes (header names are case-insensitive), null when there is no manifest
+    private final Map<String, String> myAttributes;
+    private volatile long myLastAccessed;
+
+    private BundleInfo(long lastModified, long length, @Nullable Map<String, String> attributes, long lastAccessed) {
+      myLastModified = lastModified;
+      myLength = length;
+      myAttributes = attributes;
+      myLastAccessed = lastAccessed;
+    }
+
+    private boolean isUpToDate(File file) {
+      return myLastModified == file.lastModified() && myLength == file.length();
+    }
+  }
 
   /**
    * True for .jar files or exploded directories with Bundle-SymbolicName in their manifests.
@@ -83,51 +119,222 @@ public class CachingBundleInfoProvider {
   }
 
   @Nullable
-  public synchronized static String getBundleAttribute(@NotNull String path, @NotNull String attribute) {
-    Pair<Long, Manifest> pair = ourCache.remove(path);
+  public static String getBundleAttribute(@NotNull String path, @NotNull String attribute) {
+    File bundleFile = new File(path);
+    File stampFile;
+    if (bundleFile.isDirectory()) {
+      stampFile = new File(bundleFile, JarFile.MANIFEST_NAME);
+    }
+    else if (bundleFile.isFile()) {
+      stampFile = bundleFile;
+    }
+    else {
+      if (ourCache.remove(path) != null) {
+        ourModified.set(true);
+      }
+      return null;
+    }
+
+    BundleInfo info = ourCache.get(path);
+    long now = System.currentTimeMillis();
+    if (info == null || !info.isUpToDate(stampFile)) {
+      // concurrent readers of the same bundle may both read it, the results are the same
+      long lastModified = stampFile.lastModified();
+      long length = stampFile.length();
+      info = new BundleInfo(lastModified, length, readAttributes(bundleFile, stampFile), now);
+      ourCache.put(path, info);
+      ourModified.set(true);
+    }
+    else if (now - info.myLastAccessed > ACCESS_TIME_PRECISION) {
+      info.myLastAccessed = now;
+      ourModified.set(true);
+    }
 
+    return info.myAttributes != null ? info.myAttributes.get(attribute) : null;
+  }
+
+  @Nullable
+  private static Map<String, String> readAttributes(File bundleFile, File stampFile) {
     try {
-      File bundleFile = new File(path);
+      Manifest manifest;
       if (bundleFile.isDirectory()) {
-        File manifestFile = new File(bundleFile, JarFile.MANIFEST_NAME);
-        if (pair == null || pair.first != manifestFile.lastModified()) {
-          pair = null;
-          FileInputStream stream = new FileInputStream(manifestFile);
-          try {
-            Manifest manifest = new Manifest(stream);
-            pair = Pair.create(manifestFile.lastModified(), manifest);
-          }
-          finally {
-            stream.close();
+        FileInputStream stream = new FileInputStream(stampFile);
+        try {
+          manifest = new Manifest(stream);
+        }
+        finally {
+          stream.close();
+        }
+      }
+      else {
+        JarFile jar = new JarFile(bundleFile);
+        try {
+          manifest = jar.getManifest();
+        }
+        finally {
+          jar.close();
+        }
+      }
+
+      if (manifest != null) {
+        Map<String, String> attributes = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<Object, Object> entry : manifest.getMainAttributes().entrySet()) {
+          attributes.put(entry.getKey().toString(), (String)entry.getValue());
+        }
+        return attributes;
+      }
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+
+    return null;
+  }
+
+  /**
+   * Reads manifests of the given bundles which are not cached yet or have changed, in parallel.
+   */
+  public static void preload(@NotNull Collection<String> paths, @NotNull ExecutorService executor) {
+    List<Future<?>> futures = new ArrayList<Future<?>>(paths.size());
+    for (final String path : paths) {
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          getBundleAttribute(path, Constants.BUNDLE_SYMBOLICNAME);
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      catch (ExecutionException e) {
+        LOG.warn(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Adds the entries saved in the given file to the cache. Entries of bundles changed since then are read again on access.
+   * A file which can't be read is deleted.
+   */
+  public static void loadCache(@NotNull File cacheFile) {
+    if (!cacheFile.isFile()) return;
+
+    Map<String, BundleInfo> loaded = new HashMap<String, BundleInfo>();
+    try {
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(FileUtil.loadFileBytes(cacheFile)));
+      if (input.readInt() != CACHE_VERSION) return;
+
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+        String path = readString(input);
+        long lastModified = input.readLong();
+        long length = input.readLong();
+        long lastAccessed = input.readLong();
+        Map<String, String> attributes = null;
+        int attributeCount = input.readInt();
+        if (attributeCount >= 0) {
+          attributes = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+          for (int j = 0; j < attributeCount; j++) {
+            attributes.put(readString(input), readString(input));
           }
         }
+        loaded.put(path, new BundleInfo(lastModified, length, attributes, lastAccessed));
       }
-      else if (bundleFile.isFile()) {
-        if (pair == null || pair.first != bundleFile.lastModified()) {
-          pair = null;
-          JarFile jar = new JarFile(bundleFile);
-          try {
-            Manifest manifest = jar.getManifest();
-            if (manifest != null) {
-              pair = Pair.create(bundleFile.lastModified(), manifest);
-            }
+    }
+    catch (Exception e) {
+      LOG.info("Unable to read bundle info cache " + cacheFile + ", it is discarded", e);
+      FileUtil.delete(cacheFile);
+      return;
+    }
+
+    for (Map.Entry<String, BundleInfo> entry : loaded.entrySet()) {
+      ourCache.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Saves the cache to the given file if it was changed since the last save or load.
+   * The file is replaced only when it has been written completely.
+   * <p/>
+   * Entries are pruned by age rather than by the accesses since the load, as the cache is saved after each
+   * module is bundlified and the entries of the other modules must survive it.
+   */
+  public static synchronized void saveCache(@NotNull File cacheFile) {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, BundleInfo> entry : ourCache.entrySet()) {
+      if (now - entry.getValue().myLastAccessed > MAX_UNUSED_TIME || !new File(entry.getKey()).exists()) {
+        if (ourCache.remove(entry.getKey(), entry.getValue())) {
+          ourModified.set(true);
+        }
+      }
+    }
+    if (!ourModified.getAndSet(false)) return;
+
+    File tempFile = new File(cacheFile.getPath() + ".tmp");
+    try {
+      FileUtil.createParentDirs(tempFile);
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        Map<String, BundleInfo> snapshot = new HashMap<String, BundleInfo>(ourCache);
+        output.writeInt(CACHE_VERSION);
+        output.writeInt(snapshot.size());
+        for (Map.Entry<String, BundleInfo> entry : snapshot.entrySet()) {
+          BundleInfo info = entry.getValue();
+          writeString(output, entry.getKey());
+          output.writeLong(info.myLastModified);
+          output.writeLong(info.myLength);
+          output.writeLong(info.myLastAccessed);
+          if (info.myAttributes == null) {
+            output.writeInt(-1);
           }
-          finally {
-            jar.close();
+          else {
+            output.writeInt(info.myAttributes.size());
+            for (Map.Entry<String, String> attribute : info.myAttributes.entrySet()) {
+              writeString(output, attribute.getKey());
+              writeString(output, attribute.getValue());
+            }
           }
         }
       }
+      finally {
+        output.close();
+      }
+
+      FileUtil.rename(tempFile, cacheFile);
     }
     catch (IOException e) {
-      Logger.getInstance(CachingBundleInfoProvider.class).debug(e);
+      LOG.info("Unable to save bundle info cache " + cacheFile, e);
+      FileUtil.delete(tempFile);
     }
+  }
 
-    if (pair != null) {
-      ourCache.put(path, pair);
-      return pair.second.getMainAttributes().getValue(attribute);
-    }
-    else {
-      return null;
+  @TestOnly
+  public static void clearCache() {
+    ourCache.clear();
+    ourModified.set(false);
+  }
+
+  // manifest headers may be longer than DataOutput.writeUTF() allows
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes("UTF-8");
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length < 0 || length > input.available()) {
+      throw new IOException("Invalid string length: " + length);
     }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
   }
 }
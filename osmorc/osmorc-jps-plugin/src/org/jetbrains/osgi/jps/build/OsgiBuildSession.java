@@ -58,16 +58,19 @@ public class OsgiBuildSession implements Reporter {
   private JpsModule myModule;
   private String myMessagePrefix;
   private File myOutputJarFile;
+  private File myStateFile;
   private File myModuleOutputDir;
   private File[] myClasses;
   private File[] mySources;
   private BndWrapper myBndWrapper;
   private String mySourceToReport = null;
+  private boolean myErrorsReported = false;
 
   public void build(@NotNull OsmorcBuildTarget target, @NotNull CompileContext context) throws IOException {
     myContext = context;
     myExtension = target.getExtension();
     myModule = target.getModule();
+    myStateFile = new File(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target), "bundle-state.dat");
     myMessagePrefix = "[" + myModule.getName() + "] ";
 
     progress("Building OSGi bundle");
@@ -78,6 +81,9 @@ public class OsgiBuildSession implements Reporter {
     }
     catch (OsgiBuildException e) {
       error(e.getMessage(), e.getCause(), e.getSourcePath());
+      if (myOutputJarFile != null) {
+        FileUtil.delete(myOutputJarFile);
+      }
       return;
     }
 
@@ -106,9 +112,6 @@ public class OsgiBuildSession implements Reporter {
     }
 
     myOutputJarFile = new File(jarFileLocation);
-    if (!FileUtil.delete(myOutputJarFile)) {
-      throw new OsgiBuildException("Can't delete bundle file '" + myOutputJarFile + "'.");
-    }
     if (!FileUtil.createParentDirs(myOutputJarFile)) {
       throw new OsgiBuildException("Cannot create directory for bundle file '" + myOutputJarFile + "'.");
     }
@@ -143,9 +146,15 @@ public class OsgiBuildSession implements Reporter {
   }
 
   private void doBuild() throws OsgiBuildException {
-    progress("Running Bnd to build the bundle");
+    BundleBuildState previousState = BundleBuildState.load(myStateFile);
+    if (previousState != null && !FileUtil.delete(myStateFile)) {
+      throw new OsgiBuildException("Can't delete build state file '" + myStateFile + "'.");
+    }
 
     if (myExtension.isUseBndFile()) {
+      deleteOutputJar();
+      progress("Running Bnd to build the bundle");
+
       String bndPath = myExtension.getBndFileLocation();
       File bndFile = OsgiBuildUtil.findFileInModuleContentRoots(myModule, bndPath);
       if (bndFile == null || !bndFile.canRead()) {
@@ -168,6 +177,8 @@ public class OsgiBuildSession implements Reporter {
         throw new OsgiBuildException("Bundlor file missing '" + bundlorPath + "' - please check OSGi facet settings.");
       }
 
+      deleteOutputJar();
+      progress("Running Bnd to build the bundle");
       File tempFile = new File(myOutputJarFile.getAbsolutePath() + ".tmp.jar");
 
       try {
@@ -194,13 +205,37 @@ public class OsgiBuildSession implements Reporter {
     }
     else if (myExtension.isManifestManuallyEdited() || myExtension.isOsmorcControlsManifest()) {
       Map<String, String> buildProperties = getBuildProperties();
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("build properties: " + buildProperties);
-      }
 
       mySourceToReport = getSourceFileToReport();
+      BundleBuildState state = BundleBuildState.collect(buildProperties, myClasses);
       try {
+        if (state != null && previousState != null && !myExtension.isAlwaysRebuildBundleJar() &&
+            state.updateBundle(previousState, myOutputJarFile, this)) {
+          saveState(state);
+          mySourceToReport = null;
+          return;
+        }
+
+        if (myExtension.isOsmorcControlsManifest()) {
+          // support the {local-packages} instruction
+          progress("Calculating local packages");
+          LocalPackageCollector.addLocalPackages(myModuleOutputDir, buildProperties);
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("build properties: " + buildProperties);
+        }
+
+        deleteOutputJar();
+        progress("Running Bnd to build the bundle");
         myBndWrapper.build(buildProperties, myClasses, mySources, myOutputJarFile);
+
+        if (state != null && !myErrorsReported && myOutputJarFile.exists()) {
+          state.recordBundle(myOutputJarFile);
+          saveState(state);
+        }
+      }
+      catch (OsgiBuildException e) {
+        throw e;
       }
       catch (Exception e) {
         throw new OsgiBuildException("Unexpected build error", e, null);
@@ -278,13 +313,23 @@ public class OsgiBuildSession implements Reporter {
       properties.put(Constants.DONOTCOPY, pattern);
     }
 
-    if (myExtension.isOsmorcControlsManifest()) {
-      // support the {local-packages} instruction
-      progress("Calculating local packages");
-      LocalPackageCollector.addLocalPackages(myModuleOutputDir, properties);
+    return properties;
+  }
+
+  private void deleteOutputJar() throws OsgiBuildException {
+    if (!FileUtil.delete(myOutputJarFile)) {
+      throw new OsgiBuildException("Can't delete bundle file '" + myOutputJarFile + "'.");
     }
+  }
 
-    return properties;
+  private void saveState(BundleBuildState state) {
+    try {
+      state.save(myStateFile);
+    }
+    catch (IOException e) {
+      LOG.warn("Can't save build state file '" + myStateFile + "'", e);
+      FileUtil.delete(myStateFile);
+    }
   }
 
   private String getSourceFileToReport() {
@@ -318,6 +363,7 @@ public class OsgiBuildSession implements Reporter {
   @Override
   public void error(@NotNull String message, @Nullable Throwable t, @Nullable String sourcePath) {
     LOG.warn(message, t);
+    myErrorsReported = true;
     if (sourcePath == null) sourcePath = mySourceToReport;
     myContext.processMessage(new CompilerMessage(OsmorcBuilder.ID, BuildMessage.Kind.ERROR, myMessagePrefix + message, sourcePath));
   }
@@ -20,6 +20,7 @@ import org.jetbrains.osgi.jps.model.ManifestGenerationMode
 import org.jetbrains.osgi.jps.model.OsmorcJarContentEntry
 
 class OsgiBuildTest : OsgiBuildTestCase() {
+  private val LAST_MODIFIED = "META-INF/MANIFEST.MF:Bnd-LastModified"
   private lateinit var myModule: JpsModule
 
   override fun setUp() {
@@ -161,6 +162,45 @@ class OsgiBuildTest : OsgiBuildTestCase() {
     makeAll().assertUpToDate()
   }
 
+  fun testIncrementalUpdate() {
+    ideaBuild(myModule)
+    createFile("main/src/main/Main.java", "package main;\n\npublic class Main { public String main() { return util.Util.util(); } }")
+    createFile("main/src/util/Util.java", "package util;\n\npublic class Util { public static String util() { return \"Hello\"; } }")
+    makeAll().assertBundleCompiled(myModule)
+    val initial = bundleContents(myModule)
+
+    changeFile("main/src/main/Main.java", "package main;\n\npublic class Main { public String main() { return util.Util.util() + \" world\"; } }")
+    makeAll().assertBundleCompiled(myModule)
+    val incremental = bundleContents(myModule)
+    assertEquals(initial[LAST_MODIFIED], incremental[LAST_MODIFIED])
+    assertFalse(initial["main/Main.class"] == incremental["main/Main.class"])
+    makeAll().assertUpToDate()
+
+    rebuildAll()
+    assertEquals(bundleContents(myModule).filterKeys { it != LAST_MODIFIED }, incremental.filterKeys { it != LAST_MODIFIED })
+  }
+
+  fun testFullBuildOnImportChange() {
+    ideaBuild(myModule)
+    createFile("main/src/main/Main.java", "package main;\n\npublic class Main { public String main() { return \"Hello\"; } }")
+    makeAll().assertBundleCompiled(myModule)
+    val initial = bundleContents(myModule)
+
+    changeFile("main/src/main/Main.java", "package main;\n\npublic class Main { public String main() { return util.Util.util(); } }")
+    createFile("main/src/util/Util.java", "package util;\n\npublic class Util { public static String util() { return \"Hello\"; } }")
+    makeAll().assertBundleCompiled(myModule)
+    val updated = bundleContents(myModule)
+    assertFalse(initial[LAST_MODIFIED] == updated[LAST_MODIFIED])
+
+    changeFile("main/src/main/Main.java", "package main;\n\npublic class Main { public Object main() { return new javax.swing.JPanel(); } }")
+    makeAll().assertBundleCompiled(myModule)
+    val changed = bundleContents(myModule)
+    assertFalse(updated[LAST_MODIFIED] == changed[LAST_MODIFIED])
+
+    rebuildAll()
+    assertEquals(bundleContents(myModule).filterKeys { it != LAST_MODIFIED }, changed.filterKeys { it != LAST_MODIFIED })
+  }
+
   fun testUnusedImport() {
     ideaBuild(myModule)
     extension(myModule).properties.myAdditionalProperties = mapOf("Import-Package" to "org.osgi.*")
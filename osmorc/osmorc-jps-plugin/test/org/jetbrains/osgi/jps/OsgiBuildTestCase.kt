@@ -15,6 +15,7 @@
  */
 package org.jetbrains.osgi.jps
 
+import com.intellij.openapi.util.io.FileUtil
 import org.jetbrains.jps.builders.BuildResult
 import org.jetbrains.jps.builders.JpsBuildTestCase
 import org.jetbrains.jps.model.java.JavaResourceRootType
@@ -28,6 +29,7 @@ import org.jetbrains.osgi.jps.model.JpsOsmorcModuleExtension
 import org.jetbrains.osgi.jps.model.ManifestGenerationMode
 import org.jetbrains.osgi.jps.model.impl.JpsOsmorcModuleExtensionImpl
 import org.jetbrains.osgi.jps.model.impl.OsmorcModuleExtensionProperties
+import java.util.Arrays
 import java.util.jar.JarFile
 
 abstract class OsgiBuildTestCase : JpsBuildTestCase() {
@@ -95,6 +97,20 @@ abstract class OsgiBuildTestCase : JpsBuildTestCase() {
     }
   }
 
+  fun bundleContents(module: JpsModule): Map<String, String> {
+    val contents = hashMapOf<String, String>()
+    JarFile(extension(module).jarFileLocation).use {
+      val jar = it
+      jar.entries().asSequence().filter { !it.isDirectory && it.name != JarFile.MANIFEST_NAME }.forEach {
+        contents[it.name] = Arrays.hashCode(FileUtil.loadBytes(jar.getInputStream(it))).toString()
+      }
+      for ((key, value) in it.manifest!!.mainAttributes!!) {
+        contents["${JarFile.MANIFEST_NAME}:${key}"] = value.toString()
+      }
+    }
+    return contents
+  }
+
   // in Java 6, JarFile does not inherit Closeable, so stdlib extension is not applicable
   private fun JarFile.use(block: (JarFile) -> Unit) {
     try { block(this) } finally { close() }
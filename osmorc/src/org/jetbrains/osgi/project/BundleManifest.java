@@ -20,22 +20,26 @@ import aQute.bnd.osgi.Constants;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiNameHelper;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Represents a bundle manifest.
  * Note that it may be approximate (e.g. for module - see {@link BundleManifestCache#getManifest(Module)} for details).
+ * <p/>
+ * Package and bundle headers are parsed once, on the first query, into matchers kept with the manifest
+ * (which is cached by {@link BundleManifestCache} until its source changes).
  */
 public class BundleManifest {
   private final Map<String, String> myMap;
   private final PsiFile mySource;
+  private volatile PackageMatcher myExportedPackages;
+  private volatile PackageMatcher myImportedPackages;
+  private volatile PackageMatcher myPrivatePackages;
+  private volatile Set<String> myRequiredBundles;
 
   public BundleManifest(@NotNull Map<String, String> map) {
     this(map, null);
@@ -68,48 +72,103 @@ public class BundleManifest {
 
   @Nullable
   public String getExportedPackage(@NotNull String packageName) {
-    for (String exported : getValues(Constants.EXPORT_PACKAGE)) {
-      exported = StringUtil.trimEnd(exported, ".*");
-      if (PsiNameHelper.isSubpackageOf(packageName, exported)) {
-        return exported;
-      }
+    PackageMatcher exported = myExportedPackages;
+    if (exported == null) {
+      myExportedPackages = exported = new PackageMatcher(getValues(Constants.EXPORT_PACKAGE));
     }
-
-    return null;
+    return exported.match(packageName);
   }
 
   public boolean isPackageImported(@NotNull String packageName) {
-    for (String imported : getValues(Constants.IMPORT_PACKAGE)) {
-      if (PsiNameHelper.isSubpackageOf(packageName, imported)) {
-        return true;
-      }
+    PackageMatcher imported = myImportedPackages;
+    if (imported == null) {
+      myImportedPackages = imported = new PackageMatcher(getValues(Constants.IMPORT_PACKAGE));
     }
-
-    return false;
+    return imported.match(packageName) != null;
   }
 
   public boolean isBundleRequired(@NotNull String bsn) {
-    for (String bundleName : getValues(Constants.REQUIRE_BUNDLE)) {
-      if (bsn.equals(bundleName)) {
-        return true;
-      }
+    Set<String> required = myRequiredBundles;
+    if (required == null) {
+      myRequiredBundles = required = getValues(Constants.REQUIRE_BUNDLE);
     }
-
-    return false;
+    return required.contains(bsn);
   }
 
   public boolean isPrivatePackage(@NotNull String packageName) {
-    for (String privatePkg : getValues(Constants.PRIVATE_PACKAGE)) {
-      if (PsiNameHelper.isSubpackageOf(packageName, privatePkg)) {
-        return true;
-      }
+    PackageMatcher privatePackages = myPrivatePackages;
+    if (privatePackages == null) {
+      myPrivatePackages = privatePackages = new PackageMatcher(getValues(Constants.PRIVATE_PACKAGE));
     }
-
-    return false;
+    return privatePackages.match(packageName) != null;
   }
 
   private Set<String> getValues(String header) {
     String value = get(header);
     return StringUtil.isEmptyOrSpaces(value) ? Collections.<String>emptySet() : new Parameters(value).keySet();
   }
-}
\ No newline at end of file
+
+  /**
+   * Package instructions of a header ("pkg", "pkg.*", "*", "!pkg") in a trie by package name segments.
+   * An instruction matches its package and subpackages, the first matching instruction of the header decides,
+   * so a query takes as many lookups as there are segments in the package name.
+   */
+  private static class PackageMatcher {
+    private static class Node {
+      private Map<String, Node> myChildren;
+      private int myInstruction = -1;
+    }
+
+    private final Node myRoot = new Node();
+    // package names of instructions, null for negated ones
+    private final List<String> myPackages;
+
+    private PackageMatcher(Set<String> instructions) {
+      myPackages = new ArrayList<String>(instructions.size());
+      for (String instruction : instructions) {
+        boolean negated = StringUtil.startsWithChar(instruction, '!');
+        String packageName = StringUtil.trimEnd(negated ? instruction.substring(1) : instruction, ".*");
+        Node node = myRoot;
+        if (!"*".equals(packageName)) {
+          int start = 0;
+          while (true) {
+            int end = packageName.indexOf('.', start);
+            String segment = packageName.substring(start, end < 0 ? packageName.length() : end);
+            if (node.myChildren == null) node.myChildren = new HashMap<String, Node>();
+            Node child = node.myChildren.get(segment);
+            if (child == null) node.myChildren.put(segment, child = new Node());
+            node = child;
+            if (end < 0) break;
+            start = end + 1;
+          }
+        }
+        if (node.myInstruction < 0) node.myInstruction = myPackages.size();
+        myPackages.add(negated ? null : packageName);
+      }
+    }
+
+    /**
+     * @return the package of the instruction matching the given one ("*" matches as the package itself), or null if none
+     */
+    @Nullable
+    private String match(String packageName) {
+      int instruction = myRoot.myInstruction;
+      Node node = myRoot;
+      int start = 0;
+      while (node.myChildren != null) {
+        int end = packageName.indexOf('.', start);
+        node = node.myChildren.get(packageName.substring(start, end < 0 ? packageName.length() : end));
+        if (node == null) break;
+        if (node.myInstruction >= 0 && (instruction < 0 || node.myInstruction < instruction)) {
+          instruction = node.myInstruction;
+        }
+        if (end < 0) break;
+        start = end + 1;
+      }
+
+      if (instruction < 0) return null;
+      String matched = myPackages.get(instruction);
+      return matched == null ? null : "*".equals(matched) ? packageName : matched;
+    }
+  }
+}
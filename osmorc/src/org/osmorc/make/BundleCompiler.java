@@ -24,6 +24,7 @@
  */
 package org.osmorc.make;
 
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
@@ -34,7 +35,9 @@ import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.ide.PooledThreadExecutor;
 import org.jetbrains.osgi.jps.build.BndWrapper;
+import org.jetbrains.osgi.jps.build.CachingBundleInfoProvider;
 import org.jetbrains.osgi.jps.build.OsgiBuildException;
 import org.jetbrains.osgi.jps.build.Reporter;
 import org.jetbrains.osgi.jps.model.LibraryBundlificationRule;
@@ -52,6 +55,9 @@ import java.util.List;
 public class BundleCompiler implements Reporter {
   private static final Logger LOG = Logger.getInstance(BundleCompiler.class);
 
+  private static final Object ourBundleInfoLock = new Object();
+  private static boolean ourBundleInfoLoaded = false;
+
   private final ProgressIndicator myIndicator;
 
   public BundleCompiler(@NotNull ProgressIndicator indicator) {
@@ -83,7 +89,21 @@ public class BundleCompiler implements Reporter {
 
     List<File> files = ContainerUtil.map(paths, path -> new File(path));
 
-    return new BndWrapper(this).bundlifyLibraries(files, outputDir, libRules);
+    File bundleInfoFile = new File(PathManager.getSystemPath(), "osmorc/bundle-info.dat");
+    synchronized (ourBundleInfoLock) {
+      if (!ourBundleInfoLoaded) {
+        CachingBundleInfoProvider.loadCache(bundleInfoFile);
+        ourBundleInfoLoaded = true;
+      }
+    }
+    CachingBundleInfoProvider.preload(paths, PooledThreadExecutor.INSTANCE);
+
+    try {
+      return new BndWrapper(this).bundlifyLibraries(files, outputDir, libRules);
+    }
+    finally {
+      CachingBundleInfoProvider.saveCache(bundleInfoFile);
+    }
   }
 
   private static File getModuleOutputDir(@NotNull Module module) throws OsgiBuildException {
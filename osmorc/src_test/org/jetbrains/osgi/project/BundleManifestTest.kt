@@ -15,6 +15,7 @@
  */
 package org.jetbrains.osgi.project
 
+import com.intellij.testFramework.PlatformTestUtil
 import org.junit.Test
 import kotlin.test.assertEquals
 import kotlin.test.assertFalse
@@ -70,4 +71,42 @@ class BundleManifestTest {
     assertTrue(manifest.isPrivatePackage("org.apache.felix.framework.impl"))
     assertFalse(manifest.isPrivatePackage("org.apache.felix"))
   }
-}
\ No newline at end of file
+
+  @Test fun privatePackageWildcardAndNegation() {
+    val manifest = BundleManifest(mapOf("Private-Package" to "!org.apache.felix.framework.internal,org.apache.felix.framework.*"))
+    assertTrue(manifest.isPrivatePackage("org.apache.felix.framework"))
+    assertTrue(manifest.isPrivatePackage("org.apache.felix.framework.impl"))
+    assertFalse(manifest.isPrivatePackage("org.apache.felix.framework.internal"))
+    assertFalse(manifest.isPrivatePackage("org.apache.felix.framework.internal.impl"))
+  }
+
+  @Test fun exportedPackageFirstInstructionWins() {
+    val manifest = BundleManifest(mapOf("Export-Package" to "foo.bar.*,!foo.bar.impl,*"))
+    assertEquals("foo.bar", manifest.getExportedPackage("foo.bar.impl"))
+    assertEquals("foo.baz", manifest.getExportedPackage("foo.baz"))
+  }
+
+  @Test fun queryPerformance() {
+    val manifests = (0 until 500).map { i ->
+      BundleManifest(mapOf(
+        "Bundle-SymbolicName" to "org.example.bundle$i",
+        "Export-Package" to (0 until 20).joinToString(",") { "org.example.bundle$i.api$it;version=\"1.0.0\"" },
+        "Import-Package" to (0 until 50).joinToString(",") { "org.example.bundle${(i + it) % 500}.api${it % 20};version=\"[1,2)\"" },
+        "Private-Package" to "org.example.bundle$i.impl.*,!org.example.bundle$i.internal",
+        "Require-Bundle" to (0 until 10).joinToString(",") { "org.example.bundle${(i + it) % 500}" }))
+    }
+    val packages = (0 until 500).flatMap { i -> (0 until 20).map { "org.example.bundle$i.api$it.sub" } }
+
+    PlatformTestUtil.startPerformanceTest("Bundle manifest queries", 3000) {
+      for (manifest in manifests) {
+        for (i in 0 until packages.size step 50) {
+          val packageName = packages[i]
+          manifest.isPrivatePackage(packageName)
+          manifest.getExportedPackage(packageName)
+          manifest.isPackageImported(packageName)
+          manifest.isBundleRequired(packageName.substringBefore(".api"))
+        }
+      }
+    }.cpuBound().assertTiming()
+  }
+}
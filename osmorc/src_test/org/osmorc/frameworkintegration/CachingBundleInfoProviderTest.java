@@ -31,7 +31,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.osmorc.OsgiTestUtil;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -86,4 +92,114 @@ public class CachingBundleInfoProviderTest {
     assertThat(CachingBundleInfoProvider.isFragmentBundle(myJarBundle), equalTo(false));
     assertThat(CachingBundleInfoProvider.isFragmentBundle(myInvalidDirBundle), equalTo(false));
   }
+
+  @Test
+  public void testChangedManifestIsReread() throws Exception {
+    assertThat(CachingBundleInfoProvider.getBundleVersion(myDirBundle), equalTo("1.0.0"));
+
+    File manifest = new File(myDirBundle, "META-INF/MANIFEST.MF");
+    FileUtil.writeToFile(manifest, "Manifest-Version: 1.0\nBundle-SymbolicName: dirbundle\nBundle-Version: 1.1.0.qualifier\n");
+    assertThat(CachingBundleInfoProvider.getBundleVersion(myDirBundle), equalTo("1.1.0.qualifier"));
+    assertThat(CachingBundleInfoProvider.isFragmentBundle(myDirBundle), equalTo(false));
+  }
+
+  @Test
+  public void testPreloadAndPersistence() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CachingBundleInfoProvider.preload(Arrays.asList(myDirBundle, myJarBundle, myInvalidDirBundle), executor);
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    File cacheFile = new File(myTempDir, "bundle-info.dat");
+    CachingBundleInfoProvider.saveCache(cacheFile);
+    assertThat(cacheFile.isFile(), equalTo(true));
+    CachingBundleInfoProvider.clearCache();
+
+    // a change keeping the size and the timestamp is not noticed, so the name can only come from the saved cache
+    File manifest = new File(myDirBundle, "META-INF/MANIFEST.MF");
+    long lastModified = manifest.lastModified();
+    String text = FileUtil.loadFile(manifest);
+    FileUtil.writeToFile(manifest, text.replace("dirbundle", "dirbundlX"));
+    assertThat(manifest.setLastModified(lastModified), equalTo(true));
+
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myDirBundle), equalTo("dirbundle"));
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myJarBundle), equalTo("jarbundle"));
+    assertThat(CachingBundleInfoProvider.isBundle(myInvalidDirBundle), equalTo(false));
+  }
+
+  @Test
+  public void testEntriesNotAccessedSinceLoadSaved() throws Exception {
+    CachingBundleInfoProvider.isBundle(myDirBundle);
+    CachingBundleInfoProvider.isBundle(myJarBundle);
+    File cacheFile = new File(myTempDir, "bundle-info.dat");
+    CachingBundleInfoProvider.saveCache(cacheFile);
+    CachingBundleInfoProvider.clearCache();
+
+    // the bundles of one module are accessed and the cache is saved before the next module is bundlified
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myJarBundle), equalTo("jarbundle"));
+    CachingBundleInfoProvider.saveCache(cacheFile);
+    CachingBundleInfoProvider.clearCache();
+
+    // a change keeping the size and the timestamp is not noticed, so the name can only come from the saved cache
+    File manifest = new File(myDirBundle, "META-INF/MANIFEST.MF");
+    long lastModified = manifest.lastModified();
+    String text = FileUtil.loadFile(manifest);
+    FileUtil.writeToFile(manifest, text.replace("dirbundle", "dirbundlX"));
+    assertThat(manifest.setLastModified(lastModified), equalTo(true));
+
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myDirBundle), equalTo("dirbundle"));
+  }
+
+  @Test
+  public void testLongUnusedEntriesNotSaved() throws Exception {
+    // an entry of the bundle without a manifest, last accessed long ago
+    File manifest = new File(myDirBundle, "META-INF/MANIFEST.MF");
+    File cacheFile = new File(myTempDir, "bundle-info.dat");
+    DataOutputStream output = new DataOutputStream(new FileOutputStream(cacheFile));
+    try {
+      output.writeInt(2);
+      output.writeInt(1);
+      byte[] path = myDirBundle.getBytes("UTF-8");
+      output.writeInt(path.length);
+      output.write(path);
+      output.writeLong(manifest.lastModified());
+      output.writeLong(manifest.length());
+      output.writeLong(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(365));
+      output.writeInt(-1);
+    }
+    finally {
+      output.close();
+    }
+
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    CachingBundleInfoProvider.saveCache(cacheFile);
+    CachingBundleInfoProvider.clearCache();
+
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myDirBundle), equalTo("dirbundle"));
+  }
+
+  @Test
+  public void testCorruptCacheDiscarded() throws Exception {
+    File cacheFile = new File(myTempDir, "bundle-info.dat");
+    DataOutputStream output = new DataOutputStream(new FileOutputStream(cacheFile));
+    try {
+      output.writeInt(2);
+      output.writeInt(1);
+      output.writeInt(Integer.MAX_VALUE);
+    }
+    finally {
+      output.close();
+    }
+
+    CachingBundleInfoProvider.loadCache(cacheFile);
+    assertThat(cacheFile.exists(), equalTo(false));
+    assertThat(CachingBundleInfoProvider.getBundleSymbolicName(myDirBundle), equalTo("dirbundle"));
+  }
 }
@@ -16,6 +16,11 @@
 package com.intellij.struts2.annotators;
 
 import com.intellij.codeInsight.daemon.GutterMark;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.xml.XmlTag;
@@ -66,6 +71,21 @@ public class ActionJavaAnnotatorTest extends BasicLightHighlightingTestCase {
                               "myActionPath1", "myActionPath2", "myActionPath3");
   }
 
+  public void testGutterMyActionMappingRemoved() {
+    createStrutsFileSet("struts-actionClass-multiple_mappings.xml");
+    checkGutterTargetElements("MyAction.java", ACTION_NAME_RESOLVE,
+                              "myActionPath1", "myActionPath2", "myActionPath3");
+
+    final VirtualFile strutsXml = myFixture.findFileInTempDir("struts-actionClass-multiple_mappings.xml");
+    final Document document = FileDocumentManager.getInstance().getDocument(strutsXml);
+    assertNotNull(document);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.setText(
+      document.getText().replace("<action name=\"myActionPath3\" class=\"MyAction\" method=\"validActionMethod\"/>", "")));
+    PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+    checkGutterTargetElements("MyAction.java", ACTION_NAME_RESOLVE, "myActionPath1", "myActionPath2");
+  }
+
   public void testGutterValidationXml() {
     createStrutsFileSet("struts-validation.xml");
     myFixture.copyFileToProject("/com/MyValidationAction-validation.xml");
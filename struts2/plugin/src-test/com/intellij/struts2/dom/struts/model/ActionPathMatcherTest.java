@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts.model;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ActionPathMatcher}.
+ */
+public class ActionPathMatcherTest {
+
+  private static ActionPathMatcher<String> createMatcher(final String... actionPaths) {
+    final ActionPathMatcher<String> matcher = new ActionPathMatcher<String>();
+    for (final String actionPath : actionPaths) {
+      matcher.add(actionPath, actionPath);
+    }
+    return matcher;
+  }
+
+  @Test
+  public void findMatchesExact() {
+    final ActionPathMatcher<String> matcher = createMatcher("myPath", "my-Path", "sub/myPath");
+
+    assertEquals(Collections.singletonList("myPath"), matcher.findMatches("myPath"));
+    assertEquals(Collections.singletonList("sub/myPath"), matcher.findMatches("sub/myPath"));
+    assertEquals(Collections.emptyList(), matcher.findMatches("XyPath"));
+    assertEquals(Collections.emptyList(), matcher.findMatches("sub"));
+    assertEquals(Collections.emptyList(), matcher.findMatches("sub/myPath/"));
+  }
+
+  @Test
+  public void findMatchesWildcard() {
+    final ActionPathMatcher<String> matcher = createMatcher("some*", "some*Action*Stuff", "*/edit", "someThing", "sub/*");
+
+    assertEquals(Arrays.asList("some*", "someThing"), matcher.findMatches("someThing"));
+    assertEquals(Arrays.asList("some*", "some*Action*Stuff"), matcher.findMatches("someXActionXStuff"));
+    assertEquals(Arrays.asList("*/edit", "sub/*"), matcher.findMatches("sub/edit"));
+    assertEquals(Collections.emptyList(), matcher.findMatches("some/Action/Stuff"));
+    assertEquals(Collections.emptyList(), matcher.findMatches("sub/edit/more"));
+  }
+
+  @Test
+  public void findMatchesBangNotation() {
+    final ActionPathMatcher<String> matcher = createMatcher("myPath", "myPath*", "sub/*");
+
+    assertEquals(Arrays.asList("myPath", "myPath*"), matcher.findMatches("myPath!myAction"));
+    assertEquals(Collections.singletonList("myPath*"), matcher.findMatches("myPathSomething!myAction"));
+    assertEquals(Collections.singletonList("sub/*"), matcher.findMatches("sub/edit!my/Action"));
+  }
+
+  @Test
+  public void findMatchesPerformance() {
+    final Random random = new Random(239);
+
+    final List<String> actionPaths = new ArrayList<String>();
+    for (int i = 0; i < 2000; i++) {
+      switch (i % 4) {
+        case 0: actionPaths.add("module" + i % 40 + "/entity" + i + "_*"); break;
+        case 1: actionPaths.add("*_" + i + "Action"); break;
+        case 2: actionPaths.add("module" + i % 40 + "/*/list" + i); break;
+        default: actionPaths.add("entity" + i + "*Stuff*"); break;
+      }
+    }
+    final ActionPathMatcher<String> matcher = createMatcher(actionPaths.toArray(new String[actionPaths.size()]));
+
+    final List<String> paths = new ArrayList<String>();
+    for (int i = 0; i < 10000; i++) {
+      final int action = random.nextInt(2000);
+      switch (random.nextInt(5)) {
+        case 0: paths.add("module" + action % 40 + "/entity" + action + "_edit"); break;
+        case 1: paths.add("do_" + action + "Action!execute"); break;
+        case 2: paths.add("module" + action % 40 + "/entity" + action + "/list" + action); break;
+        case 3: paths.add("entity" + action + "MyStuffHere"); break;
+        default: paths.add("unknown/path" + action); break;
+      }
+    }
+
+    int expectedMatches = 0;
+    for (final String path : paths) {
+      for (final String actionPath : actionPaths) {
+        if (ActionPathMatcher.matchesPath(actionPath, path)) expectedMatches++;
+      }
+    }
+    assertTrue(expectedMatches > 0);
+
+    final int matches = expectedMatches;
+    PlatformTestUtil.startPerformanceTest("Resolving 10k paths against 2k wildcard actions", 200, () -> {
+      int actualMatches = 0;
+      for (final String path : paths) {
+        actualMatches += matcher.findMatches(path).size();
+      }
+      assertEquals(matches, actualMatches);
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts.model;
+
+import com.intellij.util.SmartList;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Matches paths against a set of Action paths at once (including support for wildcards and bang notation).
+ * <p/>
+ * Action paths are kept in a trie of '/'-separated segments. As '*' never matches '/', a path is matched in a single walk over its
+ * segments, following the child with the same segment and all children with wildcard segments matching it. Wildcard segments are
+ * grouped by their literal prefix and suffix, so only the ones sharing both with the path segment are checked.
+ *
+ * @param <T> Value associated with an Action path.
+ */
+public final class ActionPathMatcher<T> {
+
+  private static final char SEPARATOR = '/';
+  private static final char WILDCARD = '*';
+
+  private final Node myRoot = new Node();
+  private final List<T> myValues = new ArrayList<T>();
+
+  private static class Node {
+    private Map<String, Node> myChildren;
+    private WildcardChildren myWildcardChildren;
+    private List<Integer> myValueIndices;
+
+    @NotNull
+    private Node getOrCreateChild(@NotNull final String segment) {
+      if (segment.indexOf(WILDCARD) != -1) {
+        if (myWildcardChildren == null) {
+          myWildcardChildren = new WildcardChildren();
+        }
+        return myWildcardChildren.getOrCreateChild(segment);
+      }
+
+      if (myChildren == null) {
+        myChildren = new HashMap<String, Node>();
+      }
+      Node child = myChildren.get(segment);
+      if (child == null) {
+        child = new Node();
+        myChildren.put(segment, child);
+      }
+      return child;
+    }
+  }
+
+  private static class WildcardChildren {
+    // literal prefix (before the first '*') -> literal suffix (after the last '*') -> segment -> child
+    private final Map<String, Map<String, Map<String, Node>>> myChildren = new HashMap<String, Map<String, Map<String, Node>>>();
+    private final SortedSet<Integer> myPrefixLengths = new TreeSet<Integer>();
+    private final SortedSet<Integer> mySuffixLengths = new TreeSet<Integer>();
+
+    @NotNull
+    private Node getOrCreateChild(@NotNull final String segment) {
+      final String prefix = segment.substring(0, segment.indexOf(WILDCARD));
+      final String suffix = segment.substring(segment.lastIndexOf(WILDCARD) + 1);
+
+      Map<String, Map<String, Node>> bySuffix = myChildren.get(prefix);
+      if (bySuffix == null) {
+        bySuffix = new HashMap<String, Map<String, Node>>();
+        myChildren.put(prefix, bySuffix);
+        myPrefixLengths.add(prefix.length());
+      }
+      Map<String, Node> bySegment = bySuffix.get(suffix);
+      if (bySegment == null) {
+        bySegment = new HashMap<String, Node>();
+        bySuffix.put(suffix, bySegment);
+        mySuffixLengths.add(suffix.length());
+      }
+      Node child = bySegment.get(segment);
+      if (child == null) {
+        child = new Node();
+        bySegment.put(segment, child);
+      }
+      return child;
+    }
+
+    private void collectMatches(@NotNull final String segment, @NotNull final List<Node> result) {
+      for (final int prefixLength : myPrefixLengths) {
+        if (prefixLength > segment.length()) break;
+        final Map<String, Map<String, Node>> bySuffix = myChildren.get(segment.substring(0, prefixLength));
+        if (bySuffix == null) continue;
+
+        for (final int suffixLength : mySuffixLengths) {
+          if (prefixLength + suffixLength > segment.length()) break;
+          final Map<String, Node> bySegment = bySuffix.get(segment.substring(segment.length() - suffixLength));
+          if (bySegment == null) continue;
+
+          for (final Map.Entry<String, Node> entry : bySegment.entrySet()) {
+            if (matchesSegment(entry.getKey(), segment)) {
+              result.add(entry.getValue());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the given Action path.
+   *
+   * @param actionPath Path of Action.
+   * @param value      Value to return for matching paths.
+   */
+  public void add(@NotNull @NonNls final String actionPath, @NotNull final T value) {
+    Node node = myRoot;
+    int start = 0;
+    while (true) {
+      final int end = actionPath.indexOf(SEPARATOR, start);
+      node = node.getOrCreateChild(end == -1 ? actionPath.substring(start) : actionPath.substring(start, end));
+      if (end == -1) {
+        break;
+      }
+      start = end + 1;
+    }
+
+    if (node.myValueIndices == null) {
+      node.myValueIndices = new SmartList<Integer>();
+    }
+    node.myValueIndices.add(myValues.size());
+    myValues.add(value);
+  }
+
+  /**
+   * Finds values of all Action paths matching the given path.
+   *
+   * @param path Path to check.
+   * @return Values in the order of adding.
+   */
+  @NotNull
+  public List<T> findMatches(@NotNull @NonNls final String path) {
+    final int length = getLengthWithoutBang(path);
+
+    List<Node> nodes = Collections.singletonList(myRoot);
+    int start = 0;
+    while (!nodes.isEmpty()) {
+      int end = path.indexOf(SEPARATOR, start);
+      if (end == -1 || end > length) {
+        end = length;
+      }
+      final String segment = path.substring(start, end);
+
+      final List<Node> next = new SmartList<Node>();
+      for (final Node node : nodes) {
+        if (node.myChildren != null) {
+          final Node child = node.myChildren.get(segment);
+          if (child != null) {
+            next.add(child);
+          }
+        }
+        if (node.myWildcardChildren != null) {
+          node.myWildcardChildren.collectMatches(segment, next);
+        }
+      }
+
+      nodes = next;
+      if (end == length) {
+        break;
+      }
+      start = end + 1;
+    }
+
+    final List<Integer> indices = new SmartList<Integer>();
+    for (final Node node : nodes) {
+      if (node.myValueIndices != null) {
+        indices.addAll(node.myValueIndices);
+      }
+    }
+    if (indices.size() > 1) {
+      Collections.sort(indices);
+    }
+
+    final List<T> result = new ArrayList<T>(indices.size());
+    for (final Integer index : indices) {
+      result.add(myValues.get(index));
+    }
+    return result;
+  }
+
+  /**
+   * Does the given path match the Action's path (including support for wildcards and bang notation).
+   *
+   * @param actionPath Path of Action.
+   * @param checkPath  Path to check.
+   * @return true if matched.
+   */
+  public static boolean matchesPath(@NotNull @NonNls final String actionPath,
+                                    @NotNull @NonNls final String checkPath) {
+    final int length = getLengthWithoutBang(checkPath);
+
+    int actionStart = 0;
+    int checkStart = 0;
+    while (true) {
+      final int actionEnd = actionPath.indexOf(SEPARATOR, actionStart);
+      int checkEnd = checkPath.indexOf(SEPARATOR, checkStart);
+      if (checkEnd == -1 || checkEnd > length) {
+        checkEnd = length;
+      }
+
+      final String segment = actionEnd == -1 ? actionPath.substring(actionStart) : actionPath.substring(actionStart, actionEnd);
+      if (!matchesSegment(segment, checkPath.substring(checkStart, checkEnd))) {
+        return false;
+      }
+
+      if (actionEnd == -1 || checkEnd == length) {
+        return actionEnd == -1 && checkEnd == length;
+      }
+      actionStart = actionEnd + 1;
+      checkStart = checkEnd + 1;
+    }
+  }
+
+  // strip everything behind "!"
+  private static int getLengthWithoutBang(@NotNull final String path) {
+    final int bangIdx = path.indexOf('!');
+    return bangIdx == -1 ? path.length() : bangIdx;
+  }
+
+  private static boolean matchesSegment(@NotNull final String pattern, @NotNull final String segment) {
+    if (pattern.indexOf(WILDCARD) == -1) {
+      return pattern.equals(segment);
+    }
+
+    // '*' matches any sequence, backtrack to the last one on mismatch
+    int p = 0;
+    int s = 0;
+    int lastWildcard = -1;
+    int lastWildcardMatch = 0;
+    while (s < segment.length()) {
+      if (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+        lastWildcard = p++;
+        lastWildcardMatch = s;
+      }
+      else if (p < pattern.length() && pattern.charAt(p) == segment.charAt(s)) {
+        p++;
+        s++;
+      }
+      else if (lastWildcard != -1) {
+        p = lastWildcard + 1;
+        s = ++lastWildcardMatch;
+      }
+      else {
+        return false;
+      }
+    }
+
+    while (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+      p++;
+    }
+    return p == pattern.length();
+  }
+}
@@ -74,7 +74,7 @@ public interface StrutsModel extends DomModel<StrutsRoot> {
    * Gets all Actions for the given class.
    *
    * @param clazz Class to search usages for.
-   * @return List of all Actions.
+   * @return List of all Actions (unmodifiable).
    */
   @NotNull
   List<Action> findActionsByClass(@NotNull final PsiClass clazz);
@@ -90,8 +90,8 @@ public interface StrutsModel extends DomModel<StrutsRoot> {
   /**
    * Gets all available actions for the given namespace.
    *
-   * @param namespace Namespace identifier.
-   * @return List of all Actions.
+   * @param namespace Namespace identifier, {@code null} for all from this model.
+   * @return List of all Actions (unmodifiable).
    */
   List<Action> getActionsForNamespace(@Nullable @NonNls final String namespace);
 
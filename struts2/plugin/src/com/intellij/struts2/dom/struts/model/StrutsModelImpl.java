@@ -15,9 +15,11 @@
 
 package com.intellij.struts2.dom.struts.model;
 
-import com.intellij.openapi.util.Comparing;
-import com.intellij.openapi.util.Condition;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.struts2.dom.struts.StrutsRoot;
 import com.intellij.struts2.dom.struts.action.Action;
@@ -25,6 +27,7 @@ import com.intellij.struts2.dom.struts.strutspackage.Interceptor;
 import com.intellij.struts2.dom.struts.strutspackage.InterceptorOrStackBase;
 import com.intellij.struts2.dom.struts.strutspackage.InterceptorStack;
 import com.intellij.struts2.dom.struts.strutspackage.StrutsPackage;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.Function;
 import com.intellij.util.NotNullFunction;
 import com.intellij.util.Processor;
@@ -36,10 +39,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author Yann C&eacute;bron
@@ -52,9 +52,95 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   private static final Function<StrutsRoot, Collection<? extends StrutsPackage>> STRUTS_PACKAGE_COLLECTOR =
     strutsRoot -> strutsRoot.getPackages();
 
+  private final CachedValue<ActionIndex> myActionIndex;
+  private final CachedValue<Map<PsiClass, List<Action>>> myActionsByClass;
+
+  /**
+   * Actions of all packages and by namespace, as unmodifiable lists shared by all callers,
+   * and path matchers for all actions and by namespace.
+   * <p/>
+   * Only built from the config files, so the matchers used by {@link #findActionsByName(String, String)} are compiled once
+   * per revision of the config files and not rebuilt on Java code changes.
+   */
+  private static class ActionIndex {
+    private final List<Action> myAllActions;
+    private final Map<String, List<Action>> myActionsByNamespace = new HashMap<String, List<Action>>();
+    private final ActionPathMatcher<Action> myAllActionsMatcher = new ActionPathMatcher<Action>();
+    private final Map<String, ActionPathMatcher<Action>> myMatchersByNamespace = new HashMap<String, ActionPathMatcher<Action>>();
+
+    private ActionIndex(final List<StrutsPackage> strutsPackages) {
+      final List<Action> allActions = new ArrayList<Action>();
+      for (final StrutsPackage strutsPackage : strutsPackages) {
+        final List<Action> actions = strutsPackage.getActions();
+        allActions.addAll(actions);
+
+        final String namespace = strutsPackage.searchNamespace();
+        List<Action> namespaceActions = myActionsByNamespace.get(namespace);
+        if (namespaceActions == null) {
+          namespaceActions = new ArrayList<Action>();
+          myActionsByNamespace.put(namespace, namespaceActions);
+        }
+        namespaceActions.addAll(actions);
+
+        ActionPathMatcher<Action> namespaceMatcher = myMatchersByNamespace.get(namespace);
+        if (namespaceMatcher == null) {
+          namespaceMatcher = new ActionPathMatcher<Action>();
+          myMatchersByNamespace.put(namespace, namespaceMatcher);
+        }
+
+        for (final Action action : actions) {
+          final String path = action.getName().getRawText();
+          if (path != null) {
+            myAllActionsMatcher.add(path, action);
+            namespaceMatcher.add(path, action);
+          }
+        }
+      }
+
+      myAllActions = Collections.unmodifiableList(allActions);
+      makeUnmodifiable(myActionsByNamespace);
+    }
+  }
+
   StrutsModelImpl(@NotNull final DomFileElement<StrutsRoot> strutsRootDomFileElement,
                   @NotNull final Set<XmlFile> xmlFiles) {
     super(strutsRootDomFileElement, xmlFiles);
+
+    final CachedValuesManager cachedValuesManager =
+      CachedValuesManager.getManager(strutsRootDomFileElement.getFile().getProject());
+    // DOM changes are tracked through the config files
+    myActionIndex = cachedValuesManager.createCachedValue(
+      () -> CachedValueProvider.Result.create(new ActionIndex(getStrutsPackages()), getConfigFiles().toArray()), false);
+    // action classes may be resolved through any (e.g. Spring) config
+    myActionsByClass = cachedValuesManager.createCachedValue(
+      () -> {
+        final Object[] dependencies = ArrayUtil.append(getConfigFiles().toArray(),
+                                                       PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+        return CachedValueProvider.Result.create(groupByActionClass(myActionIndex.getValue().myAllActions), dependencies);
+      }, false);
+  }
+
+  private static Map<PsiClass, List<Action>> groupByActionClass(final List<Action> actions) {
+    final Map<PsiClass, List<Action>> actionsByClass = new HashMap<PsiClass, List<Action>>();
+    for (final Action action : actions) {
+      final PsiClass actionClass = action.searchActionClass();
+      if (actionClass != null) {
+        List<Action> classActions = actionsByClass.get(actionClass);
+        if (classActions == null) {
+          classActions = new SmartList<Action>();
+          actionsByClass.put(actionClass, classActions);
+        }
+        classActions.add(action);
+      }
+    }
+    makeUnmodifiable(actionsByClass);
+    return actionsByClass;
+  }
+
+  private static <K> void makeUnmodifiable(final Map<K, List<Action>> map) {
+    for (final Map.Entry<K, List<Action>> entry : map.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+    }
   }
 
   @NotNull
@@ -82,48 +168,27 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   @NotNull
   public List<Action> findActionsByName(@NotNull @NonNls final String name,
                                         @Nullable @NonNls final String namespace) {
-    return ContainerUtil.findAll(getActionsForNamespace(namespace), action -> action.matchesPath(name));
+    final ActionIndex actionIndex = myActionIndex.getValue();
+    final ActionPathMatcher<Action> matcher =
+      namespace == null ? actionIndex.myAllActionsMatcher : actionIndex.myMatchersByNamespace.get(namespace);
+    return matcher == null ? Collections.<Action>emptyList() : matcher.findMatches(name);
   }
 
   @NotNull
   public List<Action> findActionsByClass(@NotNull final PsiClass clazz) {
-    return findActionsByClassInner(clazz, false);
-  }
-
-  private List<Action> findActionsByClassInner(final PsiClass clazz,
-                                               final boolean skipOnFirst) {
-    final List<Action> actionResultList = new SmartList<Action>();
-
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      for (final Action action : strutsPackage.getActions()) {
-        final PsiClass actionClassValue = action.searchActionClass();
-        if (Comparing.equal(clazz, actionClassValue)) {
-          actionResultList.add(action);
-          if (skipOnFirst) {
-            return actionResultList;
-          }
-        }
-      }
-    }
-
-    return actionResultList;
+    final List<Action> actions = myActionsByClass.getValue().get(clazz);
+    return actions == null ? Collections.<Action>emptyList() : actions;
   }
 
   @Override
   public boolean isActionClass(@NotNull final PsiClass clazz) {
-    return !findActionsByClassInner(clazz, true).isEmpty();
+    return myActionsByClass.getValue().containsKey(clazz);
   }
 
   public List<Action> getActionsForNamespace(@Nullable @NonNls final String namespace) {
-    final List<Action> actionResultList = new SmartList<Action>();
-
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      if (namespace == null ||
-          Comparing.equal(namespace, strutsPackage.searchNamespace())) {
-        actionResultList.addAll(strutsPackage.getActions());
-      }
-    }
-    return actionResultList;
+    final ActionIndex actionIndex = myActionIndex.getValue();
+    final List<Action> actions = namespace == null ? actionIndex.myAllActions : actionIndex.myActionsByNamespace.get(namespace);
+    return actions == null ? Collections.<Action>emptyList() : actions;
   }
 
   public boolean processActions(final Processor<Action> processor) {